@@ -19,14 +19,36 @@ public class FeedRecord {
     private String url;
 
     /**
-     * The atom feed data returned by the atom feed server at the given URL
-     * Currently a serialized {@link com.rometools.rome.feed.synd.SyndFeed}
+     * The index of the entries of the atom feed last returned by the atom feed server at the given URL: one line per
+     * entry, holding the entry URI and the hash of its content, separated by a tab.
      *
-     * Note: we may eventually want to store the data (corresponding to {@link com.rometools.rome.feed.synd.SyndFeed}) into separate database entities.
+     * Note: records written by older versions of the module hold a serialized
+     * {@link com.rometools.rome.feed.synd.SyndFeed} instead, which is replaced by the index on the next change.
      */
     @Field(type = "TEXT")
     private String data;
 
+    /**
+     * The value of the ETag header last returned by the atom feed server, sent back in the If-None-Match header so
+     * that an unchanged feed is answered with a 304
+     */
+    @Field
+    private String etag;
+
+    /**
+     * The value of the Last-Modified header last returned by the atom feed server, in milliseconds, sent back in the
+     * If-Modified-Since header
+     */
+    @Field
+    private Long lastModified;
+
+    /**
+     * The URL of the feed page (the "via" link) the head feed was serving when it was last processed. Once that page
+     * gets archived, the archived pages are followed from it instead of only reading the head feed.
+     */
+    @Field
+    private String marker;
+
 
     public FeedRecord(String url, String data) {
         this.url = url;
@@ -42,4 +64,39 @@ public class FeedRecord {
     public String getData() {
         return data;
     }
+
+
+    public void setData(String data) {
+        this.data = data;
+    }
+
+
+    public String getEtag() {
+        return etag;
+    }
+
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+
+    public Long getLastModified() {
+        return lastModified;
+    }
+
+
+    public void setLastModified(Long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+
+    public String getMarker() {
+        return marker;
+    }
+
+
+    public void setMarker(String marker) {
+        this.marker = marker;
+    }
 }
@@ -13,7 +13,8 @@ public interface AtomClientConfigService {
     void loadFeedConfigs();
 
     /**
-     * Load the module's default properties (just the fetch job cron for now) from the atom-client-defaults.properties
+     * Load the module's default properties (the fetch job cron, the number of feeds fetched at the same time and the
+     * fetch timeout) from the atom-client-defaults.properties
      * file (or DB, depending on how MOTECH is setup)
      */
     void loadDefaultProperties();
@@ -30,6 +31,18 @@ public interface AtomClientConfigService {
      */
     String getFetchCron();
 
+    /**
+     * Returns the maximum number of feeds fetched at the same time
+     * @return the number of fetch threads
+     */
+    int getFetchThreads();
+
+    /**
+     * Returns the number of seconds after which the fetch of a single feed is abandoned
+     * @return the fetch timeout, in seconds
+     */
+    int getFetchTimeout();
+
 
     /**
      * Sets the module's feed configurations, this sets the in-memory feeds, and is not persisted
@@ -5,6 +5,10 @@ public final class Constants {
     public static final String RAW_CONFIG_FILE = "atom-client-feeds.json";
     public static final String PROPERTIES_FILE = "atom-client-defaults.properties";
     public static final String FETCH_CRON_PROPERTY = "atomclient.feed.cron";
+    public static final String FETCH_THREADS_PROPERTY = "atomclient.fetch.threads";
+    public static final String FETCH_TIMEOUT_PROPERTY = "atomclient.fetch.timeout";
+    public static final int DEFAULT_FETCH_THREADS = 4;
+    public static final int DEFAULT_FETCH_TIMEOUT_SECONDS = 60;
     public static final String BASE_ATOMCLIENT_SUBJECT = "org.motechproject.atomclient";
     public static final String FETCH_MESSAGE = BASE_ATOMCLIENT_SUBJECT + ".fetch";
     public static final String FEED_CHANGE_MESSAGE = BASE_ATOMCLIENT_SUBJECT + ".feedchange";
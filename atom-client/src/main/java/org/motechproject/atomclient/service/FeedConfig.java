@@ -2,8 +2,8 @@ package org.motechproject.atomclient.service;
 
 
 /**
- * Represents the information needed for the module to fetch an atom feed (the URL) and extract a specific part of the
- * feed content (the regex)
+ * Represents the information needed for the module to fetch an atom feed (the URL), extract a specific part of the
+ * feed content (the regex) and decide how often to fetch it (the interval)
  */
 public class FeedConfig {
 
@@ -17,6 +17,12 @@ public class FeedConfig {
      */
     private String regex;
 
+    /**
+     * The minimum number of seconds between two fetches of the feed, or null to fetch it every time the fetch job
+     * runs. Feeds are only ever fetched by the fetch job, so the interval is rounded up to the fetch job schedule.
+     */
+    private Integer interval;
+
 
     public FeedConfig() {
         this("", "");
@@ -42,4 +48,12 @@ public class FeedConfig {
     public void setRegex(String regex) {
         this.regex = regex;
     }
+
+    public Integer getInterval() {
+        return interval;
+    }
+
+    public void setInterval(Integer interval) {
+        this.interval = interval;
+    }
 }
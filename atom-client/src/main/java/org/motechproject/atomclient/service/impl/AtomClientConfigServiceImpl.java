@@ -2,6 +2,7 @@ package org.motechproject.atomclient.service.impl;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.motechproject.atomclient.exception.AtomClientConfigurationException;
 import org.motechproject.atomclient.service.AtomClientConfigService;
@@ -31,6 +32,8 @@ public class AtomClientConfigServiceImpl implements AtomClientConfigService {
     private EventRelay eventRelay;
     private SettingsFacade settingsFacade;
     private String fetchCron;
+    private int fetchThreads = Constants.DEFAULT_FETCH_THREADS;
+    private int fetchTimeout = Constants.DEFAULT_FETCH_TIMEOUT_SECONDS;
     private FeedConfigs feedConfigs = new FeedConfigs();
 
 
@@ -75,6 +78,10 @@ public class AtomClientConfigServiceImpl implements AtomClientConfigService {
 
     @Override
     public void loadDefaultProperties() {
+        fetchThreads = NumberUtils.toInt(settingsFacade.getProperty(Constants.FETCH_THREADS_PROPERTY),
+                Constants.DEFAULT_FETCH_THREADS);
+        fetchTimeout = NumberUtils.toInt(settingsFacade.getProperty(Constants.FETCH_TIMEOUT_PROPERTY),
+                Constants.DEFAULT_FETCH_TIMEOUT_SECONDS);
         setFetchCron(settingsFacade.getProperty(Constants.FETCH_CRON_PROPERTY));
     }
 
@@ -100,6 +107,18 @@ public class AtomClientConfigServiceImpl implements AtomClientConfigService {
     }
 
 
+    @Override
+    public int getFetchThreads() {
+        return fetchThreads;
+    }
+
+
+    @Override
+    public int getFetchTimeout() {
+        return fetchTimeout;
+    }
+
+
     @Override
     public void setFetchCron(String cronString) {
         if (StringUtils.isBlank(cronString)) {
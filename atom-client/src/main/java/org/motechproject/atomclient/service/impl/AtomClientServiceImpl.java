@@ -1,6 +1,5 @@
 package org.motechproject.atomclient.service.impl;
 
-import com.rometools.fetcher.FeedFetcher;
 import com.rometools.fetcher.FetcherException;
 import com.rometools.fetcher.impl.HttpURLFeedFetcher;
 import com.rometools.rome.io.FeedException;
@@ -18,14 +17,37 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
+/**
+ * Fetches the configured feeds concurrently, on a bounded pool of threads. Each run of the fetch job only fetches the
+ * feeds whose interval has elapsed since the start of their last successful fetch and that are not still being
+ * fetched by a previous run, so a failed fetch is retried by the next run. The fetch of a feed is abandoned once it
+ * exceeds the fetch timeout, so that a slow feed does not hold the other ones back. Feeds are fetched
+ * with conditional requests, using the ETag and Last-Modified values stored by the {@link FeedCache}, so that an
+ * unchanged feed only costs a 304 response.
+ */
 @Service("atomClientService")
 public class AtomClientServiceImpl implements AtomClientService {
 
@@ -33,15 +55,35 @@ public class AtomClientServiceImpl implements AtomClientService {
 
     private AtomClientConfigService configService;
     private MotechSchedulerService motechSchedulerService;
-    private FeedFetcher feedFetcher;
+    private HttpURLFeedFetcher feedFetcher;
+    private FeedPageReader feedPageReader;
+    private ThreadPoolExecutor fetchExecutor;
+
+    private final ConcurrentMap<String, Long> nextFetchTimes = new ConcurrentHashMap<>();
+    private final Set<String> feedsInFlight = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
 
     @Autowired
     public AtomClientServiceImpl(FeedRecordDataService feedRecordDataService, EventRelay eventRelay,
                                  AtomClientConfigService configService, MotechSchedulerService motechSchedulerService) {
-        feedFetcher = new HttpURLFeedFetcher(new FeedCache(feedRecordDataService, eventRelay, configService));
+        feedPageReader = new FeedPageReader(timeoutMillis(configService));
+        feedFetcher = new HttpURLFeedFetcher(new FeedCache(feedRecordDataService, eventRelay, configService,
+                feedPageReader));
         this.configService = configService;
         this.motechSchedulerService = motechSchedulerService;
+
+        int threads = fetchThreads(configService);
+        fetchExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private final AtomicInteger count = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "atom-client-fetch-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
     }
 
 
@@ -51,6 +93,12 @@ public class AtomClientServiceImpl implements AtomClientService {
     }
 
 
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
+
+
     @Override
     public void scheduleFetchJob(String cronExpression) {
         if (cronExpression.isEmpty()) {
@@ -66,12 +114,24 @@ public class AtomClientServiceImpl implements AtomClientService {
 
 
     @Override
-    @Transactional
     public void fetch() {
-        if (configService.getFeedConfigs().getFeeds().isEmpty()) {
+        Set<FeedConfig> feedConfigs = configService.getFeedConfigs().getFeeds();
+        if (feedConfigs.isEmpty()) {
             LOGGER.warn("No feeds to fetch.");
         }
-        for (FeedConfig feedConfig : configService.getFeedConfigs().getFeeds()) {
+
+        int timeoutMillis = timeoutMillis(configService);
+        feedFetcher.setConnectTimeout(timeoutMillis);
+        feedFetcher.setReadTimeout(timeoutMillis);
+        feedPageReader.setTimeoutMillis(timeoutMillis);
+        resizeFetchExecutor(fetchThreads(configService));
+
+        long now = System.currentTimeMillis();
+        Set<String> configuredUrls = new HashSet<>();
+        List<FeedFetch> fetches = new ArrayList<>();
+
+        for (FeedConfig feedConfig : feedConfigs) {
+            configuredUrls.add(feedConfig.getUrl());
             URL url;
             try {
                 url = new URL(feedConfig.getUrl());
@@ -79,11 +139,125 @@ public class AtomClientServiceImpl implements AtomClientService {
                 LOGGER.error("Invalid Atom feed URL {}", feedConfig.getUrl());
                 continue;
             }
+
+            Long nextFetchTime = nextFetchTimes.get(feedConfig.getUrl());
+            if (nextFetchTime != null && nextFetchTime > now) {
+                LOGGER.trace("Not fetching {} before {}", url, nextFetchTime);
+                continue;
+            }
+            if (!feedsInFlight.add(feedConfig.getUrl())) {
+                LOGGER.warn("Not fetching {}, the previous fetch is still running", url);
+                continue;
+            }
+
+            if (feedConfig.getInterval() == null || feedConfig.getInterval() <= 0) {
+                nextFetchTimes.remove(feedConfig.getUrl());
+            }
+
+            FeedFetch fetch = new FeedFetch(feedConfig.getUrl(), url, feedConfig.getInterval());
+            fetch.future = fetchExecutor.submit(fetch);
+            fetches.add(fetch);
+        }
+
+        nextFetchTimes.keySet().retainAll(configuredUrls);
+
+        try {
+            for (FeedFetch fetch : fetches) {
+                await(fetch, timeoutMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.warn("Interrupted while waiting for the feeds to be fetched");
+            for (FeedFetch fetch : fetches) {
+                if (fetch.future.cancel(true) && fetch.startedAt == 0) {
+                    // the fetch never ran, so it cannot clear its own in-flight flag
+                    feedsInFlight.remove(fetch.urlString);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Waits until the feed is fetched, or until the fetch has run for longer than the timeout, in which case it is
+     * cancelled. The time a fetch spends queued, waiting for a free thread, does not count towards its timeout.
+     */
+    private void await(FeedFetch fetch, int timeoutMillis) throws InterruptedException {
+        while (true) {
+            long startedAt = fetch.startedAt;
+            long remaining = startedAt == 0 ? timeoutMillis : startedAt + timeoutMillis - System.currentTimeMillis();
+
+            try {
+                fetch.future.get(Math.max(remaining, 0), TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                if (startedAt != 0) {
+                    LOGGER.error("Fetching {} took longer than {} ms, abandoning it", fetch.urlString, timeoutMillis);
+                    fetch.future.cancel(true);
+                    return;
+                }
+            } catch (ExecutionException e) {
+                LOGGER.error("Error while fetching " + fetch.urlString, e.getCause());
+                return;
+            }
+        }
+    }
+
+
+    private void resizeFetchExecutor(int threads) {
+        if (threads > fetchExecutor.getMaximumPoolSize()) {
+            fetchExecutor.setMaximumPoolSize(threads);
+            fetchExecutor.setCorePoolSize(threads);
+        } else if (threads < fetchExecutor.getMaximumPoolSize()) {
+            fetchExecutor.setCorePoolSize(threads);
+            fetchExecutor.setMaximumPoolSize(threads);
+        }
+    }
+
+
+    private static int fetchThreads(AtomClientConfigService configService) {
+        int threads = configService.getFetchThreads();
+        return threads > 0 ? threads : Constants.DEFAULT_FETCH_THREADS;
+    }
+
+
+    private static int timeoutMillis(AtomClientConfigService configService) {
+        int timeout = configService.getFetchTimeout();
+        return (int) TimeUnit.SECONDS.toMillis(timeout > 0 ? timeout : Constants.DEFAULT_FETCH_TIMEOUT_SECONDS);
+    }
+
+
+    /**
+     * The fetch of a single feed, run on the fetch executor.
+     */
+    private final class FeedFetch implements Runnable {
+
+        private final String urlString;
+        private final URL url;
+        private final Integer interval;
+        private volatile long startedAt;
+        private Future<?> future;
+
+        private FeedFetch(String urlString, URL url, Integer interval) {
+            this.urlString = urlString;
+            this.url = url;
+            this.interval = interval;
+        }
+
+        @Override
+        public void run() {
+            startedAt = System.currentTimeMillis();
             LOGGER.trace("Fetching {}", url);
             try {
                 feedFetcher.retrieveFeed(url);
+
+                if (interval != null && interval > 0) {
+                    nextFetchTimes.put(urlString, startedAt + TimeUnit.SECONDS.toMillis(interval));
+                }
             } catch (FeedException | IOException | FetcherException e) {
-                LOGGER.error("Error while fetching {}: {}", feedConfig.getUrl(), e.getMessage());
+                LOGGER.error("Error while fetching {}: {}", urlString, e.getMessage());
+            } finally {
+                feedsInFlight.remove(urlString);
             }
         }
     }
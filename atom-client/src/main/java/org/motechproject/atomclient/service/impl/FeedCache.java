@@ -19,8 +19,13 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -31,17 +36,30 @@ import java.util.regex.Pattern;
 public class FeedCache implements FeedFetcherCache {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(FeedCache.class);
+    private static final int MAX_ARCHIVED_PAGES = 100;
 
     private FeedRecordDataService feedRecordDataService;
     private AtomClientConfigService atomClientConfigService;
     private EventRelay eventRelay;
+    private FeedPageReader feedPageReader;
+
+    private final ConcurrentMap<String, Object> feedLocks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Pattern> patterns = new ConcurrentHashMap<>();
 
 
     public FeedCache(FeedRecordDataService feedRecordDataService, EventRelay eventRelay,
                      AtomClientConfigService atomClientConfigService) {
+        this(feedRecordDataService, eventRelay, atomClientConfigService,
+                new FeedPageReader((int) TimeUnit.SECONDS.toMillis(Constants.DEFAULT_FETCH_TIMEOUT_SECONDS)));
+    }
+
+
+    public FeedCache(FeedRecordDataService feedRecordDataService, EventRelay eventRelay,
+                     AtomClientConfigService atomClientConfigService, FeedPageReader feedPageReader) {
         this.feedRecordDataService = feedRecordDataService;
         this.eventRelay = eventRelay;
         this.atomClientConfigService = atomClientConfigService;
+        this.feedPageReader = feedPageReader;
     }
 
 
@@ -59,7 +77,7 @@ public class FeedCache implements FeedFetcherCache {
             if (record != null) {
                 return FeedCacheUtils.feedRecordToFeedInfo(record);
             }
-        } catch (IOException | ClassNotFoundException | FeedException ex) {
+        } catch (IOException ex) {
             LOGGER.error("Error reading FeedRecord from the database {}", ex.getMessage());
         }
         return null;
@@ -67,26 +85,48 @@ public class FeedCache implements FeedFetcherCache {
 
 
     /**
-     * Add a SyndFeedInfo object to the cache
+     * Add a SyndFeedInfo object to the cache. Only one thread at a time updates a given feed, different feeds are
+     * updated concurrently. If the feed page that was served by the head feed when it was last processed has been
+     * archived since, the archived pages are read, from that page on, before the head feed.
      *
      * @param feedUrl The url of the feed
      * @param feedInfo A SyndFeedInfo for the feed
      */
     @Override
-    public synchronized void setFeedInfo(URL feedUrl, SyndFeedInfo feedInfo) {
+    public void setFeedInfo(URL feedUrl, SyndFeedInfo feedInfo) {
         try {
             String url = FeedCacheUtils.urlToString(feedUrl);
-            String regex = atomClientConfigService.getRegexForFeedUrl(url);
-            FeedRecord record = feedRecordDataService.findByURL(url);
-            if (record != null) {
-                SyndFeedInfo cachedFeedInfo = FeedCacheUtils.feedRecordToFeedInfo(record);
-                if (sendMessagesForChangedEntries(url, cachedFeedInfo.getSyndFeed(), feedInfo.getSyndFeed(), regex)) {
-                    feedRecordDataService.delete(record);
+
+            synchronized (lockForFeed(url)) {
+                SyndFeed fetchedFeed = feedInfo.getSyndFeed();
+                Pattern pattern = getPattern(atomClientConfigService.getRegexForFeedUrl(url));
+                Map<String, String> fetchedIndex = FeedCacheUtils.indexFeed(fetchedFeed);
+                String marker = FeedCacheUtils.linkHref(fetchedFeed, FeedCacheUtils.VIA_LINK);
+                FeedRecord record = feedRecordDataService.findByURL(url);
+
+                if (record != null) {
+                    Map<String, String> cachedIndex = FeedCacheUtils.feedRecordToIndex(record);
+                    boolean changed = false;
+                    if (record.getMarker() != null && marker != null && !record.getMarker().equals(marker)) {
+                        changed = sendMessagesForArchivedPages(url, record.getMarker(), fetchedFeed, cachedIndex,
+                                pattern);
+                    }
+                    changed |= sendMessagesForChangedEntries(url, cachedIndex, fetchedFeed, fetchedIndex, pattern);
+
+                    Long lastModified = FeedCacheUtils.lastModified(feedInfo);
+                    if (changed || !StringUtils.equals(record.getEtag(), feedInfo.getETag()) ||
+                            !ObjectUtils.equals(record.getLastModified(), lastModified) ||
+                            !StringUtils.equals(record.getMarker(), marker)) {
+                        record.setData(FeedCacheUtils.indexToString(fetchedIndex));
+                        record.setEtag(feedInfo.getETag());
+                        record.setLastModified(lastModified);
+                        record.setMarker(marker);
+                        feedRecordDataService.update(record);
+                    }
+                } else {
+                    sendMessagesForNewFeedData(url, fetchedFeed, pattern);
                     feedRecordDataService.create(FeedCacheUtils.recordFromFeed(url, feedInfo));
                 }
-            } else {
-                sendMessagesForNewFeedData(url, feedInfo.getSyndFeed(), regex);
-                feedRecordDataService.create(FeedCacheUtils.recordFromFeed(url, feedInfo));
             }
         } catch (IOException | FeedException | ClassNotFoundException ex) {
             LOGGER.error("Error writing FeedRecord to the database {}", ex.getMessage());
@@ -120,7 +160,7 @@ public class FeedCache implements FeedFetcherCache {
             LOGGER.debug("*** removing from cache *** {}", url);
             feedRecordDataService.delete(record);
             return FeedCacheUtils.feedRecordToFeedInfo(record);
-        } catch (IOException | ClassNotFoundException | FeedException ex) {
+        } catch (IOException ex) {
             LOGGER.error("Error removing FeedRecord from the databaase {}", ex.getMessage());
             return null;
         }
@@ -128,24 +168,23 @@ public class FeedCache implements FeedFetcherCache {
 
 
     /**
-     * Given a regex, will extract the first regex capture group from the given content string
+     * Given a compiled regex, will extract the first regex capture group from the given content string
      *
      * @param content the content string from which to extract
-     * @param regex   the regular expression that defines what to extract, a blank regex will return null
+     * @param pattern the regular expression that defines what to extract, a null pattern will return null
      * @return the extracted content part, or null
      */
-    private String extractContent(String content, String regex) {
-        if (StringUtils.isBlank(regex)) {
+    private String extractContent(String content, Pattern pattern) {
+        if (pattern == null) {
             return null;
         }
 
-        Pattern pattern = Pattern.compile(regex);
         Matcher matcher = pattern.matcher(content);
         if (matcher.find()) {
             if (matcher.groupCount() > 0) {
                 if (matcher.groupCount() > 1) {
                     LOGGER.warn("Ignoring {} extra regex extract{} for regex {}", matcher.groupCount() - 1,
-                            matcher.groupCount() > 2 ? "s" : "", regex);
+                            matcher.groupCount() > 2 ? "s" : "", pattern.pattern());
                 }
                 return matcher.group(1);
             }
@@ -155,12 +194,45 @@ public class FeedCache implements FeedFetcherCache {
     }
 
 
+    /**
+     * Returns the compiled regex, compiling it only the first time it is used.
+     *
+     * @param regex the regular expression, may be blank
+     * @return the compiled regular expression, or null for a blank regex
+     */
+    private Pattern getPattern(String regex) {
+        if (StringUtils.isBlank(regex)) {
+            return null;
+        }
+
+        Pattern pattern = patterns.get(regex);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex);
+            patterns.putIfAbsent(regex, pattern);
+        }
+        return pattern;
+    }
+
+
+    private Object lockForFeed(String url) {
+        Object lock = feedLocks.get(url);
+        if (lock == null) {
+            Object newLock = new Object();
+            lock = feedLocks.putIfAbsent(url, newLock);
+            if (lock == null) {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+
+
     /**
      * Sends a MOTECH event for a feed entry
      *
      * @param entry
      */
-    private void sendMessageForFeedEntry(String url, SyndEntry entry, String regex) {
+    private void sendMessageForFeedEntry(String url, SyndEntry entry, Pattern pattern) {
         Map<String, Object> parameters = new HashMap<>();
         String rawContent = "";
         String extractedContent = "";
@@ -173,7 +245,7 @@ public class FeedCache implements FeedFetcherCache {
             }
             SyndContent content = entry.getContents().get(0);
             rawContent = content.getValue();
-            String extractedContentString = extractContent(content.getValue(), regex);
+            String extractedContentString = extractContent(content.getValue(), pattern);
             if (StringUtils.isNotBlank(extractedContentString)) {
                 extractedContent = extractedContentString;
             }
@@ -193,69 +265,91 @@ public class FeedCache implements FeedFetcherCache {
      *
      * @param feed
      */
-    private void sendMessagesForNewFeedData(String url, SyndFeed feed, String regex) {
+    private void sendMessagesForNewFeedData(String url, SyndFeed feed, Pattern pattern) {
         LOGGER.debug("Sending {} message{} for new feed {}", feed.getEntries().size(),
                 feed.getEntries().size() == 1 ? "" : "s", url);
         for (SyndEntry entry : feed.getEntries()) {
-            sendMessageForFeedEntry(url, entry, regex);
+            sendMessageForFeedEntry(url, entry, pattern);
         }
     }
 
 
     /**
-     * Sends a MOTECH event for each changed feed entry and returns true if changes were detected
+     * Reads the archived pages of the feed, following the prev-archive links from the head feed back to the marker
+     * page, and sends a MOTECH event for each of their new or changed entries, oldest page first. The marker page was
+     * the working page of the head feed when it was last processed, so only its entries added since are new.
      *
-     * @param cachedFeed
-     * @param fetchedFeed
-     * @return true if any changes were detected between the cached entry and the fetched entry
+     * @param marker the URL of the page the head feed was serving when it was last processed
+     * @param headFeed the fetched head feed
+     * @param cachedIndex the entry URI to content hash index of the cached feed
+     * @return true if any changes were detected in the archived pages
      */
-    private boolean sendMessagesForChangedEntries(String url, SyndFeed cachedFeed, SyndFeed fetchedFeed, String regex) {
-        boolean anyChanges = false;
-        for (SyndEntry fetchedEntry : fetchedFeed.getEntries()) {
-            boolean foundInCache = false;
-            for (SyndEntry cachedEntry : cachedFeed.getEntries()) {
-                if (fetchedEntry.getUri().equals(cachedEntry.getUri())) {
-                    foundInCache = true;
-                    if (areEntriesDifferent(fetchedEntry, cachedEntry)) {
-                        LOGGER.debug("Sending message for changed entry {} in feed {}", fetchedEntry.getUri(), url);
-                        sendMessageForFeedEntry(url, fetchedEntry, regex);
-                        anyChanges = true;
-                    }
-                }
-            }
-            if (!foundInCache) {
-                LOGGER.debug("Sending message for new entry {} in feed {}", fetchedEntry.getUri(), url);
-                sendMessageForFeedEntry(url, fetchedEntry, regex);
-                anyChanges = true;
+    private boolean sendMessagesForArchivedPages(String url, String marker, SyndFeed headFeed,
+                                                 Map<String, String> cachedIndex, Pattern pattern)
+            throws IOException, FeedException {
+        Deque<SyndFeed> pages = new ArrayDeque<>();
+        URL base = new URL(url);
+        String href = FeedCacheUtils.linkHref(headFeed, FeedCacheUtils.PREV_ARCHIVE_LINK);
+        boolean markerReached = false;
+
+        while (href != null && pages.size() < MAX_ARCHIVED_PAGES) {
+            URL pageUrl = new URL(base, href);
+            LOGGER.debug("Reading archived page {} of feed {}", pageUrl, url);
+            SyndFeed page = feedPageReader.read(pageUrl);
+            pages.push(page);
+
+            if (marker.equals(href) || marker.equals(pageUrl.toExternalForm())) {
+                markerReached = true;
+                break;
             }
+            base = pageUrl;
+            href = FeedCacheUtils.linkHref(page, FeedCacheUtils.PREV_ARCHIVE_LINK);
         }
 
-        if (anyChanges == false) {
-            LOGGER.debug("No changes detected in feed {}", url);
+        if (!markerReached) {
+            LOGGER.warn("Page {} of feed {} was not found within the {} most recent archived pages, entries may have " +
+                    "been missed", marker, url, pages.size());
         }
 
+        boolean anyChanges = false;
+        while (!pages.isEmpty()) {
+            SyndFeed page = pages.pop();
+            anyChanges |= sendMessagesForChangedEntries(url, cachedIndex, page, FeedCacheUtils.indexFeed(page),
+                    pattern);
+        }
         return anyChanges;
     }
 
 
-    private static boolean areEntriesDifferent(SyndEntry e1, SyndEntry e2) {
-        if (!ObjectUtils.equals(e1.getUpdatedDate(), e2.getUpdatedDate())) {
-            LOGGER.trace("different updated date");
-            return true;
-        }
-        if (!ObjectUtils.equals(e1.getPublishedDate(), e2.getPublishedDate())) {
-            LOGGER.trace("different published date");
-            return true;
-        }
-        if (!ObjectUtils.equals(e1.getUri(), e2.getUri())) {
-            LOGGER.trace("different uri");
-            return true;
+    /**
+     * Sends a MOTECH event for each changed feed entry and returns true if changes were detected. An entry has changed
+     * if it is not in the cached index, or if its content hash differs from the cached one.
+     *
+     * @param cachedIndex the entry URI to content hash index of the cached feed
+     * @param fetchedFeed the fetched feed
+     * @param fetchedIndex the entry URI to content hash index of the fetched feed
+     * @return true if any changes were detected between the cached entry and the fetched entry
+     */
+    private boolean sendMessagesForChangedEntries(String url, Map<String, String> cachedIndex, SyndFeed fetchedFeed,
+                                                  Map<String, String> fetchedIndex, Pattern pattern) {
+        boolean anyChanges = false;
+        for (SyndEntry fetchedEntry : fetchedFeed.getEntries()) {
+            String cachedHash = cachedIndex.get(fetchedEntry.getUri());
+            if (cachedHash == null) {
+                LOGGER.debug("Sending message for new entry {} in feed {}", fetchedEntry.getUri(), url);
+                sendMessageForFeedEntry(url, fetchedEntry, pattern);
+                anyChanges = true;
+            } else if (!cachedHash.equals(fetchedIndex.get(fetchedEntry.getUri()))) {
+                LOGGER.debug("Sending message for changed entry {} in feed {}", fetchedEntry.getUri(), url);
+                sendMessageForFeedEntry(url, fetchedEntry, pattern);
+                anyChanges = true;
+            }
         }
-        if (!ObjectUtils.equals(e1.getContents(), e2.getContents())) {
-            LOGGER.trace("different contents");
-            return true;
+
+        if (!anyChanges) {
+            LOGGER.debug("No changes detected in feed {}", url);
         }
 
-        return false;
+        return anyChanges;
     }
 }
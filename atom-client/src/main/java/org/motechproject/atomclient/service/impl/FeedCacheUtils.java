@@ -1,7 +1,10 @@
 package org.motechproject.atomclient.service.impl;
 
 import com.rometools.fetcher.impl.SyndFeedInfo;
+import com.rometools.rome.feed.synd.SyndContent;
+import com.rometools.rome.feed.synd.SyndEntry;
 import com.rometools.rome.feed.synd.SyndFeed;
+import com.rometools.rome.feed.synd.SyndLink;
 import com.rometools.rome.io.FeedException;
 import com.rometools.rome.io.SyndFeedInput;
 import com.rometools.rome.io.SyndFeedOutput;
@@ -11,6 +14,12 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 
 /**
@@ -18,6 +27,13 @@ import java.net.URL;
  */
 public final class FeedCacheUtils {
 
+    public static final String VIA_LINK = "via";
+    public static final String PREV_ARCHIVE_LINK = "prev-archive";
+
+    private static final String HASH_ALGORITHM = "SHA-1";
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    private static final char INDEX_SEPARATOR = '\t';
+
     private FeedCacheUtils() { }
 
 
@@ -33,8 +49,12 @@ public final class FeedCacheUtils {
     }
 
 
-    public static FeedRecord recordFromFeed(String url, SyndFeedInfo info) throws IOException, FeedException {
-        return new FeedRecord(url, feedToString(info.getSyndFeed()));
+    public static FeedRecord recordFromFeed(String url, SyndFeedInfo info) {
+        FeedRecord record = new FeedRecord(url, indexToString(indexFeed(info.getSyndFeed())));
+        record.setEtag(info.getETag());
+        record.setLastModified(lastModified(info));
+        record.setMarker(linkHref(info.getSyndFeed(), VIA_LINK));
+        return record;
     }
 
 
@@ -43,10 +63,146 @@ public final class FeedCacheUtils {
     }
 
 
-    public static SyndFeedInfo feedRecordToFeedInfo(FeedRecord record) throws IOException, ClassNotFoundException, FeedException {
+    /**
+     * Builds the feed info for a cached feed. The feed itself is not stored, only the hashes of its entries, so the
+     * returned info only carries the URL and the ETag and Last-Modified validators used for conditional requests.
+     */
+    public static SyndFeedInfo feedRecordToFeedInfo(FeedRecord record) throws IOException {
         SyndFeedInfo info = new SyndFeedInfo();
         info.setUrl(new URL(record.getUrl()));
-        info.setSyndFeed(feedFromString(record.getData()));
+        info.setETag(record.getEtag());
+        info.setLastModified(record.getLastModified());
         return info;
     }
+
+
+    /**
+     * Returns the Last-Modified value of the feed info, or null if the server did not send one.
+     */
+    public static Long lastModified(SyndFeedInfo info) {
+        Object lastModified = info.getLastModified();
+        if (lastModified instanceof Long && (Long) lastModified > 0) {
+            return (Long) lastModified;
+        }
+        return null;
+    }
+
+
+    /**
+     * Returns the href of the first link of the feed with the given relation, or null if the feed has no such link.
+     */
+    public static String linkHref(SyndFeed feed, String rel) {
+        if (feed.getLinks() != null) {
+            for (SyndLink link : feed.getLinks()) {
+                if (rel.equals(link.getRel())) {
+                    return link.getHref();
+                }
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Reads the entry URI to content hash index stored in the record. Records written by older versions of the module
+     * hold the whole serialized feed instead, which is indexed on the fly.
+     */
+    public static Map<String, String> feedRecordToIndex(FeedRecord record) throws IOException, ClassNotFoundException,
+            FeedException {
+        String data = record.getData();
+
+        if (data != null && data.trim().startsWith("<")) {
+            return indexFeed(feedFromString(data));
+        }
+
+        return indexFromString(data);
+    }
+
+
+    public static Map<String, String> indexFeed(SyndFeed feed) {
+        Map<String, String> index = new LinkedHashMap<>();
+        for (SyndEntry entry : feed.getEntries()) {
+            index.put(entry.getUri(), entryHash(entry));
+        }
+        return index;
+    }
+
+
+    public static String indexToString(Map<String, String> index) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : index.entrySet()) {
+            sb.append(entry.getKey()).append(INDEX_SEPARATOR).append(entry.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+
+    public static Map<String, String> indexFromString(String data) {
+        Map<String, String> index = new LinkedHashMap<>();
+        if (data == null) {
+            return index;
+        }
+
+        for (String line : data.split("\n")) {
+            int separator = line.lastIndexOf(INDEX_SEPARATOR);
+            if (separator >= 0) {
+                index.put(line.substring(0, separator), line.substring(separator + 1));
+            }
+        }
+        return index;
+    }
+
+
+    /**
+     * Hashes the parts of the entry that are compared to detect changes: the URI, the updated and published dates and
+     * the contents.
+     */
+    public static String entryHash(SyndEntry entry) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+
+        update(digest, entry.getUri());
+        update(digest, entry.getUpdatedDate());
+        update(digest, entry.getPublishedDate());
+        if (entry.getContents() != null) {
+            for (SyndContent content : entry.getContents()) {
+                update(digest, content.getType());
+                update(digest, content.getMode());
+                update(digest, content.getValue());
+            }
+        }
+
+        return toHex(digest.digest());
+    }
+
+
+    private static void update(MessageDigest digest, Date date) {
+        update(digest, date == null ? null : String.valueOf(date.getTime()));
+    }
+
+
+    private static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+        } else {
+            digest.update((byte) 1);
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            // separates the values, so that they cannot run into each other
+            digest.update((byte) 0);
+        }
+    }
+
+
+    private static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[2 * i + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
 }
@@ -0,0 +1,50 @@
+package org.motechproject.atomclient.service.impl;
+
+import com.rometools.rome.feed.synd.SyndFeed;
+import com.rometools.rome.io.FeedException;
+import com.rometools.rome.io.SyndFeedInput;
+import com.rometools.rome.io.XmlReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+
+
+/**
+ * Reads a single atom feed page, bypassing the {@link FeedCache}. Used for the archived pages of a feed, which never
+ * change once archived, so they are neither cached nor requested conditionally.
+ */
+public class FeedPageReader {
+
+    private volatile int timeoutMillis;
+
+
+    public FeedPageReader(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+
+    public void setTimeoutMillis(int timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+
+    /**
+     * Reads the feed page at the given URL
+     *
+     * @param url the URL of the page
+     * @return the page
+     * @throws IOException if the page cannot be read, or the server does not answer within the timeout
+     * @throws FeedException if the page is not a valid feed
+     */
+    public SyndFeed read(URL url) throws IOException, FeedException {
+        URLConnection connection = url.openConnection();
+        connection.setConnectTimeout(timeoutMillis);
+        connection.setReadTimeout(timeoutMillis);
+
+        try (InputStream is = connection.getInputStream()) {
+            return new SyndFeedInput().build(new XmlReader(is));
+        }
+    }
+}
@@ -22,7 +22,9 @@ import java.util.HashSet;
 
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertNotNull;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -108,4 +110,57 @@ public class EventTest {
 
         verify(eventRelay, times(0)).sendEventMessage(event.capture());
     }
+
+
+    @Test
+    public void verifyEventSentForChangedEntry() {
+        FeedRecord record = new FeedRecord(feedURL,
+                "tag:atomfeed.ict4h.org:9cc95d86-1b8e-4582-a774-83cf4b73c23e\toutdatedhash\n");
+        when(feedRecordDataService.findByURL(feedURL)).thenReturn(record);
+
+        atomClientService.fetch();
+
+        verify(eventRelay).sendEventMessage(any(MotechEvent.class));
+        verify(feedRecordDataService).update(record);
+        assertFalse(record.getData().contains("outdatedhash"));
+    }
+
+
+    @Test
+    public void verifyFeedNotFetchedBeforeItsInterval() {
+        FeedConfig feedConfig = new FeedConfig(feedURL, null);
+        feedConfig.setInterval(3600);
+        when(atomClientConfigService.getFeedConfigs()).thenReturn(new FeedConfigs(
+                new HashSet<>(Arrays.asList(feedConfig))
+        ));
+
+        atomClientService.fetch();
+        atomClientService.fetch();
+
+        verify(eventRelay, times(1)).sendEventMessage(any(MotechEvent.class));
+    }
+
+
+    @Test
+    public void verifyArchivedPagesFollowedFromMarker() {
+        String archivedURL = SimpleHttpServer.getInstance().start("archived", HttpStatus.SC_OK,
+                ATOM_FEED_DATA.replace("9cc95d86-1b8e-4582-a774-83cf4b73c23e", "0f3a2c1e-7d3c-4b4b-9c55-2b2d1a7c9e10"));
+        String headURL = SimpleHttpServer.getInstance().start("head", HttpStatus.SC_OK,
+                ATOM_FEED_DATA.replace("http://192.168.33.10:8080/openmrs/ws/atomfeed/patient/34", archivedURL));
+        when(atomClientConfigService.getFeedConfigs()).thenReturn(new FeedConfigs(
+                new HashSet<>(Arrays.asList(new FeedConfig(headURL, null)))
+        ));
+
+        FeedRecord record = new FeedRecord(headURL,
+                "tag:atomfeed.ict4h.org:9cc95d86-1b8e-4582-a774-83cf4b73c23e\toutdatedhash\n");
+        record.setMarker(archivedURL);
+        when(feedRecordDataService.findByURL(headURL)).thenReturn(record);
+
+        atomClientService.fetch();
+
+        // one event for the entry of the archived page, one for the changed entry of the head feed
+        verify(eventRelay, times(2)).sendEventMessage(any(MotechEvent.class));
+        verify(feedRecordDataService).update(record);
+        assertEquals("http://192.168.33.10:8080/openmrs/ws/atomfeed/patient/35", record.getMarker());
+    }
 }
@@ -1,15 +1,27 @@
 package org.motechproject.atomclient.unit;
 
+import com.rometools.fetcher.impl.SyndFeedInfo;
+import com.rometools.rome.feed.synd.SyndContent;
+import com.rometools.rome.feed.synd.SyndContentImpl;
+import com.rometools.rome.feed.synd.SyndEntry;
+import com.rometools.rome.feed.synd.SyndEntryImpl;
 import com.rometools.rome.feed.synd.SyndFeed;
 import com.rometools.rome.feed.synd.SyndFeedImpl;
 import com.rometools.rome.io.FeedException;
 import org.hamcrest.core.IsEqual;
 import org.junit.Test;
+import org.motechproject.atomclient.domain.FeedRecord;
 import org.motechproject.atomclient.service.impl.FeedCacheUtils;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 public class FeedCacheUtilsTest {
 
@@ -22,4 +34,44 @@ public class FeedCacheUtilsTest {
         SyndFeed feed2 = FeedCacheUtils.feedFromString(s);
         assertThat(feed2, IsEqual.equalTo(feed1));
     }
+
+
+    @Test
+    public void verifyIndexSerialization() {
+        Map<String, String> index = new LinkedHashMap<>();
+        index.put("tag:atomfeed.ict4h.org:1", "abc");
+        index.put("tag:atomfeed.ict4h.org:2", "def");
+
+        assertThat(FeedCacheUtils.indexFromString(FeedCacheUtils.indexToString(index)), IsEqual.equalTo(index));
+        assertTrue(FeedCacheUtils.indexFromString(null).isEmpty());
+    }
+
+    @Test
+    public void verifyEntryHashChangesWithContent() {
+        SyndEntry entry = new SyndEntryImpl();
+        entry.setUri("foobar");
+        SyndContent content = new SyndContentImpl();
+        content.setValue("/openmrs/ws/rest/v1/patient/1");
+        entry.setContents(Collections.singletonList(content));
+
+        String hash = FeedCacheUtils.entryHash(entry);
+        assertEquals(hash, FeedCacheUtils.entryHash(entry));
+
+        content.setValue("/openmrs/ws/rest/v1/patient/2");
+        assertFalse(hash.equals(FeedCacheUtils.entryHash(entry)));
+    }
+
+
+    @Test
+    public void verifyFeedInfoCarriesValidators() throws IOException {
+        FeedRecord record = new FeedRecord("http://localhost/feed", "");
+        record.setEtag("\"abc\"");
+        record.setLastModified(1456198273000L);
+
+        SyndFeedInfo info = FeedCacheUtils.feedRecordToFeedInfo(record);
+
+        assertEquals("\"abc\"", info.getETag());
+        assertEquals(1456198273000L, info.getLastModified());
+        assertEquals(Long.valueOf(1456198273000L), FeedCacheUtils.lastModified(info));
+    }
 }
@@ -1,17 +1,14 @@
 package org.motechproject.commcare.client;
 
-import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.HttpMethod;
 import org.apache.commons.httpclient.HttpStatus;
-import org.apache.commons.httpclient.UsernamePasswordCredentials;
-import org.apache.commons.httpclient.auth.AuthScope;
 import org.apache.commons.httpclient.methods.GetMethod;
 import org.apache.commons.httpclient.methods.PostMethod;
 import org.apache.commons.httpclient.methods.PutMethod;
 import org.apache.commons.httpclient.methods.StringRequestEntity;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.StringUtils;
 import org.apache.http.client.utils.URIBuilder;
 import org.motechproject.commcare.config.AccountConfig;
 import org.motechproject.commcare.exception.CommcareAuthenticationException;
@@ -35,6 +32,8 @@ import java.net.URISyntaxException;
 
 /**
  * A Commcare REST API client. Responsible for sending requests to the Commcare server and fetching data from it.
+ * Requests are sent through a per-account connection pool and the responses to GET requests are cached, so that
+ * unchanged resources are only revalidated with a conditional request instead of being downloaded again.
  */
 @Component
 public class CommCareAPIHttpClient {
@@ -43,11 +42,19 @@ public class CommCareAPIHttpClient {
 
     private static final String API_VERSION = "0.5";
 
-    private HttpClient commonsHttpClient;
+    private static final String ETAG_HEADER = "ETag";
+    private static final String LAST_MODIFIED_HEADER = "Last-Modified";
+    private static final String IF_NONE_MATCH_HEADER = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE_HEADER = "If-Modified-Since";
+
+    private CommcareHttpClientPool httpClientPool;
+
+    private CommcareResponseCache responseCache;
 
     @Autowired
-    public CommCareAPIHttpClient(final HttpClient commonsHttpClient) {
-        this.commonsHttpClient = commonsHttpClient;
+    public CommCareAPIHttpClient(CommcareHttpClientPool httpClientPool, CommcareResponseCache responseCache) {
+        this.httpClientPool = httpClientPool;
+        this.responseCache = responseCache;
     }
 
     /**
@@ -275,9 +282,7 @@ public class CommCareAPIHttpClient {
     public boolean verifyConnection(AccountConfig accountConfig) {
         HttpMethod getMethod = new GetMethod(commcareCasesUrl(accountConfig.getBaseUrl(), accountConfig.getDomain()));
 
-        authenticate(accountConfig);
-
-        int status = executeMethod(getMethod);
+        int status = executeMethod(accountConfig, getMethod);
 
         if (status == HttpStatus.SC_OK) {
             LOGGER.info("Connection to Commcare verified");
@@ -288,6 +293,17 @@ public class CommCareAPIHttpClient {
         return status == HttpStatus.SC_OK;
     }
 
+    /**
+     * Closes the pooled connections and drops the cached responses of the given account. Should be called once the
+     * account is no longer used by any configuration.
+     *
+     * @param accountConfig  the CommCare account information
+     */
+    public void release(AccountConfig accountConfig) {
+        httpClientPool.release(accountConfig);
+        responseCache.evictAccount(CommcareHttpClientPool.accountKey(accountConfig));
+    }
+
     private int dataForwardingEndpointPostRequest(AccountConfig accountConfig, String requestUrl, String body) {
 
         PostMethod postMethod = new PostMethod(requestUrl);
@@ -303,16 +319,14 @@ public class CommCareAPIHttpClient {
 
         postMethod.setRequestEntity(stringEntity);
 
-        authenticate(accountConfig);
-
-        return executeMethod(postMethod);
+        return executeMethod(accountConfig, postMethod);
     }
 
-    private int executeMethod(HttpMethod httpMethod) {
+    private int executeMethod(AccountConfig accountConfig, HttpMethod httpMethod) {
         int status = 0;
 
         try {
-            status = commonsHttpClient.executeMethod(httpMethod);
+            status = httpClientPool.getClient(accountConfig).executeMethod(httpMethod);
         } catch (HttpException e) {
             LOGGER.warn("HttpException while sending request to CommCareHQ: " + e.getMessage());
         } catch (IOException e) {
@@ -339,38 +353,65 @@ public class CommCareAPIHttpClient {
 
         putMethod.setRequestEntity(stringEntity);
 
-        authenticate(accountConfig);
-
-        return executeMethod(putMethod);
+        return executeMethod(accountConfig, putMethod);
     }
 
-    private HttpMethod buildRequest(AccountConfig accountConfig, String url, Request request) {
+    private HttpMethod buildRequest(String url, Request request, CommcareResponseCache.Entry cached) {
         HttpMethod requestMethod = new GetMethod(url);
 
-        authenticate(accountConfig);
         if (request != null) {
             requestMethod.setQueryString(request.toQueryString());
         }
 
+        if (cached != null) {
+            if (cached.getEtag() != null) {
+                requestMethod.setRequestHeader(IF_NONE_MATCH_HEADER, cached.getEtag());
+            }
+            if (cached.getLastModified() != null) {
+                requestMethod.setRequestHeader(IF_MODIFIED_SINCE_HEADER, cached.getLastModified());
+            }
+        }
+
         return requestMethod;
     }
 
     private String getRequest(AccountConfig accountConfig, String requestUrl, Request request) {
 
-        HttpMethod getMethod = buildRequest(accountConfig, requestUrl, request);
+        String cacheKey = CommcareResponseCache.buildKey(CommcareHttpClientPool.accountKey(accountConfig), requestUrl,
+                request == null ? null : request.toQueryString());
+        CommcareResponseCache.Entry cached = responseCache.get(cacheKey);
+
+        HttpMethod getMethod = buildRequest(requestUrl, request, cached);
+
+        long start = System.nanoTime();
+        boolean cacheHit = false;
 
         try {
             LOGGER.debug("Sending GET request {}", requestUrl);
-            commonsHttpClient.executeMethod(getMethod);
+            httpClientPool.getClient(accountConfig).executeMethod(getMethod);
 
             LOGGER.debug("{} request response status: {}", requestUrl, getMethod.getStatusCode());
             switch (getMethod.getStatusCode()) {
                 case HttpStatus.SC_UNAUTHORIZED:
                     throw new CommcareAuthenticationException();
+                case HttpStatus.SC_NOT_MODIFIED:
+                    if (cached != null) {
+                        LOGGER.trace("{} not modified, using the cached response body", requestUrl);
+                        cacheHit = true;
+                        responseCache.revalidated(cacheKey, cached);
+                        return cached.getBody();
+                    }
+                    return null;
                 default:
                     InputStream responseBodyAsStream = getMethod.getResponseBodyAsStream();
                     String responseBody =  IOUtils.toString(responseBodyAsStream);
                     LOGGER.trace("{} request response body: {}", requestUrl, responseBody);
+
+                    if (getMethod.getStatusCode() == HttpStatus.SC_OK) {
+                        responseCache.put(cacheKey, responseBody, headerValue(getMethod, ETAG_HEADER),
+                                headerValue(getMethod, LAST_MODIFIED_HEADER));
+                    }
+
                     return responseBody;
             }
         } catch (HttpException e) {
@@ -379,31 +420,15 @@ public class CommCareAPIHttpClient {
             LOGGER.warn("IOException while sending request to CommCare: " + e.getMessage());
         } finally {
             getMethod.releaseConnection();
+            responseCache.recordRequest(cacheHit, System.nanoTime() - start);
         }
 
         return null;
     }
 
-    private void authenticate(AccountConfig accountConfig) {
-
-        UsernamePasswordCredentials oldCredentials = (UsernamePasswordCredentials) commonsHttpClient.getState().getCredentials(AuthScope.ANY);
-
-        if (credentialsChanged(oldCredentials, accountConfig)) {
-            commonsHttpClient.getState().clear();
-
-            commonsHttpClient.getParams().setAuthenticationPreemptive(true);
-
-            commonsHttpClient.getState().setCredentials(
-                    AuthScope.ANY,
-                    new UsernamePasswordCredentials(accountConfig.getUsername(), accountConfig.getPassword()));
-        }
-    }
-
-    private boolean credentialsChanged(UsernamePasswordCredentials oldCredentials, AccountConfig newCredentials) {
-
-        return oldCredentials == null
-                || !StringUtils.equals(oldCredentials.getUserName(), newCredentials.getUsername())
-                || !StringUtils.equals(oldCredentials.getPassword(), newCredentials.getPassword());
+    private String headerValue(HttpMethod httpMethod, String name) {
+        Header header = httpMethod.getResponseHeader(name);
+        return header == null ? null : header.getValue();
     }
 
     private OpenRosaResponse postRequest(AccountConfig accountConfig, String requestUrl, String body)
@@ -422,19 +447,19 @@ public class CommCareAPIHttpClient {
 
         postMethod.setRequestEntity(stringEntity);
 
-        authenticate(accountConfig);
-
         String response = "";
 
         int status = 0;
 
         try {
-            status = commonsHttpClient.executeMethod(postMethod);
+            status = httpClientPool.getClient(accountConfig).executeMethod(postMethod);
             response = postMethod.getResponseBodyAsString();
         } catch (HttpException e) {
             LOGGER.warn("HttpException while posting case xml to CommCareHQ: " + e.getMessage());
         } catch (IOException e) {
             LOGGER.warn("IOException while posting case xml to CommcareHQ: " + e.getMessage());
+        } finally {
+            postMethod.releaseConnection();
         }
 
         OpenRosaResponseParser responseParser = new OpenRosaResponseParser();
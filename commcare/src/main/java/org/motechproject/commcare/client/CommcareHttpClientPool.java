@@ -0,0 +1,154 @@
+package org.motechproject.commcare.client;
+
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.UsernamePasswordCredentials;
+import org.apache.commons.httpclient.auth.AuthScope;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
+import org.motechproject.commcare.config.AccountConfig;
+import org.motechproject.config.SettingsFacade;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps a separate, connection-pooled {@link HttpClient} for every CommCare account. Each client owns its connection
+ * manager and its credentials, so requests made for different configurations never share (or overwrite) each other's
+ * authentication state and keep-alive connections are reused across requests made for the same account.
+ */
+@Component
+public class CommcareHttpClientPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommcareHttpClientPool.class);
+
+    static final String MAX_CONNECTIONS_KEY = "http.maxConnectionsPerConfig";
+    static final String CONNECTION_TIMEOUT_KEY = "http.connectionTimeout";
+    static final String SOCKET_TIMEOUT_KEY = "http.socketTimeout";
+
+    private static final int DEFAULT_MAX_CONNECTIONS = 20;
+    private static final int DEFAULT_CONNECTION_TIMEOUT = 30000;
+    private static final int DEFAULT_SOCKET_TIMEOUT = 60000;
+
+    private final ConcurrentMap<String, HttpClient> clients = new ConcurrentHashMap<>();
+
+    private final int maxConnections;
+    private final int connectionTimeout;
+    private final int socketTimeout;
+
+    @Autowired
+    public CommcareHttpClientPool(@Qualifier("commcareAPISettings") SettingsFacade settingsFacade) {
+        this(getIntProperty(settingsFacade, MAX_CONNECTIONS_KEY, DEFAULT_MAX_CONNECTIONS),
+                getIntProperty(settingsFacade, CONNECTION_TIMEOUT_KEY, DEFAULT_CONNECTION_TIMEOUT),
+                getIntProperty(settingsFacade, SOCKET_TIMEOUT_KEY, DEFAULT_SOCKET_TIMEOUT));
+    }
+
+    public CommcareHttpClientPool(int maxConnections, int connectionTimeout, int socketTimeout) {
+        this.maxConnections = maxConnections;
+        this.connectionTimeout = connectionTimeout;
+        this.socketTimeout = socketTimeout;
+    }
+
+    /**
+     * Returns the pooled client for the given account, creating it if this is the first request made for that
+     * account. If the password of the account has changed since the client was created, its credentials are updated.
+     *
+     * @param accountConfig  the CommCare account information
+     * @return the client to be used for the account
+     */
+    public HttpClient getClient(AccountConfig accountConfig) {
+        String key = accountKey(accountConfig);
+
+        HttpClient client = clients.get(key);
+
+        if (client == null) {
+            HttpClient newClient = createClient();
+            client = clients.putIfAbsent(key, newClient);
+
+            if (client == null) {
+                LOGGER.debug("Created a new connection pool for CommCare account {}", key);
+                client = newClient;
+            }
+        }
+
+        setCredentials(client, accountConfig);
+
+        return client;
+    }
+
+    /**
+     * Closes the pooled connections of the given account and forgets its client. Should be called when the
+     * configuration using the account is removed or pointed at another server.
+     *
+     * @param accountConfig  the CommCare account information
+     */
+    public void release(AccountConfig accountConfig) {
+        HttpClient client = clients.remove(accountKey(accountConfig));
+
+        if (client != null) {
+            shutdown(client);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (HttpClient client : clients.values()) {
+            shutdown(client);
+        }
+        clients.clear();
+    }
+
+    /**
+     * Builds the key identifying a CommCare account, which consists of the server URL, the domain and the user name.
+     *
+     * @param accountConfig  the CommCare account information
+     * @return the key of the account
+     */
+    public static String accountKey(AccountConfig accountConfig) {
+        return String.format("%s|%s|%s", accountConfig.getBaseUrl(), accountConfig.getDomain(),
+                accountConfig.getUsername());
+    }
+
+    private HttpClient createClient() {
+        MultiThreadedHttpConnectionManager connectionManager = new MultiThreadedHttpConnectionManager();
+
+        HttpConnectionManagerParams params = connectionManager.getParams();
+        params.setDefaultMaxConnectionsPerHost(maxConnections);
+        params.setMaxTotalConnections(maxConnections);
+        params.setConnectionTimeout(connectionTimeout);
+        params.setSoTimeout(socketTimeout);
+        params.setStaleCheckingEnabled(true);
+
+        HttpClient client = new HttpClient(connectionManager);
+        client.getParams().setAuthenticationPreemptive(true);
+        client.getParams().setConnectionManagerTimeout(connectionTimeout);
+
+        return client;
+    }
+
+    private void setCredentials(HttpClient client, AccountConfig accountConfig) {
+        UsernamePasswordCredentials credentials = (UsernamePasswordCredentials) client.getState().getCredentials(AuthScope.ANY);
+
+        if (credentials == null || !StringUtils.equals(credentials.getPassword(), accountConfig.getPassword())) {
+            client.getState().setCredentials(AuthScope.ANY,
+                    new UsernamePasswordCredentials(accountConfig.getUsername(), accountConfig.getPassword()));
+        }
+    }
+
+    private void shutdown(HttpClient client) {
+        if (client.getHttpConnectionManager() instanceof MultiThreadedHttpConnectionManager) {
+            ((MultiThreadedHttpConnectionManager) client.getHttpConnectionManager()).shutdown();
+        }
+    }
+
+    private static int getIntProperty(SettingsFacade settingsFacade, String key, int defaultValue) {
+        return NumberUtils.toInt(settingsFacade.getProperty(key), defaultValue);
+    }
+}
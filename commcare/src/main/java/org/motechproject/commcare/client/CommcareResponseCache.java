@@ -0,0 +1,271 @@
+package org.motechproject.commcare.client;
+
+import org.apache.commons.lang.math.NumberUtils;
+import org.motechproject.config.SettingsFacade;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, time-limited cache of the responses to the GET requests sent to the CommCare server. Only responses that
+ * carry an {@code ETag} or a {@code Last-Modified} header are stored, since the cached body is only ever served after
+ * the server confirms, with a 304 response to a conditional request, that it has not changed. Entries are evicted in
+ * least recently used order once the cache is full and dropped after they outlive the configured time to live.
+ * The cache also records the hit, miss and latency statistics of the GET requests.
+ */
+@Component
+public class CommcareResponseCache {
+
+    static final String MAX_ENTRIES_KEY = "http.cache.maxEntries";
+    static final String TTL_SECONDS_KEY = "http.cache.ttlSeconds";
+
+    private static final int DEFAULT_MAX_ENTRIES = 500;
+    private static final int DEFAULT_TTL_SECONDS = 300;
+
+    private final Map<String, Entry> entries;
+    private final long ttlMillis;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    @Autowired
+    public CommcareResponseCache(@Qualifier("commcareAPISettings") SettingsFacade settingsFacade) {
+        this(NumberUtils.toInt(settingsFacade.getProperty(MAX_ENTRIES_KEY), DEFAULT_MAX_ENTRIES),
+                NumberUtils.toInt(settingsFacade.getProperty(TTL_SECONDS_KEY), DEFAULT_TTL_SECONDS));
+    }
+
+    public CommcareResponseCache(final int maxEntries, int ttlSeconds) {
+        this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached response for the given key, or null if there is no entry or the entry has expired.
+     *
+     * @param key  the key of the request, see {@link #buildKey(String, String, String)}
+     * @return the cached response, null if not present
+     */
+    public synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+
+        if (entry != null && entry.isExpired(System.currentTimeMillis(), ttlMillis)) {
+            entries.remove(key);
+            return null;
+        }
+
+        return entry;
+    }
+
+    /**
+     * Stores the response for the given key. Responses without an {@code ETag} and a {@code Last-Modified} header
+     * cannot be revalidated, so they are not stored and any previous entry for the key is removed.
+     *
+     * @param key  the key of the request, see {@link #buildKey(String, String, String)}
+     * @param body  the body of the response
+     * @param etag  the value of the {@code ETag} header, may be null
+     * @param lastModified  the value of the {@code Last-Modified} header, may be null
+     */
+    public synchronized void put(String key, String body, String etag, String lastModified) {
+        if (etag == null && lastModified == null) {
+            entries.remove(key);
+        } else {
+            entries.put(key, new Entry(body, etag, lastModified, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Resets the time to live of the cached response, after the server has confirmed that it is still valid.
+     *
+     * @param key  the key of the request
+     * @param entry  the revalidated entry
+     */
+    public synchronized void revalidated(String key, Entry entry) {
+        entries.put(key, new Entry(entry.getBody(), entry.getEtag(), entry.getLastModified(),
+                System.currentTimeMillis()));
+    }
+
+    /**
+     * Removes all responses cached for the given account.
+     *
+     * @param accountKey  the key of the account
+     */
+    public synchronized void evictAccount(String accountKey) {
+        String prefix = accountKey + ' ';
+        Iterator<String> it = entries.keySet().iterator();
+
+        while (it.hasNext()) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Records the outcome of a GET request.
+     *
+     * @param cacheHit  true if the cached body was served, false if it had to be downloaded
+     * @param latencyNanos  the time the request took, in nanoseconds
+     */
+    public void recordRequest(boolean cacheHit, long latencyNanos) {
+        if (cacheHit) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+
+        requests.incrementAndGet();
+        totalLatencyNanos.addAndGet(latencyNanos);
+
+        long max = maxLatencyNanos.get();
+        while (latencyNanos > max && !maxLatencyNanos.compareAndSet(max, latencyNanos)) {
+            max = maxLatencyNanos.get();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long total = requests.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    public double getMeanLatencyMillis() {
+        long total = requests.get();
+        return total == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalLatencyNanos.get()) / 1000.0 / total;
+    }
+
+    public double getMaxLatencyMillis() {
+        return TimeUnit.NANOSECONDS.toMicros(maxLatencyNanos.get()) / 1000.0;
+    }
+
+    /**
+     * Returns a snapshot of the statistics of the cache, as served by the module's REST API.
+     *
+     * @return the statistics of the cache
+     */
+    public Statistics getStatistics() {
+        return new Statistics(size(), getHits(), getMisses(), getHitRatio(), getMeanLatencyMillis(),
+                getMaxLatencyMillis());
+    }
+
+    /**
+     * Builds the key under which the response to a GET request is cached.
+     *
+     * @param accountKey  the key of the account the request was made for
+     * @param url  the URL of the request
+     * @param queryString  the query string of the request, may be null
+     * @return the key of the request
+     */
+    public static String buildKey(String accountKey, String url, String queryString) {
+        return queryString == null ? accountKey + ' ' + url : accountKey + ' ' + url + '?' + queryString;
+    }
+
+    /**
+     * The statistics of the cache at a given time, along with the latency of the GET requests it served.
+     */
+    public static final class Statistics {
+
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final double hitRatio;
+        private final double meanLatencyMillis;
+        private final double maxLatencyMillis;
+
+        Statistics(int size, long hits, long misses, double hitRatio, double meanLatencyMillis,
+                   double maxLatencyMillis) {
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.hitRatio = hitRatio;
+            this.meanLatencyMillis = meanLatencyMillis;
+            this.maxLatencyMillis = maxLatencyMillis;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public double getHitRatio() {
+            return hitRatio;
+        }
+
+        public double getMeanLatencyMillis() {
+            return meanLatencyMillis;
+        }
+
+        public double getMaxLatencyMillis() {
+            return maxLatencyMillis;
+        }
+    }
+
+    /**
+     * A single cached response, along with the validators needed to revalidate it.
+     */
+    public static final class Entry {
+
+        private final String body;
+        private final String etag;
+        private final String lastModified;
+        private final long storedAt;
+
+        Entry(String body, String etag, String lastModified, long storedAt) {
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.storedAt = storedAt;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        boolean isExpired(long now, long ttlMillis) {
+            return now - storedAt > ttlMillis;
+        }
+    }
+}
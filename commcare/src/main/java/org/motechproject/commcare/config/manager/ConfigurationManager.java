@@ -3,19 +3,23 @@ package org.motechproject.commcare.config.manager;
 import org.motechproject.commcare.domain.CommcareApplicationJson;
 import org.motechproject.commcare.service.CommcareAppStructureService;
 import org.motechproject.commcare.service.CommcareApplicationDataService;
+import org.motechproject.commcare.service.CommcareSchemaService;
 import org.motechproject.commcare.tasks.CommcareTasksNotifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 
 /**
  * This class is responsible for updating the Commcare schema when called.
  * It clears old schema, and in case of updates or creates fetches the new one from Commcare,
- * which is persisted in the database.
+ * which is persisted in the database. The in-memory schema held by the {@link CommcareSchemaService} is replaced
+ * along with the stored one, once the transaction storing it is committed, and the tasks are notified afterwards.
  */
 @Component
 public class ConfigurationManager {
@@ -28,6 +32,9 @@ public class ConfigurationManager {
     @Autowired
     private CommcareApplicationDataService commcareApplicationDataService;
 
+    @Autowired
+    private CommcareSchemaService schemaService;
+
     @Autowired
     private CommcareTasksNotifier commcareTasksNotifier;
 
@@ -39,18 +46,49 @@ public class ConfigurationManager {
 
     @Transactional
     public void configUpdated(String configName) {
+        configUpdated(configName, null);
+    }
+
+    /**
+     * Reloads the schema of the updated configuration. If the configuration was renamed, the schema stored under its
+     * previous name is dropped.
+     *
+     * @param configName  the name of the configuration
+     * @param oldConfigName  the previous name of the configuration, null if it was not renamed
+     */
+    @Transactional
+    public synchronized void configUpdated(String configName, final String oldConfigName) {
         LOGGER.info("Configuration [{}] updated, fetching Commcare schema, {}", configName);
+
+        if (oldConfigName != null && !oldConfigName.equals(configName)) {
+            LOGGER.info("Configuration [{}] renamed to [{}], dropping its old schema", oldConfigName, configName);
+            clearApps(oldConfigName);
+            afterCommit(new Runnable() {
+                @Override
+                public void run() {
+                    schemaService.clearSchema(oldConfigName);
+                }
+            });
+        }
+
         reloadConfig(configName);
     }
 
     @Transactional
-    public synchronized void configDeleted(String configName) {
+    public synchronized void configDeleted(final String configName) {
         LOGGER.info("Configuration [{}] deleted", configName);
         clearApps(configName);
-        commcareTasksNotifier.updateTasksInfo();
+
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                schemaService.clearSchema(configName);
+                commcareTasksNotifier.updateTasksInfo();
+            }
+        });
     }
 
-    private synchronized void reloadConfig(String configName) {
+    private synchronized void reloadConfig(final String configName) {
         List<CommcareApplicationJson> applications = appStructureService.getAllApplications(configName);
 
         // clear the configuration before saving the new one
@@ -61,7 +99,27 @@ public class ConfigurationManager {
             commcareApplicationDataService.create(app);
         }
 
-        commcareTasksNotifier.updateTasksInfo();
+        // the schema is read from the database, so it can only be refreshed once the new applications are committed
+        afterCommit(new Runnable() {
+            @Override
+            public void run() {
+                schemaService.refreshSchema(configName);
+                commcareTasksNotifier.updateTasksInfo();
+            }
+        });
+    }
+
+    private void afterCommit(final Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
     }
 
     private void clearApps(String configName) {
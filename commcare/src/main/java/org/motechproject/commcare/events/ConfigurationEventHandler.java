@@ -37,14 +37,15 @@ public class ConfigurationEventHandler {
     /**
      * Responsible for handling {@code CONFIG_UPDATED} event. This event is fired when user updates an existing
      * configuration. Handling this event will result in deleting all stored applications related with the updated
-     * configuration and downloading new ones from the CommCare server.
+     * configuration, or with its previous name if it was renamed, and downloading new ones from the CommCare server.
      *
      * @param event  the event to be handled
      */
     @MotechListener(subjects = CONFIG_UPDATED)
     public synchronized void configUpdated(MotechEvent event) {
         String configName = (String) event.getParameters().get(EventDataKeys.CONFIG_NAME);
-        configurationManager.configUpdated(configName);
+        String oldConfigName = (String) event.getParameters().get(EventDataKeys.OLD_CONFIG_NAME);
+        configurationManager.configUpdated(configName, oldConfigName);
     }
 
     /**
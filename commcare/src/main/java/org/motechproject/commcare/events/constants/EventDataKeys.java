@@ -50,6 +50,7 @@ public final class EventDataKeys {
 
     //ConfigurationEvent
     public static final String CONFIG_NAME = "configName";
+    public static final String OLD_CONFIG_NAME = "oldConfigName";
     public static final String CONFIG_DOMAIN = "configDomain";
     public static final String CONFIG_BASE_URL = "configBaseUrl";
 
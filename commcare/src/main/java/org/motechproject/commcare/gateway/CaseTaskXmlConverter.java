@@ -33,6 +33,9 @@ import java.util.UUID;
 @Component
 public class CaseTaskXmlConverter {
 
+    private static final String CASE_ELEMENT = "case";
+    private static final String DATA_CLOSING_TAG = "</data>";
+
     private EventRelay eventRelay;
 
     @Autowired
@@ -65,6 +68,52 @@ public class CaseTaskXmlConverter {
         return convertToCloseXml(request);
     }
 
+    /**
+     * Serializes the given {@code task} into a single case block XML string, without the submission envelope. Such
+     * blocks can be combined into one submission using {@link #convertToSubmissionXml(CaseTask, List)}.
+     *
+     * @param task  the task to serialize
+     * @return the XML string of the case block, null if the task could not be serialized
+     */
+    public String convertToCaseBlockXml(CaseTask task) {
+        CaseRequest caseRequest = mapToCase(task);
+
+        try {
+            XStream xstream = mapEnvelope();
+            xstream.alias(CASE_ELEMENT, CaseRequest.class);
+            mapCaseElements(xstream, caseRequest);
+
+            return xstream.toXML(caseRequest);
+        } catch (MalformedCaseXmlException e) {
+            sendMalformedCaseEvent(e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Wraps the given case blocks into a single submission envelope. The metadata of the submission (user, xmlns and
+     * dates) is taken from the given {@code task}, which should be one of the tasks the blocks were created from.
+     *
+     * @param task  the task providing the metadata of the submission
+     * @param caseBlocks  the case blocks, created with {@link #convertToCaseBlockXml(CaseTask)}
+     * @return the XML string of the submission
+     */
+    public String convertToSubmissionXml(CaseTask task, List<String> caseBlocks) {
+        CommcareRequestData request = createRequestWithEnvelope(createCase(task));
+        String envelope = mapEnvelope().toXML(new CommcareRequestData(request.getXmlns(), request.getMeta(), null));
+
+        int closingTagIndex = envelope.lastIndexOf(DATA_CLOSING_TAG);
+
+        StringBuilder sb = new StringBuilder(envelope.substring(0, closingTagIndex));
+        for (String caseBlock : caseBlocks) {
+            sb.append(caseBlock).append('\n');
+        }
+        sb.append(DATA_CLOSING_TAG);
+
+        return sb.toString();
+    }
+
     private CaseRequest mapToCloseCase(CaseTask task) {
         CaseRequest ccCase = createCase(task);
         CloseElement close = new CloseElement();
@@ -128,57 +177,64 @@ public class CaseTaskXmlConverter {
         try {
 
             XStream xstream = mapEnvelope();
-
-            if (request.getCcCase().getCreateElement() != null) {
-                xstream.registerConverter(new CreateElementConverter());
-                xstream.aliasField("create", CaseRequest.class, "createElement");
-            } else {
-                xstream.omitField(CaseRequest.class, "createElement");
-            }
-
-            if (request.getCcCase().getUpdateElement() != null) {
-                xstream.registerConverter(new UpdateElementConverter());
-                xstream.aliasField("update", CaseRequest.class, "updateElement");
-            } else {
-                xstream.omitField(CaseRequest.class, "updateElement");
-            }
-
-            IndexTask indexElement = request.getCcCase().getIndexElement();
-
-            if (indexElement != null && indexElement.getIndices().size() > 0) {
-                xstream.registerConverter(new IndexElementConverter());
-                xstream.aliasField("index", CaseRequest.class, "indexElement");
-            } else {
-                xstream.omitField(CaseRequest.class, "indexElement");
-            }
-
-            if (request.getCcCase().getCloseElement() != null) {
-                xstream.registerConverter(new CloseElementConverter());
-                xstream.aliasField("close", CaseRequest.class, "closeElement");
-            } else {
-                xstream.omitField(CaseRequest.class, "closeElement");
-            }
-
-            xstream.omitField(CaseRequest.class, "dataXmlns");
+            mapCaseElements(xstream, request.getCcCase());
 
             return xstream.toXML(request);
         } catch (MalformedCaseXmlException e) {
-            MotechEvent motechEvent = new MotechEvent(
-                    EventSubjects.MALFORMED_CASE_EXCEPTION);
-            motechEvent.getParameters().put(EventDataKeys.MESSAGE,
-                    e.getMessage());
-            eventRelay.sendEventMessage(motechEvent);
+            sendMalformedCaseEvent(e);
         }
 
         return null;
     }
 
+    private void mapCaseElements(XStream xstream, CaseRequest caseRequest) {
+        if (caseRequest.getCreateElement() != null) {
+            xstream.registerConverter(new CreateElementConverter());
+            xstream.aliasField("create", CaseRequest.class, "createElement");
+        } else {
+            xstream.omitField(CaseRequest.class, "createElement");
+        }
+
+        if (caseRequest.getUpdateElement() != null) {
+            xstream.registerConverter(new UpdateElementConverter());
+            xstream.aliasField("update", CaseRequest.class, "updateElement");
+        } else {
+            xstream.omitField(CaseRequest.class, "updateElement");
+        }
+
+        IndexTask indexElement = caseRequest.getIndexElement();
+
+        if (indexElement != null && indexElement.getIndices().size() > 0) {
+            xstream.registerConverter(new IndexElementConverter());
+            xstream.aliasField("index", CaseRequest.class, "indexElement");
+        } else {
+            xstream.omitField(CaseRequest.class, "indexElement");
+        }
+
+        if (caseRequest.getCloseElement() != null) {
+            xstream.registerConverter(new CloseElementConverter());
+            xstream.aliasField("close", CaseRequest.class, "closeElement");
+        } else {
+            xstream.omitField(CaseRequest.class, "closeElement");
+        }
+
+        xstream.omitField(CaseRequest.class, "dataXmlns");
+    }
+
+    private void sendMalformedCaseEvent(MalformedCaseXmlException e) {
+        MotechEvent motechEvent = new MotechEvent(
+                EventSubjects.MALFORMED_CASE_EXCEPTION);
+        motechEvent.getParameters().put(EventDataKeys.MESSAGE,
+                e.getMessage());
+        eventRelay.sendEventMessage(motechEvent);
+    }
+
     private XStream mapEnvelope() {
         XStream xstream = new XStream(new DomDriver("UTF-8", new NoNameCoder()));
 
         xstream.alias("data", CommcareRequestData.class);
         xstream.useAttributeFor(CommcareRequestData.class, "xmlns");
-        xstream.aliasField("case", CommcareRequestData.class, "ccCase");
+        xstream.aliasField(CASE_ELEMENT, CommcareRequestData.class, "ccCase");
 
         xstream.alias("meta", MetaElement.class);
         xstream.useAttributeFor(MetaElement.class, "xmlns");
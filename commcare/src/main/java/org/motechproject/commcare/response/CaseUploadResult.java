@@ -0,0 +1,45 @@
+package org.motechproject.commcare.response;
+
+import org.motechproject.commcare.domain.CaseTask;
+
+/**
+ * Represents the outcome of uploading a single {@link CaseTask} to the CommCare server as part of a batch submission.
+ */
+public class CaseUploadResult {
+
+    private final CaseTask caseTask;
+    private final OpenRosaResponse response;
+    private final boolean success;
+    private final String errorMessage;
+
+    /**
+     * Creates the result of uploading the given {@code caseTask}.
+     *
+     * @param caseTask  the uploaded task
+     * @param response  the server response to the submission containing the task, null if it wasn't sent
+     * @param success  true if the task was accepted by the server, false otherwise
+     * @param errorMessage  the reason of the failure, null if the upload succeeded
+     */
+    public CaseUploadResult(CaseTask caseTask, OpenRosaResponse response, boolean success, String errorMessage) {
+        this.caseTask = caseTask;
+        this.response = response;
+        this.success = success;
+        this.errorMessage = errorMessage;
+    }
+
+    public CaseTask getCaseTask() {
+        return caseTask;
+    }
+
+    public OpenRosaResponse getResponse() {
+        return response;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -3,6 +3,7 @@ package org.motechproject.commcare.service;
 import org.motechproject.commcare.domain.CaseInfo;
 import org.motechproject.commcare.domain.CaseTask;
 import org.motechproject.commcare.domain.CasesInfo;
+import org.motechproject.commcare.response.CaseUploadResult;
 import org.motechproject.commcare.response.OpenRosaResponse;
 
 import java.util.List;
@@ -186,4 +187,20 @@ public interface CommcareCaseService {
      * Same as {@link #uploadCase(CaseTask, String) uploadCase} but uses default Commcare configuration.
      */
     OpenRosaResponse uploadCase(CaseTask caseTask);
+
+    /**
+     * Uploads multiple case tasks to CommCareHQ. Case blocks are grouped into submissions of up to the configured batch
+     * size, which are sent with bounded concurrency, so uploading many cases takes far fewer round trips than calling
+     * {@link #uploadCase(CaseTask, String) uploadCase} for each of them.
+     *
+     * @param caseTasks  the case tasks to upload
+     * @param configName  the name of the configuration used for connecting to CommcareHQ, null means default configuration
+     * @return  the results of the upload, one per case task and in the same order as the given tasks
+     */
+    List<CaseUploadResult> uploadCases(List<CaseTask> caseTasks, String configName);
+
+    /**
+     * Same as {@link #uploadCases(List, String) uploadCases} but uses default Commcare configuration.
+     */
+    List<CaseUploadResult> uploadCases(List<CaseTask> caseTasks);
 }
@@ -57,4 +57,37 @@ public interface CommcareSchemaService {
      * @return Set of Forms with display names.
      */
     Set<FormWithApplicationName> getFormsWithApplicationName(String configName);
+
+    /**
+     * Retrieves the form schema with the given xmlns.
+     *
+     * @param configName  the name of the configuration
+     * @param xmlns  the xmlns of the form
+     * @return the matching form schema, null if the configuration has no such form
+     */
+    FormSchemaJson getFormSchemaByXmlns(String configName, String xmlns);
+
+    /**
+     * Retrieves names of the applications that define modules of the given case type.
+     *
+     * @param configName  the name of the configuration
+     * @param caseType  the case type
+     * @return the set of application names, empty if no application uses the case type
+     */
+    Set<String> getApplicationNamesByCaseType(String configName, String caseType);
+
+    /**
+     * Rebuilds the in-memory schema of the given configuration from the applications stored in the database. The new
+     * schema replaces the previous one atomically, so callers never observe a partially built schema.
+     *
+     * @param configName  the name of the configuration
+     */
+    void refreshSchema(String configName);
+
+    /**
+     * Drops the in-memory schema of the given configuration. It will be rebuilt on the next access.
+     *
+     * @param configName  the name of the configuration
+     */
+    void clearSchema(String configName);
 }
@@ -0,0 +1,281 @@
+package org.motechproject.commcare.service.impl;
+
+import org.apache.commons.lang.math.NumberUtils;
+import org.motechproject.commcare.client.CommCareAPIHttpClient;
+import org.motechproject.commcare.client.CommcareHttpClientPool;
+import org.motechproject.commcare.config.AccountConfig;
+import org.motechproject.commcare.domain.CaseTask;
+import org.motechproject.commcare.exception.OpenRosaParserException;
+import org.motechproject.commcare.gateway.CaseTaskXmlConverter;
+import org.motechproject.commcare.response.CaseUploadResult;
+import org.motechproject.commcare.response.OpenRosaResponse;
+import org.motechproject.config.SettingsFacade;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Uploads case tasks to the CommCare server in batches. Case blocks of the tasks are grouped into OpenRosa
+ * submissions of up to the configured size, and submissions are sent in the background, with a bounded number of
+ * submissions in flight per CommCare account, while the next batches are being prepared. The response to every
+ * submission is mapped back to the tasks it contained. If a submission is rejected, its tasks are re-submitted one by
+ * one, so that a single malformed case does not fail the whole batch and the failing tasks can be reported. If no
+ * response was received or the server failed to handle the submission, the tasks are reported as failed without being
+ * re-submitted, since the server might have processed the submission.
+ */
+@Component
+public class CommcareCaseBatchUploader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommcareCaseBatchUploader.class);
+
+    static final String BATCH_SIZE_KEY = "caseUpload.batchSize";
+    static final String MAX_CONCURRENT_SUBMISSIONS_KEY = "caseUpload.maxConcurrentSubmissions";
+
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int DEFAULT_MAX_CONCURRENT_SUBMISSIONS = 4;
+
+    private static final String SUBMIT_ERROR = "submit_error";
+
+    private final ConcurrentMap<String, Semaphore> submissionPermits = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private CaseTaskXmlConverter converter;
+    private CommCareAPIHttpClient commcareHttpClient;
+
+    private final int batchSize;
+    private final int maxConcurrentSubmissions;
+
+    @Autowired
+    public CommcareCaseBatchUploader(CaseTaskXmlConverter converter, CommCareAPIHttpClient commcareHttpClient,
+                                     @Qualifier("commcareAPISettings") SettingsFacade settingsFacade) {
+        this(converter, commcareHttpClient,
+                NumberUtils.toInt(settingsFacade.getProperty(BATCH_SIZE_KEY), DEFAULT_BATCH_SIZE),
+                NumberUtils.toInt(settingsFacade.getProperty(MAX_CONCURRENT_SUBMISSIONS_KEY),
+                        DEFAULT_MAX_CONCURRENT_SUBMISSIONS));
+    }
+
+    public CommcareCaseBatchUploader(CaseTaskXmlConverter converter, CommCareAPIHttpClient commcareHttpClient,
+                                     int batchSize, int maxConcurrentSubmissions) {
+        this.converter = converter;
+        this.commcareHttpClient = commcareHttpClient;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxConcurrentSubmissions = Math.max(1, maxConcurrentSubmissions);
+    }
+
+    /**
+     * Uploads the given case tasks to the CommCare server. Tasks are grouped by their user and xmlns, since those are
+     * shared by all cases of a single submission. The method blocks until all submissions are finished.
+     *
+     * @param accountConfig  the CommCare account information
+     * @param caseTasks  the tasks to upload
+     * @return the results of the upload, in the same order as the given tasks
+     */
+    public List<CaseUploadResult> upload(AccountConfig accountConfig, List<CaseTask> caseTasks) {
+        CaseUploadResult[] results = new CaseUploadResult[caseTasks.size()];
+        Map<String, Batch> openBatches = new LinkedHashMap<>();
+        List<Future<?>> submissions = new ArrayList<>();
+
+        for (int i = 0; i < caseTasks.size(); i++) {
+            CaseTask caseTask = caseTasks.get(i);
+            String caseBlock = converter.convertToCaseBlockXml(caseTask);
+
+            if (caseBlock == null) {
+                results[i] = new CaseUploadResult(caseTask, null, false, "Unable to convert the case task to XML");
+                continue;
+            }
+
+            String batchKey = caseTask.getUserId() + '|' + caseTask.getXmlns();
+            Batch batch = openBatches.get(batchKey);
+
+            if (batch == null) {
+                batch = new Batch();
+                openBatches.put(batchKey, batch);
+            }
+
+            batch.add(i, caseTask, caseBlock);
+
+            if (batch.size() >= batchSize) {
+                submissions.add(submit(accountConfig, batch, results));
+                openBatches.remove(batchKey);
+            }
+        }
+
+        for (Batch batch : openBatches.values()) {
+            submissions.add(submit(accountConfig, batch, results));
+        }
+
+        awaitSubmissions(submissions);
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                results[i] = new CaseUploadResult(caseTasks.get(i), null, false, "The case task was not submitted");
+            }
+        }
+
+        return Arrays.asList(results);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Future<?> submit(final AccountConfig accountConfig, final Batch batch, final CaseUploadResult[] results) {
+        final Semaphore permits = getPermits(accountConfig);
+
+        // blocks the caller once the account has the maximum number of submissions in flight
+        permits.acquireUninterruptibly();
+
+        try {
+            return executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        sendBatch(accountConfig, batch, results);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void sendBatch(AccountConfig accountConfig, Batch batch, CaseUploadResult[] results) {
+        OpenRosaResponse response = send(accountConfig, batch.tasks.get(0), batch.caseBlocks);
+
+        if (!isRejected(response) || batch.size() == 1) {
+            for (int i = 0; i < batch.size(); i++) {
+                results[batch.indexes.get(i)] = toResult(batch.tasks.get(i), response);
+            }
+        } else {
+            LOGGER.warn("Submission of {} cases was rejected by the CommCare server. Status: {}, Message: {}. " +
+                    "Re-submitting the cases one by one", batch.size(), statusOf(response), messageOf(response));
+
+            for (int i = 0; i < batch.size(); i++) {
+                CaseTask caseTask = batch.tasks.get(i);
+                OpenRosaResponse singleResponse = send(accountConfig, caseTask,
+                        Collections.singletonList(batch.caseBlocks.get(i)));
+                results[batch.indexes.get(i)] = toResult(caseTask, singleResponse);
+            }
+        }
+    }
+
+    private OpenRosaResponse send(AccountConfig accountConfig, CaseTask caseTask, List<String> caseBlocks) {
+        String fullXml = "<?xml version='1.0'?>\n" + converter.convertToSubmissionXml(caseTask, caseBlocks);
+
+        LOGGER.debug("Sending a submission with {} cases to the Commcare server", caseBlocks.size());
+
+        try {
+            return commcareHttpClient.submissionRequest(accountConfig, fullXml);
+        } catch (OpenRosaParserException e) {
+            LOGGER.error("Failed to parse response from the CommCare server.", e);
+            return null;
+        }
+    }
+
+    private CaseUploadResult toResult(CaseTask caseTask, OpenRosaResponse response) {
+        if (response == null) {
+            return new CaseUploadResult(caseTask, null, false,
+                    "No valid response to the submission was received from the CommCare server");
+        } else if (isSuccess(response)) {
+            return new CaseUploadResult(caseTask, response, true, null);
+        } else {
+            String errorMessage = String.format("Submission rejected by the CommCare server. Status: %s, Message: %s",
+                    statusOf(response), messageOf(response));
+            return new CaseUploadResult(caseTask, response, false, errorMessage);
+        }
+    }
+
+    private boolean isSuccess(OpenRosaResponse response) {
+        return response != null && response.getStatus() >= 200 && response.getStatus() < 300
+                && !SUBMIT_ERROR.equals(response.getMessageNature());
+    }
+
+    /**
+     * Checks whether the server rejected the cases of the submission, either with a client error status or with a
+     * submission error in the OpenRosa response, as opposed to failing to handle it.
+     */
+    private boolean isRejected(OpenRosaResponse response) {
+        return response != null && (SUBMIT_ERROR.equals(response.getMessageNature())
+                || (response.getStatus() >= 400 && response.getStatus() < 500));
+    }
+
+    private Object statusOf(OpenRosaResponse response) {
+        return response == null ? null : response.getStatus();
+    }
+
+    private String messageOf(OpenRosaResponse response) {
+        return response == null ? null : response.getMessageText();
+    }
+
+    private void awaitSubmissions(List<Future<?>> submissions) {
+        for (Future<?> submission : submissions) {
+            try {
+                submission.get();
+            } catch (InterruptedException e) {
+                LOGGER.warn("Interrupted while waiting for case submissions to finish");
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                LOGGER.error("Error while submitting cases to the CommCare server", e.getCause());
+            }
+        }
+    }
+
+    private Semaphore getPermits(AccountConfig accountConfig) {
+        String key = CommcareHttpClientPool.accountKey(accountConfig);
+        Semaphore permits = submissionPermits.get(key);
+
+        if (permits == null) {
+            Semaphore newPermits = new Semaphore(maxConcurrentSubmissions);
+            permits = submissionPermits.putIfAbsent(key, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+
+        return permits;
+    }
+
+    /**
+     * The case blocks of a single submission, along with the tasks they were created from and the positions of these
+     * tasks in the uploaded list.
+     */
+    private static final class Batch {
+
+        private final List<Integer> indexes = new ArrayList<>();
+        private final List<CaseTask> tasks = new ArrayList<>();
+        private final List<String> caseBlocks = new ArrayList<>();
+
+        void add(int index, CaseTask caseTask, String caseBlock) {
+            indexes.add(index);
+            tasks.add(caseTask);
+            caseBlocks.add(caseBlock);
+        }
+
+        int size() {
+            return tasks.size();
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.motechproject.commcare.domain.CommcareMetadataJson;
 import org.motechproject.commcare.exception.OpenRosaParserException;
 import org.motechproject.commcare.gateway.CaseTaskXmlConverter;
 import org.motechproject.commcare.request.json.CaseRequest;
+import org.motechproject.commcare.response.CaseUploadResult;
 import org.motechproject.commcare.response.OpenRosaResponse;
 import org.motechproject.commcare.service.CommcareCaseService;
 import org.motechproject.commcare.service.CommcareConfigService;
@@ -41,6 +42,8 @@ public class CommcareCaseServiceImpl implements CommcareCaseService {
 
     private CommcareConfigService configService;
 
+    private CommcareCaseBatchUploader batchUploader;
+
     @Autowired
     public CommcareCaseServiceImpl(CaseTaskXmlConverter converter, CommCareAPIHttpClient commcareHttpClient,
                                    CommcareConfigService configService) {
@@ -176,6 +179,12 @@ public class CommcareCaseServiceImpl implements CommcareCaseService {
         return response;
     }
 
+    @Override
+    public List<CaseUploadResult> uploadCases(List<CaseTask> caseTasks, String configName) {
+        LOGGER.debug("Uploading {} cases to the Commcare server", caseTasks.size());
+        return batchUploader.upload(configService.getByName(configName).getAccountConfig(), caseTasks);
+    }
+
     @Override
     public CaseInfo getCaseByCaseId(String caseId) {
         return getCaseByCaseId(caseId, null);
@@ -229,6 +238,16 @@ public class CommcareCaseServiceImpl implements CommcareCaseService {
         return uploadCase(caseTask, null);
     }
 
+    @Override
+    public List<CaseUploadResult> uploadCases(List<CaseTask> caseTasks) {
+        return uploadCases(caseTasks, null);
+    }
+
+    @Autowired
+    public void setBatchUploader(CommcareCaseBatchUploader batchUploader) {
+        this.batchUploader = batchUploader;
+    }
+
     private CaseRequest prepareCaseRequest(Integer pageSize, Integer pageNumber) {
         CaseRequest request = new CaseRequest();
         request.setLimit(pageSize);
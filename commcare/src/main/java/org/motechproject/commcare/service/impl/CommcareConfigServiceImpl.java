@@ -81,10 +81,17 @@ public class CommcareConfigServiceImpl implements CommcareConfigService {
     public Config updateConfig(Config config, String oldName) throws CommcareConnectionFailureException {
 
         if (configs.nameInUse(oldName)) {
-            if (!isSameServer(config.getAccountConfig(), configs.getByName(oldName).getAccountConfig())) {
-                eventRelay.sendEventMessage(new MotechEvent(EventSubjects.CONFIG_UPDATED, prepareParams(oldName)));
+            AccountConfig oldAccountConfig = configs.getByName(oldName).getAccountConfig();
+            boolean sameServer = isSameServer(config.getAccountConfig(), oldAccountConfig);
+            if (!sameServer) {
+                commcareHttpClient.release(oldAccountConfig);
             }
             configs.updateConfig(config, oldName);
+            if (!sameServer || !oldName.equals(config.getName())) {
+                Map<String, Object> params = prepareParams(config.getName());
+                params.put(EventDataKeys.OLD_CONFIG_NAME, oldName);
+                eventRelay.sendEventMessage(new MotechEvent(EventSubjects.CONFIG_UPDATED, params));
+            }
         } else {
             validateConfig(config);
             configs.saveConfig(config);
@@ -131,6 +138,7 @@ public class CommcareConfigServiceImpl implements CommcareConfigService {
         Config config = configs.getByName(configName);
 
         configs.deleteConfig(configName);
+        commcareHttpClient.release(config.getAccountConfig());
 
         Map<String, Object> map = new HashMap<>();
         map.put(EventDataKeys.CONFIG_NAME, config.getName());
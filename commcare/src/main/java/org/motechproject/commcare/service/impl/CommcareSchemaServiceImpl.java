@@ -1,7 +1,6 @@
 package org.motechproject.commcare.service.impl;
 
 import org.motechproject.commcare.domain.CommcareApplicationJson;
-import org.motechproject.commcare.domain.CommcareModuleJson;
 import org.motechproject.commcare.domain.FormSchemaJson;
 import org.motechproject.commcare.service.CommcareApplicationDataService;
 import org.motechproject.commcare.service.CommcareSchemaService;
@@ -11,51 +10,36 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Set;
 import java.util.List;
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Implementation of the {@link org.motechproject.commcare.service.CommcareSchemaService}
- * Retrieves form and case schemas from MOTECH database.
+ * Retrieves form and case schemas from MOTECH database. The schema of every configuration is kept in memory as an
+ * immutable {@link CommcareSchemaSnapshot}, which is replaced whenever the stored applications change.
  */
 @Service
 public class CommcareSchemaServiceImpl implements CommcareSchemaService {
 
+    private static final String DEFAULT_CONFIG_KEY = "";
+
+    private final ConcurrentMap<String, CommcareSchemaSnapshot> snapshots = new ConcurrentHashMap<>();
+
     private CommcareApplicationDataService commcareApplicationDataService;
 
     @Override
     @Transactional
     public List<FormSchemaJson> getAllFormSchemas(String configName) {
-        List<FormSchemaJson> allFormSchemas = new ArrayList<>();
-
-        for (CommcareApplicationJson app : commcareApplicationDataService.bySourceConfiguration(configName)) {
-            for (CommcareModuleJson module : app.getModules()) {
-                allFormSchemas.addAll(module.getFormSchemas());
-            }
-        }
-
-        return allFormSchemas;
+        return getSnapshot(configName).getFormSchemas();
     }
 
     @Override
     @Transactional
     public Map<String, Set<String>> getAllCaseTypes(String configName) {
-        Map<String, Set<String>> allCaseTypes = new HashMap<>();
-
-        for (CommcareApplicationJson app : commcareApplicationDataService.bySourceConfiguration(configName)) {
-            for (CommcareModuleJson module : app.getModules()) {
-                String caseType = module.getCaseType();
-                if (!allCaseTypes.containsKey(caseType)) {
-                    allCaseTypes.put(caseType, new HashSet<>(module.getCaseProperties()));
-                }
-            }
-        }
-
-        return allCaseTypes;
+        return getSnapshot(configName).getCaseTypes();
     }
 
     @Override
@@ -69,35 +53,29 @@ public class CommcareSchemaServiceImpl implements CommcareSchemaService {
     public Map<String, Set<String>> getAllCaseTypes() {
         return getAllCaseTypes(null);
     }
-    
+
     @Override
     @Transactional
     public Set<CaseTypeWithApplicationName> getCaseTypesWithApplicationName(String configName) {
-        Set<CaseTypeWithApplicationName> caseTypesWithApplicationName = new HashSet<>();
-
-        for (CommcareApplicationJson app : commcareApplicationDataService.bySourceConfiguration(configName)) {
-            for (CommcareModuleJson module : app.getModules()) {
-                caseTypesWithApplicationName.add(new CaseTypeWithApplicationName(module.getCaseType(), app.getApplicationName(), module.getCaseProperties()));
-            }
-        }
-
-       return caseTypesWithApplicationName;
+        return getSnapshot(configName).getCaseTypesWithApplicationName();
     }
-    
+
     @Override
     @Transactional
     public Set<FormWithApplicationName> getFormsWithApplicationName(String configName) {
-        Set<FormWithApplicationName> formWithApplicationName = new HashSet<>();
+        return getSnapshot(configName).getFormsWithApplicationName();
+    }
 
-        for (CommcareApplicationJson app : commcareApplicationDataService.bySourceConfiguration(configName)) {
-            for (CommcareModuleJson module : app.getModules()) {
-                for (FormSchemaJson form : module.getFormSchemas()) {
-                    formWithApplicationName.add(new FormWithApplicationName(form, app.getApplicationName()));
-                }
-            }
-        }
+    @Override
+    @Transactional
+    public FormSchemaJson getFormSchemaByXmlns(String configName, String xmlns) {
+        return getSnapshot(configName).getFormSchemaByXmlns(xmlns);
+    }
 
-        return formWithApplicationName;
+    @Override
+    @Transactional
+    public Set<String> getApplicationNamesByCaseType(String configName, String caseType) {
+        return getSnapshot(configName).getApplicationNamesByCaseType(caseType);
     }
 
     @Override
@@ -106,8 +84,51 @@ public class CommcareSchemaServiceImpl implements CommcareSchemaService {
         return commcareApplicationDataService.bySourceConfiguration(configName);
     }
 
+    @Override
+    @Transactional
+    public void refreshSchema(String configName) {
+        CommcareSchemaSnapshot snapshot = buildSnapshot(configName);
+
+        synchronized (snapshots) {
+            snapshots.put(toKey(configName), snapshot);
+        }
+    }
+
+    @Override
+    public void clearSchema(String configName) {
+        synchronized (snapshots) {
+            snapshots.remove(toKey(configName));
+        }
+    }
+
     @Autowired
     public void setCommcareApplicationDataService(CommcareApplicationDataService commcareApplicationDataService) {
         this.commcareApplicationDataService = commcareApplicationDataService;
     }
+
+    private CommcareSchemaSnapshot getSnapshot(String configName) {
+        String key = toKey(configName);
+        CommcareSchemaSnapshot snapshot = snapshots.get(key);
+
+        if (snapshot == null) {
+            // building under the lock makes sure a snapshot built from stale data never replaces a refreshed one
+            synchronized (snapshots) {
+                snapshot = snapshots.get(key);
+                if (snapshot == null) {
+                    snapshot = buildSnapshot(configName);
+                    snapshots.put(key, snapshot);
+                }
+            }
+        }
+
+        return snapshot;
+    }
+
+    private CommcareSchemaSnapshot buildSnapshot(String configName) {
+        return CommcareSchemaSnapshot.build(commcareApplicationDataService.bySourceConfiguration(configName));
+    }
+
+    private String toKey(String configName) {
+        return configName == null ? DEFAULT_CONFIG_KEY : configName;
+    }
 }
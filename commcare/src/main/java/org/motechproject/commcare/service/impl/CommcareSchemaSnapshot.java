@@ -0,0 +1,118 @@
+package org.motechproject.commcare.service.impl;
+
+import org.motechproject.commcare.domain.CommcareApplicationJson;
+import org.motechproject.commcare.domain.CommcareModuleJson;
+import org.motechproject.commcare.domain.FormSchemaJson;
+import org.motechproject.commcare.tasks.builder.model.CaseTypeWithApplicationName;
+import org.motechproject.commcare.tasks.builder.model.FormWithApplicationName;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable view of the CommCare schema of a single configuration. All collections served by the
+ * {@link org.motechproject.commcare.service.CommcareSchemaService} are computed once, when the snapshot is built from
+ * the stored applications, along with indexes of the form schemas by their xmlns and of the application names by the
+ * case types they define.
+ */
+final class CommcareSchemaSnapshot {
+
+    private final List<FormSchemaJson> formSchemas;
+    private final Map<String, Set<String>> caseTypes;
+    private final Set<CaseTypeWithApplicationName> caseTypesWithApplicationName;
+    private final Set<FormWithApplicationName> formsWithApplicationName;
+    private final Map<String, FormSchemaJson> formSchemasByXmlns;
+    private final Map<String, Set<String>> applicationNamesByCaseType;
+
+    private CommcareSchemaSnapshot(List<FormSchemaJson> formSchemas, Map<String, Set<String>> caseTypes,
+                                   Set<CaseTypeWithApplicationName> caseTypesWithApplicationName,
+                                   Set<FormWithApplicationName> formsWithApplicationName,
+                                   Map<String, FormSchemaJson> formSchemasByXmlns,
+                                   Map<String, Set<String>> applicationNamesByCaseType) {
+        this.formSchemas = formSchemas;
+        this.caseTypes = caseTypes;
+        this.caseTypesWithApplicationName = caseTypesWithApplicationName;
+        this.formsWithApplicationName = formsWithApplicationName;
+        this.formSchemasByXmlns = formSchemasByXmlns;
+        this.applicationNamesByCaseType = applicationNamesByCaseType;
+    }
+
+    /**
+     * Builds the snapshot from the given applications, walking their modules and forms only once.
+     *
+     * @param applications  the applications of the configuration
+     * @return the snapshot of the schema
+     */
+    static CommcareSchemaSnapshot build(List<CommcareApplicationJson> applications) {
+        List<FormSchemaJson> formSchemas = new ArrayList<>();
+        Map<String, Set<String>> caseTypes = new HashMap<>();
+        Set<CaseTypeWithApplicationName> caseTypesWithApplicationName = new HashSet<>();
+        Set<FormWithApplicationName> formsWithApplicationName = new HashSet<>();
+        Map<String, FormSchemaJson> formSchemasByXmlns = new HashMap<>();
+        Map<String, Set<String>> applicationNamesByCaseType = new HashMap<>();
+
+        for (CommcareApplicationJson app : applications) {
+            for (CommcareModuleJson module : app.getModules()) {
+                String caseType = module.getCaseType();
+
+                if (!caseTypes.containsKey(caseType)) {
+                    caseTypes.put(caseType, Collections.unmodifiableSet(new HashSet<>(module.getCaseProperties())));
+                    applicationNamesByCaseType.put(caseType, new LinkedHashSet<String>());
+                }
+                applicationNamesByCaseType.get(caseType).add(app.getApplicationName());
+
+                caseTypesWithApplicationName.add(new CaseTypeWithApplicationName(caseType, app.getApplicationName(),
+                        module.getCaseProperties()));
+
+                for (FormSchemaJson form : module.getFormSchemas()) {
+                    formSchemas.add(form);
+                    formsWithApplicationName.add(new FormWithApplicationName(form, app.getApplicationName()));
+
+                    if (!formSchemasByXmlns.containsKey(form.getXmlns())) {
+                        formSchemasByXmlns.put(form.getXmlns(), form);
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<String, Set<String>> entry : applicationNamesByCaseType.entrySet()) {
+            entry.setValue(Collections.unmodifiableSet(entry.getValue()));
+        }
+
+        return new CommcareSchemaSnapshot(Collections.unmodifiableList(formSchemas),
+                Collections.unmodifiableMap(caseTypes), Collections.unmodifiableSet(caseTypesWithApplicationName),
+                Collections.unmodifiableSet(formsWithApplicationName), Collections.unmodifiableMap(formSchemasByXmlns),
+                Collections.unmodifiableMap(applicationNamesByCaseType));
+    }
+
+    List<FormSchemaJson> getFormSchemas() {
+        return formSchemas;
+    }
+
+    Map<String, Set<String>> getCaseTypes() {
+        return caseTypes;
+    }
+
+    Set<CaseTypeWithApplicationName> getCaseTypesWithApplicationName() {
+        return caseTypesWithApplicationName;
+    }
+
+    Set<FormWithApplicationName> getFormsWithApplicationName() {
+        return formsWithApplicationName;
+    }
+
+    FormSchemaJson getFormSchemaByXmlns(String xmlns) {
+        return formSchemasByXmlns.get(xmlns);
+    }
+
+    Set<String> getApplicationNamesByCaseType(String caseType) {
+        Set<String> applicationNames = applicationNamesByCaseType.get(caseType);
+        return applicationNames == null ? Collections.<String>emptySet() : applicationNames;
+    }
+}
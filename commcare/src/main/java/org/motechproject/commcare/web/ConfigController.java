@@ -1,6 +1,7 @@
 package org.motechproject.commcare.web;
 
 import org.codehaus.jackson.map.ObjectMapper;
+import org.motechproject.commcare.client.CommcareResponseCache;
 import org.motechproject.commcare.config.Config;
 import org.motechproject.commcare.config.Configs;
 import org.motechproject.commcare.exception.CommcareAuthenticationException;
@@ -32,6 +33,7 @@ import static org.motechproject.commcare.util.Constants.HAS_MANAGE_COMMCARE_PERM
 public class ConfigController extends CommcareController {
 
     private CommcareConfigService configService;
+    private CommcareResponseCache responseCache;
 
     @RequestMapping(method = RequestMethod.GET)
     @ResponseBody
@@ -94,10 +96,21 @@ public class ConfigController extends CommcareController {
         return new ObjectMapper().writeValueAsString(new StringMessage(configService.getBaseUrl()));
     }
 
+    @RequestMapping(value = "/cacheStatistics", method = RequestMethod.GET)
+    @ResponseBody
+    public CommcareResponseCache.Statistics getCacheStatistics() {
+        return responseCache.getStatistics();
+    }
+
     @Autowired
     public void setConfigService(CommcareConfigService configService) {
         this.configService = configService;
     }
+
+    @Autowired
+    public void setResponseCache(CommcareResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
 }
 
 class StringMessage {
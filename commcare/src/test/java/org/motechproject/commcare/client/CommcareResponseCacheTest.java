@@ -0,0 +1,111 @@
+package org.motechproject.commcare.client;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class CommcareResponseCacheTest {
+
+    private static final String ACCOUNT_KEY = "https://www.commcarehq.org/a|somedomain|user";
+    private static final String URL = "https://www.commcarehq.org/a/somedomain/api/v0.5/application/?format=json";
+
+    private CommcareResponseCache responseCache;
+
+    @Before
+    public void setUp() {
+        responseCache = new CommcareResponseCache(2, 300);
+    }
+
+    @Test
+    public void shouldStoreResponsesWithValidators() {
+        String key = CommcareResponseCache.buildKey(ACCOUNT_KEY, URL, null);
+
+        responseCache.put(key, "{}", "\"etag\"", null);
+
+        CommcareResponseCache.Entry entry = responseCache.get(key);
+        assertNotNull(entry);
+        assertEquals("{}", entry.getBody());
+        assertEquals("\"etag\"", entry.getEtag());
+        assertNull(entry.getLastModified());
+    }
+
+    @Test
+    public void shouldNotStoreResponsesWithoutValidators() {
+        String key = CommcareResponseCache.buildKey(ACCOUNT_KEY, URL, null);
+
+        responseCache.put(key, "{}", null, null);
+
+        assertNull(responseCache.get(key));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntries() {
+        String first = CommcareResponseCache.buildKey(ACCOUNT_KEY, URL, "limit=1");
+        String second = CommcareResponseCache.buildKey(ACCOUNT_KEY, URL, "limit=2");
+        String third = CommcareResponseCache.buildKey(ACCOUNT_KEY, URL, "limit=3");
+
+        responseCache.put(first, "1", "a", null);
+        responseCache.put(second, "2", "b", null);
+        responseCache.get(first);
+        responseCache.put(third, "3", "c", null);
+
+        assertEquals(2, responseCache.size());
+        assertNotNull(responseCache.get(first));
+        assertNull(responseCache.get(second));
+        assertNotNull(responseCache.get(third));
+    }
+
+    @Test
+    public void shouldExpireEntries() {
+        responseCache = new CommcareResponseCache(2, -1);
+        String key = CommcareResponseCache.buildKey(ACCOUNT_KEY, URL, null);
+
+        responseCache.put(key, "{}", null, "Mon, 19 Oct 2026 10:00:00 GMT");
+
+        assertNull(responseCache.get(key));
+    }
+
+    @Test
+    public void shouldEvictEntriesOfAccount() {
+        String key = CommcareResponseCache.buildKey(ACCOUNT_KEY, URL, null);
+        String otherKey = CommcareResponseCache.buildKey("https://other.org|domain|user", URL, null);
+
+        responseCache.put(key, "{}", "a", null);
+        responseCache.put(otherKey, "{}", "b", null);
+        responseCache.evictAccount(ACCOUNT_KEY);
+
+        assertNull(responseCache.get(key));
+        assertNotNull(responseCache.get(otherKey));
+    }
+
+    @Test
+    public void shouldRecordStatistics() {
+        responseCache.recordRequest(true, 2000000);
+        responseCache.recordRequest(false, 4000000);
+
+        assertEquals(1, responseCache.getHits());
+        assertEquals(1, responseCache.getMisses());
+        assertEquals(0.5, responseCache.getHitRatio(), 0.0001);
+        assertEquals(3.0, responseCache.getMeanLatencyMillis(), 0.0001);
+        assertEquals(4.0, responseCache.getMaxLatencyMillis(), 0.0001);
+    }
+
+    @Test
+    public void shouldSnapshotStatistics() {
+        responseCache.put(CommcareResponseCache.buildKey(ACCOUNT_KEY, URL, null), "{}", "\"etag\"", null);
+        responseCache.recordRequest(true, 2000000);
+
+        CommcareResponseCache.Statistics statistics = responseCache.getStatistics();
+        responseCache.recordRequest(false, 4000000);
+
+        assertEquals(1, statistics.getSize());
+        assertEquals(1, statistics.getHits());
+        assertEquals(0, statistics.getMisses());
+        assertEquals(1.0, statistics.getHitRatio(), 0.0001);
+        assertEquals(2.0, statistics.getMeanLatencyMillis(), 0.0001);
+        assertEquals(2.0, statistics.getMaxLatencyMillis(), 0.0001);
+    }
+}
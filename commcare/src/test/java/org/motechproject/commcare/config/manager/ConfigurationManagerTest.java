@@ -0,0 +1,102 @@
+package org.motechproject.commcare.config.manager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.commcare.domain.CommcareApplicationJson;
+import org.motechproject.commcare.service.CommcareAppStructureService;
+import org.motechproject.commcare.service.CommcareApplicationDataService;
+import org.motechproject.commcare.service.CommcareSchemaService;
+import org.motechproject.commcare.tasks.CommcareTasksNotifier;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ConfigurationManagerTest {
+
+    private static final String CONFIG_NAME = "config";
+    private static final String OLD_CONFIG_NAME = "oldConfig";
+
+    @Mock
+    private CommcareAppStructureService appStructureService;
+
+    @Mock
+    private CommcareApplicationDataService commcareApplicationDataService;
+
+    @Mock
+    private CommcareSchemaService schemaService;
+
+    @Mock
+    private CommcareTasksNotifier commcareTasksNotifier;
+
+    @InjectMocks
+    private ConfigurationManager configurationManager = new ConfigurationManager();
+
+    @Before
+    public void setUp() {
+        when(appStructureService.getAllApplications(CONFIG_NAME))
+                .thenReturn(Collections.singletonList(new CommcareApplicationJson()));
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void shouldRefreshSchemaOnceTheApplicationsAreCommitted() {
+        configurationManager.configUpdated(CONFIG_NAME);
+
+        verify(commcareApplicationDataService).create(new CommcareApplicationJson());
+        verify(schemaService, never()).refreshSchema(anyString());
+        verify(commcareTasksNotifier, never()).updateTasksInfo();
+
+        commit();
+
+        verify(schemaService).refreshSchema(CONFIG_NAME);
+        verify(commcareTasksNotifier).updateTasksInfo();
+    }
+
+    @Test
+    public void shouldClearSchemaOfOldNameWhenConfigurationIsRenamed() {
+        configurationManager.configUpdated(CONFIG_NAME, OLD_CONFIG_NAME);
+
+        verify(commcareApplicationDataService).bySourceConfiguration(OLD_CONFIG_NAME);
+        verify(schemaService, never()).clearSchema(anyString());
+
+        commit();
+
+        verify(schemaService).clearSchema(OLD_CONFIG_NAME);
+        verify(schemaService).refreshSchema(CONFIG_NAME);
+    }
+
+    @Test
+    public void shouldClearSchemaOnceTheDeletionIsCommitted() {
+        configurationManager.configDeleted(CONFIG_NAME);
+
+        verify(schemaService, never()).clearSchema(anyString());
+
+        commit();
+
+        verify(schemaService).clearSchema(CONFIG_NAME);
+        verify(commcareTasksNotifier).updateTasksInfo();
+    }
+
+    private void commit() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+    }
+}
@@ -20,6 +20,7 @@ import org.motechproject.event.listener.EventRelay;
 
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -270,4 +271,33 @@ public class CaseTaskXmlConverterTest {
         Assert.assertFalse(xml.contains("index"));
 
     }
+
+    @Test
+    public void testSubmissionXmlWithMultipleCaseBlocks() {
+
+        CaseTask first = new CaseTask();
+        first.setCaseId("CASE_ID_1");
+        first.setUserId("USER_ID");
+        first.setCloseTask(new CloseTask(true));
+
+        CaseTask second = new CaseTask();
+        second.setCaseId("CASE_ID_2");
+        second.setUserId("USER_ID");
+        second.setCloseTask(new CloseTask(true));
+
+        String firstBlock = caseConverter.convertToCaseBlockXml(first);
+        String secondBlock = caseConverter.convertToCaseBlockXml(second);
+
+        Assert.assertTrue(firstBlock.startsWith("<case"));
+        Assert.assertFalse(firstBlock.contains("<data"));
+
+        String xml = caseConverter.convertToSubmissionXml(first, Arrays.asList(firstBlock, secondBlock));
+
+        Assert.assertTrue(xml.startsWith("<data"));
+        Assert.assertTrue(xml.trim().endsWith("</data>"));
+        Assert.assertTrue(xml.contains("<meta"));
+        Assert.assertTrue(xml.contains("case_id=\"CASE_ID_1\""));
+        Assert.assertTrue(xml.contains("case_id=\"CASE_ID_2\""));
+        Assert.assertTrue(xml.indexOf("CASE_ID_1") < xml.indexOf("CASE_ID_2"));
+    }
 }
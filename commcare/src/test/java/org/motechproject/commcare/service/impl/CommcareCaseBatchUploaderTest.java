@@ -0,0 +1,169 @@
+package org.motechproject.commcare.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.motechproject.commcare.client.CommCareAPIHttpClient;
+import org.motechproject.commcare.config.AccountConfig;
+import org.motechproject.commcare.domain.CaseTask;
+import org.motechproject.commcare.exception.OpenRosaParserException;
+import org.motechproject.commcare.gateway.CaseTaskXmlConverter;
+import org.motechproject.commcare.response.CaseUploadResult;
+import org.motechproject.commcare.response.OpenRosaResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class CommcareCaseBatchUploaderTest {
+
+    @Mock
+    private CaseTaskXmlConverter converter;
+
+    @Mock
+    private CommCareAPIHttpClient commcareHttpClient;
+
+    private CommcareCaseBatchUploader batchUploader;
+
+    private AccountConfig accountConfig;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        accountConfig = new AccountConfig();
+        accountConfig.setBaseUrl("https://www.commcarehq.org/a");
+        accountConfig.setDomain("domain");
+        accountConfig.setUsername("user");
+
+        batchUploader = new CommcareCaseBatchUploader(converter, commcareHttpClient, 2, 1);
+    }
+
+    @After
+    public void tearDown() {
+        batchUploader.shutdown();
+    }
+
+    @Test
+    public void shouldGroupCasesIntoSubmissions() throws OpenRosaParserException {
+        List<CaseTask> tasks = prepareTasks(3);
+
+        when(converter.convertToSubmissionXml(any(CaseTask.class), anyListOf(String.class))).thenReturn("<data/>");
+        when(commcareHttpClient.submissionRequest(eq(accountConfig), any(String.class))).thenReturn(response(201));
+
+        List<CaseUploadResult> results = batchUploader.upload(accountConfig, tasks);
+
+        assertEquals(3, results.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            assertSame(tasks.get(i), results.get(i).getCaseTask());
+            assertTrue(results.get(i).isSuccess());
+        }
+
+        verify(converter).convertToSubmissionXml(tasks.get(0), Arrays.asList("<case>0</case>", "<case>1</case>"));
+        verify(converter).convertToSubmissionXml(tasks.get(2), Collections.singletonList("<case>2</case>"));
+        verify(commcareHttpClient, times(2)).submissionRequest(eq(accountConfig), any(String.class));
+    }
+
+    @Test
+    public void shouldResubmitCasesOneByOneWhenSubmissionIsRejected() throws OpenRosaParserException {
+        List<CaseTask> tasks = prepareTasks(2);
+
+        when(converter.convertToSubmissionXml(tasks.get(0), Arrays.asList("<case>0</case>", "<case>1</case>")))
+                .thenReturn("<data>batch</data>");
+        when(converter.convertToSubmissionXml(tasks.get(0), Collections.singletonList("<case>0</case>")))
+                .thenReturn("<data>0</data>");
+        when(converter.convertToSubmissionXml(tasks.get(1), Collections.singletonList("<case>1</case>")))
+                .thenReturn("<data>1</data>");
+
+        when(commcareHttpClient.submissionRequest(eq(accountConfig), contains("batch"))).thenReturn(response(422));
+        when(commcareHttpClient.submissionRequest(eq(accountConfig), contains("<data>0</data>"))).thenReturn(response(201));
+        when(commcareHttpClient.submissionRequest(eq(accountConfig), contains("<data>1</data>"))).thenReturn(response(422));
+
+        List<CaseUploadResult> results = batchUploader.upload(accountConfig, tasks);
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertNotNull(results.get(1).getErrorMessage());
+        assertEquals(422, results.get(1).getResponse().getStatus());
+    }
+
+    @Test
+    public void shouldFailTasksWithoutResubmittingThemWhenNoResponseWasReceived() throws OpenRosaParserException {
+        List<CaseTask> tasks = prepareTasks(2);
+
+        when(converter.convertToSubmissionXml(any(CaseTask.class), anyListOf(String.class))).thenReturn("<data/>");
+        when(commcareHttpClient.submissionRequest(eq(accountConfig), any(String.class))).thenReturn(null);
+
+        List<CaseUploadResult> results = batchUploader.upload(accountConfig, tasks);
+
+        assertFalse(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertNotNull(results.get(0).getErrorMessage());
+        verify(commcareHttpClient, times(1)).submissionRequest(eq(accountConfig), any(String.class));
+    }
+
+    @Test
+    public void shouldFailTasksWithoutResubmittingThemWhenServerFailed() throws OpenRosaParserException {
+        List<CaseTask> tasks = prepareTasks(2);
+
+        when(converter.convertToSubmissionXml(any(CaseTask.class), anyListOf(String.class))).thenReturn("<data/>");
+        when(commcareHttpClient.submissionRequest(eq(accountConfig), any(String.class))).thenReturn(response(503));
+
+        List<CaseUploadResult> results = batchUploader.upload(accountConfig, tasks);
+
+        assertFalse(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals(503, results.get(1).getResponse().getStatus());
+        verify(commcareHttpClient, times(1)).submissionRequest(eq(accountConfig), any(String.class));
+    }
+
+    @Test
+    public void shouldReportTasksThatCouldNotBeConverted() {
+        CaseTask task = new CaseTask();
+        when(converter.convertToCaseBlockXml(task)).thenReturn(null);
+
+        List<CaseUploadResult> results = batchUploader.upload(accountConfig, Collections.singletonList(task));
+
+        assertEquals(1, results.size());
+        assertFalse(results.get(0).isSuccess());
+        assertNotNull(results.get(0).getErrorMessage());
+    }
+
+    private List<CaseTask> prepareTasks(int count) {
+        List<CaseTask> tasks = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            CaseTask task = new CaseTask();
+            task.setCaseId("case" + i);
+            task.setUserId("user");
+            task.setXmlns("http://openrosa.org/case/test");
+
+            when(converter.convertToCaseBlockXml(task)).thenReturn("<case>" + i + "</case>");
+            tasks.add(task);
+        }
+
+        return tasks;
+    }
+
+    private OpenRosaResponse response(int status) {
+        OpenRosaResponse response = new OpenRosaResponse();
+        response.setStatus(status);
+        return response;
+    }
+}
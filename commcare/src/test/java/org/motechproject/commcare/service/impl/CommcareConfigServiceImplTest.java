@@ -3,14 +3,18 @@ package org.motechproject.commcare.service.impl;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.motechproject.commcare.client.CommCareAPIHttpClient;
 import org.motechproject.commcare.config.Config;
 import org.motechproject.commcare.config.Configs;
+import org.motechproject.commcare.events.constants.EventDataKeys;
+import org.motechproject.commcare.events.constants.EventSubjects;
 import org.motechproject.commcare.exception.CommcareConnectionFailureException;
 import org.motechproject.commcare.service.CommcareDataForwardingEndpointService;
 import org.motechproject.commcare.util.ConfigsUtils;
+import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
 import org.motechproject.config.SettingsFacade;
 import org.motechproject.config.domain.MotechSettings;
@@ -20,6 +24,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -100,5 +105,11 @@ public class CommcareConfigServiceImplTest {
         Config savedConfig = configService.updateConfig(updatedConfig, oldName);
 
         assertEquals("UpdatedOne", savedConfig.getName());
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay).sendEventMessage(captor.capture());
+        assertEquals(EventSubjects.CONFIG_UPDATED, captor.getValue().getSubject());
+        assertEquals("UpdatedOne", captor.getValue().getParameters().get(EventDataKeys.CONFIG_NAME));
+        assertEquals(oldName, captor.getValue().getParameters().get(EventDataKeys.OLD_CONFIG_NAME));
     }
 }
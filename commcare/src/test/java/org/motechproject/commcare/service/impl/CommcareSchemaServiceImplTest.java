@@ -0,0 +1,84 @@
+package org.motechproject.commcare.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.motechproject.commcare.service.CommcareApplicationDataService;
+import org.motechproject.commcare.util.DummyCommcareSchema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class CommcareSchemaServiceImplTest {
+
+    private static final String CONFIG_ONE = "ConfigOne";
+    private static final String CONFIG_TWO = "ConfigTwo";
+
+    @Mock
+    private CommcareApplicationDataService applicationDataService;
+
+    private CommcareSchemaServiceImpl schemaService;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        when(applicationDataService.bySourceConfiguration(CONFIG_ONE))
+                .thenReturn(DummyCommcareSchema.getApplicationsForConfigOne());
+        when(applicationDataService.bySourceConfiguration(CONFIG_TWO))
+                .thenReturn(DummyCommcareSchema.getApplicationsForConfigTwo());
+
+        schemaService = new CommcareSchemaServiceImpl();
+        schemaService.setCommcareApplicationDataService(applicationDataService);
+    }
+
+    @Test
+    public void shouldBuildSchemaOncePerConfiguration() {
+        assertEquals(4, schemaService.getAllFormSchemas(CONFIG_ONE).size());
+        assertEquals(3, schemaService.getAllCaseTypes(CONFIG_ONE).size());
+        assertEquals(3, schemaService.getCaseTypesWithApplicationName(CONFIG_ONE).size());
+        assertEquals(4, schemaService.getFormsWithApplicationName(CONFIG_ONE).size());
+
+        assertEquals(1, schemaService.getAllFormSchemas(CONFIG_TWO).size());
+
+        verify(applicationDataService, times(1)).bySourceConfiguration(CONFIG_ONE);
+        verify(applicationDataService, times(1)).bySourceConfiguration(CONFIG_TWO);
+    }
+
+    @Test
+    public void shouldIndexFormsByXmlnsAndApplicationsByCaseType() {
+        assertEquals(DummyCommcareSchema.XMLNS3,
+                schemaService.getFormSchemaByXmlns(CONFIG_ONE, DummyCommcareSchema.XMLNS3).getXmlns());
+        assertNull(schemaService.getFormSchemaByXmlns(CONFIG_ONE, DummyCommcareSchema.XMLNS5));
+
+        assertEquals(1, schemaService.getApplicationNamesByCaseType(CONFIG_ONE, "death").size());
+        assertTrue(schemaService.getApplicationNamesByCaseType(CONFIG_ONE, "death").contains("app2"));
+        assertTrue(schemaService.getApplicationNamesByCaseType(CONFIG_ONE, "visit").isEmpty());
+    }
+
+    @Test
+    public void shouldRebuildSchemaOnRefresh() {
+        schemaService.getAllFormSchemas(CONFIG_ONE);
+
+        when(applicationDataService.bySourceConfiguration(CONFIG_ONE))
+                .thenReturn(DummyCommcareSchema.getApplicationsForConfigTwo());
+        schemaService.refreshSchema(CONFIG_ONE);
+
+        assertEquals(1, schemaService.getAllFormSchemas(CONFIG_ONE).size());
+        verify(applicationDataService, times(2)).bySourceConfiguration(CONFIG_ONE);
+    }
+
+    @Test
+    public void shouldReloadSchemaAfterClear() {
+        schemaService.getAllFormSchemas(CONFIG_ONE);
+        schemaService.clearSchema(CONFIG_ONE);
+        schemaService.getAllFormSchemas(CONFIG_ONE);
+
+        verify(applicationDataService, times(2)).bySourceConfiguration(CONFIG_ONE);
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.commcare.client.CommcareResponseCache;
 import org.motechproject.commcare.config.Config;
 import org.motechproject.commcare.config.Configs;
 import org.motechproject.commcare.exception.CommcareAuthenticationException;
@@ -37,6 +38,8 @@ public class ConfigControllerTest {
     @Mock
     private CommcareDataForwardingEndpointService forwardingEndpointService;
 
+    private CommcareResponseCache responseCache = new CommcareResponseCache(10, 300);
+
     private ConfigController controller;
 
     private Configs configs;
@@ -47,6 +50,7 @@ public class ConfigControllerTest {
 
         controller = new ConfigController();
         controller.setConfigService(configService);
+        controller.setResponseCache(responseCache);
 
         List<Config> configList = new ArrayList<>();
         configList.add(ConfigsUtils.prepareConfigOne());
@@ -128,4 +132,16 @@ public class ConfigControllerTest {
 
         assertEquals(new ObjectMapper().writeValueAsString(new StringMessage(baseUrl)), returned);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReturnCacheStatistics() {
+        responseCache.recordRequest(true, 2000000);
+        responseCache.recordRequest(false, 4000000);
+
+        CommcareResponseCache.Statistics statistics = controller.getCacheStatistics();
+
+        assertEquals(1, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+        assertEquals(0.5, statistics.getHitRatio(), 0.0001);
+    }
+}
@@ -3,13 +3,17 @@ package org.motechproject.csd.client;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpException;
 import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 @Component
 public class CSDHttpClient {
@@ -41,4 +45,41 @@ public class CSDHttpClient {
 
         return null;
     }
+
+    /**
+     * Downloads the XML document at the given URL into a temporary file, without loading it into memory. The caller
+     * is responsible for deleting the file.
+     *
+     * @param url the URL of the document
+     * @return the temporary file, or null if the document couldn't be downloaded
+     */
+    public File download(String url) {
+
+        HttpClient client = new HttpClient();
+
+        GetMethod method = new GetMethod(url);
+        File file = null;
+
+        try {
+            client.executeMethod(method);
+
+            file = File.createTempFile("csd", ".xml");
+            try (InputStream responseBodyAsStream = method.getResponseBodyAsStream();
+                 OutputStream out = new FileOutputStream(file)) {
+                IOUtils.copyLarge(responseBodyAsStream, out);
+            }
+
+            return file;
+
+        } catch (HttpException e) {
+            LOGGER.error("HttpException while sending request: ", e);
+        } catch (IOException e) {
+            LOGGER.error("IOException while sending request: ", e);
+        } finally {
+            method.releaseConnection();
+        }
+
+        FileUtils.deleteQuietly(file);
+        return null;
+    }
 }
@@ -4,6 +4,7 @@ import org.joda.time.DateTime;
 import org.motechproject.mds.annotations.Entity;
 import org.motechproject.mds.annotations.Field;
 
+import javax.jdo.annotations.Index;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlTransient;
@@ -18,6 +19,7 @@ public abstract class AbstractID {
     @Field(tooltip = "The creation time of this record.")
     private DateTime creationDate;
 
+    @Index
     @Field(tooltip = "The time of the last update of  this record.")
     private DateTime modificationDate;
 
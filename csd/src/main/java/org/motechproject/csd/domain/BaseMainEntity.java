@@ -1,9 +1,11 @@
 package org.motechproject.csd.domain;
 
+import org.joda.time.DateTime;
 import org.motechproject.mds.annotations.Entity;
 import org.motechproject.mds.annotations.Field;
 import org.motechproject.mds.annotations.Ignore;
 
+import javax.jdo.annotations.Index;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlAttribute;
@@ -15,6 +17,7 @@ import javax.xml.bind.annotation.XmlTransient;
 @XmlAccessorType(XmlAccessType.NONE)
 public abstract class BaseMainEntity extends AbstractID {
 
+    @Index
     @Field(required = true, tooltip = "The globally unique identifier")
     private String entityID;
 
@@ -28,6 +31,9 @@ public abstract class BaseMainEntity extends AbstractID {
     @Field(tooltip = "This is the source from where you got this entity information.")
     private String sourceDirectory;
 
+    @Field(tooltip = "The time of the last update of this entity in the directory it was read from.")
+    private DateTime recordUpdated;
+
     public String getEntityID() {
         return entityID;
     }
@@ -51,6 +57,7 @@ public abstract class BaseMainEntity extends AbstractID {
         sourceDirectory = record.getSourceDirectory();
         setCreationDate(record.getCreated());
         setModificationDate(record.getUpdated());
+        recordUpdated = record.getUpdated();
     }
 
     @XmlTransient
@@ -71,6 +78,21 @@ public abstract class BaseMainEntity extends AbstractID {
         this.sourceDirectory = sourceDirectory;
     }
 
+    /**
+     * Returns the updated date of the record this entity was read from. Unlike the modification date, it is not
+     * changed when the child entities are stored, so it tells which version of the source record is stored.
+     *
+     * @return the updated date of the source record
+     */
+    @XmlTransient
+    public DateTime getRecordUpdated() {
+        return recordUpdated;
+    }
+
+    public void setRecordUpdated(DateTime recordUpdated) {
+        this.recordUpdated = recordUpdated;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -1,6 +1,7 @@
 package org.motechproject.csd.listener.impl;
 
 import org.joda.time.DateTime;
+import org.motechproject.csd.domain.AbstractID;
 import org.motechproject.csd.domain.BaseMainEntity;
 import org.motechproject.csd.listener.CSDInstanceLifecycleListener;
 import org.motechproject.csd.util.CSDReferenceFinder;
@@ -11,7 +12,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Updates the modification date of the main entity (facility, provider, organization or service) whenever one of
+ * its child entities is stored. Within a transaction, the stored child entities are collected and their main
+ * entities are looked up and updated once, right before the transaction commits, so storing a batch of entities
+ * costs a few queries per entity type instead of several queries per child entity.
+ */
 @Service("csdInstanceLifecycleListener")
 public class CSDInstanceLifecycleListenerImpl implements CSDInstanceLifecycleListener {
 
@@ -26,14 +43,81 @@ public class CSDInstanceLifecycleListenerImpl implements CSDInstanceLifecycleLis
     @Override
     public void updateParentModificationDate(Object o) {
         if (!(o instanceof BaseMainEntity)) {
-            BaseMainEntity parentEntity = csdReferenceFinder.findParentEntity(o);
-            if (parentEntity != null) {
-                MotechDataService dataService = DataServiceHelper.getDataService(bundleContext, o.getClass().getName());
-                parentEntity.setModificationDate(DateTime.now());
-                dataService.update(parentEntity);
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                PendingEntities pending = getPendingEntities();
+                if (!pending.isFlushing()) {
+                    pending.add((AbstractID) o);
+                }
             } else {
-                LOGGER.warn("Could not find parent entity for " + o);
+                updateParents(Collections.singletonList((AbstractID) o));
+            }
+        }
+    }
+
+    private void updateParents(Collection<AbstractID> entities) {
+        Map<AbstractID, BaseMainEntity> parents = csdReferenceFinder.findParentEntities(entities);
+        Set<BaseMainEntity> updatedParents = Collections.newSetFromMap(new IdentityHashMap<BaseMainEntity, Boolean>());
+        DateTime now = DateTime.now();
+
+        for (AbstractID entity : entities) {
+            BaseMainEntity parentEntity = parents.get(entity);
+            if (parentEntity == null) {
+                LOGGER.warn("Could not find parent entity for " + entity);
+            } else if (updatedParents.add(parentEntity)) {
+                MotechDataService dataService = DataServiceHelper.getDataService(bundleContext,
+                        parentEntity.getClass().getName());
+                parentEntity.setModificationDate(now);
+                dataService.update(parentEntity);
             }
         }
     }
+
+    private PendingEntities getPendingEntities() {
+        PendingEntities pending = (PendingEntities) TransactionSynchronizationManager.getResource(this);
+
+        if (pending == null) {
+            final PendingEntities newPending = new PendingEntities();
+            TransactionSynchronizationManager.bindResource(this, newPending);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    // entities stored while the parents are updated are ignored
+                    newPending.setFlushing(true);
+                    updateParents(newPending.getEntities());
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(CSDInstanceLifecycleListenerImpl.this);
+                }
+            });
+            pending = newPending;
+        }
+        return pending;
+    }
+
+    /**
+     * The child entities stored within a single transaction.
+     */
+    private static final class PendingEntities {
+
+        private final List<AbstractID> entities = new ArrayList<>();
+        private boolean flushing;
+
+        void add(AbstractID entity) {
+            entities.add(entity);
+        }
+
+        List<AbstractID> getEntities() {
+            return entities;
+        }
+
+        boolean isFlushing() {
+            return flushing;
+        }
+
+        void setFlushing(boolean flushing) {
+            this.flushing = flushing;
+        }
+    }
 }
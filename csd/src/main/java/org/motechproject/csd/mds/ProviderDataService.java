@@ -1,12 +1,24 @@
 package org.motechproject.csd.mds;
 
+import org.joda.time.DateTime;
 import org.motechproject.csd.domain.Provider;
 import org.motechproject.mds.annotations.Lookup;
 import org.motechproject.mds.annotations.LookupField;
 import org.motechproject.mds.service.MotechDataService;
 
+import java.util.List;
+import java.util.Set;
+
+import static org.motechproject.mds.util.Constants.Operators.GT;
+
 public interface ProviderDataService extends MotechDataService<Provider> {
 
     @Lookup
     Provider findByEntityID(@LookupField(name = "entityID") String entityID);
+
+    @Lookup
+    List<Provider> findByEntityIDs(@LookupField(name = "entityID") Set<String> entityIDs);
+
+    @Lookup
+    List<Provider> findByModifiedAfter(@LookupField(name = "modificationDate", customOperator = GT) DateTime modificationDate);
 }
@@ -1,12 +1,24 @@
 package org.motechproject.csd.mds;
 
+import org.joda.time.DateTime;
 import org.motechproject.csd.domain.Service;
 import org.motechproject.mds.annotations.Lookup;
 import org.motechproject.mds.annotations.LookupField;
 import org.motechproject.mds.service.MotechDataService;
 
+import java.util.List;
+import java.util.Set;
+
+import static org.motechproject.mds.util.Constants.Operators.GT;
+
 public interface ServiceDataService extends MotechDataService<Service> {
 
     @Lookup
     Service findByEntityID(@LookupField(name = "entityID") String entityID);
+
+    @Lookup
+    List<Service> findByEntityIDs(@LookupField(name = "entityID") Set<String> entityIDs);
+
+    @Lookup
+    List<Service> findByModifiedAfter(@LookupField(name = "modificationDate", customOperator = GT) DateTime modificationDate);
 }
@@ -3,6 +3,8 @@ package org.motechproject.csd.service;
 import org.joda.time.DateTime;
 import org.motechproject.csd.domain.CSD;
 
+import java.io.OutputStream;
+
 public interface CSDService {
 
     CSD getCSD();
@@ -15,6 +17,13 @@ public interface CSDService {
 
     String getXmlContent();
 
+    /**
+     * Writes the whole CSD structure stored in the database as XML into the given stream.
+     *
+     * @param out the stream to write to
+     */
+    void writeXmlContent(OutputStream out);
+
     void fetchAndUpdate(String xmlUrl);
 
     void fetchAndUpdateUsingREST(String xmlUrl);
@@ -22,7 +22,14 @@ public interface FacilityService {
 
     void delete(String entityID);
 
-    void update(Set<Facility> facilities);
+    /**
+     * Stores the given facilities, matching them with the stored ones by entityID. New facilities are created, facilities whose
+     * record was updated since the stored one was written are updated in place and the others are left untouched.
+     *
+     * @param facilities the facilities to store
+     * @return the number of facilities created or updated
+     */
+    int update(Set<Facility> facilities);
 
     Set<Facility> getModifiedAfter(DateTime date);
 }
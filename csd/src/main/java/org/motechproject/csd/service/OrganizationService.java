@@ -18,7 +18,14 @@ public interface OrganizationService {
 
     void delete(String entityID);
 
-    void update(Set<Organization> organizations);
+    /**
+     * Stores the given organizations, matching them with the stored ones by entityID. New organizations are created, organizations whose
+     * record was updated since the stored one was written are updated in place and the others are left untouched.
+     *
+     * @param organizations the organizations to store
+     * @return the number of organizations created or updated
+     */
+    int update(Set<Organization> organizations);
 
     Set<Organization> getModifiedAfter(DateTime date);
 }
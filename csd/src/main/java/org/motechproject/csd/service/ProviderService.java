@@ -18,7 +18,14 @@ public interface ProviderService {
 
     void delete(String entityID);
 
-    void update(Set<Provider> providers);
+    /**
+     * Stores the given providers, matching them with the stored ones by entityID. New providers are created, providers whose
+     * record was updated since the stored one was written are updated in place and the others are left untouched.
+     *
+     * @param providers the providers to store
+     * @return the number of providers created or updated
+     */
+    int update(Set<Provider> providers);
 
     Set<Provider> getModifiedAfter(DateTime date);
 }
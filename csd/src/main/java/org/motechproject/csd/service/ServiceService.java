@@ -18,7 +18,14 @@ public interface ServiceService {
 
     void delete(String entityID);
 
-    void update(Set<Service> services);
+    /**
+     * Stores the given services, matching them with the stored ones by entityID. New services are created, services whose
+     * record was updated since the stored one was written are updated in place and the others are left untouched.
+     *
+     * @param services the services to store
+     * @return the number of services created or updated
+     */
+    int update(Set<Service> services);
 
     Set<Service> getModifiedAfter(DateTime date);
 }
@@ -0,0 +1,135 @@
+package org.motechproject.csd.service.impl;
+
+import org.motechproject.csd.domain.BaseMainEntity;
+import org.motechproject.csd.domain.Facility;
+import org.motechproject.csd.domain.Organization;
+import org.motechproject.csd.domain.Provider;
+import org.motechproject.csd.domain.Service;
+import org.motechproject.csd.service.FacilityService;
+import org.motechproject.csd.service.OrganizationService;
+import org.motechproject.csd.service.ProviderService;
+import org.motechproject.csd.service.ServiceService;
+import org.motechproject.csd.util.CSDDocumentReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Collects the facilities, providers, organizations and services of a single import and stores them in batches of
+ * {@link #BATCH_SIZE}, each batch in its own transaction, so a large directory neither keeps a single transaction
+ * open for the whole import nor loses the batches already stored if a later one fails. The persister is not
+ * thread-safe, a new one has to be created for every import and {@link #flush()} called once all entities were added.
+ */
+class CSDBatchPersister implements CSDDocumentReader.Handler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CSDBatchPersister.class);
+
+    static final int BATCH_SIZE = 500;
+
+    private final FacilityService facilityService;
+    private final ProviderService providerService;
+    private final OrganizationService organizationService;
+    private final ServiceService serviceService;
+
+    private final Set<Facility> facilities = new LinkedHashSet<>();
+    private final Set<Provider> providers = new LinkedHashSet<>();
+    private final Set<Organization> organizations = new LinkedHashSet<>();
+    private final Set<Service> services = new LinkedHashSet<>();
+
+    private int processed;
+    private int written;
+
+    CSDBatchPersister(FacilityService facilityService, ProviderService providerService,
+                      OrganizationService organizationService, ServiceService serviceService) {
+        this.facilityService = facilityService;
+        this.providerService = providerService;
+        this.organizationService = organizationService;
+        this.serviceService = serviceService;
+    }
+
+    @Override
+    public void handle(BaseMainEntity entity) {
+        if (entity instanceof Facility) {
+            facilities.add((Facility) entity);
+            if (facilities.size() >= BATCH_SIZE) {
+                flushFacilities();
+            }
+        } else if (entity instanceof Provider) {
+            providers.add((Provider) entity);
+            if (providers.size() >= BATCH_SIZE) {
+                flushProviders();
+            }
+        } else if (entity instanceof Organization) {
+            organizations.add((Organization) entity);
+            if (organizations.size() >= BATCH_SIZE) {
+                flushOrganizations();
+            }
+        } else if (entity instanceof Service) {
+            services.add((Service) entity);
+            if (services.size() >= BATCH_SIZE) {
+                flushServices();
+            }
+        }
+    }
+
+    void addAll(Set<? extends BaseMainEntity> entities) {
+        for (BaseMainEntity entity : entities) {
+            handle(entity);
+        }
+    }
+
+    /**
+     * Stores the entities of the batches that are not full yet.
+     */
+    void flush() {
+        flushFacilities();
+        flushProviders();
+        flushOrganizations();
+        flushServices();
+    }
+
+    int getProcessed() {
+        return processed;
+    }
+
+    int getWritten() {
+        return written;
+    }
+
+    private void flushFacilities() {
+        if (!facilities.isEmpty()) {
+            written += facilityService.update(facilities);
+            batchStored("facilities", facilities);
+        }
+    }
+
+    private void flushProviders() {
+        if (!providers.isEmpty()) {
+            written += providerService.update(providers);
+            batchStored("providers", providers);
+        }
+    }
+
+    private void flushOrganizations() {
+        if (!organizations.isEmpty()) {
+            written += organizationService.update(organizations);
+            batchStored("organizations", organizations);
+        }
+    }
+
+    private void flushServices() {
+        if (!services.isEmpty()) {
+            written += serviceService.update(services);
+            batchStored("services", services);
+        }
+    }
+
+    private void batchStored(String type, Set<? extends BaseMainEntity> batch) {
+        processed += batch.size();
+        LOGGER.info("Stored a batch of {} {}, {} entities processed so far, {} created or updated",
+                batch.size(), type, processed, written);
+        batch.clear();
+    }
+}
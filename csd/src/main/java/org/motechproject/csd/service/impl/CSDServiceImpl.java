@@ -1,5 +1,6 @@
 package org.motechproject.csd.service.impl;
 
+import org.apache.commons.io.FileUtils;
 import org.joda.time.DateTime;
 import org.joda.time.format.DateTimeFormat;
 import org.motechproject.csd.client.CSDHttpClient;
@@ -18,18 +19,30 @@ import org.motechproject.csd.service.FacilityService;
 import org.motechproject.csd.service.OrganizationService;
 import org.motechproject.csd.service.ProviderService;
 import org.motechproject.csd.service.ServiceService;
+import org.motechproject.csd.util.CSDDocumentReader;
 import org.motechproject.csd.util.MarshallUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.xml.sax.SAXException;
 
 import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringReader;
 import java.util.HashSet;
 
 @Service("csdService")
 public class CSDServiceImpl implements CSDService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(CSDServiceImpl.class);
+
     @Autowired
     private FacilityService facilityService;
 
@@ -72,22 +85,29 @@ public class CSDServiceImpl implements CSDService {
         return new CSD(organizationDirectory, serviceDirectory, facilityDirectory, providerDirectory);
     }
 
+    /**
+     * Stores the directories of the given CSD document, in batches of {@link CSDBatchPersister#BATCH_SIZE} entities,
+     * each batch in its own transaction.
+     */
     @Override
-    @Transactional
     public void update(CSD csd) {
         if (csd != null) {
+            CSDBatchPersister persister = newPersister();
+
             if (csd.getFacilityDirectory() != null && csd.getFacilityDirectory().getFacilities() != null) {
-                facilityService.update(csd.getFacilityDirectory().getFacilities());
+                persister.addAll(csd.getFacilityDirectory().getFacilities());
             }
             if (csd.getProviderDirectory() != null && csd.getProviderDirectory().getProviders() != null) {
-                providerService.update(csd.getProviderDirectory().getProviders());
+                persister.addAll(csd.getProviderDirectory().getProviders());
             }
             if (csd.getOrganizationDirectory() != null && csd.getOrganizationDirectory().getOrganizations() != null) {
-                organizationService.update(csd.getOrganizationDirectory().getOrganizations());
+                persister.addAll(csd.getOrganizationDirectory().getOrganizations());
             }
             if (csd.getServiceDirectory() != null && csd.getServiceDirectory().getServices() != null) {
-                serviceService.update(csd.getServiceDirectory().getServices());
+                persister.addAll(csd.getServiceDirectory().getServices());
             }
+
+            persister.flush();
         }
     }
 
@@ -117,7 +137,22 @@ public class CSDServiceImpl implements CSDService {
     }
 
     @Override
-    @Transactional
+    public void writeXmlContent(OutputStream out) {
+        try {
+            CSD csd = getCSD();
+            if (csd != null) {
+                MarshallUtils.marshall(csd, CSDConstants.CSD_SCHEMA, out, CSD.class);
+            } else {
+                throw new IllegalStateException("There is no CSD structure in the database");
+            }
+        } catch (SAXException e) {
+            throw new IllegalStateException("Invalid schema", e);
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Invalid CSD structure", e);
+        }
+    }
+
+    @Override
     public void fetchAndUpdate(String xmlUrl) {
         Config config = configService.getConfig(xmlUrl);
         CommunicationProtocol communicationProtocol = config.getCommunicationProtocol();
@@ -138,11 +173,16 @@ public class CSDServiceImpl implements CSDService {
 
     @Override
     public void fetchAndUpdateUsingREST(String xmlUrl) {
-        String xml = csdHttpClient.getXml(xmlUrl);
-        if (xml == null) {
+        File xmlFile = csdHttpClient.download(xmlUrl);
+        if (xmlFile == null) {
             throw new IllegalArgumentException("Couldn't load XML from url: " + xmlUrl);
         }
-        saveFromXml(xml);
+
+        try {
+            saveFromSources(new StreamSource(xmlFile), new StreamSource(xmlFile));
+        } finally {
+            FileUtils.deleteQuietly(xmlFile);
+        }
     }
 
     @Override
@@ -152,15 +192,35 @@ public class CSDServiceImpl implements CSDService {
     }
 
     public void saveFromXml(String xml) {
-        CSD csd;
+        saveFromSources(new StreamSource(new StringReader(xml)), new StreamSource(new StringReader(xml)));
+    }
+
+    /**
+     * Validates the CSD document and then streams its entities into the database, so that the document is never
+     * loaded into memory as a whole. The document is read twice, so two sources of the same document are needed.
+     */
+    private void saveFromSources(Source validationSource, Source source) {
         try {
-            csd = (CSD) MarshallUtils.unmarshall(xml, CSDConstants.CSD_SCHEMA, CSD.class);
+            MarshallUtils.validate(validationSource, CSDConstants.CSD_SCHEMA);
         } catch (SAXException e) {
             throw new IllegalArgumentException("Invalid schema", e);
-        } catch (JAXBException e) {
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Couldn't read the XML document", e);
+        }
+
+        CSDBatchPersister persister = newPersister();
+        try {
+            CSDDocumentReader.read(source, persister);
+        } catch (XMLStreamException | JAXBException e) {
             throw new IllegalArgumentException("Invalid XML structure", e);
         }
+        persister.flush();
 
-        update(csd);
+        LOGGER.info("Processed {} entities of the CSD document, {} created or updated", persister.getProcessed(),
+                persister.getWritten());
+    }
+
+    private CSDBatchPersister newPersister() {
+        return new CSDBatchPersister(facilityService, providerService, organizationService, serviceService);
     }
 }
@@ -4,12 +4,15 @@ import org.joda.time.DateTime;
 import org.motechproject.csd.domain.Facility;
 import org.motechproject.csd.mds.FacilityDataService;
 import org.motechproject.csd.service.FacilityService;
+import org.motechproject.csd.util.CSDChildrenRemover;
+import org.motechproject.csd.util.CSDEntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service("facilityService")
@@ -18,6 +21,9 @@ public class FacilityServiceImpl implements FacilityService {
     @Autowired
     private FacilityDataService facilityDataService;
 
+    @Autowired
+    private CSDChildrenRemover childrenRemover;
+
     @Override
     @Transactional
     public List<Facility> allFacilities() {
@@ -39,8 +45,7 @@ public class FacilityServiceImpl implements FacilityService {
     @Override
     @Transactional
     public void update(Facility facility) {
-        delete(facility.getEntityID());
-        facilityDataService.create(facility);
+        upsert(facility, facilityDataService.findByEntityID(facility.getEntityID()));
     }
 
     @Override
@@ -54,23 +59,39 @@ public class FacilityServiceImpl implements FacilityService {
 
     @Override
     @Transactional
-    public void update(Set<Facility> facilities) {
+    public int update(Set<Facility> facilities) {
+        Map<String, Facility> stored = CSDEntityUtils.byEntityID(
+                facilityDataService.findByEntityIDs(CSDEntityUtils.entityIDs(facilities)));
+        int written = 0;
+
         for (Facility facility : facilities) {
-            update(facility);
+            Facility existing = stored.get(facility.getEntityID());
+            if (existing == null || CSDEntityUtils.isModifiedSince(facility, existing)) {
+                upsert(facility, existing);
+                written++;
+            }
         }
+        return written;
     }
 
     @Override
     @Transactional
     public Set<Facility> getModifiedAfter(DateTime date) {
-        List<Facility> allFacilities = allFacilities();
-        Set<Facility> modifiedFacilities = new HashSet<>();
+        return new HashSet<>(facilityDataService.findByModifiedAfter(date));
+    }
 
-        for (Facility facility : allFacilities) {
-            if (facility.getRecord().getUpdated().isAfter(date)) {
-                modifiedFacilities.add(facility);
-            }
+    /**
+     * Creates the facility, or updates the stored one in place. The children of the stored facility are replaced by the
+     * children of the incoming one, so they are deleted once the update is written.
+     */
+    private void upsert(Facility facility, Facility existing) {
+        if (existing == null) {
+            facilityDataService.create(facility);
+        } else {
+            List<Object> replacedChildren = childrenRemover.getChildren(existing);
+            facility.setId(existing.getId());
+            facilityDataService.updateFromTransient(facility);
+            childrenRemover.delete(replacedChildren);
         }
-        return modifiedFacilities;
     }
 }
@@ -4,12 +4,15 @@ import org.joda.time.DateTime;
 import org.motechproject.csd.domain.Organization;
 import org.motechproject.csd.mds.OrganizationDataService;
 import org.motechproject.csd.service.OrganizationService;
+import org.motechproject.csd.util.CSDChildrenRemover;
+import org.motechproject.csd.util.CSDEntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service("organizationService")
@@ -18,6 +21,9 @@ public class OrganizationServiceImpl implements OrganizationService {
     @Autowired
     private OrganizationDataService organizationDataService;
 
+    @Autowired
+    private CSDChildrenRemover childrenRemover;
+
     @Override
     @Transactional
     public List<Organization> allOrganizations() {
@@ -39,8 +45,7 @@ public class OrganizationServiceImpl implements OrganizationService {
     @Override
     @Transactional
     public void update(Organization organization) {
-        delete(organization.getEntityID());
-        organizationDataService.create(organization);
+        upsert(organization, organizationDataService.findByEntityID(organization.getEntityID()));
     }
 
     @Override
@@ -54,23 +59,39 @@ public class OrganizationServiceImpl implements OrganizationService {
 
     @Override
     @Transactional
-    public void update(Set<Organization> organizations) {
+    public int update(Set<Organization> organizations) {
+        Map<String, Organization> stored = CSDEntityUtils.byEntityID(
+                organizationDataService.findByEntityIDs(CSDEntityUtils.entityIDs(organizations)));
+        int written = 0;
+
         for (Organization organization : organizations) {
-            update(organization);
+            Organization existing = stored.get(organization.getEntityID());
+            if (existing == null || CSDEntityUtils.isModifiedSince(organization, existing)) {
+                upsert(organization, existing);
+                written++;
+            }
         }
+        return written;
     }
 
     @Override
     @Transactional
     public Set<Organization> getModifiedAfter(DateTime date) {
-        List<Organization> allOrganizations = allOrganizations();
-        Set<Organization> modifiedOrganizations = new HashSet<>();
+        return new HashSet<>(organizationDataService.findByModifiedAfter(date));
+    }
 
-        for (Organization organization : allOrganizations) {
-            if (organization.getRecord().getUpdated().isAfter(date)) {
-                modifiedOrganizations.add(organization);
-            }
+    /**
+     * Creates the organization, or updates the stored one in place. The children of the stored organization are replaced by the
+     * children of the incoming one, so they are deleted once the update is written.
+     */
+    private void upsert(Organization organization, Organization existing) {
+        if (existing == null) {
+            organizationDataService.create(organization);
+        } else {
+            List<Object> replacedChildren = childrenRemover.getChildren(existing);
+            organization.setId(existing.getId());
+            organizationDataService.updateFromTransient(organization);
+            childrenRemover.delete(replacedChildren);
         }
-        return modifiedOrganizations;
     }
 }
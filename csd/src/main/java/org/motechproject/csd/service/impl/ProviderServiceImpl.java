@@ -4,12 +4,15 @@ import org.joda.time.DateTime;
 import org.motechproject.csd.domain.Provider;
 import org.motechproject.csd.mds.ProviderDataService;
 import org.motechproject.csd.service.ProviderService;
+import org.motechproject.csd.util.CSDChildrenRemover;
+import org.motechproject.csd.util.CSDEntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service("providerService")
@@ -18,6 +21,9 @@ public class ProviderServiceImpl implements ProviderService {
     @Autowired
     private ProviderDataService providerDataService;
 
+    @Autowired
+    private CSDChildrenRemover childrenRemover;
+
     @Override
     @Transactional
     public List<Provider> allProviders() {
@@ -39,8 +45,7 @@ public class ProviderServiceImpl implements ProviderService {
     @Override
     @Transactional
     public void update(Provider provider) {
-        delete(provider.getEntityID());
-        providerDataService.create(provider);
+        upsert(provider, providerDataService.findByEntityID(provider.getEntityID()));
     }
 
     @Override
@@ -54,23 +59,39 @@ public class ProviderServiceImpl implements ProviderService {
 
     @Override
     @Transactional
-    public void update(Set<Provider> providers) {
+    public int update(Set<Provider> providers) {
+        Map<String, Provider> stored = CSDEntityUtils.byEntityID(
+                providerDataService.findByEntityIDs(CSDEntityUtils.entityIDs(providers)));
+        int written = 0;
+
         for (Provider provider : providers) {
-            update(provider);
+            Provider existing = stored.get(provider.getEntityID());
+            if (existing == null || CSDEntityUtils.isModifiedSince(provider, existing)) {
+                upsert(provider, existing);
+                written++;
+            }
         }
+        return written;
     }
 
     @Override
     @Transactional
     public Set<Provider> getModifiedAfter(DateTime date) {
-        List<Provider> allProviders = allProviders();
-        Set<Provider> modifiedProviders = new HashSet<>();
+        return new HashSet<>(providerDataService.findByModifiedAfter(date));
+    }
 
-        for (Provider provider : allProviders) {
-            if (provider.getRecord().getUpdated().isAfter(date)) {
-                modifiedProviders.add(provider);
-            }
+    /**
+     * Creates the provider, or updates the stored one in place. The children of the stored provider are replaced by the
+     * children of the incoming one, so they are deleted once the update is written.
+     */
+    private void upsert(Provider provider, Provider existing) {
+        if (existing == null) {
+            providerDataService.create(provider);
+        } else {
+            List<Object> replacedChildren = childrenRemover.getChildren(existing);
+            provider.setId(existing.getId());
+            providerDataService.updateFromTransient(provider);
+            childrenRemover.delete(replacedChildren);
         }
-        return modifiedProviders;
     }
 }
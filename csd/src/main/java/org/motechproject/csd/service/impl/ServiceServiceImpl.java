@@ -4,11 +4,14 @@ import org.joda.time.DateTime;
 import org.motechproject.csd.domain.Service;
 import org.motechproject.csd.mds.ServiceDataService;
 import org.motechproject.csd.service.ServiceService;
+import org.motechproject.csd.util.CSDChildrenRemover;
+import org.motechproject.csd.util.CSDEntityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @org.springframework.stereotype.Service("serviceService")
@@ -17,6 +20,9 @@ public class ServiceServiceImpl implements ServiceService {
     @Autowired
     private ServiceDataService serviceDataService;
 
+    @Autowired
+    private CSDChildrenRemover childrenRemover;
+
     @Override
     @Transactional
     public List<Service> allServices() {
@@ -38,8 +44,7 @@ public class ServiceServiceImpl implements ServiceService {
     @Override
     @Transactional
     public void update(Service service) {
-        delete(service.getEntityID());
-        serviceDataService.create(service);
+        upsert(service, serviceDataService.findByEntityID(service.getEntityID()));
     }
 
     @Override
@@ -53,23 +58,39 @@ public class ServiceServiceImpl implements ServiceService {
 
     @Override
     @Transactional
-    public void update(Set<Service> services) {
+    public int update(Set<Service> services) {
+        Map<String, Service> stored = CSDEntityUtils.byEntityID(
+                serviceDataService.findByEntityIDs(CSDEntityUtils.entityIDs(services)));
+        int written = 0;
+
         for (Service service : services) {
-            update(service);
+            Service existing = stored.get(service.getEntityID());
+            if (existing == null || CSDEntityUtils.isModifiedSince(service, existing)) {
+                upsert(service, existing);
+                written++;
+            }
         }
+        return written;
     }
 
     @Override
     @Transactional
     public Set<Service> getModifiedAfter(DateTime date) {
-        List<Service> allServices = allServices();
-        Set<Service> modifiedServices = new HashSet<>();
+        return new HashSet<>(serviceDataService.findByModifiedAfter(date));
+    }
 
-        for (Service service : allServices) {
-            if (service.getRecord().getUpdated().isAfter(date)) {
-                modifiedServices.add(service);
-            }
+    /**
+     * Creates the service, or updates the stored one in place. The children of the stored service are replaced by the
+     * children of the incoming one, so they are deleted once the update is written.
+     */
+    private void upsert(Service service, Service existing) {
+        if (existing == null) {
+            serviceDataService.create(service);
+        } else {
+            List<Object> replacedChildren = childrenRemover.getChildren(existing);
+            service.setId(existing.getId());
+            serviceDataService.updateFromTransient(service);
+            childrenRemover.delete(replacedChildren);
         }
-        return modifiedServices;
     }
 }
@@ -0,0 +1,76 @@
+package org.motechproject.csd.util;
+
+import org.motechproject.csd.domain.BaseMainEntity;
+import org.motechproject.mds.annotations.Cascade;
+import org.motechproject.mds.helper.DataServiceHelper;
+import org.motechproject.mds.service.MotechDataService;
+import org.osgi.framework.BundleContext;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Deletes the children of the stored facilities, providers, organizations and services that were replaced when the
+ * entity was updated in place. The children, that is the values of the fields marked with
+ * {@code @Cascade(delete = true)}, are only deleted along with their parent, so the rows of the previous children would
+ * otherwise be left behind. The children of the children are deleted along with them.
+ */
+@Component
+public class CSDChildrenRemover {
+
+    private BundleContext bundleContext;
+
+    @Autowired
+    public void setBundleContext(BundleContext bundleContext) {
+        this.bundleContext = bundleContext;
+    }
+
+    /**
+     * Returns the children of the given entity. They have to be collected before the entity is updated, since the
+     * update replaces them in the stored entity.
+     *
+     * @param entity the stored entity
+     * @return the children of the entity
+     */
+    public List<Object> getChildren(BaseMainEntity entity) {
+        List<Object> children = new ArrayList<>();
+        // the getters are used, so that the children not fetched yet are loaded
+        BeanWrapper wrapper = new BeanWrapperImpl(entity);
+
+        for (Class<?> clazz = entity.getClass(); clazz != null; clazz = clazz.getSuperclass()) {
+            for (Field field : clazz.getDeclaredFields()) {
+                Cascade cascade = field.getAnnotation(Cascade.class);
+
+                if (cascade != null && cascade.delete()) {
+                    Object value = wrapper.getPropertyValue(field.getName());
+
+                    if (value instanceof Collection) {
+                        children.addAll((Collection<?>) value);
+                    } else if (value != null) {
+                        children.add(value);
+                    }
+                }
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Deletes the given children, previously retrieved with {@link #getChildren(BaseMainEntity)}.
+     *
+     * @param children the children to delete
+     */
+    @SuppressWarnings("unchecked")
+    public void delete(List<Object> children) {
+        for (Object child : children) {
+            MotechDataService dataService = DataServiceHelper.getDataService(bundleContext, child.getClass().getName());
+            dataService.delete(child);
+        }
+    }
+}
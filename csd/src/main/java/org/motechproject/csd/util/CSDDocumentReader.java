@@ -0,0 +1,95 @@
+package org.motechproject.csd.util;
+
+import org.motechproject.csd.domain.BaseMainEntity;
+import org.motechproject.csd.domain.CSD;
+import org.motechproject.csd.domain.Facility;
+import org.motechproject.csd.domain.Organization;
+import org.motechproject.csd.domain.Provider;
+import org.motechproject.csd.domain.Service;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Source;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a CSD document with StAX, unmarshalling one facility, provider, organization or service element of the
+ * directories at a time and passing it to a {@link Handler}, so that the memory used does not depend on the size of
+ * the document. The document is not validated, use {@link MarshallUtils#validate(Source, java.net.URL)} first.
+ */
+public final class CSDDocumentReader {
+
+    private static final String CSD_NAMESPACE = "urn:ihe:iti:csd:2013";
+
+    /**
+     * The depth of the main entities in the document, CSD/xxxDirectory/xxx.
+     */
+    private static final int ENTITY_DEPTH = 3;
+
+    private static final Map<String, Class<? extends BaseMainEntity>> ENTITY_TYPES = new HashMap<>();
+
+    static {
+        ENTITY_TYPES.put("facility", Facility.class);
+        ENTITY_TYPES.put("provider", Provider.class);
+        ENTITY_TYPES.put("organization", Organization.class);
+        ENTITY_TYPES.put("service", Service.class);
+    }
+
+    /**
+     * Receives the entities read from a CSD document, in document order.
+     */
+    public interface Handler {
+
+        void handle(BaseMainEntity entity);
+    }
+
+    private CSDDocumentReader() {
+    }
+
+    /**
+     * Reads the given CSD document, passing every main entity of its directories to the handler.
+     *
+     * @param source the document
+     * @param handler the handler of the entities
+     * @throws XMLStreamException if the document is not well-formed
+     * @throws JAXBException if an entity cannot be unmarshalled
+     */
+    public static void read(Source source, Handler handler) throws XMLStreamException, JAXBException {
+        Unmarshaller unmarshaller = MarshallUtils.getContext(CSD.class).createUnmarshaller();
+        XMLStreamReader reader = createInputFactory().createXMLStreamReader(source);
+
+        try {
+            int depth = 0;
+
+            while (reader.hasNext()) {
+                if (reader.isStartElement()) {
+                    depth++;
+
+                    Class<? extends BaseMainEntity> type = ENTITY_TYPES.get(reader.getLocalName());
+                    if (depth == ENTITY_DEPTH && type != null && CSD_NAMESPACE.equals(reader.getNamespaceURI())) {
+                        // leaves the reader on the event following the end of the element
+                        handler.handle(unmarshaller.unmarshal(reader, type).getValue());
+                        depth--;
+                        continue;
+                    }
+                } else if (reader.isEndElement()) {
+                    depth--;
+                }
+                reader.next();
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
@@ -0,0 +1,54 @@
+package org.motechproject.csd.util;
+
+import org.joda.time.DateTime;
+import org.motechproject.csd.domain.BaseMainEntity;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Helper methods used when ingesting the main CSD entities (facilities, providers, organizations and services), which
+ * are matched with the stored ones by their entityID.
+ */
+public final class CSDEntityUtils {
+
+    private CSDEntityUtils() {
+    }
+
+    public static Set<String> entityIDs(Collection<? extends BaseMainEntity> entities) {
+        Set<String> entityIDs = new HashSet<>();
+        for (BaseMainEntity entity : entities) {
+            entityIDs.add(entity.getEntityID());
+        }
+        return entityIDs;
+    }
+
+    public static <T extends BaseMainEntity> Map<String, T> byEntityID(List<T> entities) {
+        Map<String, T> byEntityID = new HashMap<>();
+        for (T entity : entities) {
+            byEntityID.put(entity.getEntityID(), entity);
+        }
+        return byEntityID;
+    }
+
+    /**
+     * Checks whether the incoming entity has been updated since the stored one was written, by comparing the updated
+     * dates of the records they were read from. The modification date is not used, since it changes whenever one of
+     * the children of the stored entity is stored. Entities stored without the date of their record are always
+     * written.
+     *
+     * @param incoming the entity read from the CSD document
+     * @param stored the stored entity with the same entityID
+     * @return true if the incoming entity has to be written
+     */
+    public static boolean isModifiedSince(BaseMainEntity incoming, BaseMainEntity stored) {
+        DateTime incomingUpdated = incoming.getRecordUpdated();
+        DateTime storedUpdated = stored.getRecordUpdated();
+
+        return incomingUpdated == null || storedUpdated == null || incomingUpdated.isAfter(storedUpdated);
+    }
+}
@@ -4,9 +4,6 @@ import org.motechproject.csd.constants.CSDConstants;
 import org.motechproject.csd.domain.AbstractID;
 import org.motechproject.csd.domain.BaseMainEntity;
 import org.motechproject.mds.annotations.Entity;
-import org.motechproject.mds.filter.Filter;
-import org.motechproject.mds.filter.FilterValue;
-import org.motechproject.mds.filter.Filters;
 import org.motechproject.mds.helper.DataServiceHelper;
 import org.motechproject.mds.service.MotechDataService;
 import org.osgi.framework.BundleContext;
@@ -26,13 +23,21 @@ import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+/**
+ * Finds the CSD entities referencing other CSD entities. The reference graph, that is the fields of every CSD class
+ * referencing each CSD class, is computed once, when the finder is created. The references are looked up with one
+ * query per referencing field, covering any number of referenced entities of the same type.
+ */
 @Component
 public class CSDReferenceFinder {
 
@@ -40,10 +45,15 @@ public class CSDReferenceFinder {
 
     private Set<Class> csdClasses;
 
-    private Map<String, Map<Class, Field>> csdFieldRefs = new HashMap<>();
+    private Map<String, List<Reference>> csdFieldRefs = new HashMap<>();
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CSDReferenceFinder.class);
 
+    /**
+     * The maximum number of references followed when looking for the main entity of an entity, guards against cycles.
+     */
+    private static final int MAX_DEPTH = 10;
+
     public CSDReferenceFinder() throws IOException, ClassNotFoundException {
         csdClasses = findAnnotatedClasses("org.motechproject.csd.domain", Entity.class);
 
@@ -51,8 +61,9 @@ public class CSDReferenceFinder {
             csdClasses = new HashSet<Class>(CSDConstants.CSD_CLASSES);
         }
         for (Class c : csdClasses) {
-            csdFieldRefs.put(c.getName(), findReferencingFields(c));
+            csdFieldRefs.put(c.getName(), Collections.unmodifiableList(computeReferences(c)));
         }
+        LOGGER.debug("Computed the references to {} CSD classes", csdFieldRefs.size());
     }
 
     @Autowired
@@ -63,75 +74,156 @@ public class CSDReferenceFinder {
     final Map<Class, Field> findReferencingFields(Class clazz) {
         Map<Class, Field> referencingFields = new HashMap<>();
 
-        for (Class c : csdClasses) {
-            for (Field f : c.getDeclaredFields()) {
-                if (f.getType().toString().equals(clazz.toString())) {
-                    referencingFields.put(c, f);
-                } else if (f.getGenericType() instanceof ParameterizedType) {
-                    ParameterizedType parameterizedType = (ParameterizedType) f.getGenericType();
-                    Type argType = parameterizedType.getActualTypeArguments()[0];
-                    if (argType.toString().equals(clazz.toString())) {
-                        referencingFields.put(c, f);
-                    }
-                }
-            }
+        for (Reference reference : computeReferences(clazz)) {
+            referencingFields.put(reference.getReferencingClass(), reference.getField());
         }
         return referencingFields;
     }
 
     public Set<Object> findReferences(AbstractID o) {
-        Set<Object> referencingEntities = new HashSet<>();
-
-        Map<Class, Field> refs = csdFieldRefs.get(o.getClass().getName());
-        for (Map.Entry<Class, Field> ref : refs.entrySet()) {
-            try {
-                referencingEntities.addAll(findReferences(o, ref.getKey(), ref.getValue()));
-            } catch (ReflectiveOperationException e) {
-                LOGGER.error(e.getMessage());
+        Set<Object> referencingEntities = findReferences(o.getClass(), Collections.singleton(o.getId())).get(o.getId());
+        return referencingEntities == null ? new HashSet<Object>() : referencingEntities;
+    }
+
+    /**
+     * Finds the entities referencing any of the entities of the given type with the given ids, with one query per
+     * field referencing the type.
+     *
+     * @param type the type of the referenced entities
+     * @param ids the ids of the referenced entities
+     * @return the referencing entities, by the id of the entity they reference
+     */
+    public Map<Long, Set<Object>> findReferences(Class type, Collection<Long> ids) {
+        Map<Long, Set<Object>> referencingEntities = new HashMap<>();
+        List<Reference> refs = csdFieldRefs.get(type.getName());
+
+        if (refs == null || ids.isEmpty()) {
+            return referencingEntities;
+        }
+
+        for (Reference ref : refs) {
+            MotechDataService dataService = DataServiceHelper.getDataService(bundleContext,
+                    ref.getReferencingClass().getName());
+            List<Object[]> rows = (List<Object[]>) dataService.executeQuery(new CSDReferenceQueryExecution(
+                    ref.getField().getName(), type, ref.isCollection(), ids));
+
+            for (Object[] row : rows) {
+                Long id = (Long) row[1];
+                if (!referencingEntities.containsKey(id)) {
+                    referencingEntities.put(id, new HashSet<Object>());
+                }
+                referencingEntities.get(id).add(row[0]);
             }
         }
         return referencingEntities;
     }
 
-    public List<Object> findReferences(AbstractID o, Class c, final Field f) throws ReflectiveOperationException {
-        final Object id = o.getId();
+    public BaseMainEntity findParentEntity(Object o) {
+        AbstractID entity = (AbstractID) o;
+        return findParentEntities(Collections.singleton(entity)).get(entity);
+    }
 
-        FilterValue filterValue = new FilterValue() {
-            @Override
-            public Object valueForQuery() {
-                return id;
-            }
+    /**
+     * Finds the main entities (facilities, providers, organizations or services) the given entities belong to. The
+     * references are followed one level at a time, for all the entities of the same type at once, so the number of
+     * queries depends on the number of types and levels, not on the number of entities.
+     *
+     * @param entities the entities, of any CSD type
+     * @return the main entities, by the (identity of the) entity belonging to them, entities without a main entity
+     * are left out
+     */
+    public Map<AbstractID, BaseMainEntity> findParentEntities(Collection<? extends AbstractID> entities) {
+        Map<AbstractID, BaseMainEntity> parents = new IdentityHashMap<>();
 
-            @Override
-            public String paramTypeForQuery() {
-                return Long.class.getName();
+        // the entities of the current level, by their type and id, along with the entities they were reached from
+        Map<Class, Map<Long, Set<AbstractID>>> level = new HashMap<>();
+        for (AbstractID entity : entities) {
+            addToLevel(level, entity, Collections.singleton(entity));
+        }
+
+        // the entities each intermediate entity was already followed for, guards against cycles
+        Map<String, Set<AbstractID>> visited = new HashMap<>();
+        for (int depth = 0; !level.isEmpty() && depth < MAX_DEPTH; depth++) {
+            Map<Class, Map<Long, Set<AbstractID>>> nextLevel = new HashMap<>();
+
+            for (Map.Entry<Class, Map<Long, Set<AbstractID>>> byType : level.entrySet()) {
+                Map<Long, Set<Object>> references = findReferences(byType.getKey(), byType.getValue().keySet());
+
+                for (Map.Entry<Long, Set<Object>> refs : references.entrySet()) {
+                    Set<AbstractID> origins = byType.getValue().get(refs.getKey());
+
+                    for (Object ref : refs.getValue()) {
+                        if (ref instanceof BaseMainEntity) {
+                            for (AbstractID origin : origins) {
+                                if (!parents.containsKey(origin)) {
+                                    parents.put(origin, (BaseMainEntity) ref);
+                                }
+                            }
+                        } else {
+                            Set<AbstractID> unresolved = unresolvedOrigins(visited, (AbstractID) ref, origins, parents);
+                            if (!unresolved.isEmpty()) {
+                                addToLevel(nextLevel, (AbstractID) ref, unresolved);
+                            }
+                        }
+                    }
+                }
             }
+            level = nextLevel;
+        }
+        return parents;
+    }
+
+    /**
+     * Returns the origins which still have no main entity and have not been followed through the given intermediate
+     * entity yet, and marks them as followed through it. Siblings reaching the same intermediate entity all get their
+     * main entity this way, while an entity reached again through a cycle is not followed again.
+     */
+    private Set<AbstractID> unresolvedOrigins(Map<String, Set<AbstractID>> visited, AbstractID entity,
+                                              Set<AbstractID> origins, Map<AbstractID, BaseMainEntity> parents) {
+        String key = entity.getClass().getName() + '#' + entity.getId();
+        if (!visited.containsKey(key)) {
+            visited.put(key, Collections.newSetFromMap(new IdentityHashMap<AbstractID, Boolean>()));
+        }
+        Set<AbstractID> followed = visited.get(key);
 
-            @Override
-            public List<String> operatorForQueryFilter() {
-                return f.getGenericType() instanceof ParameterizedType
-                        ? Arrays.asList(".contains(", ")") : Arrays.asList("==");
+        Set<AbstractID> unresolved = Collections.newSetFromMap(new IdentityHashMap<AbstractID, Boolean>());
+        for (AbstractID origin : origins) {
+            if (!parents.containsKey(origin) && followed.add(origin)) {
+                unresolved.add(origin);
             }
-        };
-        Filter filter = new Filter(f.getName(), new FilterValue[]{filterValue});
+        }
+        return unresolved;
+    }
 
-        MotechDataService dataService = DataServiceHelper.getDataService(bundleContext, c.getName());
-        return dataService.filter(new Filters(filter), null);
+    private void addToLevel(Map<Class, Map<Long, Set<AbstractID>>> level, AbstractID entity, Set<AbstractID> origins) {
+        Class type = entity.getClass();
+        if (!level.containsKey(type)) {
+            level.put(type, new HashMap<Long, Set<AbstractID>>());
+        }
+        Map<Long, Set<AbstractID>> byId = level.get(type);
+        if (!byId.containsKey(entity.getId())) {
+            byId.put(entity.getId(), Collections.newSetFromMap(new IdentityHashMap<AbstractID, Boolean>()));
+        }
+        byId.get(entity.getId()).addAll(origins);
     }
 
-    public BaseMainEntity findParentEntity(Object o) {
-        Set<Object> references = findReferences((AbstractID) o);
-        for (Object ref : references) {
-            if (ref instanceof BaseMainEntity) {
-                return (BaseMainEntity) ref;
-            } else {
-                BaseMainEntity entity = findParentEntity(ref);
-                if (entity != null) {
-                    return entity;
+    private List<Reference> computeReferences(Class clazz) {
+        List<Reference> references = new ArrayList<>();
+
+        for (Class c : csdClasses) {
+            for (Field f : c.getDeclaredFields()) {
+                if (f.getType().toString().equals(clazz.toString())) {
+                    references.add(new Reference(c, f, false));
+                } else if (f.getGenericType() instanceof ParameterizedType) {
+                    ParameterizedType parameterizedType = (ParameterizedType) f.getGenericType();
+                    Type argType = parameterizedType.getActualTypeArguments()[0];
+                    if (argType.toString().equals(clazz.toString())) {
+                        references.add(new Reference(c, f, true));
+                    }
                 }
             }
         }
-        return null;
+        return references;
     }
 
     private Set<Class> findAnnotatedClasses(String packageName, Class annotationClass) throws IOException, ClassNotFoundException {
@@ -155,4 +247,31 @@ public class CSDReferenceFinder {
         return classes;
     }
 
+    /**
+     * A field of a CSD class referencing another CSD class, either directly or through a collection.
+     */
+    private static final class Reference {
+
+        private final Class referencingClass;
+        private final Field field;
+        private final boolean collection;
+
+        Reference(Class referencingClass, Field field, boolean collection) {
+            this.referencingClass = referencingClass;
+            this.field = field;
+            this.collection = collection;
+        }
+
+        Class getReferencingClass() {
+            return referencingClass;
+        }
+
+        Field getField() {
+            return field;
+        }
+
+        boolean isCollection() {
+            return collection;
+        }
+    }
 }
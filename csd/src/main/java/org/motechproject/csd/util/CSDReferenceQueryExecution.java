@@ -0,0 +1,41 @@
+package org.motechproject.csd.util;
+
+import org.motechproject.mds.query.QueryExecution;
+import org.motechproject.mds.util.InstanceSecurityRestriction;
+
+import javax.jdo.Query;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The <code>CSDReferenceQueryExecution</code> class prepares a custom MDS query, returning the entities which reference
+ * any of the given CSD entities through the given field. Each result row holds the referencing entity and the id of
+ * the entity it references, so a single query covers the references to all of the given entities.
+ */
+public class CSDReferenceQueryExecution implements QueryExecution<List<Object[]>> {
+
+    private final String fieldName;
+    private final Class referencedClass;
+    private final boolean collection;
+    private final Collection<Long> ids;
+
+    public CSDReferenceQueryExecution(String fieldName, Class referencedClass, boolean collection, Collection<Long> ids) {
+        this.fieldName = fieldName;
+        this.referencedClass = referencedClass;
+        this.collection = collection;
+        this.ids = ids;
+    }
+
+    @Override
+    public List<Object[]> execute(Query query, InstanceSecurityRestriction instanceSecurityRestriction) {
+        if (collection) {
+            query.declareVariables(referencedClass.getName() + " referenced");
+            query.setFilter(fieldName + ".contains(referenced) && :ids.contains(referenced.id)");
+            query.setResult("this, referenced.id");
+        } else {
+            query.setFilter(":ids.contains(" + fieldName + ".id)");
+            query.setResult("this, " + fieldName + ".id");
+        }
+        return (List<Object[]>) query.execute(ids);
+    }
+}
@@ -7,29 +7,39 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.Source;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.net.URL;
-
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Marshalls and unmarshalls the CSD structures. Both the JAXB contexts and the compiled schemas are thread-safe and
+ * expensive to build, so they are created once per set of bound classes and per schema, and shared by all calls.
+ */
 public final class MarshallUtils {
 
+    private static final ConcurrentMap<List<Class>, JAXBContext> CONTEXTS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Schema> SCHEMAS = new ConcurrentHashMap<>();
+
     private MarshallUtils() {
     }
 
     public static String marshall(Object obj, URL schemaURL, Class... classesToBeBound) throws JAXBException, SAXException {
 
-        JAXBContext context = JAXBContext.newInstance(classesToBeBound);
-
-        Marshaller marshaller = context.createMarshaller();
+        Marshaller marshaller = getContext(classesToBeBound).createMarshaller();
 
         marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
 
         if (schemaURL != null) {
-            SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            Schema schema = sf.newSchema(schemaURL);
-            marshaller.setSchema(schema);
+            marshaller.setSchema(getSchema(schemaURL));
         }
 
         StringWriter writer = new StringWriter();
@@ -38,20 +48,91 @@ public final class MarshallUtils {
         return writer.toString();
     }
 
-    public static Object unmarshall(String xml, URL schemaURL, Class... classesToBeBound) throws JAXBException, SAXException {
+    /**
+     * Marshalls the given object directly into the output stream, without building the document in memory.
+     *
+     * @param obj the object to marshall
+     * @param schemaURL the URL of the schema to validate against, null to skip the validation
+     * @param out the stream to write the document to
+     * @param classesToBeBound the classes bound by the JAXB context
+     * @throws JAXBException if the object cannot be marshalled
+     * @throws SAXException if the schema is not valid
+     */
+    public static void marshall(Object obj, URL schemaURL, OutputStream out, Class... classesToBeBound) throws JAXBException, SAXException {
+
+        Marshaller marshaller = getContext(classesToBeBound).createMarshaller();
 
-        JAXBContext context = JAXBContext.newInstance(classesToBeBound);
+        if (schemaURL != null) {
+            marshaller.setSchema(getSchema(schemaURL));
+        }
 
-        Unmarshaller unmarshaller = context.createUnmarshaller();
+        marshaller.marshal(obj, out);
+    }
+
+    public static Object unmarshall(String xml, URL schemaURL, Class... classesToBeBound) throws JAXBException, SAXException {
+
+        Unmarshaller unmarshaller = getContext(classesToBeBound).createUnmarshaller();
 
         if (schemaURL != null) {
-            SchemaFactory sf = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            Schema schema = sf.newSchema(schemaURL);
-            unmarshaller.setSchema(schema);
+            unmarshaller.setSchema(getSchema(schemaURL));
         }
 
         StringReader reader = new StringReader(xml);
 
         return unmarshaller.unmarshal(reader);
     }
+
+    /**
+     * Validates the given document against the schema, without building the document in memory.
+     *
+     * @param source the document to validate
+     * @param schemaURL the URL of the schema
+     * @throws SAXException if the document is not valid
+     * @throws IOException if the document cannot be read
+     */
+    public static void validate(Source source, URL schemaURL) throws SAXException, IOException {
+        getSchema(schemaURL).newValidator().validate(source);
+    }
+
+    /**
+     * Returns the JAXB context for the given classes, creating it on the first call.
+     *
+     * @param classesToBeBound the classes bound by the context
+     * @return the shared context
+     * @throws JAXBException if the context cannot be created
+     */
+    public static JAXBContext getContext(Class... classesToBeBound) throws JAXBException {
+        List<Class> key = Arrays.asList(classesToBeBound);
+        JAXBContext context = CONTEXTS.get(key);
+
+        if (context == null) {
+            context = JAXBContext.newInstance(classesToBeBound);
+            JAXBContext existing = CONTEXTS.putIfAbsent(key, context);
+            if (existing != null) {
+                context = existing;
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Returns the compiled schema located at the given URL, compiling it on the first call.
+     *
+     * @param schemaURL the URL of the schema
+     * @return the shared schema
+     * @throws SAXException if the schema is not valid
+     */
+    public static Schema getSchema(URL schemaURL) throws SAXException {
+        String key = schemaURL.toExternalForm();
+        Schema schema = SCHEMAS.get(key);
+
+        if (schema == null) {
+            schema = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI).newSchema(schemaURL);
+            Schema existing = SCHEMAS.putIfAbsent(key, schema);
+            if (existing != null) {
+                schema = existing;
+            }
+        }
+        return schema;
+    }
 }
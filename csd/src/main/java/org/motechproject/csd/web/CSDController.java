@@ -18,6 +18,7 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.xml.sax.SAXParseException;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.xml.bind.UnmarshalException;
 import java.io.IOException;
 
@@ -43,9 +44,10 @@ public class CSDController {
     }
 
     @RequestMapping(value = "/csd-getXml", method = RequestMethod.GET, produces = MediaType.APPLICATION_XML_VALUE)
-    @ResponseBody
-    public String getXml() {
-        return csdService.getXmlContent();
+    public void getXml(HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_XML_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        csdService.writeXmlContent(response.getOutputStream());
     }
 
     @ExceptionHandler(Exception.class)
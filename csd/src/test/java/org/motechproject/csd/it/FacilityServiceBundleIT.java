@@ -7,6 +7,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.motechproject.csd.domain.CSD;
 import org.motechproject.csd.domain.Facility;
+import org.motechproject.csd.mds.AddressDataService;
+import org.motechproject.csd.mds.ContactPointDataService;
+import org.motechproject.csd.mds.OperatingHoursDataService;
 import org.motechproject.csd.service.CSDService;
 import org.motechproject.csd.service.FacilityService;
 import org.motechproject.csd.db.InitialData;
@@ -40,6 +43,15 @@ public class FacilityServiceBundleIT extends BasePaxIT {
     @Inject
     private FacilityService facilityService;
 
+    @Inject
+    private AddressDataService addressDataService;
+
+    @Inject
+    private ContactPointDataService contactPointDataService;
+
+    @Inject
+    private OperatingHoursDataService operatingHoursDataService;
+
     @Before
     public void cleanBefore() {
         getLogger().info("Clean database before test");
@@ -115,4 +127,27 @@ public class FacilityServiceBundleIT extends BasePaxIT {
 
         assertEquals(lastUpdated.iterator().next(), facility);
     }
+
+    @Test
+    public void shouldNotLeaveOrphanedChildrenWhenUpdatingFacility() {
+        DateTime updated = new DateTime(2020, 1, 1, 1, 1);
+        Set<Facility> facilities = new HashSet<>();
+        facilities.add(InitialData.createFacility(updated, "updatedFacility"));
+        facilityService.update(facilities);
+
+        long addresses = addressDataService.count();
+        long contactPoints = contactPointDataService.count();
+        long operatingHours = operatingHoursDataService.count();
+
+        Facility facility = InitialData.createFacility(updated.plusDays(1), "updatedFacility");
+        facility.setPrimaryName("updated name");
+        facilities.clear();
+        facilities.add(facility);
+        assertEquals(1, facilityService.update(facilities));
+
+        assertEquals("updated name", facilityService.getFacilityByEntityID("updatedFacility").getPrimaryName());
+        assertEquals(addresses, addressDataService.count());
+        assertEquals(contactPoints, contactPointDataService.count());
+        assertEquals(operatingHours, operatingHoursDataService.count());
+    }
 }
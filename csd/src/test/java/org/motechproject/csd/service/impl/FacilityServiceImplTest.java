@@ -0,0 +1,79 @@
+package org.motechproject.csd.service.impl;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.motechproject.csd.domain.Extension;
+import org.motechproject.csd.domain.Facility;
+import org.motechproject.csd.domain.Record;
+import org.motechproject.csd.mds.FacilityDataService;
+import org.motechproject.csd.util.CSDChildrenRemover;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class FacilityServiceImplTest {
+
+    private static final DateTime FIRST_UPDATE = new DateTime(2015, 1, 1, 10, 0);
+    private static final DateTime SECOND_UPDATE = new DateTime(2015, 2, 1, 10, 0);
+
+    @Mock
+    private FacilityDataService facilityDataService;
+
+    @Mock
+    private CSDChildrenRemover childrenRemover;
+
+    @InjectMocks
+    private FacilityServiceImpl facilityService = new FacilityServiceImpl();
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+    }
+
+    @Test
+    public void shouldCreateNewFacilitiesAndUpdateChangedOnesInPlace() {
+        Facility existing = stored("changed", FIRST_UPDATE, 7L);
+        Facility changed = facility("changed", SECOND_UPDATE);
+        Facility unchanged = facility("unchanged", FIRST_UPDATE);
+        Facility created = facility("created", FIRST_UPDATE);
+        List<Object> replacedChildren = Arrays.<Object>asList(new Extension("extension", "urn"));
+
+        when(facilityDataService.findByEntityIDs(any(Set.class)))
+                .thenReturn(Arrays.asList(existing, stored("unchanged", FIRST_UPDATE, 8L)));
+        when(childrenRemover.getChildren(existing)).thenReturn(replacedChildren);
+
+        assertEquals(2, facilityService.update(new HashSet<>(Arrays.asList(changed, unchanged, created))));
+
+        verify(facilityDataService).create(created);
+        verify(facilityDataService).updateFromTransient(changed);
+        assertEquals(existing.getId(), changed.getId());
+        verify(childrenRemover).delete(replacedChildren);
+        verify(facilityDataService, never()).create(unchanged);
+        verify(facilityDataService, never()).updateFromTransient(unchanged);
+    }
+
+    private Facility facility(String entityID, DateTime updated) {
+        Facility facility = new Facility();
+        facility.setEntityID(entityID);
+        facility.setRecord(new Record(FIRST_UPDATE, updated, "Active", null));
+        return facility;
+    }
+
+    private Facility stored(String entityID, DateTime updated, long id) {
+        Facility facility = facility(entityID, updated);
+        facility.setId(id);
+        return facility;
+    }
+}
@@ -0,0 +1,79 @@
+package org.motechproject.csd.service.impl;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.motechproject.csd.domain.Extension;
+import org.motechproject.csd.domain.Organization;
+import org.motechproject.csd.domain.Record;
+import org.motechproject.csd.mds.OrganizationDataService;
+import org.motechproject.csd.util.CSDChildrenRemover;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class OrganizationServiceImplTest {
+
+    private static final DateTime FIRST_UPDATE = new DateTime(2015, 1, 1, 10, 0);
+    private static final DateTime SECOND_UPDATE = new DateTime(2015, 2, 1, 10, 0);
+
+    @Mock
+    private OrganizationDataService organizationDataService;
+
+    @Mock
+    private CSDChildrenRemover childrenRemover;
+
+    @InjectMocks
+    private OrganizationServiceImpl organizationService = new OrganizationServiceImpl();
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+    }
+
+    @Test
+    public void shouldCreateNewOrganizationsAndUpdateChangedOnesInPlace() {
+        Organization existing = stored("changed", FIRST_UPDATE, 7L);
+        Organization changed = organization("changed", SECOND_UPDATE);
+        Organization unchanged = organization("unchanged", FIRST_UPDATE);
+        Organization created = organization("created", FIRST_UPDATE);
+        List<Object> replacedChildren = Arrays.<Object>asList(new Extension("extension", "urn"));
+
+        when(organizationDataService.findByEntityIDs(any(Set.class)))
+                .thenReturn(Arrays.asList(existing, stored("unchanged", FIRST_UPDATE, 8L)));
+        when(childrenRemover.getChildren(existing)).thenReturn(replacedChildren);
+
+        assertEquals(2, organizationService.update(new HashSet<>(Arrays.asList(changed, unchanged, created))));
+
+        verify(organizationDataService).create(created);
+        verify(organizationDataService).updateFromTransient(changed);
+        assertEquals(existing.getId(), changed.getId());
+        verify(childrenRemover).delete(replacedChildren);
+        verify(organizationDataService, never()).create(unchanged);
+        verify(organizationDataService, never()).updateFromTransient(unchanged);
+    }
+
+    private Organization organization(String entityID, DateTime updated) {
+        Organization organization = new Organization();
+        organization.setEntityID(entityID);
+        organization.setRecord(new Record(FIRST_UPDATE, updated, "Active", null));
+        return organization;
+    }
+
+    private Organization stored(String entityID, DateTime updated, long id) {
+        Organization organization = organization(entityID, updated);
+        organization.setId(id);
+        return organization;
+    }
+}
@@ -0,0 +1,79 @@
+package org.motechproject.csd.service.impl;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.motechproject.csd.domain.Extension;
+import org.motechproject.csd.domain.Provider;
+import org.motechproject.csd.domain.Record;
+import org.motechproject.csd.mds.ProviderDataService;
+import org.motechproject.csd.util.CSDChildrenRemover;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ProviderServiceImplTest {
+
+    private static final DateTime FIRST_UPDATE = new DateTime(2015, 1, 1, 10, 0);
+    private static final DateTime SECOND_UPDATE = new DateTime(2015, 2, 1, 10, 0);
+
+    @Mock
+    private ProviderDataService providerDataService;
+
+    @Mock
+    private CSDChildrenRemover childrenRemover;
+
+    @InjectMocks
+    private ProviderServiceImpl providerService = new ProviderServiceImpl();
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+    }
+
+    @Test
+    public void shouldCreateNewProvidersAndUpdateChangedOnesInPlace() {
+        Provider existing = stored("changed", FIRST_UPDATE, 7L);
+        Provider changed = provider("changed", SECOND_UPDATE);
+        Provider unchanged = provider("unchanged", FIRST_UPDATE);
+        Provider created = provider("created", FIRST_UPDATE);
+        List<Object> replacedChildren = Arrays.<Object>asList(new Extension("extension", "urn"));
+
+        when(providerDataService.findByEntityIDs(any(Set.class)))
+                .thenReturn(Arrays.asList(existing, stored("unchanged", FIRST_UPDATE, 8L)));
+        when(childrenRemover.getChildren(existing)).thenReturn(replacedChildren);
+
+        assertEquals(2, providerService.update(new HashSet<>(Arrays.asList(changed, unchanged, created))));
+
+        verify(providerDataService).create(created);
+        verify(providerDataService).updateFromTransient(changed);
+        assertEquals(existing.getId(), changed.getId());
+        verify(childrenRemover).delete(replacedChildren);
+        verify(providerDataService, never()).create(unchanged);
+        verify(providerDataService, never()).updateFromTransient(unchanged);
+    }
+
+    private Provider provider(String entityID, DateTime updated) {
+        Provider provider = new Provider();
+        provider.setEntityID(entityID);
+        provider.setRecord(new Record(FIRST_UPDATE, updated, "Active", null));
+        return provider;
+    }
+
+    private Provider stored(String entityID, DateTime updated, long id) {
+        Provider provider = provider(entityID, updated);
+        provider.setId(id);
+        return provider;
+    }
+}
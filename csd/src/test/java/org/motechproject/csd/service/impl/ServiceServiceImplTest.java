@@ -0,0 +1,79 @@
+package org.motechproject.csd.service.impl;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.motechproject.csd.domain.Extension;
+import org.motechproject.csd.domain.Record;
+import org.motechproject.csd.domain.Service;
+import org.motechproject.csd.mds.ServiceDataService;
+import org.motechproject.csd.util.CSDChildrenRemover;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ServiceServiceImplTest {
+
+    private static final DateTime FIRST_UPDATE = new DateTime(2015, 1, 1, 10, 0);
+    private static final DateTime SECOND_UPDATE = new DateTime(2015, 2, 1, 10, 0);
+
+    @Mock
+    private ServiceDataService serviceDataService;
+
+    @Mock
+    private CSDChildrenRemover childrenRemover;
+
+    @InjectMocks
+    private ServiceServiceImpl serviceService = new ServiceServiceImpl();
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+    }
+
+    @Test
+    public void shouldCreateNewServicesAndUpdateChangedOnesInPlace() {
+        Service existing = stored("changed", FIRST_UPDATE, 7L);
+        Service changed = service("changed", SECOND_UPDATE);
+        Service unchanged = service("unchanged", FIRST_UPDATE);
+        Service created = service("created", FIRST_UPDATE);
+        List<Object> replacedChildren = Arrays.<Object>asList(new Extension("extension", "urn"));
+
+        when(serviceDataService.findByEntityIDs(any(Set.class)))
+                .thenReturn(Arrays.asList(existing, stored("unchanged", FIRST_UPDATE, 8L)));
+        when(childrenRemover.getChildren(existing)).thenReturn(replacedChildren);
+
+        assertEquals(2, serviceService.update(new HashSet<>(Arrays.asList(changed, unchanged, created))));
+
+        verify(serviceDataService).create(created);
+        verify(serviceDataService).updateFromTransient(changed);
+        assertEquals(existing.getId(), changed.getId());
+        verify(childrenRemover).delete(replacedChildren);
+        verify(serviceDataService, never()).create(unchanged);
+        verify(serviceDataService, never()).updateFromTransient(unchanged);
+    }
+
+    private Service service(String entityID, DateTime updated) {
+        Service service = new Service();
+        service.setEntityID(entityID);
+        service.setRecord(new Record(FIRST_UPDATE, updated, "Active", null));
+        return service;
+    }
+
+    private Service stored(String entityID, DateTime updated, long id) {
+        Service service = service(entityID, updated);
+        service.setId(id);
+        return service;
+    }
+}
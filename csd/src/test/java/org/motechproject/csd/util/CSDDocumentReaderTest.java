@@ -0,0 +1,59 @@
+package org.motechproject.csd.util;
+
+import org.junit.Test;
+import org.motechproject.csd.constants.CSDConstants;
+import org.motechproject.csd.db.InitialData;
+import org.motechproject.csd.domain.BaseMainEntity;
+import org.motechproject.csd.domain.CSD;
+import org.motechproject.csd.domain.Facility;
+import org.motechproject.csd.domain.Organization;
+import org.motechproject.csd.domain.Provider;
+import org.motechproject.csd.domain.Service;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import static junit.framework.Assert.assertEquals;
+
+public class CSDDocumentReaderTest {
+
+    @Test
+    public void shouldReadTheEntitiesOfTheDirectories() throws Exception {
+        final Set<Facility> facilities = new HashSet<>();
+        final Set<Provider> providers = new HashSet<>();
+        final Set<Organization> organizations = new HashSet<>();
+        final Set<Service> services = new HashSet<>();
+
+        try (InputStream in = getClass().getResourceAsStream("/initialXml.xml")) {
+            CSDDocumentReader.read(new StreamSource(in), new CSDDocumentReader.Handler() {
+                @Override
+                public void handle(BaseMainEntity entity) {
+                    if (entity instanceof Facility) {
+                        facilities.add((Facility) entity);
+                    } else if (entity instanceof Provider) {
+                        providers.add((Provider) entity);
+                    } else if (entity instanceof Organization) {
+                        organizations.add((Organization) entity);
+                    } else {
+                        services.add((Service) entity);
+                    }
+                }
+            });
+        }
+
+        CSD csd = InitialData.getInitialData();
+        assertEquals(csd.getFacilityDirectory().getFacilities(), facilities);
+        assertEquals(csd.getProviderDirectory().getProviders(), providers);
+        assertEquals(csd.getOrganizationDirectory().getOrganizations(), organizations);
+        assertEquals(csd.getServiceDirectory().getServices(), services);
+    }
+
+    @Test
+    public void shouldValidateTheDocument() throws Exception {
+        try (InputStream in = getClass().getResourceAsStream("/initialXml.xml")) {
+            MarshallUtils.validate(new StreamSource(in), CSDConstants.CSD_SCHEMA);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package org.motechproject.csd.util;
+
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.motechproject.csd.domain.Facility;
+import org.motechproject.csd.domain.Record;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CSDEntityUtilsTest {
+
+    private static final DateTime FIRST_UPDATE = new DateTime(2015, 1, 1, 10, 0);
+    private static final DateTime SECOND_UPDATE = new DateTime(2015, 2, 1, 10, 0);
+    private static final DateTime CHILD_UPDATE = new DateTime(2015, 3, 1, 10, 0);
+
+    @Test
+    public void shouldNotBeModifiedIfTheRecordWasNotUpdatedSinceItWasStored() {
+        Facility stored = stored(SECOND_UPDATE, CHILD_UPDATE);
+
+        assertFalse(CSDEntityUtils.isModifiedSince(facility(FIRST_UPDATE), stored));
+        assertFalse(CSDEntityUtils.isModifiedSince(facility(SECOND_UPDATE), stored));
+    }
+
+    @Test
+    public void shouldBeModifiedIfTheRecordWasUpdatedEvenIfTheChildrenOfTheStoredEntityChangedLater() {
+        // the modification date of the stored entity was moved past the incoming record when a child was stored
+        assertTrue(CSDEntityUtils.isModifiedSince(facility(SECOND_UPDATE), stored(FIRST_UPDATE, CHILD_UPDATE)));
+    }
+
+    @Test
+    public void shouldBeModifiedIfTheEntityWasStoredWithoutTheDateOfItsRecord() {
+        assertTrue(CSDEntityUtils.isModifiedSince(facility(FIRST_UPDATE), stored(null, CHILD_UPDATE)));
+    }
+
+    @Test
+    public void shouldBeModifiedIfTheIncomingRecordHasNoUpdateDate() {
+        assertTrue(CSDEntityUtils.isModifiedSince(facility(null), stored(FIRST_UPDATE, FIRST_UPDATE)));
+    }
+
+    private Facility facility(DateTime updated) {
+        Facility facility = new Facility();
+        facility.setEntityID("facility");
+        facility.setRecord(new Record(FIRST_UPDATE, updated, "Active", null));
+        return facility;
+    }
+
+    private Facility stored(DateTime recordUpdated, DateTime modificationDate) {
+        Facility facility = facility(recordUpdated);
+        facility.setModificationDate(modificationDate);
+        return facility;
+    }
+}
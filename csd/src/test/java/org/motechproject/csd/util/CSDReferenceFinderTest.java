@@ -1,14 +1,31 @@
 package org.motechproject.csd.util;
 
 import org.junit.Test;
+import org.motechproject.csd.domain.AbstractID;
+import org.motechproject.csd.domain.Address;
+import org.motechproject.csd.domain.AddressLine;
+import org.motechproject.csd.domain.BaseMainEntity;
 import org.motechproject.csd.domain.CodedType;
 import org.motechproject.csd.domain.Facility;
 import org.motechproject.csd.domain.Geocode;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class CSDReferenceFinderTest {
 
@@ -25,4 +42,34 @@ public class CSDReferenceFinderTest {
         assertEquals(1, fields.size());
     }
 
+    @Test
+    public void shouldFindParentOfSiblingsSharingAnIntermediateEntity() throws Exception {
+        CSDReferenceFinder csdReferenceFinder = spy(new CSDReferenceFinder());
+
+        AddressLine firstLine = withId(new AddressLine(), 1L);
+        AddressLine secondLine = withId(new AddressLine(), 2L);
+        Address address = withId(new Address(), 10L);
+        Facility facility = withId(new Facility(), 20L);
+
+        Map<Long, Set<Object>> addressLineRefs = new HashMap<>();
+        addressLineRefs.put(1L, new HashSet<Object>(Collections.singleton(address)));
+        addressLineRefs.put(2L, new HashSet<Object>(Collections.singleton(address)));
+        doReturn(addressLineRefs).when(csdReferenceFinder).findReferences(eq(AddressLine.class), any(Collection.class));
+
+        Map<Long, Set<Object>> addressRefs = new HashMap<>();
+        addressRefs.put(10L, new HashSet<Object>(Collections.singleton(facility)));
+        doReturn(addressRefs).when(csdReferenceFinder).findReferences(eq(Address.class), any(Collection.class));
+
+        Map<AbstractID, BaseMainEntity> parents = csdReferenceFinder.findParentEntities(Arrays.asList(firstLine, secondLine));
+
+        assertEquals(2, parents.size());
+        assertSame(facility, parents.get(firstLine));
+        assertSame(facility, parents.get(secondLine));
+        verify(csdReferenceFinder, times(1)).findReferences(eq(Address.class), any(Collection.class));
+    }
+
+    private <T extends AbstractID> T withId(T entity, Long id) {
+        entity.setId(id);
+        return entity;
+    }
 }
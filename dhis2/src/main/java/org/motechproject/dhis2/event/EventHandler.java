@@ -13,8 +13,8 @@ import org.motechproject.dhis2.rest.domain.DhisStatusResponse;
 import org.motechproject.dhis2.rest.domain.EnrollmentDto;
 import org.motechproject.dhis2.rest.domain.TrackedEntityInstanceDto;
 import org.motechproject.dhis2.rest.service.DhisWebService;
-import org.motechproject.dhis2.service.DataElementService;
-import org.motechproject.dhis2.service.DataSetService;
+import org.motechproject.dhis2.service.DhisBatchService;
+import org.motechproject.dhis2.service.MetadataIndexService;
 import org.motechproject.dhis2.service.TrackedEntityInstanceMappingService;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.annotations.MotechListener;
@@ -46,10 +46,10 @@ public class EventHandler {
     private TrackedEntityInstanceMappingService trackedEntityInstanceMappingService;
 
     @Autowired
-    private DataElementService dataElementService;
+    private MetadataIndexService metadataIndexService;
 
     @Autowired
-    private DataSetService dataSetService;
+    private DhisBatchService dhisBatchService;
 
     public EventHandler() {
 
@@ -93,7 +93,8 @@ public class EventHandler {
 
     /**
      * Parses the MotechEvent and creates a {@link org.motechproject.dhis2.rest.domain.DhisEventDto}
-     * which is then sent to the DHIS2 server via {@link org.motechproject.dhis2.rest.service.DhisWebService}
+     * which is then sent to the DHIS2 server, along with the other events of the program, via
+     * {@link org.motechproject.dhis2.service.DhisBatchService}
      *
      * @param event MotechEvent pertaining to a DHIS2 program stage event.
      */
@@ -101,7 +102,7 @@ public class EventHandler {
     public void handleStageUpdate (MotechEvent event) {
         Map<String, Object> params = prepareDhisAttributesMap(event.getParameters());
         DhisEventDto dhisEventDto = createDhisEventFromParams(params);
-        dhisWebService.createEvent(dhisEventDto);
+        dhisBatchService.queueEvent(dhisEventDto, event);
     }
 
     /**
@@ -128,7 +129,8 @@ public class EventHandler {
 
     /**
      * Parses the event and creates a {@link org.motechproject.dhis2.rest.domain.DataValueDto} which
-     * is then sent to the DHIS2 server via {@link org.motechproject.dhis2.rest.service.DhisWebService}
+     * is then sent to the DHIS2 server, along with the other data values of the same period and organisation unit,
+     * via {@link org.motechproject.dhis2.service.DhisBatchService}
      *
      * @param event
      */
@@ -137,7 +139,7 @@ public class EventHandler {
 
         Map<String, Object> params = event.getParameters();
 
-        DataElement dataElement = dataElementService.findByName((String) params.get(EventParams.DATA_ELEMENT));
+        DataElement dataElement = metadataIndexService.getDataElementByName((String) params.get(EventParams.DATA_ELEMENT));
 
         if (dataElement == null) {
             throw new DataElementNotFoundException("The data element " + params.get(EventParams.DATA_ELEMENT) +
@@ -162,14 +164,17 @@ public class EventHandler {
         DataValueSetDto dataValueSetDto = new DataValueSetDto();
         List<DataValueDto> dataValueDtos = new ArrayList<>();
         dataValueDtos.add(dataValueDto);
+        dataValueSetDto.setPeriod(period);
+        dataValueSetDto.setOrgUnit(orgUnitId);
         dataValueSetDto.setDataValues(dataValueDtos);
 
-        dhisWebService.sendDataValueSet(dataValueSetDto);
+        dhisBatchService.queueDataValueSet(dataValueSetDto, event);
     }
 
     /**
      * Parses the event and creates a{@link org.motechproject.dhis2.rest.domain.DataValueSetDto}which
-     * is then sent to the DHIS2 server via {@link org.motechproject.dhis2.rest.service.DhisWebService}
+     * is then sent to the DHIS2 server, along with the other data values of the same data set, period and
+     * organisation unit, via {@link org.motechproject.dhis2.service.DhisBatchService}
      *
      * @param event
      */
@@ -177,7 +182,7 @@ public class EventHandler {
     public void handleDataValueSet(MotechEvent event) {
 
         Map<String, Object> params = prepareDhisAttributesMap(event.getParameters());
-        DataSet dataSet = dataSetService.findByUuid((String) params.get(EventParams.DATA_SET));
+        DataSet dataSet = metadataIndexService.getDataSetByUuid((String) params.get(EventParams.DATA_SET));
         String completeDate = (String) params.get(EventParams.COMPLETE_DATE);
         String period = (String) params.get(EventParams.PERIOD);
         String orgUnitId = (String) params.get(EventParams.LOCATION);
@@ -188,7 +193,7 @@ public class EventHandler {
 
         List<DataValueDto> dataValueDtos = new ArrayList<>();
 
-        for (DataElement element : dataSet.getDataElementList()) {
+        for (DataElement element : metadataIndexService.getDataSetElements(dataSet.getUuid()).values()) {
             DataValueDto dataValueDto = new DataValueDto();
             dataValueDto.setDataElement(element.getUuid());
             dataValueDto.setValue((String) params.get(element.getUuid()));
@@ -205,7 +210,7 @@ public class EventHandler {
         dataValueSetDto.setAttributeOptionCombo(attributeOptionCombo);
         dataValueSetDto.setCategoryOptionCombo(categoryOptionCombo);
         dataValueSetDto.setComment(comment);
-        dhisWebService.sendDataValueSet(dataValueSetDto);
+        dhisBatchService.queueDataValueSet(dataValueSetDto, event);
     }
 
     private TrackedEntityInstanceDto createTrackedEntityInstanceFromParams (Map<String, Object> params) {
@@ -23,4 +23,8 @@ public final class EventParams {
     public static final String ATTRIBUTE_OPTION_COMBO = "attribute_option_combo";
     public static final String CATEGORY_OPTION_COMBO = "category_option_combo";
     public static final String COMMENT = "comment";
+
+    public static final String IMPORT_STATUS = "import_status";
+    public static final String REFERENCE = "reference";
+    public static final String ERROR_MESSAGE = "error_message";
 }
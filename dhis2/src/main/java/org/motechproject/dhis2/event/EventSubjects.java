@@ -14,5 +14,16 @@ public final class EventSubjects {
 
     public static final String DHIS_SETTINGS_UPDATED = "dhis_settings_updated";
 
+    /*Published for every batched event, once the batch it was sent in has been imported by DHIS2*/
+    public static final String SUCCESS_SUFFIX = "_success";
+    public static final String FAILURE_SUFFIX = "_failure";
+
+    public static final String UPDATE_PROGRAM_STAGE_SUCCESS = UPDATE_PROGRAM_STAGE + SUCCESS_SUFFIX;
+    public static final String UPDATE_PROGRAM_STAGE_FAILURE = UPDATE_PROGRAM_STAGE + FAILURE_SUFFIX;
+    public static final String SEND_DATA_VALUE_SUCCESS = SEND_DATA_VALUE + SUCCESS_SUFFIX;
+    public static final String SEND_DATA_VALUE_FAILURE = SEND_DATA_VALUE + FAILURE_SUFFIX;
+    public static final String SEND_DATA_VALUE_SET_SUCCESS = SEND_DATA_VALUE_SET + SUCCESS_SUFFIX;
+    public static final String SEND_DATA_VALUE_SET_FAILURE = SEND_DATA_VALUE_SET + FAILURE_SUFFIX;
+
 
 }
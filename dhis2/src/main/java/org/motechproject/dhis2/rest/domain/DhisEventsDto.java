@@ -0,0 +1,29 @@
+package org.motechproject.dhis2.rest.domain;
+
+import org.codehaus.jackson.map.annotate.JsonSerialize;
+
+import java.util.List;
+
+/**
+ * A class to model a bulk of program stage events posted to the DHIS2 API in a single request.
+ */
+@JsonSerialize(include = JsonSerialize.Inclusion.NON_NULL)
+public class DhisEventsDto {
+
+    private List<DhisEventDto> events;
+
+    public DhisEventsDto() {
+    }
+
+    public DhisEventsDto(List<DhisEventDto> events) {
+        this.events = events;
+    }
+
+    public List<DhisEventDto> getEvents() {
+        return events;
+    }
+
+    public void setEvents(List<DhisEventDto> events) {
+        this.events = events;
+    }
+}
@@ -0,0 +1,47 @@
+package org.motechproject.dhis2.rest.domain;
+
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * A class to model DHIS2 responses that result from creating entities in bulk. The import summaries are listed in
+ * the order in which the entities were posted. Newer DHIS2 versions wrap the summaries in a response object.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DhisImportSummariesResponse {
+
+    private DhisStatus status;
+    private List<DhisStatusResponse> importSummaries;
+    private DhisImportSummariesResponse response;
+
+    public DhisStatus getStatus() {
+        if (status == null && response != null) {
+            return response.getStatus();
+        }
+        return status;
+    }
+
+    public void setStatus(DhisStatus status) {
+        this.status = status;
+    }
+
+    public List<DhisStatusResponse> getImportSummaries() {
+        if (importSummaries == null && response != null) {
+            return response.getImportSummaries();
+        }
+        return importSummaries;
+    }
+
+    public void setImportSummaries(List<DhisStatusResponse> importSummaries) {
+        this.importSummaries = importSummaries;
+    }
+
+    public DhisImportSummariesResponse getResponse() {
+        return response;
+    }
+
+    public void setResponse(DhisImportSummariesResponse response) {
+        this.response = response;
+    }
+}
@@ -15,6 +15,7 @@ public class DhisStatusResponse {
     private ImportCountDto importCount;
     private String reference;
     private DhisResponseDetails response;
+    private String description;
 
     public DhisStatus getStatus() {
         return status;
@@ -48,6 +49,14 @@ public class DhisStatusResponse {
         this.reference = reference;
     }
 
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
     public DhisResponseDetails getResponse() {
         return response;
     }
@@ -58,7 +67,7 @@ public class DhisStatusResponse {
 
     @Override
     public int hashCode() {
-        return Objects.hash(status, importCount, reference, response);
+        return Objects.hash(status, importCount, reference, response, description);
     }
 
     @Override
@@ -73,7 +82,8 @@ public class DhisStatusResponse {
         return Objects.equals(this.status, other.status)
                 && Objects.equals(this.importCount, other.importCount)
                 && Objects.equals(this.reference, other.reference)
-                && Objects.equals(this.response, other.response);
+                && Objects.equals(this.response, other.response)
+                && Objects.equals(this.description, other.description);
     }
 
 
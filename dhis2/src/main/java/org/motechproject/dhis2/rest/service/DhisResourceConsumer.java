@@ -0,0 +1,20 @@
+package org.motechproject.dhis2.rest.service;
+
+import java.util.List;
+
+/**
+ * Receives the resources downloaded from DHIS2 one page at a time, as the pages arrive. The pages are fetched
+ * concurrently, so they are not necessarily delivered in order, but the consumer is always invoked from the thread
+ * that requested the resources and never for two pages at once.
+ *
+ * @param <T> the type of the resources
+ */
+public interface DhisResourceConsumer<T> {
+
+    /**
+     * Processes a single page of resources.
+     *
+     * @param resources the resources from the page, never null
+     */
+    void consume(List<T> resources);
+}
@@ -5,6 +5,7 @@ import org.motechproject.dhis2.rest.domain.DataSetDto;
 import org.motechproject.dhis2.rest.domain.DataValueSetDto;
 import org.motechproject.dhis2.rest.domain.DhisDataValueStatusResponse;
 import org.motechproject.dhis2.rest.domain.DhisEventDto;
+import org.motechproject.dhis2.rest.domain.DhisImportSummariesResponse;
 import org.motechproject.dhis2.rest.domain.DhisServerInfo;
 import org.motechproject.dhis2.rest.domain.DhisStatusResponse;
 import org.motechproject.dhis2.rest.domain.EnrollmentDto;
@@ -17,6 +18,7 @@ import org.motechproject.dhis2.rest.domain.TrackedEntityDto;
 import org.motechproject.dhis2.rest.domain.TrackedEntityInstanceDto;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Handles HTTP requests and responses to and from DHIS2.
@@ -107,6 +109,102 @@ public interface DhisWebService {
      */
     TrackedEntityDto getTrackedEntityByHref(String href);
 
+    /**
+     * Streams the Data Elements updated in DHIS2 after the given date to the consumer, one page at a time.
+     * @param lastUpdatedSince the date, in the format used by the DHIS2 server, null for all Data Elements
+     * @param consumer the consumer of the pages
+     */
+    void streamDataElements(String lastUpdatedSince, DhisResourceConsumer<DataElementDto> consumer);
+
+    /**
+     * Streams the Data Sets, with all their fields, updated in DHIS2 after the given date to the consumer, one page at
+     * a time.
+     * @param lastUpdatedSince the date, in the format used by the DHIS2 server, null for all Data Sets
+     * @param consumer the consumer of the pages
+     */
+    void streamDataSets(String lastUpdatedSince, DhisResourceConsumer<DataSetDto> consumer);
+
+    /**
+     * Streams the Organisation Units updated in DHIS2 after the given date to the consumer, one page at a time.
+     * @param lastUpdatedSince the date, in the format used by the DHIS2 server, null for all Organisation Units
+     * @param consumer the consumer of the pages
+     */
+    void streamOrganisationUnits(String lastUpdatedSince, DhisResourceConsumer<OrganisationUnitDto> consumer);
+
+    /**
+     * Streams the programs updated in DHIS2 after the given date to the consumer, one page at a time. Unlike
+     * {@link #getPrograms()}, the streamed programs include their tracked entity, program stages and attributes, so
+     * they do not have to be requested one by one.
+     * @param lastUpdatedSince the date, in the format used by the DHIS2 server, null for all programs
+     * @param consumer the consumer of the pages
+     */
+    void streamPrograms(String lastUpdatedSince, DhisResourceConsumer<ProgramDto> consumer);
+
+    /**
+     * Streams the program stages, including their data elements, updated in DHIS2 after the given date to the
+     * consumer, one page at a time.
+     * @param lastUpdatedSince the date, in the format used by the DHIS2 server, null for all program stages
+     * @param consumer the consumer of the pages
+     */
+    void streamProgramStages(String lastUpdatedSince, DhisResourceConsumer<ProgramStageDto> consumer);
+
+    /**
+     * Streams the tracked entities updated in DHIS2 after the given date to the consumer, one page at a time.
+     * @param lastUpdatedSince the date, in the format used by the DHIS2 server, null for all tracked entities
+     * @param consumer the consumer of the pages
+     */
+    void streamTrackedEntities(String lastUpdatedSince, DhisResourceConsumer<TrackedEntityDto> consumer);
+
+    /**
+     * Streams the tracked entity attributes updated in DHIS2 after the given date to the consumer, one page at a
+     * time.
+     * @param lastUpdatedSince the date, in the format used by the DHIS2 server, null for all attributes
+     * @param consumer the consumer of the pages
+     */
+    void streamTrackedEntityAttributes(String lastUpdatedSince, DhisResourceConsumer<TrackedEntityAttributeDto> consumer);
+
+    /**
+     * Gets the ids of all the Data Elements in DHIS2, with a single request.
+     * @return the set of ids
+     */
+    Set<String> getDataElementIds();
+
+    /**
+     * Gets the ids of all the Data Sets in DHIS2, with a single request.
+     * @return the set of ids
+     */
+    Set<String> getDataSetIds();
+
+    /**
+     * Gets the ids of all the Organisation Units in DHIS2, with a single request.
+     * @return the set of ids
+     */
+    Set<String> getOrganisationUnitIds();
+
+    /**
+     * Gets the ids of all the programs in DHIS2, with a single request.
+     * @return the set of ids
+     */
+    Set<String> getProgramIds();
+
+    /**
+     * Gets the ids of all the program stages in DHIS2, with a single request.
+     * @return the set of ids
+     */
+    Set<String> getProgramStageIds();
+
+    /**
+     * Gets the ids of all the tracked entities in DHIS2, with a single request.
+     * @return the set of ids
+     */
+    Set<String> getTrackedEntityIds();
+
+    /**
+     * Gets the ids of all the tracked entity attributes in DHIS2, with a single request.
+     * @return the set of ids
+     */
+    Set<String> getTrackedEntityAttributeIds();
+
     /**
      * Attempts to create an enrollment in DHIS2 via an HTTP post request
      * @param enrollmentDto
@@ -121,6 +219,14 @@ public interface DhisWebService {
      */
     DhisStatusResponse createEvent(DhisEventDto event);
 
+    /**
+     * Attempts to create multiple DHIS2 events in DHIS2 via a single HTTP post request
+     * @param events the events to create
+     * @return a {@link org.motechproject.dhis2.rest.domain.DhisImportSummariesResponse} with the import summaries of
+     * the events, listed in the same order as the events
+     */
+    DhisImportSummariesResponse createEvents(List<DhisEventDto> events);
+
     /**
      * Attempts to create a tracked entity instance in DHIS2 via an HTTP post request
      * @param trackedEntity
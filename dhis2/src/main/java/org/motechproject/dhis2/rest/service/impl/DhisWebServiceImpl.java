@@ -16,7 +16,7 @@ import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.osgi.services.HttpClientBuilderFactory;
 import org.codehaus.jackson.map.ObjectMapper;
-import org.codehaus.jackson.type.JavaType;
+import org.codehaus.jackson.map.ObjectReader;
 import org.motechproject.admin.service.StatusMessageService;
 import org.motechproject.dhis2.event.EventSubjects;
 import org.motechproject.dhis2.rest.domain.BaseDto;
@@ -25,6 +25,8 @@ import org.motechproject.dhis2.rest.domain.DataSetDto;
 import org.motechproject.dhis2.rest.domain.DataValueSetDto;
 import org.motechproject.dhis2.rest.domain.DhisDataValueStatusResponse;
 import org.motechproject.dhis2.rest.domain.DhisEventDto;
+import org.motechproject.dhis2.rest.domain.DhisEventsDto;
+import org.motechproject.dhis2.rest.domain.DhisImportSummariesResponse;
 import org.motechproject.dhis2.rest.domain.DhisServerInfo;
 import org.motechproject.dhis2.rest.domain.DhisStatusResponse;
 import org.motechproject.dhis2.rest.domain.EnrollmentDto;
@@ -36,6 +38,7 @@ import org.motechproject.dhis2.rest.domain.ServerVersion;
 import org.motechproject.dhis2.rest.domain.TrackedEntityAttributeDto;
 import org.motechproject.dhis2.rest.domain.TrackedEntityDto;
 import org.motechproject.dhis2.rest.domain.TrackedEntityInstanceDto;
+import org.motechproject.dhis2.rest.service.DhisResourceConsumer;
 import org.motechproject.dhis2.rest.service.DhisWebException;
 import org.motechproject.dhis2.rest.service.DhisWebService;
 import org.motechproject.dhis2.service.Settings;
@@ -50,11 +53,23 @@ import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Implementation of {@link org.motechproject.dhis2.rest.service.DhisWebService}
@@ -77,10 +92,30 @@ public class DhisWebServiceImpl implements DhisWebService {
     private static final String PROGRAM_STAGES = "programStages";
     private static final String TRACKED_ENTITIES = "trackedEntities";
     private static final String TRACKED_ENITTY_ATTRIBUTES = "trackedEntityAttributes";
+    private static final String DATA_SETS = "dataSets";
+
+    private static final String ALL_FIELDS = "fields=:all";
+    private static final String ID_FIELDS = "fields=id&paging=false";
+    private static final String LAST_UPDATED_FILTER = "filter=lastUpdated:gt:";
+    private static final String PAGE_PARAM = "page=";
+
+    /*The number of threads fetching the pages of a resource, and the number of pages fetched or waiting to be consumed*/
+    private static final int PAGE_FETCH_THREADS = 4;
+    private static final int MAX_PAGES_IN_FLIGHT = 2 * PAGE_FETCH_THREADS;
+
+    /*The fields of a program needed to persist it, along with its stages, attributes and tracked entity*/
+    private static final String PROGRAM_FIELDS = "fields=id,name,href,lastUpdated,registration,singleEvent,programType,"
+            + "trackedEntity[id,name,href],programStages[id,name,href],"
+            + "programTrackedEntityAttributes[trackedEntityAttribute[id,name,href]]";
+
+    /*The fields of a program stage needed to persist it, along with its data elements*/
+    private static final String PROGRAM_STAGE_FIELDS = "fields=id,name,href,lastUpdated,"
+            + "programStageDataElements[dataElement[id,name,href]]";
 
     private SettingsService settingsService;
     private StatusMessageService statusMessageService;
     private HttpClient client;
+    private ExecutorService pageFetchExecutor;
 
     private ServerVersion serverVersion = new ServerVersion(ServerVersion.UNKNOWN);
 
@@ -93,7 +128,10 @@ public class DhisWebServiceImpl implements DhisWebService {
                               HttpClientBuilderFactory httpClientBuilderFactory) {
         this.settingsService = settingsService;
         this.statusMessageService = statusMessageService;
-        this.client = httpClientBuilderFactory.newBuilder().build();
+        this.client = httpClientBuilderFactory.newBuilder()
+                .setMaxConnPerRoute(PAGE_FETCH_THREADS + 1)
+                .build();
+        this.pageFetchExecutor = Executors.newFixedThreadPool(PAGE_FETCH_THREADS);
     }
 
     @PostConstruct
@@ -111,6 +149,11 @@ public class DhisWebServiceImpl implements DhisWebService {
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        pageFetchExecutor.shutdownNow();
+    }
+
     @MotechListener(subjects = EventSubjects.DHIS_SETTINGS_UPDATED)
     public void handleSettingsUpdate(MotechEvent event) {
         discoverServerVersion();
@@ -123,7 +166,77 @@ public class DhisWebServiceImpl implements DhisWebService {
 
     @Override
     public List<DataSetDto> getDataSets() {
-        return getResources("dataSets", DataSetDto.class, true);
+        return getResources(DATA_SETS, DataSetDto.class, true);
+    }
+
+    @Override
+    public void streamDataElements(String lastUpdatedSince, DhisResourceConsumer<DataElementDto> consumer) {
+        streamResources(DATA_ELEMENTS, DataElementDto.class, null, lastUpdatedSince, consumer);
+    }
+
+    @Override
+    public void streamDataSets(String lastUpdatedSince, DhisResourceConsumer<DataSetDto> consumer) {
+        streamResources(DATA_SETS, DataSetDto.class, ALL_FIELDS, lastUpdatedSince, consumer);
+    }
+
+    @Override
+    public void streamOrganisationUnits(String lastUpdatedSince, DhisResourceConsumer<OrganisationUnitDto> consumer) {
+        streamResources(ORG_UNITS, OrganisationUnitDto.class, null, lastUpdatedSince, consumer);
+    }
+
+    @Override
+    public void streamPrograms(String lastUpdatedSince, DhisResourceConsumer<ProgramDto> consumer) {
+        streamResources(PROGRAMS, ProgramDto.class, PROGRAM_FIELDS, lastUpdatedSince, consumer);
+    }
+
+    @Override
+    public void streamProgramStages(String lastUpdatedSince, DhisResourceConsumer<ProgramStageDto> consumer) {
+        streamResources(PROGRAM_STAGES, ProgramStageDto.class, PROGRAM_STAGE_FIELDS, lastUpdatedSince, consumer);
+    }
+
+    @Override
+    public void streamTrackedEntities(String lastUpdatedSince, DhisResourceConsumer<TrackedEntityDto> consumer) {
+        streamResources(TRACKED_ENTITIES, TrackedEntityDto.class, null, lastUpdatedSince, consumer);
+    }
+
+    @Override
+    public void streamTrackedEntityAttributes(String lastUpdatedSince, DhisResourceConsumer<TrackedEntityAttributeDto> consumer) {
+        streamResources(TRACKED_ENITTY_ATTRIBUTES, TrackedEntityAttributeDto.class, null, lastUpdatedSince, consumer);
+    }
+
+    @Override
+    public Set<String> getDataElementIds() {
+        return getIds(DATA_ELEMENTS, DataElementDto.class);
+    }
+
+    @Override
+    public Set<String> getDataSetIds() {
+        return getIds(DATA_SETS, DataSetDto.class);
+    }
+
+    @Override
+    public Set<String> getOrganisationUnitIds() {
+        return getIds(ORG_UNITS, OrganisationUnitDto.class);
+    }
+
+    @Override
+    public Set<String> getProgramIds() {
+        return getIds(PROGRAMS, ProgramDto.class);
+    }
+
+    @Override
+    public Set<String> getProgramStageIds() {
+        return getIds(PROGRAM_STAGES, ProgramStageDto.class);
+    }
+
+    @Override
+    public Set<String> getTrackedEntityIds() {
+        return getIds(TRACKED_ENTITIES, TrackedEntityDto.class);
+    }
+
+    @Override
+    public Set<String> getTrackedEntityAttributeIds() {
+        return getIds(TRACKED_ENITTY_ATTRIBUTES, TrackedEntityAttributeDto.class);
     }
 
     @Override
@@ -204,6 +317,14 @@ public class DhisWebServiceImpl implements DhisWebService {
         return createEntity(settings, settings.getServerURI() + API_ENDPOINT + EVENTS_PATH, json);
     }
 
+    @Override
+    public DhisImportSummariesResponse createEvents(List<DhisEventDto> events) {
+        String json = parseToJson(new DhisEventsDto(events));
+        Settings settings = settingsService.getSettings();
+
+        return createEntities(settings, settings.getServerURI() + API_ENDPOINT + EVENTS_PATH, json);
+    }
+
     @Override
     public DhisStatusResponse createTrackedEntityInstance(TrackedEntityInstanceDto trackedEntity) {
         String json = parseToJson(trackedEntity);
@@ -266,44 +387,119 @@ public class DhisWebServiceImpl implements DhisWebService {
         return getResources(resourceName, clazz, false);
     }
 
-    /*Gets a list of dtos*/
     private <T extends BaseDto> List<T> getResources(String resourceName, Class<T> clazz, boolean getAllFields) {
-        Settings settings = settingsService.getSettings();
-        HttpUriRequest request = generateHttpRequest(settings, getURIForResource(settings.getServerURI(), resourceName,
-                getAllFields));
+        return getResources(resourceName, clazz, getAllFields ? ALL_FIELDS : null, null);
+    }
 
-        LOGGER.debug(String.format("Initiating request for resource: %s, request: %s", resourceName, request.toString()));
+    /*Gets the ids of all resources of the given type, in a single, unpaged request*/
+    private <T extends BaseDto> Set<String> getIds(String resourceName, Class<T> clazz) {
+        Set<String> ids = new HashSet<>();
 
-        HttpResponse response = getResponseForRequest(request);
+        for (T resource : getResources(resourceName, clazz, ID_FIELDS, null)) {
+            ids.add(resource.getId());
+        }
 
-        LOGGER.debug(String.format("Received response for request: %s, response: %s", request.toString(), response.toString()));
+        return ids;
+    }
 
-        List<T> resources = new ArrayList<>();
+    /*Gets a list of dtos, optionally only those updated after the given date*/
+    private <T extends BaseDto> List<T> getResources(String resourceName, Class<T> clazz, String fields,
+                                                     String lastUpdatedSince) {
+        final List<T> resources = new ArrayList<>();
 
-        try (InputStream content = getContentForResponse(response)) {
-            ObjectMapper mapper = new ObjectMapper();
+        streamResources(resourceName, clazz, fields, lastUpdatedSince, new DhisResourceConsumer<T>() {
+            @Override
+            public void consume(List<T> page) {
+                resources.addAll(page);
+            }
+        });
+
+        return resources;
+    }
+
+    /*
+     * Delivers the dtos to the consumer page by page, in the order of the pages. The page count is read from the first
+     * page and the remaining pages are fetched concurrently, with at most MAX_PAGES_IN_FLIGHT of them being downloaded
+     * or waiting to be consumed at any time. The consumer is invoked from the calling thread.
+     */
+    private <T extends BaseDto> void streamResources(final String resourceName, Class<T> clazz, String fields,
+                                                     String lastUpdatedSince, DhisResourceConsumer<T> consumer) {
+        final Settings settings = settingsService.getSettings();
+        String uri = getURIForResource(settings.getServerURI(), resourceName, fields, lastUpdatedSince);
+
+        ObjectMapper mapper = new ObjectMapper();
+        final ObjectReader reader = mapper.reader(mapper.getTypeFactory().constructParametricType(PagedResourceDto.class, clazz));
 
-            JavaType type = mapper.getTypeFactory().constructParametricType(PagedResourceDto.class, clazz);
-            PagedResourceDto pagedResource = mapper.reader(type).readValue(content);
+        PagedResourceDto<T> firstPage = getPage(settings, uri, reader, resourceName);
+        consumeResources(consumer, firstPage);
 
-            resources.addAll(pagedResource.getResources());
+        int pageCount = firstPage.getPager() == null ? 1 : firstPage.getPager().getPageCount();
+        String pageUriPrefix = uri + (uri.indexOf('?') < 0 ? '?' : '&') + PAGE_PARAM;
 
-            while (pagedResource.getPager().getNextPage() != null) {
-                request = generateHttpRequest(settings, pagedResource.getPager().getNextPage());
-                response = getResponseForRequest(request);
+        Deque<Future<PagedResourceDto<T>>> pagesInFlight = new ArrayDeque<>();
+        int nextPage = 2;
 
-                try (InputStream nextPageContent = getContentForResponse(response)) {
-                    pagedResource = mapper.reader(type).readValue(nextPageContent);
-                    resources.addAll(pagedResource.getResources());
+        try {
+            while (!pagesInFlight.isEmpty() || nextPage <= pageCount) {
+                while (pagesInFlight.size() < MAX_PAGES_IN_FLIGHT && nextPage <= pageCount) {
+                    final String pageUri = pageUriPrefix + nextPage;
+
+                    pagesInFlight.add(pageFetchExecutor.submit(new Callable<PagedResourceDto<T>>() {
+                        @Override
+                        public PagedResourceDto<T> call() {
+                            return getPage(settings, pageUri, reader, resourceName);
+                        }
+                    }));
+
+                    nextPage++;
                 }
+
+                // the following pages keep downloading while the oldest one is awaited and consumed
+                consumeResources(consumer, pagesInFlight.poll().get());
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DhisWebException(String.format("Interrupted while fetching %s resources", resourceName), e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DhisWebException) {
+                throw (DhisWebException) e.getCause();
+            }
+            String msg = String.format("Error fetching %s resources, exception: %s", resourceName, e.getCause());
+            statusMessageService.warn(msg, MODULE_NAME);
+            throw new DhisWebException(msg, e.getCause());
+        } finally {
+            // stop fetching the remaining pages if the consumer or one of the requests failed
+            for (Future<PagedResourceDto<T>> future : pagesInFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /*Gets a single page of dtos*/
+    private <T extends BaseDto> PagedResourceDto<T> getPage(Settings settings, String uri, ObjectReader reader,
+                                                            String resourceName) {
+        HttpUriRequest request = generateHttpRequest(settings, uri);
+
+        LOGGER.debug(String.format("Initiating request for resource: %s, request: %s", resourceName, request.toString()));
+
+        HttpResponse response = getResponseForRequest(request);
+
+        LOGGER.debug(String.format("Received response for request: %s, response: %s", request.toString(), response.toString()));
+
+        try (InputStream content = getContentForResponse(response)) {
+            return reader.readValue(content);
         } catch (IOException e) {
             String msg = String.format("Error parsing %s resources, exception: %s", resourceName, e.toString());
             statusMessageService.warn(msg, MODULE_NAME);
             throw new DhisWebException(msg, e);
         }
+    }
 
-        return resources;
+    private <T extends BaseDto> void consumeResources(DhisResourceConsumer<T> consumer, PagedResourceDto<T> page) {
+        // filtered requests that match nothing come back without the resource list
+        if (page.getResources() != null && !page.getResources().isEmpty()) {
+            consumer.consume(page.getResources());
+        }
     }
 
     /*Attempts to create the an entity in the DHIS2 system. Returns the response from DHIS2*/
@@ -329,6 +525,25 @@ public class DhisWebServiceImpl implements DhisWebService {
         return status;
     }
 
+    /*Attempts to create multiple entities in the DHIS2 system. Returns the import summaries from DHIS2*/
+    private DhisImportSummariesResponse createEntities(Settings settings, String uri, String json) {
+        HttpUriRequest request = generatePostRequest(settings, uri, json);
+
+        LOGGER.debug(String.format("Initiating request to create resources: %s, request: %s", json, request.toString()));
+
+        HttpResponse response = getResponseForRequest(request);
+
+        LOGGER.debug(String.format("Received response to create resources: %s, request: %s", json, response));
+
+        try (InputStream content = getContentForResponse(response)) {
+            return new ObjectMapper().readValue(content, DhisImportSummariesResponse.class);
+        } catch (IOException e) {
+            String msg = String.format("Error parsing response from uri: %s, exception: %s", uri, e.toString());
+            statusMessageService.warn(msg, MODULE_NAME);
+            throw new DhisWebException(msg, e);
+        }
+    }
+
     /*Converts the object to json*/
     private String parseToJson(Object object) {
         try {
@@ -398,14 +613,26 @@ public class DhisWebServiceImpl implements DhisWebService {
     }
 
     /*Builds the URL for a particular resource*/
-    private String getURIForResource(String baseURI, String resourceName, boolean getAllFields) {
+    private String getURIForResource(String baseURI, String resourceName, String fields, String lastUpdatedSince) {
         StringBuilder sb = new StringBuilder(baseURI);
 
         sb.append("/api/");
         sb.append(resourceName);
 
-        if (getAllFields) {
-            sb.append("?fields=:all");
+        char separator = '?';
+
+        if (fields != null) {
+            sb.append(separator).append(fields);
+            separator = '&';
+        }
+
+        if (StringUtils.isNotBlank(lastUpdatedSince)) {
+            try {
+                // the server date carries its time zone offset, the '+' sign of which must be encoded
+                sb.append(separator).append(LAST_UPDATED_FILTER).append(URLEncoder.encode(lastUpdatedSince, "UTF-8"));
+            } catch (UnsupportedEncodingException e) {
+                throw new DhisWebException("Unable to encode the last updated filter: " + lastUpdatedSince, e);
+            }
         }
 
         return sb.toString();
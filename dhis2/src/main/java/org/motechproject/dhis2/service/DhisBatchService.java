@@ -0,0 +1,38 @@
+package org.motechproject.dhis2.service;
+
+import org.motechproject.dhis2.rest.domain.DataValueSetDto;
+import org.motechproject.dhis2.rest.domain.DhisEventDto;
+import org.motechproject.event.MotechEvent;
+
+/**
+ * Aggregates the data values and program stage events sent to DHIS2 into bulk requests. Data values are buffered per
+ * data set, period and organisation unit, and events per program. A buffer is sent once it reaches the batch size,
+ * or when the flush interval elapses. Once DHIS2 has imported a batch, a success or a failure event is published for
+ * every MotechEvent that contributed to it. Its subject is the subject of the original event with the
+ * {@link org.motechproject.dhis2.event.EventSubjects#SUCCESS_SUFFIX} or
+ * {@link org.motechproject.dhis2.event.EventSubjects#FAILURE_SUFFIX} appended, and its parameters are the parameters
+ * of the original event, along with the import status and, for failures, the error message.
+ */
+public interface DhisBatchService {
+
+    /**
+     * Queues the data values from the given data value set.
+     *
+     * @param dataValueSet the data value set to send
+     * @param origin the event the data value set was built from
+     */
+    void queueDataValueSet(DataValueSetDto dataValueSet, MotechEvent origin);
+
+    /**
+     * Queues the given program stage event.
+     *
+     * @param event the program stage event to send
+     * @param origin the event the program stage event was built from
+     */
+    void queueEvent(DhisEventDto event, MotechEvent origin);
+
+    /**
+     * Sends all the buffered data values and events immediately.
+     */
+    void flush();
+}
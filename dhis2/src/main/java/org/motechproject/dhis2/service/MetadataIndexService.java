@@ -0,0 +1,47 @@
+package org.motechproject.dhis2.service;
+
+import org.motechproject.dhis2.domain.DataElement;
+import org.motechproject.dhis2.domain.DataSet;
+import org.motechproject.dhis2.domain.Program;
+import org.motechproject.dhis2.domain.Stage;
+import org.motechproject.dhis2.domain.TrackedEntity;
+import org.motechproject.dhis2.domain.TrackedEntityAttribute;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves the DHIS2 schema stored in MDS from immutable, in-memory indexes, so that event handling and the building of
+ * the task channel do not query the database. The schema only changes when it is synchronized with the DHIS2 server,
+ * so the indexes are rebuilt after every sync and atomically replace the previous ones. They are built on first use
+ * if no sync has been made since the module started. All returned collections are unmodifiable.
+ */
+public interface MetadataIndexService {
+
+    /**
+     * Rebuilds the indexes from the records stored in MDS.
+     */
+    void rebuild();
+
+    DataElement getDataElementByName(String name);
+
+    DataSet getDataSetByUuid(String uuid);
+
+    /**
+     * Returns the data elements of the given data set, by their uuids, in the order they are listed in the data set.
+     *
+     * @param dataSetUuid the uuid of the data set
+     * @return the data elements of the data set, empty if there is no such data set
+     */
+    Map<String, DataElement> getDataSetElements(String dataSetUuid);
+
+    List<Program> getProgramsByRegistration(boolean registration);
+
+    List<Stage> getStages();
+
+    List<DataSet> getDataSets();
+
+    List<TrackedEntity> getTrackedEntities();
+
+    List<TrackedEntityAttribute> getTrackedEntityAttributes();
+}
@@ -6,10 +6,18 @@ package org.motechproject.dhis2.service;
 public interface SyncService {
 
     /**
-     * Queries the DHIS2 server to get the current schema and then persists that
-     * information in MDS. If the process fails, all of the records pertaining to the DHIS2 schema
-     * are deleted.
+     * Queries the DHIS2 server for the schema objects updated since the last successful sync and persists them in
+     * MDS, removing the objects that no longer exist on the server. The first sync, and the first sync after the
+     * settings change, is a full one. The records stored by the previous sync stay available while the sync is in
+     * progress and are not removed if it fails.
      * @return true if successful; false otherwise
      */
     boolean sync();
+
+    /**
+     * Queries the DHIS2 server for all schema objects, regardless of when they were last updated, and persists them
+     * in MDS, removing the objects that no longer exist on the server.
+     * @return true if successful; false otherwise
+     */
+    boolean fullSync();
 }
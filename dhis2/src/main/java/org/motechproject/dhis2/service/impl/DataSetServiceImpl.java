@@ -52,6 +52,16 @@ public class DataSetServiceImpl implements DataSetService {
         return dataSetDataService.findByUuid(uuid);
     }
 
+    @Override
+    public void update(DataSet dataSet) {
+        dataSetDataService.update(dataSet);
+    }
+
+    @Override
+    public void delete(DataSet dataSet) {
+        dataSetDataService.delete(dataSet);
+    }
+
     @Override
     public void deleteAll() {
         dataSetDataService.deleteAll();
@@ -0,0 +1,329 @@
+package org.motechproject.dhis2.service.impl;
+
+import org.motechproject.dhis2.event.EventParams;
+import org.motechproject.dhis2.event.EventSubjects;
+import org.motechproject.dhis2.rest.domain.DataValueDto;
+import org.motechproject.dhis2.rest.domain.DataValueSetDto;
+import org.motechproject.dhis2.rest.domain.DhisDataValueStatusResponse;
+import org.motechproject.dhis2.rest.domain.DhisEventDto;
+import org.motechproject.dhis2.rest.domain.DhisImportSummariesResponse;
+import org.motechproject.dhis2.rest.domain.DhisStatus;
+import org.motechproject.dhis2.rest.domain.DhisStatusResponse;
+import org.motechproject.dhis2.rest.service.DhisWebService;
+import org.motechproject.dhis2.service.DhisBatchService;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link org.motechproject.dhis2.service.DhisBatchService}. Data value sets are merged by data set,
+ * period, organisation unit, complete date and attribute option combo, and events are grouped by program, so DHIS2
+ * receives a single import for each group. The import summary is published back for every MotechEvent of the group.
+ * A group is imported as soon as it reaches the batch size, the groups still open are imported on every flush.
+ */
+@Service("dhisBatchService")
+public class DhisBatchServiceImpl implements DhisBatchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DhisBatchServiceImpl.class);
+
+    static final int DEFAULT_BATCH_SIZE = 200;
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 5000;
+
+    private final DhisWebService dhisWebService;
+    private final EventRelay eventRelay;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    private final Map<List<String>, DataValueBatch> dataValueBatches = new LinkedHashMap<>();
+    private final Map<String, EventBatch> eventBatches = new LinkedHashMap<>();
+
+    private ScheduledExecutorService flushExecutor;
+
+    @Autowired
+    public DhisBatchServiceImpl(DhisWebService dhisWebService, EventRelay eventRelay) {
+        this(dhisWebService, eventRelay, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public DhisBatchServiceImpl(DhisWebService dhisWebService, EventRelay eventRelay, int batchSize,
+                                long flushIntervalMillis) {
+        this.dhisWebService = dhisWebService;
+        this.eventRelay = eventRelay;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor();
+        flushExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                // an exception would cancel the following flushes
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Unable to flush the queued DHIS2 data values and events", e);
+                }
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+        }
+        flush();
+    }
+
+    @Override
+    public void queueDataValueSet(DataValueSetDto dataValueSet, MotechEvent origin) {
+        List<String> key = Arrays.asList(dataValueSet.getDataSet(), dataValueSet.getPeriod(),
+                dataValueSet.getOrgUnit(), dataValueSet.getCompleteDate(), dataValueSet.getAttributeOptionCombo());
+        DataValueBatch fullBatch = null;
+
+        synchronized (this) {
+            DataValueBatch batch = dataValueBatches.get(key);
+
+            if (batch == null) {
+                batch = new DataValueBatch(dataValueSet);
+                dataValueBatches.put(key, batch);
+            }
+
+            batch.add(dataValueSet, origin);
+
+            if (batch.size() >= batchSize) {
+                fullBatch = dataValueBatches.remove(key);
+            }
+        }
+
+        if (fullBatch != null) {
+            send(fullBatch);
+        }
+    }
+
+    @Override
+    public void queueEvent(DhisEventDto event, MotechEvent origin) {
+        EventBatch fullBatch = null;
+
+        synchronized (this) {
+            EventBatch batch = eventBatches.get(event.getProgram());
+
+            if (batch == null) {
+                batch = new EventBatch();
+                eventBatches.put(event.getProgram(), batch);
+            }
+
+            batch.add(event, origin);
+
+            if (batch.size() >= batchSize) {
+                fullBatch = eventBatches.remove(event.getProgram());
+            }
+        }
+
+        if (fullBatch != null) {
+            send(fullBatch);
+        }
+    }
+
+    @Override
+    public void flush() {
+        List<DataValueBatch> dataValuesToSend;
+        List<EventBatch> eventsToSend;
+
+        synchronized (this) {
+            dataValuesToSend = new ArrayList<>(dataValueBatches.values());
+            eventsToSend = new ArrayList<>(eventBatches.values());
+
+            dataValueBatches.clear();
+            eventBatches.clear();
+        }
+
+        // the batches were drained already, so a failing batch must not stop the following ones from being sent
+        for (DataValueBatch batch : dataValuesToSend) {
+            try {
+                send(batch);
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to publish the outcome of a batch of {} data values", batch.size(), e);
+            }
+        }
+
+        for (EventBatch batch : eventsToSend) {
+            try {
+                send(batch);
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to publish the outcome of a batch of {} events", batch.size(), e);
+            }
+        }
+    }
+
+    private void send(DataValueBatch batch) {
+        DhisDataValueStatusResponse response;
+
+        try {
+            response = dhisWebService.sendDataValueSet(batch.getDataValueSet());
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to send a batch of {} data values to DHIS2", batch.size(), e);
+            publishFailures(batch.getOrigins(), e.getMessage());
+            return;
+        }
+
+        // data value imports are only summarized as a whole, so every event shares the outcome of the batch
+        for (MotechEvent origin : batch.getOrigins()) {
+            if (response == null || response.getStatus() == DhisStatus.ERROR) {
+                publish(origin, false, response == null ? null : response.getStatus(), null,
+                        response == null ? null : response.getDescription());
+            } else {
+                publish(origin, true, response.getStatus(), null, null);
+            }
+        }
+    }
+
+    private void send(EventBatch batch) {
+        DhisImportSummariesResponse response;
+
+        try {
+            response = dhisWebService.createEvents(batch.getEvents());
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to send a batch of {} events to DHIS2", batch.size(), e);
+            publishFailures(batch.getOrigins(), e.getMessage());
+            return;
+        }
+
+        List<DhisStatusResponse> summaries = response == null ? null : response.getImportSummaries();
+        List<MotechEvent> origins = batch.getOrigins();
+
+        for (int i = 0; i < origins.size(); i++) {
+            DhisStatusResponse summary = summaries != null && i < summaries.size() ? summaries.get(i) : null;
+
+            if (summary != null) {
+                publish(origins.get(i), summary.getStatus() != DhisStatus.ERROR, summary.getStatus(),
+                        summary.getReference(), summary.getDescription());
+            } else {
+                DhisStatus status = response == null ? null : response.getStatus();
+                publish(origins.get(i), status != null && status != DhisStatus.ERROR, status, null,
+                        "No import summary returned for the event");
+            }
+        }
+    }
+
+    private void publishFailures(List<MotechEvent> origins, String errorMessage) {
+        for (MotechEvent origin : origins) {
+            publish(origin, false, DhisStatus.ERROR, null, errorMessage);
+        }
+    }
+
+    private void publish(MotechEvent origin, boolean success, DhisStatus status, String reference,
+                         String errorMessage) {
+        Map<String, Object> params = new HashMap<>(origin.getParameters());
+
+        params.put(EventParams.IMPORT_STATUS, status == null ? null : status.name());
+        if (reference != null) {
+            params.put(EventParams.REFERENCE, reference);
+        }
+        if (!success) {
+            params.put(EventParams.ERROR_MESSAGE, errorMessage);
+        }
+
+        String subject = origin.getSubject() + (success ? EventSubjects.SUCCESS_SUFFIX : EventSubjects.FAILURE_SUFFIX);
+        eventRelay.sendEventMessage(new MotechEvent(subject, params));
+    }
+
+    /*
+     * The data values of a single data set, period and organisation unit, merged into one data value set. The comment
+     * and the category option combo of each queued set are copied onto its values, since they are not part of the key.
+     */
+    private static class DataValueBatch {
+
+        private final DataValueSetDto dataValueSet = new DataValueSetDto();
+        private final List<MotechEvent> origins = new ArrayList<>();
+
+        DataValueBatch(DataValueSetDto template) {
+            dataValueSet.setDataSet(template.getDataSet());
+            dataValueSet.setPeriod(template.getPeriod());
+            dataValueSet.setOrgUnit(template.getOrgUnit());
+            dataValueSet.setCompleteDate(template.getCompleteDate());
+            dataValueSet.setAttributeOptionCombo(template.getAttributeOptionCombo());
+            dataValueSet.setDataValues(new ArrayList<DataValueDto>());
+        }
+
+        void add(DataValueSetDto queued, MotechEvent origin) {
+            if (queued.getDataValues() != null) {
+                for (DataValueDto dataValue : queued.getDataValues()) {
+                    dataValueSet.getDataValues().add(withDefaults(dataValue, queued));
+                }
+            }
+            origins.add(origin);
+        }
+
+        int size() {
+            return dataValueSet.getDataValues().size();
+        }
+
+        DataValueSetDto getDataValueSet() {
+            return dataValueSet;
+        }
+
+        List<MotechEvent> getOrigins() {
+            return origins;
+        }
+
+        private static DataValueDto withDefaults(DataValueDto dataValue, DataValueSetDto queued) {
+            if ((dataValue.getComment() != null || queued.getComment() == null)
+                    && (dataValue.getCategoryOptionCombo() != null || queued.getCategoryOptionCombo() == null)) {
+                return dataValue;
+            }
+
+            DataValueDto copy = new DataValueDto();
+            copy.setDataElement(dataValue.getDataElement());
+            copy.setValue(dataValue.getValue());
+            copy.setPeriod(dataValue.getPeriod());
+            copy.setOrgUnit(dataValue.getOrgUnit());
+            copy.setComment(dataValue.getComment() != null ? dataValue.getComment() : queued.getComment());
+            copy.setCategoryOptionCombo(dataValue.getCategoryOptionCombo() != null ?
+                    dataValue.getCategoryOptionCombo() : queued.getCategoryOptionCombo());
+            return copy;
+        }
+    }
+
+    /*
+     * The events of a single program, along with the MotechEvents they were built from, in the same order.
+     */
+    private static class EventBatch {
+
+        private final List<DhisEventDto> events = new ArrayList<>();
+        private final List<MotechEvent> origins = new ArrayList<>();
+
+        void add(DhisEventDto event, MotechEvent origin) {
+            events.add(event);
+            origins.add(origin);
+        }
+
+        int size() {
+            return events.size();
+        }
+
+        List<DhisEventDto> getEvents() {
+            return events;
+        }
+
+        List<MotechEvent> getOrigins() {
+            return origins;
+        }
+    }
+}
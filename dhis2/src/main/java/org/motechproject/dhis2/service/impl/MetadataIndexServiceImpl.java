@@ -0,0 +1,175 @@
+package org.motechproject.dhis2.service.impl;
+
+import org.motechproject.dhis2.domain.DataElement;
+import org.motechproject.dhis2.domain.DataSet;
+import org.motechproject.dhis2.domain.Program;
+import org.motechproject.dhis2.domain.Stage;
+import org.motechproject.dhis2.domain.TrackedEntity;
+import org.motechproject.dhis2.domain.TrackedEntityAttribute;
+import org.motechproject.dhis2.service.DataElementService;
+import org.motechproject.dhis2.service.DataSetService;
+import org.motechproject.dhis2.service.MetadataIndexService;
+import org.motechproject.dhis2.service.ProgramService;
+import org.motechproject.dhis2.service.StageService;
+import org.motechproject.dhis2.service.TrackedEntityAttributeService;
+import org.motechproject.dhis2.service.TrackedEntityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link org.motechproject.dhis2.service.MetadataIndexService}. The indexes are kept in a single
+ * immutable snapshot, which readers access without locking.
+ */
+@Service("metadataIndexService")
+public class MetadataIndexServiceImpl implements MetadataIndexService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MetadataIndexServiceImpl.class);
+
+    private DataElementService dataElementService;
+    private DataSetService dataSetService;
+    private ProgramService programService;
+    private StageService stageService;
+    private TrackedEntityService trackedEntityService;
+    private TrackedEntityAttributeService trackedEntityAttributeService;
+
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public MetadataIndexServiceImpl(DataElementService dataElementService, DataSetService dataSetService,
+                                    ProgramService programService, StageService stageService,
+                                    TrackedEntityService trackedEntityService,
+                                    TrackedEntityAttributeService trackedEntityAttributeService) {
+        this.dataElementService = dataElementService;
+        this.dataSetService = dataSetService;
+        this.programService = programService;
+        this.stageService = stageService;
+        this.trackedEntityService = trackedEntityService;
+        this.trackedEntityAttributeService = trackedEntityAttributeService;
+    }
+
+    @Override
+    public synchronized void rebuild() {
+        LOGGER.debug("Rebuilding the DHIS2 metadata indexes");
+
+        snapshot = new Snapshot(dataElementService.findAll(), dataSetService.findAll(), programService.findAll(),
+                stageService.findAll(), trackedEntityService.findAll(), trackedEntityAttributeService.findAll());
+    }
+
+    @Override
+    public DataElement getDataElementByName(String name) {
+        return getSnapshot().dataElementsByName.get(name);
+    }
+
+    @Override
+    public DataSet getDataSetByUuid(String uuid) {
+        return getSnapshot().dataSetsByUuid.get(uuid);
+    }
+
+    @Override
+    public Map<String, DataElement> getDataSetElements(String dataSetUuid) {
+        Map<String, DataElement> dataElements = getSnapshot().dataElementsByDataSet.get(dataSetUuid);
+        return dataElements == null ? Collections.<String, DataElement>emptyMap() : dataElements;
+    }
+
+    @Override
+    public List<Program> getProgramsByRegistration(boolean registration) {
+        Snapshot current = getSnapshot();
+        return registration ? current.programsWithRegistration : current.programsWithoutRegistration;
+    }
+
+    @Override
+    public List<Stage> getStages() {
+        return getSnapshot().stages;
+    }
+
+    @Override
+    public List<DataSet> getDataSets() {
+        return getSnapshot().dataSets;
+    }
+
+    @Override
+    public List<TrackedEntity> getTrackedEntities() {
+        return getSnapshot().trackedEntities;
+    }
+
+    @Override
+    public List<TrackedEntityAttribute> getTrackedEntityAttributes() {
+        return getSnapshot().trackedEntityAttributes;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            }
+        }
+
+        return current;
+    }
+
+    /*
+     * The indexes built from a single read of the schema.
+     */
+    private static final class Snapshot {
+
+        private final Map<String, DataElement> dataElementsByName = new HashMap<>();
+        private final Map<String, DataSet> dataSetsByUuid = new HashMap<>();
+        private final Map<String, Map<String, DataElement>> dataElementsByDataSet = new HashMap<>();
+        private final List<Program> programsWithRegistration;
+        private final List<Program> programsWithoutRegistration;
+        private final List<Stage> stages;
+        private final List<DataSet> dataSets;
+        private final List<TrackedEntity> trackedEntities;
+        private final List<TrackedEntityAttribute> trackedEntityAttributes;
+
+        Snapshot(List<DataElement> dataElements, List<DataSet> dataSets, List<Program> programs, List<Stage> stages,
+                 List<TrackedEntity> trackedEntities, List<TrackedEntityAttribute> trackedEntityAttributes) {
+            for (DataElement dataElement : dataElements) {
+                dataElementsByName.put(dataElement.getName(), dataElement);
+            }
+
+            for (DataSet dataSet : dataSets) {
+                dataSetsByUuid.put(dataSet.getUuid(), dataSet);
+
+                Map<String, DataElement> dataSetElements = new LinkedHashMap<>();
+                if (dataSet.getDataElementList() != null) {
+                    for (DataElement dataElement : dataSet.getDataElementList()) {
+                        dataSetElements.put(dataElement.getUuid(), dataElement);
+                    }
+                }
+                dataElementsByDataSet.put(dataSet.getUuid(), Collections.unmodifiableMap(dataSetElements));
+            }
+
+            List<Program> withRegistration = new ArrayList<>();
+            List<Program> withoutRegistration = new ArrayList<>();
+            for (Program program : programs) {
+                if (program.hasRegistration()) {
+                    withRegistration.add(program);
+                } else {
+                    withoutRegistration.add(program);
+                }
+            }
+
+            this.programsWithRegistration = Collections.unmodifiableList(withRegistration);
+            this.programsWithoutRegistration = Collections.unmodifiableList(withoutRegistration);
+            this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+            this.dataSets = Collections.unmodifiableList(new ArrayList<>(dataSets));
+            this.trackedEntities = Collections.unmodifiableList(new ArrayList<>(trackedEntities));
+            this.trackedEntityAttributes = Collections.unmodifiableList(new ArrayList<>(trackedEntityAttributes));
+        }
+    }
+}
@@ -1,10 +1,17 @@
 package org.motechproject.dhis2.service.impl;
 
+import com.google.gson.Gson;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.config.SettingsFacade;
 import org.motechproject.dhis2.domain.DataElement;
+import org.motechproject.dhis2.domain.DataSet;
+import org.motechproject.dhis2.domain.OrgUnit;
 import org.motechproject.dhis2.domain.Program;
 import org.motechproject.dhis2.domain.Stage;
 import org.motechproject.dhis2.domain.TrackedEntity;
 import org.motechproject.dhis2.domain.TrackedEntityAttribute;
+import org.motechproject.dhis2.event.EventSubjects;
 import org.motechproject.dhis2.rest.domain.DataElementDto;
 import org.motechproject.dhis2.rest.domain.DataSetDto;
 import org.motechproject.dhis2.rest.domain.OrganisationUnitDto;
@@ -14,27 +21,44 @@ import org.motechproject.dhis2.rest.domain.ProgramStageDto;
 import org.motechproject.dhis2.rest.domain.ProgramTrackedEntityAttributeDto;
 import org.motechproject.dhis2.rest.domain.TrackedEntityAttributeDto;
 import org.motechproject.dhis2.rest.domain.TrackedEntityDto;
+import org.motechproject.dhis2.rest.service.DhisResourceConsumer;
 import org.motechproject.dhis2.rest.service.DhisWebService;
 import org.motechproject.dhis2.service.DataElementService;
 import org.motechproject.dhis2.service.DataSetService;
+import org.motechproject.dhis2.service.MetadataIndexService;
 import org.motechproject.dhis2.service.OrgUnitService;
 import org.motechproject.dhis2.service.ProgramService;
 import org.motechproject.dhis2.service.StageService;
 import org.motechproject.dhis2.service.SyncService;
 import org.motechproject.dhis2.service.TrackedEntityAttributeService;
 import org.motechproject.dhis2.service.TrackedEntityService;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.annotations.MotechListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.io.ByteArrayResource;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Implementation of {@link org.motechproject.dhis2.service.SyncService}
+ * Implementation of {@link org.motechproject.dhis2.service.SyncService}. The schema is synchronized incrementally:
+ * only the objects updated on the DHIS2 server since the previous successful sync are downloaded and created or
+ * updated, and objects no longer present on the server are removed, based on the ids of all objects on the server.
+ * Changes are committed in chunks, as the pages of objects arrive from the server, and the existing records are never
+ * dropped, so the module keeps serving the previous schema while a sync is in progress. The date of the last
+ * successful sync is stored in the module settings, so syncs stay incremental across restarts.
  */
 @Service("syncService")
 public class SyncServiceImpl implements SyncService {
@@ -62,21 +86,59 @@ public class SyncServiceImpl implements SyncService {
     @Autowired
     private DataSetService dataSetService;
 
+    @Autowired
+    private MetadataIndexService metadataIndexService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("dhisSettings")
+    private SettingsFacade settingsFacade;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(SyncServiceImpl.class);
 
+    private static final int CHUNK_SIZE = 500;
+
+    private static final String SYNC_STATE_FILE_NAME = "dhis2-sync.json";
+
+    @Override
+    public synchronized boolean sync() {
+        return sync(loadLastSyncServerDate());
+    }
+
     @Override
-    @Transactional
-    public boolean sync() {
-        LOGGER.debug("Starting Sync");
+    public synchronized boolean fullSync() {
+        return sync(null);
+    }
+
+    /**
+     * Forces a full sync after the settings change, since the module could now point at another DHIS2 server.
+     *
+     * @param event the settings updated event
+     */
+    @MotechListener(subjects = EventSubjects.DHIS_SETTINGS_UPDATED)
+    public synchronized void handleSettingsUpdate(MotechEvent event) {
+        saveLastSyncServerDate(null);
+    }
+
+    private boolean sync(String lastUpdatedSince) {
+        LOGGER.debug("Starting {} sync", lastUpdatedSince == null ? "full" : "incremental");
         try {
             long startTime = System.nanoTime();
-            dropExistingData();
-            addDataElements();
-            addDataSets();
-            addAttributes();
-            addTrackedEntities();
-            addPrograms();
-            addOrgUnits();
+            // objects updated on the server while the sync is in progress will be picked up by the next sync
+            String syncServerDate = dhisWebService.getDhisServerInfo().getServerDate();
+
+            syncDataElements(lastUpdatedSince);
+            syncDataSets(lastUpdatedSince);
+            syncAttributes(lastUpdatedSince);
+            syncTrackedEntities(lastUpdatedSince);
+            syncPrograms(lastUpdatedSince);
+            syncProgramStages(lastUpdatedSince);
+            syncOrgUnits(lastUpdatedSince);
+            removeDeletedObjects();
+
+            saveLastSyncServerDate(syncServerDate);
 
             long endTime = System.nanoTime();
 
@@ -87,79 +149,170 @@ public class SyncServiceImpl implements SyncService {
         } catch (RuntimeException e) {
             LOGGER.error("Problem with DHIS2 application Schema. Sync unsuccessful.", e);
             return false;
+        } finally {
+            // the chunks committed before a failure are visible as well
+            metadataIndexService.rebuild();
         }
     }
 
     /*
-     * Request data elements from DHIS and persist in MDS. The partial data element objects returned by the top-level api
-     * endpoint suffice for current needs.
+     * Returns the date of the DHIS2 server at the start of the last successful sync, null if a full sync is needed.
      */
-    private void addDataElements() {
-        List<DataElementDto> dataElementDtos = dhisWebService.getDataElements();
-
-        for (DataElementDto dataElementDto : dataElementDtos) {
-            dataElementService.createFromDetails(dataElementDto);
+    private String loadLastSyncServerDate() {
+        try (InputStream is = settingsFacade.getRawConfig(SYNC_STATE_FILE_NAME)) {
+            SyncState syncState = is == null ? null : new Gson().fromJson(IOUtils.toString(is), SyncState.class);
+            return syncState == null ? null : syncState.lastSyncServerDate;
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Unable to read the date of the last DHIS2 sync, falling back to a full sync", e);
+            return null;
         }
     }
 
-    private void addDataSets() {
-        List<DataSetDto> dataSetDtos = dhisWebService.getDataSets();
-
-        for (DataSetDto dataSetDto : dataSetDtos) {
-            dataSetService.createFromDetails(dataSetDto);
-        }
+    private void saveLastSyncServerDate(String serverDate) {
+        String jsonText = new Gson().toJson(new SyncState(serverDate));
+        settingsFacade.saveRawConfig(SYNC_STATE_FILE_NAME, new ByteArrayResource(jsonText.getBytes()));
     }
 
     /*
-     * Request tracked entity attributes from DHIS and persist in MDS. The partial tracked entity attribute objects returned by
+     * Request the data elements updated in DHIS and persist them in MDS. The partial data element objects returned by
      * the top-level api endpoint suffice for current needs.
      */
-    private void addAttributes()  {
-        List<TrackedEntityAttributeDto> trackedEntityAttributeDtos = dhisWebService.getTrackedEntityAttributes();
-        for (TrackedEntityAttributeDto trackedEntityAttributeDto : trackedEntityAttributeDtos) {
-            trackedEntityAttributeService.createFromDetails(trackedEntityAttributeDto);
-        }
+    private void syncDataElements(String lastUpdatedSince) {
+        dhisWebService.streamDataElements(lastUpdatedSince, inTransactions(new ChunkProcessor<DataElementDto>() {
+            @Override
+            public void process(DataElementDto dto) {
+                DataElement dataElement = dataElementService.findById(dto.getId());
+
+                if (dataElement == null) {
+                    dataElementService.createFromDetails(dto);
+                } else if (!StringUtils.equals(dataElement.getName(), dto.getName())) {
+                    dataElement.setName(dto.getName());
+                    dataElementService.update(dataElement);
+                }
+            }
+        }));
+    }
+
+    private void syncDataSets(String lastUpdatedSince) {
+        dhisWebService.streamDataSets(lastUpdatedSince, inTransactions(new ChunkProcessor<DataSetDto>() {
+            @Override
+            public void process(DataSetDto dto) {
+                DataSet dataSet = dataSetService.findByUuid(dto.getId());
+
+                if (dataSet == null) {
+                    dataSetService.createFromDetails(dto);
+                } else {
+                    List<DataElement> dataElements = new ArrayList<>();
+                    for (DataElementDto dataElementDto : dto.getDataElements()) {
+                        dataElements.add(dataElementService.findById(dataElementDto.getId()));
+                    }
+
+                    dataSet.setName(dto.getName());
+                    dataSet.setDataElementList(dataElements);
+                    dataSetService.update(dataSet);
+                }
+            }
+        }));
     }
 
     /*
-     * Request tracked entities from DHIS and persist in MDS. The partial tracked entity objects returned by the top-level
-     * api endpoint suffice for current needs.
+     * Request the tracked entity attributes updated in DHIS and persist them in MDS. The partial tracked entity
+     * attribute objects returned by the top-level api endpoint suffice for current needs.
      */
-    private void addTrackedEntities() {
-        List<TrackedEntityDto> trackedEntityDtos = dhisWebService.getTrackedEntities();
-        for (TrackedEntityDto trackedEntityDto : trackedEntityDtos) {
-            trackedEntityService.createFromDetails(trackedEntityDto);
-        }
+    private void syncAttributes(String lastUpdatedSince) {
+        dhisWebService.streamTrackedEntityAttributes(lastUpdatedSince, inTransactions(new ChunkProcessor<TrackedEntityAttributeDto>() {
+            @Override
+            public void process(TrackedEntityAttributeDto dto) {
+                TrackedEntityAttribute attribute = trackedEntityAttributeService.findById(dto.getId());
+
+                if (attribute == null) {
+                    trackedEntityAttributeService.createFromDetails(dto);
+                } else if (!StringUtils.equals(attribute.getName(), dto.getName())) {
+                    attribute.setName(dto.getName());
+                    trackedEntityAttributeService.update(attribute);
+                }
+            }
+        }));
     }
 
     /*
-     * Request programs from DHIS and persist in MDS. Since we need data from full program objects, we load the partial
-     * objects from the top-level endpoints and then iterate through the links for the complete objects.
+     * Request the tracked entities updated in DHIS and persist them in MDS. The partial tracked entity objects
+     * returned by the top-level api endpoint suffice for current needs.
      */
-    private void addPrograms() {
-        List<ProgramDto> partialDtos = dhisWebService.getPrograms();
-
-        for (ProgramDto partialDto : partialDtos) {
-            ProgramDto fullDto = dhisWebService.getProgramByHref(partialDto.getHref());
-            Program program = programService.createFromDetails(fullDto);
-
-            /**
-             * Request and add the program's sub-objects (tracked entity, program stages, program tracked entity's attributes).
-             */
-            if (fullDto.getTrackedEntity() != null) {
-                program.setTrackedEntity(getProgramTrackedEntityFromDto(fullDto.getTrackedEntity()));
+    private void syncTrackedEntities(String lastUpdatedSince) {
+        dhisWebService.streamTrackedEntities(lastUpdatedSince, inTransactions(new ChunkProcessor<TrackedEntityDto>() {
+            @Override
+            public void process(TrackedEntityDto dto) {
+                TrackedEntity trackedEntity = trackedEntityService.findById(dto.getId());
+
+                if (trackedEntity == null) {
+                    trackedEntityService.createFromDetails(dto);
+                } else if (!StringUtils.equals(trackedEntity.getName(), dto.getName())) {
+                    trackedEntity.setName(dto.getName());
+                    trackedEntityService.update(trackedEntity);
+                }
             }
+        }));
+    }
 
-            if (fullDto.getProgramStages() != null) {
-                program.setStages(getStagesFromDtos(fullDto.getProgramStages(), program.getUuid(), program.hasRegistration()));
-            }
+    /*
+     * Request the programs updated in DHIS and persist them in MDS. The programs are requested along with the
+     * references to their tracked entity, stages and attributes, so they no longer have to be requested one by one.
+     */
+    private void syncPrograms(String lastUpdatedSince) {
+        dhisWebService.streamPrograms(lastUpdatedSince, inTransactions(new ChunkProcessor<ProgramDto>() {
+            @Override
+            public void process(ProgramDto dto) {
+                Program program = programService.findById(dto.getId());
+
+                if (program == null) {
+                    program = programService.createFromDetails(dto);
+                } else {
+                    program.setName(dto.getName());
+                    program.setRegistration(dto.getRegistration());
+                    program.setSingleEvent(dto.getSingleEvent());
+                    program.setProgramType(dto.getProgramType());
+                }
+
+                /**
+                 * Request and add the program's sub-objects (tracked entity, program stages, program tracked entity's attributes).
+                 */
+                if (dto.getTrackedEntity() != null) {
+                    program.setTrackedEntity(getProgramTrackedEntityFromDto(dto.getTrackedEntity()));
+                }
+
+                if (dto.getProgramStages() != null) {
+                    program.setStages(getStagesFromDtos(dto.getProgramStages(), program.getUuid(), program.hasRegistration()));
+                }
 
-            if (fullDto.getProgramTrackedEntityAttributes() != null) {
-                program.setAttributes(getTrackedEntityAttributesFromDtos(fullDto.getProgramTrackedEntityAttributes()));
+                if (dto.getProgramTrackedEntityAttributes() != null) {
+                    program.setAttributes(getTrackedEntityAttributesFromDtos(dto.getProgramTrackedEntityAttributes()));
+                }
+
+                programService.update(program);
             }
+        }));
+    }
 
-            programService.update(program);
-        }
+    /*
+     * Request the program stages updated in DHIS and update their names and data elements in MDS. New stages are
+     * created along with their programs.
+     */
+    private void syncProgramStages(String lastUpdatedSince) {
+        dhisWebService.streamProgramStages(lastUpdatedSince, inTransactions(new ChunkProcessor<ProgramStageDto>() {
+            @Override
+            public void process(ProgramStageDto dto) {
+                Stage stage = stageService.findById(dto.getId());
+
+                if (stage != null) {
+                    stage.setName(dto.getName());
+                    if (dto.getProgramStageDataElements() != null) {
+                        stage.setDataElements(getStageDataElementsFromDtos(dto.getProgramStageDataElements()));
+                    }
+                    stageService.update(stage);
+                }
+            }
+        }));
     }
 
     /*
@@ -237,23 +390,143 @@ public class SyncServiceImpl implements SyncService {
     }
 
     /*
-     * Request organisation units from DHIS and persist in MDS. The partial organisation unit objects returned by the top-level
-     * api endpoint suffice for current needs.
+     * Request the organisation units updated in DHIS and persist them in MDS. The partial organisation unit objects
+     * returned by the top-level api endpoint suffice for current needs.
+     */
+    private void syncOrgUnits(String lastUpdatedSince) {
+        dhisWebService.streamOrganisationUnits(lastUpdatedSince, inTransactions(new ChunkProcessor<OrganisationUnitDto>() {
+            @Override
+            public void process(OrganisationUnitDto dto) {
+                OrgUnit orgUnit = orgUnitService.findById(dto.getId());
+
+                if (orgUnit == null) {
+                    orgUnitService.createFromDetails(dto);
+                } else if (!StringUtils.equals(orgUnit.getName(), dto.getName())) {
+                    orgUnit.setName(dto.getName());
+                    orgUnitService.update(orgUnit);
+                }
+            }
+        }));
+    }
+
+    /*
+     * Removes the objects that no longer exist on the DHIS2 server. Objects are removed before the objects they refer
+     * to, in the same order the schema used to be dropped.
+     */
+    private void removeDeletedObjects() {
+        final Set<String> dataSetIds = dhisWebService.getDataSetIds();
+        inChunks(dataSetService.findAll(), new ChunkProcessor<DataSet>() {
+            @Override
+            public void process(DataSet dataSet) {
+                if (!dataSetIds.contains(dataSet.getUuid())) {
+                    dataSetService.delete(dataSet);
+                }
+            }
+        });
+
+        final Set<String> programIds = dhisWebService.getProgramIds();
+        inChunks(programService.findAll(), new ChunkProcessor<Program>() {
+            @Override
+            public void process(Program program) {
+                if (!programIds.contains(program.getUuid())) {
+                    programService.delete(program);
+                }
+            }
+        });
+
+        final Set<String> attributeIds = dhisWebService.getTrackedEntityAttributeIds();
+        inChunks(trackedEntityAttributeService.findAll(), new ChunkProcessor<TrackedEntityAttribute>() {
+            @Override
+            public void process(TrackedEntityAttribute attribute) {
+                if (!attributeIds.contains(attribute.getUuid())) {
+                    trackedEntityAttributeService.delete(attribute);
+                }
+            }
+        });
+
+        final Set<String> trackedEntityIds = dhisWebService.getTrackedEntityIds();
+        inChunks(trackedEntityService.findAll(), new ChunkProcessor<TrackedEntity>() {
+            @Override
+            public void process(TrackedEntity trackedEntity) {
+                if (!trackedEntityIds.contains(trackedEntity.getUuid())) {
+                    trackedEntityService.delete(trackedEntity);
+                }
+            }
+        });
+
+        final Set<String> orgUnitIds = dhisWebService.getOrganisationUnitIds();
+        inChunks(orgUnitService.findAll(), new ChunkProcessor<OrgUnit>() {
+            @Override
+            public void process(OrgUnit orgUnit) {
+                if (!orgUnitIds.contains(orgUnit.getUuid())) {
+                    orgUnitService.delete(orgUnit);
+                }
+            }
+        });
+
+        final Set<String> dataElementIds = dhisWebService.getDataElementIds();
+        inChunks(dataElementService.findAll(), new ChunkProcessor<DataElement>() {
+            @Override
+            public void process(DataElement dataElement) {
+                if (!dataElementIds.contains(dataElement.getUuid())) {
+                    dataElementService.delete(dataElement);
+                }
+            }
+        });
+
+        final Set<String> stageIds = dhisWebService.getProgramStageIds();
+        inChunks(stageService.findAll(), new ChunkProcessor<Stage>() {
+            @Override
+            public void process(Stage stage) {
+                if (!stageIds.contains(stage.getUuid())) {
+                    stageService.delete(stage);
+                }
+            }
+        });
+    }
+
+    /*
+     * Processes the given items in chunks, each of them committed in a separate transaction.
      */
-    private void addOrgUnits() {
-        List<OrganisationUnitDto> orgUnitDtos = dhisWebService.getOrganisationUnits();
-        for (OrganisationUnitDto orgUnitDto : orgUnitDtos) {
-            orgUnitService.createFromDetails(orgUnitDto);
+    private <T> void inChunks(List<T> items, ChunkProcessor<T> processor) {
+        DhisResourceConsumer<T> consumer = inTransactions(processor);
+
+        for (int from = 0; from < items.size(); from += CHUNK_SIZE) {
+            consumer.consume(items.subList(from, Math.min(from + CHUNK_SIZE, items.size())));
         }
     }
 
-    private void dropExistingData() {
-        dataSetService.deleteAll();
-        programService.deleteAll();
-        trackedEntityAttributeService.deleteAll();
-        trackedEntityService.deleteAll();
-        orgUnitService.deleteAll();
-        dataElementService.deleteAll();
-        stageService.deleteAll();
+    /*
+     * Returns a consumer processing each page of resources streamed from DHIS2 in a separate transaction, so the
+     * resources are persisted while the remaining pages are still being downloaded.
+     */
+    private <T> DhisResourceConsumer<T> inTransactions(final ChunkProcessor<T> processor) {
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        return new DhisResourceConsumer<T>() {
+            @Override
+            public void consume(final List<T> chunk) {
+                transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+                    @Override
+                    protected void doInTransactionWithoutResult(TransactionStatus status) {
+                        for (T item : chunk) {
+                            processor.process(item);
+                        }
+                    }
+                });
+            }
+        };
+    }
+
+    private interface ChunkProcessor<T> {
+        void process(T item);
+    }
+
+    private static class SyncState {
+        private String lastSyncServerDate;
+
+        SyncState(String lastSyncServerDate) {
+            this.lastSyncServerDate = lastSyncServerDate;
+        }
     }
 }
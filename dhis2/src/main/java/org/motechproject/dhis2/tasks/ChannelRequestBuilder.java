@@ -7,11 +7,7 @@ import org.motechproject.dhis2.domain.TrackedEntityAttribute;
 import org.motechproject.dhis2.event.EventParams;
 import org.motechproject.dhis2.event.EventSubjects;
 import org.motechproject.dhis2.rest.domain.ServerVersion;
-import org.motechproject.dhis2.service.DataSetService;
-import org.motechproject.dhis2.service.ProgramService;
-import org.motechproject.dhis2.service.StageService;
-import org.motechproject.dhis2.service.TrackedEntityAttributeService;
-import org.motechproject.dhis2.service.TrackedEntityService;
+import org.motechproject.dhis2.service.MetadataIndexService;
 import org.motechproject.tasks.contract.ActionEventRequest;
 import org.motechproject.tasks.contract.builder.ActionEventRequestBuilder;
 import org.motechproject.tasks.contract.ActionParameterRequest;
@@ -25,33 +21,22 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 
 /**
- * Builds a channel request from the records in MDS pertaining to the DHIS2 instance schema.
+ * Builds a channel request from the records in MDS pertaining to the DHIS2 instance schema, served by the
+ * {@link MetadataIndexService}.
  *
  */
 public class ChannelRequestBuilder  {
 
     private BundleContext bundleContext;
-    private ProgramService programService;
-    private StageService stageService;
-    private TrackedEntityAttributeService trackedEntityAttributeService;
-    private TrackedEntityService trackedEntityService;
+    private MetadataIndexService metadataIndexService;
     private ServerVersion serverVersion;
-    private DataSetService dataSetService;
 
     public ChannelRequestBuilder(BundleContext bundleContext,
-                                 ProgramService programService,
-                                 StageService stageService,
-                                 TrackedEntityAttributeService trackedEntityAttributeService,
-                                 TrackedEntityService trackedEntityService,
-                                 ServerVersion serverVersion,
-                                 DataSetService dataSetService) {
+                                 MetadataIndexService metadataIndexService,
+                                 ServerVersion serverVersion) {
         this.bundleContext = bundleContext;
-        this.programService = programService;
-        this.stageService = stageService;
-        this.trackedEntityAttributeService = trackedEntityAttributeService;
-        this.trackedEntityService = trackedEntityService;
+        this.metadataIndexService = metadataIndexService;
         this.serverVersion = serverVersion;
-        this.dataSetService = dataSetService;
     }
 
     /**
@@ -68,16 +53,16 @@ public class ChannelRequestBuilder  {
 
         List<ActionEventRequest> actions = new ArrayList<>();
 
-        List<Program> programs = programService.findByRegistration(true);
+        List<Program> programs = metadataIndexService.getProgramsByRegistration(true);
         actions.addAll(programActionBuilder.build(programs, serverVersion));
 
-        List<Stage> stages = stageService.findAll();
+        List<Stage> stages = metadataIndexService.getStages();
         actions.addAll(stageActionBuilder.build(stages));
 
-        List<TrackedEntityAttribute> attributes = trackedEntityAttributeService.findAll();
-        List<TrackedEntity> trackedEntities = trackedEntityService.findAll();
+        List<TrackedEntityAttribute> attributes = metadataIndexService.getTrackedEntityAttributes();
+        List<TrackedEntity> trackedEntities = metadataIndexService.getTrackedEntities();
         actions.addAll(createInstanceActionBuilder.build(attributes, trackedEntities));
-        actions.addAll(sendDataValueSetActionBuilder.addSendDataValueSetActions(dataSetService.findAll()));
+        actions.addAll(sendDataValueSetActionBuilder.addSendDataValueSetActions(metadataIndexService.getDataSets()));
         actions.add(addSendDataValue());
 
         return new ChannelRequest(DisplayNames.DHIS2_DISPLAY_NAME, bundleContext.getBundle().getSymbolicName(),
@@ -19,7 +19,8 @@ import org.motechproject.dhis2.rest.domain.EnrollmentDto;
 import org.motechproject.dhis2.rest.domain.ImportCountDto;
 import org.motechproject.dhis2.rest.domain.TrackedEntityInstanceDto;
 import org.motechproject.dhis2.rest.service.DhisWebService;
-import org.motechproject.dhis2.service.DataElementService;
+import org.motechproject.dhis2.service.DhisBatchService;
+import org.motechproject.dhis2.service.MetadataIndexService;
 import org.motechproject.dhis2.service.SettingsService;
 import org.motechproject.dhis2.service.TrackedEntityInstanceMappingService;
 import org.motechproject.event.MotechEvent;
@@ -59,9 +60,11 @@ public class EventHandlerTest {
     @Mock
     private TrackedEntityInstanceMappingService trackedEntityInstanceMappingService;
     @Mock
-    private DataElementService dataElementService;
+    private MetadataIndexService metadataIndexService;
     @Mock
     private DhisWebService dhisWebservice;
+    @Mock
+    private DhisBatchService dhisBatchService;
     private DhisStatusResponse response;
     @InjectMocks
     private EventHandler handler = new EventHandler();
@@ -159,7 +162,6 @@ public class EventHandlerTest {
         programStageDto.setProgramStage(STAGE_ID);
         programStageDto.setStatus(STATUS);
 
-        when(dhisWebservice.createEvent(programStageDto)).thenReturn(response);
         when(trackedEntityInstanceMappingService.mapFromExternalId(ENTITY_INSTANCE_ID))
                 .thenReturn(INSTANCE_DHIS_ID);
 
@@ -177,7 +179,7 @@ public class EventHandlerTest {
         handler.handleStageUpdate(event);
 
         verify(trackedEntityInstanceMappingService).mapFromExternalId(ENTITY_INSTANCE_ID);
-        verify(dhisWebservice).createEvent(programStageDto);
+        verify(dhisBatchService).queueEvent(programStageDto, event);
     }
 
     @Test
@@ -236,6 +238,8 @@ public class EventHandlerTest {
         DataValueSetDto dataValueSetDto = new DataValueSetDto();
         List<DataValueDto> dataValueDtos = new ArrayList<>();
         dataValueDtos.add(dataValueDto);
+        dataValueSetDto.setPeriod(PERIOD);
+        dataValueSetDto.setOrgUnit(ORGUNIT_ID);
         dataValueSetDto.setDataValues(dataValueDtos);
 
         Map<String, Object> params = new HashMap<>();
@@ -248,13 +252,13 @@ public class EventHandlerTest {
 
         DataElement dataElement = new DataElement(DATA_ELEMENT_VALUE, DATA_ELEMENT_ID);
 
-        when(dataElementService.findByName(DATA_ELEMENT_ID)).thenReturn(dataElement);
+        when(metadataIndexService.getDataElementByName(DATA_ELEMENT_ID)).thenReturn(dataElement);
 
         MotechEvent event = new MotechEvent(EventSubjects.SEND_DATA_VALUE, params);
 
         handler.handleDataValue(event);
 
-        verify(dhisWebservice).sendDataValueSet(Matchers.refEq(dataValueSetDto));
+        verify(dhisBatchService).queueDataValueSet(Matchers.refEq(dataValueSetDto), Matchers.eq(event));
     }
 
     @Test(expected = DataElementNotFoundException.class)
@@ -268,7 +272,7 @@ public class EventHandlerTest {
         params.put(EventParams.CATEGORY_OPTION_COMBO, CATEGORY_COMBO);
         params.put(EventParams.COMMENT, COMMENT);
 
-        when(dataElementService.findByName(DATA_ELEMENT_ID)).thenReturn(null);
+        when(metadataIndexService.getDataElementByName(DATA_ELEMENT_ID)).thenReturn(null);
         MotechEvent event = new MotechEvent(EventSubjects.SEND_DATA_VALUE, params);
         handler.handleDataValue(event);
     }
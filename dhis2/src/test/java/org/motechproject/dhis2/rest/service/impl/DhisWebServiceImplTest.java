@@ -0,0 +1,209 @@
+package org.motechproject.dhis2.rest.service.impl;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.osgi.services.HttpClientBuilderFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.motechproject.admin.service.StatusMessageService;
+import org.motechproject.dhis2.rest.domain.DataElementDto;
+import org.motechproject.dhis2.rest.service.DhisResourceConsumer;
+import org.motechproject.dhis2.rest.service.DhisWebException;
+import org.motechproject.dhis2.service.Settings;
+import org.motechproject.dhis2.service.SettingsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class DhisWebServiceImplTest {
+
+    private static final String SERVER_URI = "http://localhost:8080";
+    private static final Pattern PAGE_PATTERN = Pattern.compile("[?&]page=(\\d+)");
+
+    @Mock
+    private SettingsService settingsService;
+
+    @Mock
+    private StatusMessageService statusMessageService;
+
+    @Mock
+    private HttpClientBuilderFactory httpClientBuilderFactory;
+
+    @Mock
+    private HttpClient httpClient;
+
+    private DhisWebServiceImpl dhisWebService;
+
+    private Map<Integer, String> pages = new HashMap<>();
+    private Map<Integer, Long> pageDelays = new HashMap<>();
+    private Map<Integer, Integer> pageStatuses = new HashMap<>();
+    private List<String> requestedUris = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws IOException {
+        initMocks(this);
+
+        when(settingsService.getSettings()).thenReturn(new Settings(SERVER_URI, "admin", "district"));
+        when(httpClientBuilderFactory.newBuilder()).thenReturn(HttpClientBuilder.create());
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(new Answer<HttpResponse>() {
+            @Override
+            public HttpResponse answer(InvocationOnMock invocation) throws Exception {
+                return respond((HttpUriRequest) invocation.getArguments()[0]);
+            }
+        });
+
+        dhisWebService = new DhisWebServiceImpl(settingsService, statusMessageService, httpClientBuilderFactory);
+        ReflectionTestUtils.setField(dhisWebService, "client", httpClient);
+    }
+
+    @After
+    public void tearDown() {
+        dhisWebService.shutdown();
+    }
+
+    @Test
+    public void shouldDeliverPagesInOrderEvenIfTheyArriveOutOfOrder() {
+        pages.put(1, page(1, 4, "de1", "de2"));
+        pages.put(2, page(2, 4, "de3", "de4"));
+        pages.put(3, page(3, 4, "de5", "de6"));
+        pages.put(4, page(4, 4, "de7"));
+        pageDelays.put(2, 300L);
+        pageDelays.put(3, 100L);
+
+        List<List<String>> consumed = streamDataElements();
+
+        assertEquals(Arrays.asList(Arrays.asList("de1", "de2"), Arrays.asList("de3", "de4"),
+                Arrays.asList("de5", "de6"), Collections.singletonList("de7")), consumed);
+    }
+
+    @Test
+    public void shouldStopAtTheLastPage() {
+        pages.put(1, page(1, 2, "de1", "de2"));
+        pages.put(2, page(2, 2, "de3"));
+
+        List<List<String>> consumed = streamDataElements();
+
+        assertEquals(Arrays.asList(Arrays.asList("de1", "de2"), Collections.singletonList("de3")), consumed);
+        assertEquals(2, requestedUris.size());
+        assertTrue(requestedUris.contains(SERVER_URI + "/api/dataElements"));
+        assertTrue(requestedUris.contains(SERVER_URI + "/api/dataElements?page=2"));
+    }
+
+    @Test
+    public void shouldRequestSinglePageWhenResponseIsNotPaged() {
+        pages.put(1, "{\"dataElements\":[{\"id\":\"de1\"}]}");
+
+        List<List<String>> consumed = streamDataElements();
+
+        assertEquals(Collections.singletonList(Collections.singletonList("de1")), consumed);
+        assertEquals(1, requestedUris.size());
+    }
+
+    @Test
+    public void shouldNotDeliverPagesWithoutResources() {
+        pages.put(1, "{\"pager\":{\"page\":1,\"pageCount\":1}}");
+
+        List<List<String>> consumed = streamDataElements();
+
+        assertTrue(consumed.isEmpty());
+    }
+
+    @Test
+    public void shouldFailWhenOnePageCannotBeFetched() {
+        pages.put(1, page(1, 3, "de1"));
+        pages.put(2, page(2, 3, "de2"));
+        pages.put(3, page(3, 3, "de3"));
+        pageStatuses.put(2, 500);
+
+        final List<List<String>> consumed = new ArrayList<>();
+        try {
+            dhisWebService.streamDataElements(null, collectingConsumer(consumed));
+            fail("Expected the failed page to be reported");
+        } catch (DhisWebException e) {
+            // expected
+        }
+
+        // the pages following the failed one are never delivered
+        assertEquals(Collections.singletonList(Collections.singletonList("de1")), consumed);
+        verify(statusMessageService, times(1)).warn(anyString(), eq("dhis2"));
+    }
+
+    private List<List<String>> streamDataElements() {
+        List<List<String>> consumed = new ArrayList<>();
+        dhisWebService.streamDataElements(null, collectingConsumer(consumed));
+        return consumed;
+    }
+
+    private DhisResourceConsumer<DataElementDto> collectingConsumer(final List<List<String>> consumed) {
+        return new DhisResourceConsumer<DataElementDto>() {
+            @Override
+            public void consume(List<DataElementDto> page) {
+                List<String> ids = new ArrayList<>();
+                for (DataElementDto dto : page) {
+                    ids.add(dto.getId());
+                }
+                consumed.add(ids);
+            }
+        };
+    }
+
+    private HttpResponse respond(HttpUriRequest request) throws Exception {
+        String uri = request.getURI().toString();
+        requestedUris.add(uri);
+
+        Matcher matcher = PAGE_PATTERN.matcher(uri);
+        int pageNumber = matcher.find() ? Integer.parseInt(matcher.group(1)) : 1;
+
+        if (pageDelays.containsKey(pageNumber)) {
+            Thread.sleep(pageDelays.get(pageNumber));
+        }
+
+        int status = pageStatuses.containsKey(pageNumber) ? pageStatuses.get(pageNumber) : 200;
+
+        HttpResponse response = new BasicHttpResponse(new BasicStatusLine(HttpVersion.HTTP_1_1, status, "status"));
+        response.setEntity(new StringEntity(pages.get(pageNumber), "UTF-8"));
+        return response;
+    }
+
+    private String page(int page, int pageCount, String... ids) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"pager\":{\"page\":").append(page).append(",\"pageCount\":").append(pageCount)
+                .append("},\"dataElements\":[");
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(ids[i]).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+}
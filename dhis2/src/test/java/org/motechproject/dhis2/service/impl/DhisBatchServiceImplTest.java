@@ -0,0 +1,183 @@
+package org.motechproject.dhis2.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.motechproject.dhis2.event.EventParams;
+import org.motechproject.dhis2.event.EventSubjects;
+import org.motechproject.dhis2.rest.domain.DataValueDto;
+import org.motechproject.dhis2.rest.domain.DataValueSetDto;
+import org.motechproject.dhis2.rest.domain.DhisDataValueStatusResponse;
+import org.motechproject.dhis2.rest.domain.DhisEventDto;
+import org.motechproject.dhis2.rest.domain.DhisImportSummariesResponse;
+import org.motechproject.dhis2.rest.domain.DhisStatus;
+import org.motechproject.dhis2.rest.domain.DhisStatusResponse;
+import org.motechproject.dhis2.rest.service.DhisWebException;
+import org.motechproject.dhis2.rest.service.DhisWebService;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class DhisBatchServiceImplTest {
+
+    private static final String PERIOD = "201501";
+    private static final String ORG_UNIT = "orgUnit";
+    private static final String PROGRAM = "program";
+
+    @Mock
+    private DhisWebService dhisWebService;
+
+    @Mock
+    private EventRelay eventRelay;
+
+    private DhisBatchServiceImpl dhisBatchService;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        dhisBatchService = new DhisBatchServiceImpl(dhisWebService, eventRelay, 3, 1000);
+    }
+
+    @Test
+    public void shouldSendDataValuesOfTheSamePeriodAndOrgUnitInOneRequest() {
+        DhisDataValueStatusResponse response = new DhisDataValueStatusResponse();
+        response.setStatus(DhisStatus.SUCCESS);
+        when(dhisWebService.sendDataValueSet(any(DataValueSetDto.class))).thenReturn(response);
+
+        dhisBatchService.queueDataValueSet(dataValueSet(PERIOD, "a"), origin(EventSubjects.SEND_DATA_VALUE, "1"));
+        dhisBatchService.queueDataValueSet(dataValueSet("201502", "b"), origin(EventSubjects.SEND_DATA_VALUE, "2"));
+        dhisBatchService.queueDataValueSet(dataValueSet(PERIOD, "c"), origin(EventSubjects.SEND_DATA_VALUE, "3"));
+
+        verify(dhisWebService, never()).sendDataValueSet(any(DataValueSetDto.class));
+
+        dhisBatchService.queueDataValueSet(dataValueSet(PERIOD, "d"), origin(EventSubjects.SEND_DATA_VALUE, "4"));
+
+        ArgumentCaptor<DataValueSetDto> captor = ArgumentCaptor.forClass(DataValueSetDto.class);
+        verify(dhisWebService).sendDataValueSet(captor.capture());
+
+        DataValueSetDto sent = captor.getValue();
+        assertEquals(PERIOD, sent.getPeriod());
+        assertEquals(ORG_UNIT, sent.getOrgUnit());
+        assertEquals(3, sent.getDataValues().size());
+
+        List<MotechEvent> published = publishedEvents(3);
+        for (MotechEvent event : published) {
+            assertEquals(EventSubjects.SEND_DATA_VALUE_SUCCESS, event.getSubject());
+            assertEquals(DhisStatus.SUCCESS.name(), event.getParameters().get(EventParams.IMPORT_STATUS));
+        }
+
+        dhisBatchService.flush();
+
+        verify(dhisWebService, times(2)).sendDataValueSet(any(DataValueSetDto.class));
+    }
+
+    @Test
+    public void shouldPublishFailureEventsWhenTheRequestFails() {
+        when(dhisWebService.sendDataValueSet(any(DataValueSetDto.class))).thenThrow(new DhisWebException("Server down"));
+
+        dhisBatchService.queueDataValueSet(dataValueSet(PERIOD, "a"), origin(EventSubjects.SEND_DATA_VALUE_SET, "1"));
+        dhisBatchService.flush();
+
+        MotechEvent published = publishedEvents(1).get(0);
+
+        assertEquals(EventSubjects.SEND_DATA_VALUE_SET_FAILURE, published.getSubject());
+        assertEquals("Server down", published.getParameters().get(EventParams.ERROR_MESSAGE));
+        assertEquals("1", published.getParameters().get("id"));
+    }
+
+    @Test
+    public void shouldSendTheRemainingBatchesWhenOneOfThemFails() {
+        DhisDataValueStatusResponse response = new DhisDataValueStatusResponse();
+        response.setStatus(DhisStatus.SUCCESS);
+        when(dhisWebService.sendDataValueSet(any(DataValueSetDto.class))).thenReturn(response);
+        doThrow(new IllegalStateException("Broker down")).doNothing().when(eventRelay)
+                .sendEventMessage(any(MotechEvent.class));
+
+        dhisBatchService.queueDataValueSet(dataValueSet(PERIOD, "a"), origin(EventSubjects.SEND_DATA_VALUE_SET, "1"));
+        dhisBatchService.queueDataValueSet(dataValueSet("201502", "b"), origin(EventSubjects.SEND_DATA_VALUE_SET, "2"));
+        dhisBatchService.flush();
+
+        verify(dhisWebService, times(2)).sendDataValueSet(any(DataValueSetDto.class));
+        assertEquals("2", publishedEvents(2).get(1).getParameters().get("id"));
+    }
+
+    @Test
+    public void shouldFanOutEventImportSummaries() {
+        DhisImportSummariesResponse response = new DhisImportSummariesResponse();
+        response.setStatus(DhisStatus.WARNING);
+        response.setImportSummaries(Arrays.asList(summary(DhisStatus.SUCCESS, "ref1", null),
+                summary(DhisStatus.ERROR, null, "Invalid stage")));
+        when(dhisWebService.createEvents(any(List.class))).thenReturn(response);
+
+        dhisBatchService.queueEvent(event(), origin(EventSubjects.UPDATE_PROGRAM_STAGE, "1"));
+        dhisBatchService.queueEvent(event(), origin(EventSubjects.UPDATE_PROGRAM_STAGE, "2"));
+        dhisBatchService.flush();
+
+        verify(dhisWebService).createEvents(any(List.class));
+
+        List<MotechEvent> published = publishedEvents(2);
+
+        assertEquals(EventSubjects.UPDATE_PROGRAM_STAGE_SUCCESS, published.get(0).getSubject());
+        assertEquals("ref1", published.get(0).getParameters().get(EventParams.REFERENCE));
+        assertEquals(EventSubjects.UPDATE_PROGRAM_STAGE_FAILURE, published.get(1).getSubject());
+        assertEquals("Invalid stage", published.get(1).getParameters().get(EventParams.ERROR_MESSAGE));
+        assertEquals("2", published.get(1).getParameters().get("id"));
+    }
+
+    private List<MotechEvent> publishedEvents(int count) {
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay, times(count)).sendEventMessage(captor.capture());
+        return captor.getAllValues();
+    }
+
+    private DataValueSetDto dataValueSet(String period, String dataElement) {
+        DataValueDto dataValue = new DataValueDto();
+        dataValue.setDataElement(dataElement);
+        dataValue.setValue("1");
+
+        List<DataValueDto> dataValues = new ArrayList<>();
+        dataValues.add(dataValue);
+
+        DataValueSetDto dataValueSet = new DataValueSetDto();
+        dataValueSet.setPeriod(period);
+        dataValueSet.setOrgUnit(ORG_UNIT);
+        dataValueSet.setDataValues(dataValues);
+        return dataValueSet;
+    }
+
+    private DhisEventDto event() {
+        DhisEventDto event = new DhisEventDto();
+        event.setProgram(PROGRAM);
+        event.setOrgUnit(ORG_UNIT);
+        return event;
+    }
+
+    private DhisStatusResponse summary(DhisStatus status, String reference, String description) {
+        DhisStatusResponse summary = new DhisStatusResponse();
+        summary.setStatus(status);
+        summary.setReference(reference);
+        summary.setDescription(description);
+        return summary;
+    }
+
+    private MotechEvent origin(String subject, String id) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("id", id);
+        return new MotechEvent(subject, params);
+    }
+}
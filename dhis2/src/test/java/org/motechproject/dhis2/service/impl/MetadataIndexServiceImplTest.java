@@ -0,0 +1,103 @@
+package org.motechproject.dhis2.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.motechproject.dhis2.domain.DataElement;
+import org.motechproject.dhis2.domain.DataSet;
+import org.motechproject.dhis2.domain.Program;
+import org.motechproject.dhis2.domain.Stage;
+import org.motechproject.dhis2.service.DataElementService;
+import org.motechproject.dhis2.service.DataSetService;
+import org.motechproject.dhis2.service.ProgramService;
+import org.motechproject.dhis2.service.StageService;
+import org.motechproject.dhis2.service.TrackedEntityAttributeService;
+import org.motechproject.dhis2.service.TrackedEntityService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class MetadataIndexServiceImplTest {
+
+    @Mock
+    private DataElementService dataElementService;
+
+    @Mock
+    private DataSetService dataSetService;
+
+    @Mock
+    private ProgramService programService;
+
+    @Mock
+    private StageService stageService;
+
+    @Mock
+    private TrackedEntityService trackedEntityService;
+
+    @Mock
+    private TrackedEntityAttributeService trackedEntityAttributeService;
+
+    private MetadataIndexServiceImpl metadataIndexService;
+
+    private DataElement first = new DataElement("first", "uuid1");
+    private DataElement second = new DataElement("second", "uuid2");
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        DataSet dataSet = new DataSet();
+        dataSet.setUuid("dataSet");
+        dataSet.setDataElementList(new ArrayList<>(Arrays.asList(second, first)));
+
+        Program program = new Program();
+        program.setUuid("program");
+        program.setRegistration(true);
+
+        Stage stage = new Stage();
+        stage.setUuid("stage");
+        stage.setProgram("program");
+
+        when(dataElementService.findAll()).thenReturn(Arrays.asList(first, second));
+        when(dataSetService.findAll()).thenReturn(Collections.singletonList(dataSet));
+        when(programService.findAll()).thenReturn(Collections.singletonList(program));
+        when(stageService.findAll()).thenReturn(Collections.singletonList(stage));
+
+        metadataIndexService = new MetadataIndexServiceImpl(dataElementService, dataSetService, programService,
+                stageService, trackedEntityService, trackedEntityAttributeService);
+    }
+
+    @Test
+    public void shouldBuildIndexesOnFirstUse() {
+        assertEquals(first, metadataIndexService.getDataElementByName("first"));
+        assertNull(metadataIndexService.getDataElementByName("third"));
+        assertEquals(Arrays.asList("uuid2", "uuid1"),
+                new ArrayList<>(metadataIndexService.getDataSetElements("dataSet").keySet()));
+        assertTrue(metadataIndexService.getDataSetElements("other").isEmpty());
+        assertEquals("stage", metadataIndexService.getStages().get(0).getUuid());
+        assertEquals(1, metadataIndexService.getProgramsByRegistration(true).size());
+        assertTrue(metadataIndexService.getProgramsByRegistration(false).isEmpty());
+
+        verify(dataElementService, times(1)).findAll();
+    }
+
+    @Test
+    public void shouldReplaceIndexesOnRebuild() {
+        assertEquals(first, metadataIndexService.getDataElementByName("first"));
+
+        when(dataElementService.findAll()).thenReturn(Collections.singletonList(second));
+        metadataIndexService.rebuild();
+
+        assertNull(metadataIndexService.getDataElementByName("first"));
+        assertEquals(second, metadataIndexService.getDataElementByName("second"));
+    }
+}
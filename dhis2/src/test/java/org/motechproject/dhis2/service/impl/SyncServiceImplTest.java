@@ -0,0 +1,201 @@
+package org.motechproject.dhis2.service.impl;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.dhis2.domain.DataElement;
+import org.motechproject.dhis2.rest.domain.DataElementDto;
+import org.motechproject.dhis2.rest.domain.DhisServerInfo;
+import org.motechproject.dhis2.rest.service.DhisResourceConsumer;
+import org.motechproject.dhis2.rest.service.DhisWebService;
+import org.motechproject.dhis2.service.DataElementService;
+import org.motechproject.dhis2.service.DataSetService;
+import org.motechproject.dhis2.service.MetadataIndexService;
+import org.motechproject.dhis2.service.OrgUnitService;
+import org.motechproject.dhis2.service.ProgramService;
+import org.motechproject.dhis2.service.StageService;
+import org.motechproject.dhis2.service.TrackedEntityAttributeService;
+import org.motechproject.dhis2.service.TrackedEntityService;
+import org.motechproject.event.MotechEvent;
+import org.springframework.core.io.Resource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class SyncServiceImplTest {
+
+    private static final String SYNC_STATE_FILE_NAME = "dhis2-sync.json";
+    private static final String LAST_SYNC_DATE = "2016-01-01T10:00:00.000";
+    private static final String SERVER_DATE = "2016-02-01T10:00:00.000";
+
+    @Mock
+    private DhisWebService dhisWebService;
+
+    @Mock
+    private DataElementService dataElementService;
+
+    @Mock
+    private TrackedEntityAttributeService trackedEntityAttributeService;
+
+    @Mock
+    private TrackedEntityService trackedEntityService;
+
+    @Mock
+    private ProgramService programService;
+
+    @Mock
+    private StageService stageService;
+
+    @Mock
+    private OrgUnitService orgUnitService;
+
+    @Mock
+    private DataSetService dataSetService;
+
+    @Mock
+    private MetadataIndexService metadataIndexService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private SettingsFacade settingsFacade;
+
+    @InjectMocks
+    private SyncServiceImpl syncService = new SyncServiceImpl();
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        DhisServerInfo serverInfo = new DhisServerInfo();
+        serverInfo.setServerDate(SERVER_DATE);
+        when(dhisWebService.getDhisServerInfo()).thenReturn(serverInfo);
+    }
+
+    @Test
+    public void shouldDownloadAllObjectsInFullSync() throws IOException {
+        storeLastSyncDate(LAST_SYNC_DATE);
+        streamDataElements(dataElementDto("uuid1", "first"));
+        when(dhisWebService.getDataElementIds()).thenReturn(new HashSet<>(Collections.singletonList("uuid1")));
+
+        assertTrue(syncService.fullSync());
+
+        verify(dhisWebService).streamDataElements((String) isNull(), any(DhisResourceConsumer.class));
+        verify(dhisWebService).streamOrganisationUnits((String) isNull(), any(DhisResourceConsumer.class));
+        verify(dhisWebService).streamPrograms((String) isNull(), any(DhisResourceConsumer.class));
+        verify(dataElementService).createFromDetails(any(DataElementDto.class));
+        verify(metadataIndexService).rebuild();
+        assertLastSyncDateSaved(SERVER_DATE);
+    }
+
+    @Test
+    public void shouldDownloadObjectsUpdatedSinceLastSyncInIncrementalSync() throws IOException {
+        storeLastSyncDate(LAST_SYNC_DATE);
+
+        DataElement renamed = new DataElement("oldName", "uuid1");
+        DataElement deleted = new DataElement("deleted", "uuid2");
+        when(dataElementService.findById("uuid1")).thenReturn(renamed);
+        when(dataElementService.findAll()).thenReturn(Arrays.asList(renamed, deleted));
+        when(dhisWebService.getDataElementIds()).thenReturn(new HashSet<>(Collections.singletonList("uuid1")));
+        streamDataElements(dataElementDto("uuid1", "newName"));
+
+        assertTrue(syncService.sync());
+
+        verify(dhisWebService).streamDataElements(eq(LAST_SYNC_DATE), any(DhisResourceConsumer.class));
+        verify(dhisWebService).streamDataSets(eq(LAST_SYNC_DATE), any(DhisResourceConsumer.class));
+        verify(dhisWebService).streamProgramStages(eq(LAST_SYNC_DATE), any(DhisResourceConsumer.class));
+        verify(dataElementService).update(renamed);
+        verify(dataElementService).delete(deleted);
+        verify(dataElementService, never()).delete(renamed);
+        verify(dataElementService, never()).createFromDetails(any(DataElementDto.class));
+        assertLastSyncDateSaved(SERVER_DATE);
+    }
+
+    @Test
+    public void shouldFallBackToFullSyncWhenNoSyncWasStored() {
+        when(settingsFacade.getRawConfig(SYNC_STATE_FILE_NAME)).thenReturn(new ByteArrayInputStream("{}".getBytes()));
+
+        assertTrue(syncService.sync());
+
+        verify(dhisWebService).streamDataElements((String) isNull(), any(DhisResourceConsumer.class));
+    }
+
+    @Test
+    public void shouldClearLastSyncDateWhenSettingsChange() throws IOException {
+        syncService.handleSettingsUpdate(new MotechEvent("settingsUpdated"));
+
+        assertLastSyncDateSaved(null);
+    }
+
+    @Test
+    public void shouldKeepLastSyncDateWhenSyncFails() throws IOException {
+        storeLastSyncDate(LAST_SYNC_DATE);
+        doThrow(new IllegalStateException("DHIS2 is down")).when(dhisWebService)
+                .streamPrograms(any(String.class), any(DhisResourceConsumer.class));
+
+        assertFalse(syncService.sync());
+
+        verify(settingsFacade, never()).saveRawConfig(eq(SYNC_STATE_FILE_NAME), any(Resource.class));
+        verify(metadataIndexService).rebuild();
+    }
+
+    private void storeLastSyncDate(String date) {
+        String jsonText = "{\"lastSyncServerDate\":\"" + date + "\"}";
+        when(settingsFacade.getRawConfig(SYNC_STATE_FILE_NAME)).thenReturn(new ByteArrayInputStream(jsonText.getBytes()));
+    }
+
+    private void assertLastSyncDateSaved(String date) throws IOException {
+        ArgumentCaptor<Resource> captor = ArgumentCaptor.forClass(Resource.class);
+        verify(settingsFacade).saveRawConfig(eq(SYNC_STATE_FILE_NAME), captor.capture());
+
+        String jsonText = IOUtils.toString(captor.getValue().getInputStream());
+        if (date == null) {
+            assertFalse(jsonText.contains("lastSyncServerDate"));
+        } else {
+            assertTrue(jsonText.contains("\"lastSyncServerDate\":\"" + date + "\""));
+        }
+    }
+
+    private void streamDataElements(final DataElementDto... dtos) {
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                DhisResourceConsumer<DataElementDto> consumer = (DhisResourceConsumer<DataElementDto>) invocation.getArguments()[1];
+                List<DataElementDto> page = Arrays.asList(dtos);
+                consumer.consume(page);
+                return null;
+            }
+        }).when(dhisWebService).streamDataElements(any(String.class), any(DhisResourceConsumer.class));
+    }
+
+    private DataElementDto dataElementDto(String id, String name) {
+        DataElementDto dto = new DataElementDto();
+        dto.setId(id);
+        dto.setName(name);
+        return dto;
+    }
+}
@@ -13,11 +13,7 @@ import org.motechproject.dhis2.domain.TrackedEntity;
 import org.motechproject.dhis2.domain.TrackedEntityAttribute;
 import org.motechproject.dhis2.event.EventSubjects;
 import org.motechproject.dhis2.rest.domain.ServerVersion;
-import org.motechproject.dhis2.service.DataSetService;
-import org.motechproject.dhis2.service.ProgramService;
-import org.motechproject.dhis2.service.StageService;
-import org.motechproject.dhis2.service.TrackedEntityAttributeService;
-import org.motechproject.dhis2.service.TrackedEntityService;
+import org.motechproject.dhis2.service.MetadataIndexService;
 import org.motechproject.dhis2.util.DummyData;
 import org.motechproject.tasks.contract.ActionEventRequest;
 import org.motechproject.tasks.contract.ChannelRequest;
@@ -37,19 +33,7 @@ import static org.mockito.Mockito.when;
 public class ChannelRequestBuilderTest {
 
     @Mock
-    private ProgramService programService;
-
-    @Mock
-    private StageService stageService;
-
-    @Mock
-    private DataSetService dataSetService;
-
-    @Mock
-    private TrackedEntityService trackedEntityService;
-
-    @Mock
-    private TrackedEntityAttributeService trackedEntityAttributeService;
+    private MetadataIndexService metadataIndexService;
 
     @Mock
     private BundleContext bundleContext;
@@ -82,11 +66,11 @@ public class ChannelRequestBuilderTest {
         setupPrograms();
         setupTrackedEntities();
 
-        when(programService.findByRegistration(true)).thenReturn(programs);
-        when(stageService.findAll()).thenReturn(stages);
-        when(trackedEntityAttributeService.findAll()).thenReturn(attributes);
-        when(trackedEntityService.findAll()).thenReturn(trackedEntities);
-        when(dataSetService.findAll()).thenReturn(dataSets);
+        when(metadataIndexService.getProgramsByRegistration(true)).thenReturn(programs);
+        when(metadataIndexService.getStages()).thenReturn(stages);
+        when(metadataIndexService.getTrackedEntityAttributes()).thenReturn(attributes);
+        when(metadataIndexService.getTrackedEntities()).thenReturn(trackedEntities);
+        when(metadataIndexService.getDataSets()).thenReturn(dataSets);
 
         when(bundleContext.getBundle()).thenReturn(bundle);
         when(bundle.getVersion()).thenReturn(version);
@@ -94,9 +78,8 @@ public class ChannelRequestBuilderTest {
         when(bundle.getSymbolicName()).thenReturn("BundleSymbolicName");
         when(version.toString()).thenReturn("bundleVersion");
 
-        ChannelRequestBuilder builder = new ChannelRequestBuilder(bundleContext, programService, stageService,
-                trackedEntityAttributeService, trackedEntityService, new ServerVersion(ServerVersion.V2_18),
-                dataSetService);
+        ChannelRequestBuilder builder = new ChannelRequestBuilder(bundleContext, metadataIndexService,
+                new ServerVersion(ServerVersion.V2_18));
         request = builder.build();
 
     }
@@ -0,0 +1,189 @@
+package org.motechproject.metrics.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable set of tags, the dimensions of a metric such as a configuration name or a provider. Tags are sorted
+ * by key, so the same tags always identify the same metric, whatever order they were given in. A metric with tags is
+ * registered under the name followed by its tags in the Graphite tag notation, i.e. {@code name;key1=value1;key2=value2}.
+ * <p>
+ * Tags are meant to be created once and reused: the hash code and the encoded form are computed when the tags are
+ * created, so looking up a metric by its tags does not allocate.
+ */
+public final class Tags {
+
+    /**
+     * The separator between the name of a metric and its tags, and between the tags.
+     */
+    public static final char TAG_SEPARATOR = ';';
+
+    /**
+     * The separator between the key and the value of a tag.
+     */
+    public static final char VALUE_SEPARATOR = '=';
+
+    public static final Tags EMPTY = new Tags(new String[0]);
+
+    private final String[] keyValues;
+    private final String encoded;
+    private final int hashCode;
+
+    private Tags(String[] keyValues) {
+        this.keyValues = keyValues;
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            builder.append(TAG_SEPARATOR).append(keyValues[i]).append(VALUE_SEPARATOR).append(keyValues[i + 1]);
+        }
+        this.encoded = builder.toString();
+        this.hashCode = Arrays.hashCode(keyValues);
+    }
+
+    /**
+     * Creates tags from alternating keys and values, i.e. {@code Tags.of("config", "odk", "form", "registration")}.
+     * Characters which cannot appear in a Graphite tag (separators and whitespace) are replaced with underscores.
+     *
+     * @param keyValues the keys and values of the tags
+     * @return the tags
+     * @throws IllegalArgumentException if a key has no value, or a key or value is empty
+     */
+    public static Tags of(String... keyValues) {
+        if (keyValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Tags must be given as pairs of keys and values");
+        }
+
+        Map<String, String> tags = new TreeMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            tags.put(sanitize(keyValues[i]), sanitize(keyValues[i + 1]));
+        }
+        return fromSortedMap(tags);
+    }
+
+    /**
+     * Returns these tags with the given tag added, or replaced if a tag with the same key exists.
+     *
+     * @param key the key of the tag
+     * @param value the value of the tag
+     * @return the new tags
+     */
+    public Tags and(String key, String value) {
+        Map<String, String> tags = new TreeMap<>(asMap());
+        tags.put(sanitize(key), sanitize(value));
+        return fromSortedMap(tags);
+    }
+
+    /**
+     * Parses the tags from the name of a registered metric.
+     *
+     * @param registeredName the name under which the metric is registered
+     * @return the tags of the metric, {@link #EMPTY} if it has none
+     */
+    public static Tags fromRegisteredName(String registeredName) {
+        int start = registeredName.indexOf(TAG_SEPARATOR);
+        if (start < 0) {
+            return EMPTY;
+        }
+
+        Map<String, String> tags = new TreeMap<>();
+        for (String tag : registeredName.substring(start + 1).split(String.valueOf(TAG_SEPARATOR))) {
+            int separator = tag.indexOf(VALUE_SEPARATOR);
+            if (separator > 0) {
+                tags.put(tag.substring(0, separator), tag.substring(separator + 1));
+            }
+        }
+        return fromSortedMap(tags);
+    }
+
+    /**
+     * Returns the name of a registered metric, without its tags.
+     *
+     * @param registeredName the name under which the metric is registered
+     * @return the name of the metric
+     */
+    public static String baseName(String registeredName) {
+        int start = registeredName.indexOf(TAG_SEPARATOR);
+        return start < 0 ? registeredName : registeredName.substring(0, start);
+    }
+
+    /**
+     * Returns the name under which a metric with the given name and these tags is registered.
+     *
+     * @param name the name of the metric
+     * @return the name followed by the tags
+     */
+    public String toRegisteredName(String name) {
+        return encoded.isEmpty() ? name : name + encoded;
+    }
+
+    /**
+     * Returns the tags as a map sorted by key.
+     *
+     * @return an unmodifiable map of the tags
+     */
+    public Map<String, String> asMap() {
+        Map<String, String> tags = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            tags.put(keyValues[i], keyValues[i + 1]);
+        }
+        return Collections.unmodifiableMap(tags);
+    }
+
+    public boolean isEmpty() {
+        return keyValues.length == 0;
+    }
+
+    public int size() {
+        return keyValues.length / 2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Tags other = (Tags) o;
+        return hashCode == other.hashCode && Arrays.equals(keyValues, other.keyValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return encoded;
+    }
+
+    private static Tags fromSortedMap(Map<String, String> tags) {
+        String[] keyValues = new String[tags.size() * 2];
+        int i = 0;
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            keyValues[i++] = tag.getKey();
+            keyValues[i++] = tag.getValue();
+        }
+        return new Tags(keyValues);
+    }
+
+    private static String sanitize(String keyOrValue) {
+        if (keyOrValue == null || keyOrValue.isEmpty()) {
+            throw new IllegalArgumentException("Tag keys and values cannot be empty");
+        }
+
+        StringBuilder sanitized = new StringBuilder(keyOrValue.length());
+        for (int i = 0; i < keyOrValue.length(); i++) {
+            char c = keyOrValue.charAt(i);
+            boolean forbidden = c == TAG_SEPARATOR || c == VALUE_SEPARATOR || c == '~' || c == '!' || c == '^'
+                    || Character.isWhitespace(c);
+            sanitized.append(forbidden ? '_' : c);
+        }
+        return sanitized.toString();
+    }
+}
@@ -19,6 +19,11 @@ public class MetricsConfig {
      */
     private GraphiteReporterConfig graphiteReporterConfig;
 
+    /**
+     * The configuration of the reservoirs of histograms and timers.
+     */
+    private ReservoirConfig reservoirConfig;
+
     public boolean isMetricsEnabled() {
         return metricsEnabled;
     }
@@ -42,4 +47,12 @@ public class MetricsConfig {
     public void setGraphiteReporterConfig(GraphiteReporterConfig graphiteReporterConfig) {
         this.graphiteReporterConfig = graphiteReporterConfig;
     }
+
+    public ReservoirConfig getReservoirConfig() {
+        return reservoirConfig;
+    }
+
+    public void setReservoirConfig(ReservoirConfig reservoirConfig) {
+        this.reservoirConfig = reservoirConfig;
+    }
 }
@@ -5,6 +5,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
@@ -36,6 +38,27 @@ public class MetricsConfigFacade {
     public static final String GRAPHITE_REPORTER_REPORTING_FREQUENCY_VALUE = "reporter.graphite.reportingFrequency.value";
     public static final String GRAPHITE_REPORTER_REPORTING_FREQUENCY_UNIT = "reporter.graphite.reportingFrequency.unit";
 
+    public static final String OPEN_METRICS_SNAPSHOT_CACHE_VALUE = "exposition.openMetrics.snapshotCache.value";
+    public static final String OPEN_METRICS_SNAPSHOT_CACHE_UNIT = "exposition.openMetrics.snapshotCache.unit";
+
+    public static final String TAG_CARDINALITY_LIMIT = "metrics.tags.cardinalityLimit";
+
+    public static final String RESERVOIR_TYPE = "reservoir.type";
+    public static final String RESERVOIR_METRIC_TYPE_PREFIX = "reservoir.type.";
+    public static final String RESERVOIR_WINDOW_VALUE = "reservoir.window.value";
+    public static final String RESERVOIR_WINDOW_UNIT = "reservoir.window.unit";
+    public static final String RESERVOIR_UNIFORM_SIZE = "reservoir.uniform.size";
+    public static final String RESERVOIR_HDR_SIGNIFICANT_DIGITS = "reservoir.hdr.significantDigits";
+
+    private static final ReservoirType DEFAULT_RESERVOIR_TYPE = ReservoirType.EXPONENTIALLY_DECAYING;
+    private static final int DEFAULT_RESERVOIR_WINDOW = 1;
+    private static final TimeUnit DEFAULT_RESERVOIR_WINDOW_UNIT = TimeUnit.MINUTES;
+    private static final int DEFAULT_RESERVOIR_UNIFORM_SIZE = 1028;
+    private static final int DEFAULT_RESERVOIR_SIGNIFICANT_DIGITS = 2;
+
+    private static final long DEFAULT_OPEN_METRICS_SNAPSHOT_CACHE_MILLIS = 15000;
+    private static final int DEFAULT_TAG_CARDINALITY_LIMIT = 100;
+
     @Autowired
     public MetricsConfigFacade(@Qualifier("metricsSettings") SettingsFacade settingsFacade) {
         this.settingsFacade = settingsFacade;
@@ -49,6 +72,66 @@ public class MetricsConfigFacade {
         return Boolean.valueOf(settingsFacade.getProperty(METRICS_ENABLED));
     }
 
+    /**
+     * Returns the maximum number of distinct tag sets of the metrics sharing a name, unless a limit was set for
+     * that name.
+     * @return the default tag cardinality limit
+     */
+    public int getDefaultTagCardinalityLimit() {
+        String value = getPropertyValue(TAG_CARDINALITY_LIMIT);
+        return value == null ? DEFAULT_TAG_CARDINALITY_LIMIT : Integer.valueOf(value);
+    }
+
+    /**
+     * Returns for how long the histogram and timer snapshots computed for an OpenMetrics scrape are reused by the
+     * following scrapes, normally the scrape interval of the monitoring system.
+     * @return the time in milliseconds, 0 to compute the snapshots on every scrape
+     */
+    public long getOpenMetricsSnapshotCacheMillis() {
+        String value = getPropertyValue(OPEN_METRICS_SNAPSHOT_CACHE_VALUE);
+        String unit = getPropertyValue(OPEN_METRICS_SNAPSHOT_CACHE_UNIT);
+
+        if (value == null || unit == null) {
+            return DEFAULT_OPEN_METRICS_SNAPSHOT_CACHE_MILLIS;
+        }
+        return TimeUnit.valueOf(unit).toMillis(Long.valueOf(value));
+    }
+
+    /**
+     * Loads the configuration of the reservoirs of histograms and timers. A metric has the reservoir type set by the
+     * {@code reservoir.type.<metric name>} property, or by {@code reservoir.type} if there is none.
+     * @return the reservoir configuration
+     */
+    public ReservoirConfig getReservoirConfig() {
+        ReservoirConfig config = new ReservoirConfig();
+
+        String type = getPropertyValue(RESERVOIR_TYPE);
+        String window = getPropertyValue(RESERVOIR_WINDOW_VALUE);
+        String windowUnit = getPropertyValue(RESERVOIR_WINDOW_UNIT);
+        String uniformSize = getPropertyValue(RESERVOIR_UNIFORM_SIZE);
+        String significantDigits = getPropertyValue(RESERVOIR_HDR_SIGNIFICANT_DIGITS);
+
+        config.setType(type == null ? DEFAULT_RESERVOIR_TYPE : ReservoirType.valueOf(type));
+        config.setWindow(window == null ? DEFAULT_RESERVOIR_WINDOW : Integer.valueOf(window));
+        config.setWindowUnit(windowUnit == null ? DEFAULT_RESERVOIR_WINDOW_UNIT : TimeUnit.valueOf(windowUnit));
+        config.setUniformSize(uniformSize == null ? DEFAULT_RESERVOIR_UNIFORM_SIZE : Integer.valueOf(uniformSize));
+        config.setSignificantDigits(significantDigits == null ? DEFAULT_RESERVOIR_SIGNIFICANT_DIGITS : Integer.valueOf(significantDigits));
+
+        Map<String, ReservoirType> types = new HashMap<>();
+        Properties properties = settingsFacade.asProperties();
+        if (properties != null) {
+            for (String key : properties.stringPropertyNames()) {
+                String metricType = properties.getProperty(key);
+                if (key.startsWith(RESERVOIR_METRIC_TYPE_PREFIX) && isNotBlank(metricType)) {
+                    types.put(key.substring(RESERVOIR_METRIC_TYPE_PREFIX.length()), ReservoirType.valueOf(metricType.trim()));
+                }
+            }
+        }
+        config.setTypes(types);
+
+        return config;
+    }
+
     /**
      * Loads a MetricsConfig object from the settings indicated in the properties file.
      * @return the metrics configuration
@@ -59,6 +142,7 @@ public class MetricsConfigFacade {
         config.setMetricsEnabled(isMetricsEnabled());
         config.setConsoleReporterConfig(getConsoleReporterConfig());
         config.setGraphiteReporterConfig(getGraphiteReporterConfig());
+        config.setReservoirConfig(getReservoirConfig());
 
         return config;
     }
@@ -74,6 +158,9 @@ public class MetricsConfigFacade {
 
         setConsoleReporterProperties(properties, config.getConsoleReporterConfig());
         setGraphiteReporterProperties(properties, config.getGraphiteReporterConfig());
+        if (config.getReservoirConfig() != null) {
+            setReservoirProperties(properties, config.getReservoirConfig());
+        }
 
         settingsFacade.saveConfigProperties(CONFIG_FILE_NAME, properties);
     }
@@ -122,6 +209,23 @@ public class MetricsConfigFacade {
         properties.setProperty(GRAPHITE_REPORTER_REPORTING_FREQUENCY_UNIT, config.getFrequencyUnit().toString());
     }
 
+    private void setReservoirProperties(Properties properties, ReservoirConfig config) {
+        properties.setProperty(RESERVOIR_TYPE, config.getType().name());
+        properties.setProperty(RESERVOIR_WINDOW_VALUE, Integer.toString(config.getWindow()));
+        properties.setProperty(RESERVOIR_WINDOW_UNIT, config.getWindowUnit().toString());
+        properties.setProperty(RESERVOIR_UNIFORM_SIZE, Integer.toString(config.getUniformSize()));
+        properties.setProperty(RESERVOIR_HDR_SIGNIFICANT_DIGITS, Integer.toString(config.getSignificantDigits()));
+
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(RESERVOIR_METRIC_TYPE_PREFIX)) {
+                properties.remove(key);
+            }
+        }
+        for (Map.Entry<String, ReservoirType> type : config.getTypes().entrySet()) {
+            properties.setProperty(RESERVOIR_METRIC_TYPE_PREFIX + type.getKey(), type.getValue().name());
+        }
+    }
+
     private String getPropertyValue(final String propertyKey) {
         String propertyValue = settingsFacade.getProperty(propertyKey);
         return isNotBlank(propertyValue) ? propertyValue : null;
@@ -0,0 +1,111 @@
+package org.motechproject.metrics.config;
+
+import com.codahale.metrics.Reservoir;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the configuration of the reservoirs of histograms and timers.
+ */
+public class ReservoirConfig {
+    /**
+     * The type of reservoir of the metrics which have no type of their own.
+     */
+    private ReservoirType type;
+
+    /**
+     * The types of reservoirs of individual metrics, by metric name.
+     */
+    private Map<String, ReservoirType> types = new HashMap<>();
+
+    /**
+     * The window of the sliding time window and HDR reservoirs.
+     */
+    private int window;
+
+    /**
+     * The time unit associated with the window.
+     */
+    private TimeUnit windowUnit;
+
+    /**
+     * The number of values sampled by uniform reservoirs.
+     */
+    private int uniformSize;
+
+    /**
+     * The number of significant digits to which HDR reservoirs compute percentiles.
+     */
+    private int significantDigits;
+
+    /**
+     * Returns the type of reservoir of the metric with the given name, without its tags.
+     *
+     * @param metricName the name of the metric
+     * @return the type of its reservoir
+     */
+    public ReservoirType getType(String metricName) {
+        ReservoirType metricType = types.get(metricName);
+        return metricType == null ? type : metricType;
+    }
+
+    /**
+     * Creates the reservoir of a new histogram or timer.
+     *
+     * @param metricName the name of the metric, without its tags
+     * @return the reservoir
+     */
+    public Reservoir createReservoir(String metricName) {
+        return getType(metricName).createReservoir(this);
+    }
+
+    public ReservoirType getType() {
+        return type;
+    }
+
+    public void setType(ReservoirType type) {
+        this.type = type;
+    }
+
+    public Map<String, ReservoirType> getTypes() {
+        return types;
+    }
+
+    public void setTypes(Map<String, ReservoirType> types) {
+        this.types = types;
+    }
+
+    public int getWindow() {
+        return window;
+    }
+
+    public void setWindow(int window) {
+        this.window = window;
+    }
+
+    public TimeUnit getWindowUnit() {
+        return windowUnit;
+    }
+
+    public void setWindowUnit(TimeUnit windowUnit) {
+        this.windowUnit = windowUnit;
+    }
+
+    public int getUniformSize() {
+        return uniformSize;
+    }
+
+    public void setUniformSize(int uniformSize) {
+        this.uniformSize = uniformSize;
+    }
+
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    public void setSignificantDigits(int significantDigits) {
+        this.significantDigits = significantDigits;
+    }
+}
@@ -0,0 +1,63 @@
+package org.motechproject.metrics.config;
+
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.SlidingTimeWindowReservoir;
+import com.codahale.metrics.UniformReservoir;
+import org.motechproject.metrics.model.HdrReservoir;
+
+/**
+ * The types of reservoirs sampling the values of histograms and timers.
+ */
+public enum ReservoirType {
+    /**
+     * A sample of 1028 values biased towards the last 5 minutes. Cheap, but the sample under-represents rare slow
+     * values, so the tail percentiles are unreliable.
+     */
+    EXPONENTIALLY_DECAYING {
+        @Override
+        public Reservoir createReservoir(ReservoirConfig config) {
+            return new ExponentiallyDecayingReservoir();
+        }
+    },
+
+    /**
+     * All values of the configured window. Exact, but keeps every value, so only suited to rarely updated metrics.
+     */
+    SLIDING_TIME_WINDOW {
+        @Override
+        public Reservoir createReservoir(ReservoirConfig config) {
+            return new SlidingTimeWindowReservoir(config.getWindow(), config.getWindowUnit());
+        }
+    },
+
+    /**
+     * A uniform sample of the configured size, of all values recorded since the metric was created.
+     */
+    UNIFORM {
+        @Override
+        public Reservoir createReservoir(ReservoirConfig config) {
+            return new UniformReservoir(config.getUniformSize());
+        }
+    },
+
+    /**
+     * Counts of the values of the configured window in buckets of bounded relative width, see {@link HdrReservoir}.
+     * Records every value without locking or allocating, and computes the percentiles, including the tail ones,
+     * within the configured number of significant digits.
+     */
+    HDR {
+        @Override
+        public Reservoir createReservoir(ReservoirConfig config) {
+            return new HdrReservoir(config.getSignificantDigits(), config.getWindow(), config.getWindowUnit());
+        }
+    };
+
+    /**
+     * Creates a new reservoir of this type.
+     *
+     * @param config the reservoir configuration
+     * @return the reservoir
+     */
+    public abstract Reservoir createReservoir(ReservoirConfig config);
+}
@@ -0,0 +1,310 @@
+package org.motechproject.metrics.exposition;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metered;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Sampling;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.motechproject.metrics.api.Tags;
+import org.motechproject.metrics.config.MetricsConfigFacade;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the metrics of the registry in the OpenMetrics text format, directly to the given writer. Counters are
+ * written as counters, gauges (including ratio gauges) as gauges, histograms and timers as summaries with their
+ * quantiles, and meters as a counter of their events and a gauge of their rates per second. Timer durations are
+ * written in seconds. The tags of tagged metrics are written as labels, all tag sets of a metric name in one family.
+ * <p>
+ * Computing the snapshot of a histogram or timer sorts all values of its reservoir, so the snapshots are cached for
+ * the time configured by {@link MetricsConfigFacade#getOpenMetricsSnapshotCacheMillis()}, normally the scrape
+ * interval, and scrapes within that time reuse them.
+ */
+@Component
+public class OpenMetricsWriter {
+
+    public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    private static final String[] QUANTILES = {"0.5", "0.75", "0.95", "0.98", "0.99", "0.999"};
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final MetricRegistry metricRegistry;
+    private final MetricsConfigFacade metricsConfigFacade;
+
+    private final Map<String, CachedSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OpenMetricsWriter(MetricRegistry metricRegistry, MetricsConfigFacade metricsConfigFacade) {
+        this.metricRegistry = metricRegistry;
+        this.metricsConfigFacade = metricsConfigFacade;
+    }
+
+    /**
+     * Writes all metrics of the registry, followed by the end of the exposition.
+     *
+     * @param out the writer to write the metrics to
+     * @throws IOException if writing fails
+     */
+    public void write(Writer out) throws IOException {
+        long now = System.currentTimeMillis();
+        long expiry = now - metricsConfigFacade.getOpenMetricsSnapshotCacheMillis();
+
+        for (Map.Entry<String, List<Map.Entry<String, Metric>>> family : groupByFamily(metricRegistry.getMetrics()).entrySet()) {
+            String name = family.getKey();
+            List<Map.Entry<String, Metric>> series = family.getValue();
+            Class<? extends Metric> type = getType(series.get(0).getValue());
+
+            boolean typeWritten = false;
+            for (Map.Entry<String, Metric> entry : series) {
+                // all series of a family must be of the same type, series of another type are not exposed
+                if (getType(entry.getValue()) != type) {
+                    continue;
+                }
+                String labels = toLabels(Tags.fromRegisteredName(entry.getKey()));
+                typeWritten |= writeSeries(out, name, labels, entry.getKey(), entry.getValue(), !typeWritten, now, expiry);
+            }
+
+            if (Meter.class.equals(type)) {
+                writeType(out, name + "_rate", "gauge");
+                for (Map.Entry<String, Metric> entry : series) {
+                    if (entry.getValue() instanceof Meter) {
+                        writeRates(out, name + "_rate", toLabels(Tags.fromRegisteredName(entry.getKey())), (Meter) entry.getValue());
+                    }
+                }
+            }
+        }
+
+        evictExpiredSnapshots(expiry);
+        out.write("# EOF\n");
+        out.flush();
+    }
+
+    /**
+     * Groups the metrics by family, the sanitized name without the tags. Two registry names may be sanitized to the
+     * same family name, the series of both are then written in the same family.
+     */
+    private Map<String, List<Map.Entry<String, Metric>>> groupByFamily(Map<String, Metric> metrics) {
+        Map<String, List<Map.Entry<String, Metric>>> families = new TreeMap<>();
+
+        for (Map.Entry<String, Metric> entry : metrics.entrySet()) {
+            if (getType(entry.getValue()) == null) {
+                continue;
+            }
+            String family = sanitize(Tags.baseName(entry.getKey()));
+            List<Map.Entry<String, Metric>> series = families.get(family);
+            if (series == null) {
+                series = new ArrayList<>();
+                families.put(family, series);
+            }
+            series.add(entry);
+        }
+        return families;
+    }
+
+    private boolean writeSeries(Writer out, String name, String labels, String registeredName, Metric metric,
+                                boolean writeType, long now, long expiry) throws IOException {
+        if (metric instanceof Counter) {
+            writeCounter(out, name, labels, ((Counter) metric).getCount(), writeType);
+        } else if (metric instanceof Gauge) {
+            return writeGauge(out, name, labels, ((Gauge) metric).getValue(), writeType);
+        } else if (metric instanceof Timer) {
+            Timer timer = (Timer) metric;
+            writeSummary(out, name + "_seconds", labels, timer.getCount(), getSnapshot(registeredName, timer, now, expiry),
+                    NANOS_PER_SECOND, writeType);
+        } else if (metric instanceof Histogram) {
+            Histogram histogram = (Histogram) metric;
+            writeSummary(out, name, labels, histogram.getCount(), getSnapshot(registeredName, histogram, now, expiry), 1, writeType);
+        } else if (metric instanceof Meter) {
+            writeCounter(out, name, labels, ((Meter) metric).getCount(), writeType);
+        }
+        return true;
+    }
+
+    private void writeCounter(Writer out, String name, String labels, long count, boolean writeType) throws IOException {
+        if (writeType) {
+            writeType(out, name, "counter");
+        }
+        writeSample(out, name + "_total", labels, null, Long.toString(count));
+    }
+
+    private boolean writeGauge(Writer out, String name, String labels, Object value, boolean writeType) throws IOException {
+        String formatted;
+        if (value instanceof Number) {
+            formatted = format(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            formatted = (Boolean) value ? "1" : "0";
+        } else {
+            // gauges of other types have no numeric representation
+            return false;
+        }
+
+        if (writeType) {
+            writeType(out, name, "gauge");
+        }
+        writeSample(out, name, labels, null, formatted);
+        return true;
+    }
+
+    private void writeSummary(Writer out, String name, String labels, long count, Snapshot snapshot, double divisor,
+                              boolean writeType) throws IOException {
+        if (writeType) {
+            writeType(out, name, "summary");
+        }
+        for (String quantile : QUANTILES) {
+            writeSample(out, name, labels, "quantile=\"" + quantile + "\"",
+                    format(snapshot.getValue(Double.parseDouble(quantile)) / divisor));
+        }
+        writeSample(out, name + "_count", labels, null, Long.toString(count));
+    }
+
+    private void writeRates(Writer out, String name, String labels, Metered metered) throws IOException {
+        writeSample(out, name, labels, "window=\"1m\"", format(metered.getOneMinuteRate()));
+        writeSample(out, name, labels, "window=\"5m\"", format(metered.getFiveMinuteRate()));
+        writeSample(out, name, labels, "window=\"15m\"", format(metered.getFifteenMinuteRate()));
+        writeSample(out, name, labels, "window=\"mean\"", format(metered.getMeanRate()));
+    }
+
+    private void writeType(Writer out, String name, String type) throws IOException {
+        out.write("# TYPE ");
+        out.write(name);
+        out.write(' ');
+        out.write(type);
+        out.write('\n');
+    }
+
+    private void writeSample(Writer out, String name, String labels, String label, String value) throws IOException {
+        out.write(name);
+        if (!labels.isEmpty() || label != null) {
+            out.write('{');
+            out.write(labels);
+            if (label != null) {
+                if (!labels.isEmpty()) {
+                    out.write(',');
+                }
+                out.write(label);
+            }
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(value);
+        out.write('\n');
+    }
+
+    private static Class<? extends Metric> getType(Metric metric) {
+        if (metric instanceof Counter) {
+            return Counter.class;
+        } else if (metric instanceof Gauge) {
+            return Gauge.class;
+        } else if (metric instanceof Timer) {
+            return Timer.class;
+        } else if (metric instanceof Histogram) {
+            return Histogram.class;
+        } else if (metric instanceof Meter) {
+            return Meter.class;
+        }
+        return null;
+    }
+
+    /**
+     * Converts the tags of a metric to OpenMetrics labels.
+     */
+    static String toLabels(Tags tags) {
+        if (tags.isEmpty()) {
+            return "";
+        }
+
+        StringBuilder labels = new StringBuilder();
+        for (Map.Entry<String, String> tag : tags.asMap().entrySet()) {
+            if (labels.length() > 0) {
+                labels.append(',');
+            }
+            labels.append(sanitize(tag.getKey())).append("=\"");
+            String value = tag.getValue();
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' || c == '"') {
+                    labels.append('\\');
+                }
+                labels.append(c);
+            }
+            labels.append('"');
+        }
+        return labels.toString();
+    }
+
+    private Snapshot getSnapshot(String name, Sampling sampling, long now, long expiry) {
+        CachedSnapshot cached = snapshots.get(name);
+
+        // a metric removed and registered again under the same name must not reuse the old snapshot
+        if (cached == null || cached.sampling != sampling || cached.takenAt <= expiry) {
+            cached = new CachedSnapshot(sampling, sampling.getSnapshot(), now);
+            snapshots.put(name, cached);
+        }
+        return cached.snapshot;
+    }
+
+    private void evictExpiredSnapshots(long expiry) {
+        Iterator<CachedSnapshot> it = snapshots.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().takenAt <= expiry) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Replaces the characters which are not allowed in metric names, such as the dots of the registry names.
+     */
+    static String sanitize(String name) {
+        StringBuilder sanitized = new StringBuilder(name.length() + 1);
+
+        if (name.isEmpty() || Character.isDigit(name.charAt(0))) {
+            sanitized.append('_');
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean allowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == ':';
+            sanitized.append(allowed ? c : '_');
+        }
+        return sanitized.toString();
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * A snapshot and the time at which it was taken.
+     */
+    private static final class CachedSnapshot {
+        private final Sampling sampling;
+        private final Snapshot snapshot;
+        private final long takenAt;
+
+        CachedSnapshot(Sampling sampling, Snapshot snapshot, long takenAt) {
+            this.sampling = sampling;
+            this.snapshot = snapshot;
+            this.takenAt = takenAt;
+        }
+    }
+}
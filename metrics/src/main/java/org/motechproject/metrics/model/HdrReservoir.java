@@ -0,0 +1,299 @@
+package org.motechproject.metrics.model;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A reservoir counting the recorded values in buckets of bounded relative width, in the manner of HdrHistogram.
+ * Values below {@code 2^b}, where {@code b} is the smallest number of bits holding {@code 2 * 10^significantDigits},
+ * are counted exactly; above that every power of two is split into {@code 2^(b-1)} buckets of equal width, so any
+ * value is reported with a relative error below {@code 10^-significantDigits}. Recording a value increments the
+ * counter of its bucket, which neither locks nor allocates, and every value is counted, so the tail percentiles are
+ * as accurate as the median.
+ * <p>
+ * Only the values of the last window are kept: the values are counted in two intervals of half the window, the
+ * oldest of which is cleared when half a window has passed, so a snapshot holds the values of the last half to whole
+ * window. Each interval takes {@code 8 * (2^b + (63 - b) * 2^(b-1))} bytes, about 58 KB with 2 significant digits.
+ */
+public class HdrReservoir implements Reservoir {
+
+    private final int subBucketBits;
+    private final int subBucketCount;
+    private final int subBucketHalfCount;
+
+    private final Clock clock;
+    private final long intervalNanos;
+    private final AtomicLong nextRotation;
+    private final Interval[] intervals;
+    private volatile int current;
+
+    /**
+     * Creates a new reservoir.
+     *
+     * @param significantDigits the number of significant digits of the reported values, between 1 and 3
+     * @param window the window of the values reported by snapshots
+     * @param windowUnit the time unit of the window
+     */
+    public HdrReservoir(int significantDigits, long window, TimeUnit windowUnit) {
+        this(significantDigits, window, windowUnit, Clock.defaultClock());
+    }
+
+    /**
+     * Creates a new reservoir.
+     *
+     * @param significantDigits the number of significant digits of the reported values, between 1 and 3
+     * @param window the window of the values reported by snapshots
+     * @param windowUnit the time unit of the window
+     * @param clock the clock measuring the window
+     */
+    public HdrReservoir(int significantDigits, long window, TimeUnit windowUnit, Clock clock) {
+        if (significantDigits < 1 || significantDigits > 3) {
+            throw new IllegalArgumentException("The number of significant digits must be between 1 and 3");
+        }
+        if (window <= 0) {
+            throw new IllegalArgumentException("The window must be positive");
+        }
+
+        long largestExactValue = 2 * (long) Math.pow(10, significantDigits);
+        this.subBucketBits = 64 - Long.numberOfLeadingZeros(largestExactValue - 1);
+        this.subBucketCount = 1 << subBucketBits;
+        this.subBucketHalfCount = subBucketCount / 2;
+
+        this.clock = clock;
+        this.intervalNanos = Math.max(1, windowUnit.toNanos(window) / 2);
+        this.nextRotation = new AtomicLong(clock.getTick() + intervalNanos);
+
+        int bucketCount = subBucketCount + (63 - subBucketBits) * subBucketHalfCount;
+        this.intervals = new Interval[] {new Interval(bucketCount), new Interval(bucketCount)};
+    }
+
+    @Override
+    public int size() {
+        rotateIfNeeded();
+        long count = intervals[0].count.sum() + intervals[1].count.sum();
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void update(long value) {
+        rotateIfNeeded();
+        long recorded = value < 0 ? 0 : value;
+        intervals[current].record(recorded, indexOf(recorded));
+    }
+
+    @Override
+    public Snapshot getSnapshot() {
+        rotateIfNeeded();
+
+        Interval first = intervals[0];
+        Interval second = intervals[1];
+        long[] counts = new long[first.counts.length()];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = first.counts.get(i) + second.counts.get(i);
+            count += counts[i];
+        }
+
+        return new HdrSnapshot(counts, count, first.sum.sum() + second.sum.sum(),
+                Math.min(first.min.get(), second.min.get()), Math.max(first.max.get(), second.max.get()));
+    }
+
+    /**
+     * Clears the oldest interval once half a window has passed since the last rotation, and records the following
+     * values in it. If a whole window has passed, both intervals are cleared.
+     */
+    private void rotateIfNeeded() {
+        long now = clock.getTick();
+        long next = nextRotation.get();
+
+        if (now - next >= 0 && nextRotation.compareAndSet(next, now + intervalNanos)) {
+            int previous = current;
+            int fresh = 1 - previous;
+            intervals[fresh].reset();
+            if (now - next >= intervalNanos) {
+                intervals[previous].reset();
+            }
+            current = fresh;
+        }
+    }
+
+    int indexOf(long value) {
+        if (value < subBucketCount) {
+            return (int) value;
+        }
+        int exponent = 64 - Long.numberOfLeadingZeros(value) - subBucketBits;
+        return subBucketCount + (exponent - 1) * subBucketHalfCount + (int) (value >>> exponent) - subBucketHalfCount;
+    }
+
+    long lowestValueAt(int index) {
+        if (index < subBucketCount) {
+            return index;
+        }
+        int offset = index - subBucketCount;
+        int exponent = offset / subBucketHalfCount + 1;
+        return (long) (offset % subBucketHalfCount + subBucketHalfCount) << exponent;
+    }
+
+    long highestValueAt(int index) {
+        if (index < subBucketCount) {
+            return index;
+        }
+        int exponent = (index - subBucketCount) / subBucketHalfCount + 1;
+        return lowestValueAt(index) + (1L << exponent) - 1;
+    }
+
+    /**
+     * The values recorded within half a window.
+     */
+    private static final class Interval {
+        private final AtomicLongArray counts;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        Interval(int bucketCount) {
+            this.counts = new AtomicLongArray(bucketCount);
+        }
+
+        void record(long value, int index) {
+            counts.incrementAndGet(index);
+            count.increment();
+            sum.add(value);
+
+            long currentMin = min.get();
+            while (value < currentMin && !min.compareAndSet(currentMin, value)) {
+                currentMin = min.get();
+            }
+            long currentMax = max.get();
+            while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+                currentMax = max.get();
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+            count.reset();
+            sum.reset();
+            min.set(Long.MAX_VALUE);
+            max.set(Long.MIN_VALUE);
+        }
+    }
+
+    /**
+     * A snapshot of the bucket counts. The values of the snapshot are the highest values of the non-empty buckets,
+     * one per bucket, while its size is the number of recorded values.
+     */
+    private final class HdrSnapshot extends Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long min;
+        private final long max;
+
+        HdrSnapshot(long[] counts, long count, long sum, long min, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            if (count == 0) {
+                return 0.0;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.max(min, Math.min(max, highestValueAt(i)));
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public long[] getValues() {
+            int buckets = 0;
+            for (long bucketCount : counts) {
+                if (bucketCount > 0) {
+                    buckets++;
+                }
+            }
+
+            long[] values = new long[buckets];
+            int next = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    values[next++] = Math.max(min, Math.min(max, highestValueAt(i)));
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public long getMax() {
+            return count == 0 ? 0 : max;
+        }
+
+        @Override
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        @Override
+        public long getMin() {
+            return count == 0 ? 0 : min;
+        }
+
+        @Override
+        public double getStdDev() {
+            if (count <= 1) {
+                return 0;
+            }
+
+            double mean = getMean();
+            double variance = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    double diff = (lowestValueAt(i) + highestValueAt(i)) / 2.0 - mean;
+                    variance += counts[i] * diff * diff;
+                }
+            }
+            return Math.sqrt(variance / (count - 1));
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,8 @@
 package org.motechproject.metrics.model;
 
 /**
- * Implementation of a snapshot of a histogram.
+ * Implementation of a snapshot of a histogram. The accuracy of the percentiles depends on the reservoir of the
+ * histogram, see {@link org.motechproject.metrics.config.ReservoirType}.
  */
 public class SnapshotAdapter implements org.motechproject.metrics.api.Snapshot {
     private final com.codahale.metrics.Snapshot snapshot;
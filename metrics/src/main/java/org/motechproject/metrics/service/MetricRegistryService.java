@@ -4,6 +4,7 @@ import org.motechproject.metrics.api.Counter;
 import org.motechproject.metrics.api.Gauge;
 import org.motechproject.metrics.api.Histogram;
 import org.motechproject.metrics.api.Meter;
+import org.motechproject.metrics.api.Tags;
 import org.motechproject.metrics.api.Timer;
 
 import java.util.function.Supplier;
@@ -52,6 +53,54 @@ public interface MetricRegistryService {
      */
     Timer timer(final String name);
 
+    /**
+     * Get the counter associated with the given name and tags. The returned counter is meant to be kept and reused,
+     * see {@link Tags}.
+     *
+     * @param name the name of the counter
+     * @param tags the tags of the counter
+     * @return the counter associated with the given name and tags
+     */
+    Counter counter(final String name, final Tags tags);
+
+    /**
+     * Get the histogram associated with the given name and tags.
+     *
+     * @param name the name of the histogram
+     * @param tags the tags of the histogram
+     * @return the histogram associated with the given name and tags
+     */
+    Histogram histogram(final String name, final Tags tags);
+
+    /**
+     * Get the meter associated with the given name and tags.
+     *
+     * @param name the name of the meter
+     * @param tags the tags of the meter
+     * @return the meter associated with the given name and tags
+     */
+    Meter meter(final String name, final Tags tags);
+
+    /**
+     * Get the timer associated with the given name and tags.
+     *
+     * @param name the name of the timer
+     * @param tags the tags of the timer
+     * @return the timer associated with the given name and tags
+     */
+    Timer timer(final String name, final Tags tags);
+
+    /**
+     * Sets the maximum number of distinct tag sets of the metrics of each type with the given name. Once the limit is
+     * reached, metrics requested with new tags are recorded in a single overflow metric of their type, tagged
+     * {@code overflow=true} and with the {@code type} of the metric, such as {@code type=counter}. Metrics without an
+     * explicit limit use the default limit of the module configuration.
+     *
+     * @param name the name of the metrics
+     * @param limit the maximum number of tag sets
+     */
+    void setTagCardinalityLimit(final String name, int limit);
+
     /**
      * Register an implementation of the gauge interface.
      *
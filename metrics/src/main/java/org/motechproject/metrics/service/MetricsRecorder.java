@@ -0,0 +1,68 @@
+package org.motechproject.metrics.service;
+
+import org.motechproject.metrics.api.Tags;
+
+/**
+ * Records counter increments and meter marks with as little overhead as possible, for code paths where going through
+ * the event bus, or even looking up the metric in the registry, costs too much. Recorded values are aggregated in
+ * memory and applied to the counters and meters of the {@link MetricRegistryService} in batches, shortly after being
+ * recorded or when {@link #flush()} is called, so they become visible in the registry with a small delay.
+ */
+public interface MetricsRecorder {
+
+    /**
+     * Increments the counter with the given name.
+     *
+     * @param name the name of the counter
+     * @param n the value to increment by
+     */
+    void increment(String name, long n);
+
+    /**
+     * Increments the counter with the given name and tags.
+     *
+     * @param name the name of the counter
+     * @param tags the tags of the counter
+     * @param n the value to increment by
+     */
+    void increment(String name, Tags tags, long n);
+
+    /**
+     * Decrements the counter with the given name.
+     *
+     * @param name the name of the counter
+     * @param n the value to decrement by
+     */
+    void decrement(String name, long n);
+
+    /**
+     * Decrements the counter with the given name and tags.
+     *
+     * @param name the name of the counter
+     * @param tags the tags of the counter
+     * @param n the value to decrement by
+     */
+    void decrement(String name, Tags tags, long n);
+
+    /**
+     * Marks the occurrence of events in the meter with the given name.
+     *
+     * @param name the name of the meter
+     * @param n the number of events
+     */
+    void mark(String name, long n);
+
+    /**
+     * Marks the occurrence of events in the meter with the given name and tags.
+     *
+     * @param name the name of the meter
+     * @param tags the tags of the meter
+     * @param n the number of events
+     */
+    void mark(String name, Tags tags, long n);
+
+    /**
+     * Applies the values recorded so far to the metric registry.
+     */
+    void flush();
+}
@@ -2,11 +2,13 @@ package org.motechproject.metrics.service.impl;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Reservoir;
 import org.motechproject.metrics.api.Counter;
 import org.motechproject.metrics.api.Gauge;
 import org.motechproject.metrics.api.Histogram;
 import org.motechproject.metrics.api.Meter;
 import org.motechproject.metrics.api.Metric;
+import org.motechproject.metrics.api.Tags;
 import org.motechproject.metrics.api.Timer;
 import org.motechproject.metrics.config.MetricsConfigFacade;
 import org.motechproject.metrics.exception.MetricAlreadyExistsException;
@@ -22,11 +24,14 @@ import org.springframework.stereotype.Service;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Supplier;
 
 /**
  * Represents a registry that creates and/or retrieves a variety of metric types and allows registered metrics to be
- * enabled or disabled.
+ * enabled or disabled. Metrics with tags are kept per name, type and tags, so retrieving a metric with tags which
+ * were created once does not allocate; the number of tag sets per name and type is limited, see
+ * {@link #setTagCardinalityLimit(String, int)}.
  */
 @Service("metricRegistryService")
 public class MetricRegistryServiceImpl implements MetricRegistryService {
@@ -35,8 +40,17 @@ public class MetricRegistryServiceImpl implements MetricRegistryService {
 
     private static final String EXCEPTION_TEMPLATE = "A metric with name: %s already exists.";
 
+    private static final String OVERFLOW_TAG = "overflow";
+    private static final String TYPE_TAG = "type";
+
     private Map<String, Metric> metrics;
 
+    /**
+     * The families of tagged metrics, by the type and name of their metrics.
+     */
+    private final ConcurrentMap<String, TaggedMetrics> taggedMetrics = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Integer> tagCardinalityLimits = new ConcurrentHashMap<>();
+
     @Autowired
     public MetricRegistryServiceImpl(MetricRegistry metricRegistry, MetricsConfigFacade metricsConfigFacade) {
         this.metricRegistry = metricRegistry;
@@ -102,6 +116,65 @@ public class MetricRegistryServiceImpl implements MetricRegistryService {
         return getOrAdd(name, MetricBuilder.TIMERS);
     }
 
+    /**
+     * Get the counter associated with the given name and tags.
+     *
+     * @param name the name of the counter
+     * @param tags the tags of the counter
+     * @return the counter associated with the given name and tags
+     */
+    @Override
+    public Counter counter(final String name, final Tags tags) {
+        return getOrAdd(name, tags, MetricBuilder.COUNTERS);
+    }
+
+    /**
+     * Get the histogram associated with the given name and tags.
+     *
+     * @param name the name of the histogram
+     * @param tags the tags of the histogram
+     * @return the histogram associated with the given name and tags
+     */
+    @Override
+    public Histogram histogram(final String name, final Tags tags) {
+        return getOrAdd(name, tags, MetricBuilder.HISTOGRAMS);
+    }
+
+    /**
+     * Get the meter associated with the given name and tags.
+     *
+     * @param name the name of the meter
+     * @param tags the tags of the meter
+     * @return the meter associated with the given name and tags
+     */
+    @Override
+    public Meter meter(final String name, final Tags tags) {
+        return getOrAdd(name, tags, MetricBuilder.METERS);
+    }
+
+    /**
+     * Get the timer associated with the given name and tags.
+     *
+     * @param name the name of the timer
+     * @param tags the tags of the timer
+     * @return the timer associated with the given name and tags
+     */
+    @Override
+    public Timer timer(final String name, final Tags tags) {
+        return getOrAdd(name, tags, MetricBuilder.TIMERS);
+    }
+
+    /**
+     * Sets the maximum number of distinct tag sets of the metrics with the given name.
+     *
+     * @param name the name of the metrics
+     * @param limit the maximum number of tag sets
+     */
+    @Override
+    public void setTagCardinalityLimit(final String name, int limit) {
+        tagCardinalityLimits.put(name, limit);
+    }
+
     /**
      * Register an implementation of the gauge interface.
      *
@@ -181,6 +254,99 @@ public class MetricRegistryServiceImpl implements MetricRegistryService {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private <T extends Metric> T getOrAdd(String name, Tags tags, MetricBuilder<T> builder) {
+        if (tags.isEmpty()) {
+            return getOrAdd(name, builder);
+        }
+
+        String familyKey = builder.getTypeName() + Tags.TAG_SEPARATOR + name;
+        TaggedMetrics family = taggedMetrics.get(familyKey);
+        if (family == null) {
+            family = new TaggedMetrics(Tags.of(OVERFLOW_TAG, "true", TYPE_TAG, builder.getTypeName()).toRegisteredName(name));
+            TaggedMetrics existing = taggedMetrics.putIfAbsent(familyKey, family);
+            if (existing != null) {
+                family = existing;
+            }
+        }
+
+        Metric metric = family.metrics.get(tags);
+        if (metric == null) {
+            // once the family is full, the tag sets it does not know all go to the overflow metric without locking
+            metric = family.overflow;
+            if (metric == null || family.metrics.size() < getTagCardinalityLimit(name)) {
+                metric = addTagged(name, tags, family, builder);
+            }
+        }
+        return (T) metric;
+    }
+
+    private <T extends Metric> Metric addTagged(String name, Tags tags, TaggedMetrics family, MetricBuilder<T> builder) {
+        synchronized (family) {
+            Metric metric = family.metrics.get(tags);
+
+            if (metric == null) {
+                if (family.metrics.size() < getTagCardinalityLimit(name)) {
+                    metric = getOrAdd(tags.toRegisteredName(name), builder);
+                    family.metrics.put(tags, metric);
+                } else {
+                    // the new tags are not kept, so the number of metrics stays bounded
+                    if (family.overflow == null) {
+                        family.overflow = getOrAdd(family.overflowName, builder);
+                    }
+                    metric = family.overflow;
+                }
+            }
+            return metric;
+        }
+    }
+
+    private int getTagCardinalityLimit(String name) {
+        Integer limit = tagCardinalityLimits.get(name);
+        return limit == null ? metricsConfigFacade.getDefaultTagCardinalityLimit() : limit;
+    }
+
+    /**
+     * Returns the metric registered under the given name, registering the supplied metric if there is none. Unlike the
+     * getters of the registry, this allows the histograms and timers to be created with the configured reservoir.
+     *
+     * @throws IllegalArgumentException if the name is associated with a different type of metric
+     */
+    private static <M extends com.codahale.metrics.Metric> M getOrRegister(String name, MetricRegistry registry, Class<M> type,
+                                                                           Supplier<M> supplier) {
+        com.codahale.metrics.Metric metric = registry.getMetrics().get(name);
+
+        if (metric == null) {
+            try {
+                return registry.register(name, supplier.get());
+            } catch (IllegalArgumentException ex) {
+                // registered concurrently
+                metric = registry.getMetrics().get(name);
+            }
+        }
+        if (type.isInstance(metric)) {
+            return type.cast(metric);
+        }
+        throw new IllegalArgumentException(name + " is already used for a different type of metric");
+    }
+
+    private static Reservoir createReservoir(String name, MetricsConfigFacade config) {
+        return config.getReservoirConfig().createReservoir(Tags.baseName(name));
+    }
+
+    /**
+     * The metrics of one type sharing a name, by their tags, and the metric counting the tag sets over the limit.
+     */
+    private static final class TaggedMetrics {
+        private final ConcurrentMap<Tags, Metric> metrics = new ConcurrentHashMap<>();
+        private final String overflowName;
+        private volatile Metric overflow;
+
+        TaggedMetrics(String overflowName) {
+            this.overflowName = overflowName;
+        }
+    }
+
     /**
      * Encapsulates the default method by which counters, histograms, meters, and timers are created and wrapped in the
      * appropriate adapter.
@@ -199,12 +365,23 @@ public class MetricRegistryServiceImpl implements MetricRegistryService {
             public boolean isInstance(Metric metric) {
                 return Counter.class.isInstance(metric);
             }
+
+            @Override
+            public String getTypeName() {
+                return "counter";
+            }
         };
 
         MetricBuilder<Histogram> HISTOGRAMS = new MetricBuilder<Histogram>() {
             @Override
-            public Histogram createMetric(String name, MetricRegistry registry, MetricsConfigFacade config) throws IllegalArgumentException {
-                com.codahale.metrics.Histogram histogram = registry.histogram(name);
+            public Histogram createMetric(final String name, MetricRegistry registry, final MetricsConfigFacade config) throws IllegalArgumentException {
+                com.codahale.metrics.Histogram histogram = getOrRegister(name, registry, com.codahale.metrics.Histogram.class,
+                        new Supplier<com.codahale.metrics.Histogram>() {
+                            @Override
+                            public com.codahale.metrics.Histogram get() {
+                                return new com.codahale.metrics.Histogram(createReservoir(name, config));
+                            }
+                        });
                 return new HistogramAdapter(histogram, config.isMetricsEnabled());
             }
 
@@ -212,6 +389,11 @@ public class MetricRegistryServiceImpl implements MetricRegistryService {
             public boolean isInstance(Metric metric) {
                 return Histogram.class.isInstance(metric);
             }
+
+            @Override
+            public String getTypeName() {
+                return "histogram";
+            }
         };
 
         MetricBuilder<Meter> METERS = new MetricBuilder<Meter>() {
@@ -225,12 +407,23 @@ public class MetricRegistryServiceImpl implements MetricRegistryService {
             public boolean isInstance(Metric metric) {
                 return Meter.class.isInstance(metric);
             }
+
+            @Override
+            public String getTypeName() {
+                return "meter";
+            }
         };
 
         MetricBuilder<Timer> TIMERS = new MetricBuilder<Timer>() {
             @Override
-            public Timer createMetric(String name, MetricRegistry registry, MetricsConfigFacade config) throws IllegalArgumentException {
-                com.codahale.metrics.Timer timer = registry.timer(name);
+            public Timer createMetric(final String name, MetricRegistry registry, final MetricsConfigFacade config) throws IllegalArgumentException {
+                com.codahale.metrics.Timer timer = getOrRegister(name, registry, com.codahale.metrics.Timer.class,
+                        new Supplier<com.codahale.metrics.Timer>() {
+                            @Override
+                            public com.codahale.metrics.Timer get() {
+                                return new com.codahale.metrics.Timer(createReservoir(name, config));
+                            }
+                        });
                 return new TimerAdapter(timer, config.isMetricsEnabled());
             }
 
@@ -238,6 +431,11 @@ public class MetricRegistryServiceImpl implements MetricRegistryService {
             public boolean isInstance(Metric metric) {
                 return Timer.class.isInstance(metric);
             }
+
+            @Override
+            public String getTypeName() {
+                return "timer";
+            }
         };
 
         /**
@@ -259,5 +457,12 @@ public class MetricRegistryServiceImpl implements MetricRegistryService {
          * @return true if the type of metric is the same type that the builder makes, false otherwise.
          */
         boolean isInstance(Metric metric);
+
+        /**
+         * Returns the name of the type of metric the builder makes, which tells the overflow metrics of the types apart.
+         *
+         * @return the name of the type of metric
+         */
+        String getTypeName();
     }
 }
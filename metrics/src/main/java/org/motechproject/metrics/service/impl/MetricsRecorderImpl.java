@@ -0,0 +1,164 @@
+package org.motechproject.metrics.service.impl;
+
+import org.motechproject.metrics.api.Tags;
+import org.motechproject.metrics.service.MetricRegistryService;
+import org.motechproject.metrics.service.MetricsRecorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Implementation of {@link MetricsRecorder}. Every counter and meter has a striped {@link LongAdder} accumulating its
+ * total, looked up by name and tags without allocating, so concurrent recording threads neither contend nor create
+ * garbage. A background thread applies the deltas to the registry every {@link #FLUSH_INTERVAL_MILLIS} milliseconds.
+ * The adders are never reset, since resetting one loses the values added while its cells are summed; the delta
+ * applied by a flush is the total less the total applied by the previous flushes.
+ */
+@Service("metricsRecorder")
+public class MetricsRecorderImpl implements MetricsRecorder {
+    private final MetricRegistryService metricRegistryService;
+
+    static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final ConcurrentMap<String, ConcurrentMap<Tags, Total>> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<Tags, Total>> meters = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    public MetricsRecorderImpl(MetricRegistryService metricRegistryService) {
+        this.metricRegistryService = metricRegistryService;
+    }
+
+    @Override
+    public void increment(String name, long n) {
+        getAdder(counters, name, Tags.EMPTY).add(n);
+    }
+
+    @Override
+    public void increment(String name, Tags tags, long n) {
+        getAdder(counters, name, tags).add(n);
+    }
+
+    @Override
+    public void decrement(String name, long n) {
+        getAdder(counters, name, Tags.EMPTY).add(-n);
+    }
+
+    @Override
+    public void decrement(String name, Tags tags, long n) {
+        getAdder(counters, name, tags).add(-n);
+    }
+
+    @Override
+    public void mark(String name, long n) {
+        getAdder(meters, name, Tags.EMPTY).add(n);
+    }
+
+    @Override
+    public void mark(String name, Tags tags, long n) {
+        getAdder(meters, name, tags).add(n);
+    }
+
+    /**
+     * Applies the deltas recorded since the last flush. Deltas recorded while flushing are applied by the next flush.
+     */
+    @Override
+    public synchronized void flush() {
+        for (Map.Entry<String, ConcurrentMap<Tags, Total>> byName : counters.entrySet()) {
+            for (Map.Entry<Tags, Total> byTags : byName.getValue().entrySet()) {
+                long delta = byTags.getValue().takeDelta();
+                if (delta > 0) {
+                    metricRegistryService.counter(byName.getKey(), byTags.getKey()).inc(delta);
+                } else if (delta < 0) {
+                    metricRegistryService.counter(byName.getKey(), byTags.getKey()).dec(-delta);
+                }
+            }
+        }
+
+        for (Map.Entry<String, ConcurrentMap<Tags, Total>> byName : meters.entrySet()) {
+            for (Map.Entry<Tags, Total> byTags : byName.getValue().entrySet()) {
+                long delta = byTags.getValue().takeDelta();
+                if (delta != 0) {
+                    metricRegistryService.meter(byName.getKey(), byTags.getKey()).mark(delta);
+                }
+            }
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "metrics-recorder-flush");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        flush();
+    }
+
+    private LongAdder getAdder(ConcurrentMap<String, ConcurrentMap<Tags, Total>> totals, String name, Tags tags) {
+        ConcurrentMap<Tags, Total> byTags = totals.get(name);
+        if (byTags == null) {
+            byTags = new ConcurrentHashMap<>();
+            ConcurrentMap<Tags, Total> existing = totals.putIfAbsent(name, byTags);
+            if (existing != null) {
+                byTags = existing;
+            }
+        }
+
+        Total total = byTags.get(tags);
+        if (total == null) {
+            total = new Total();
+            Total existing = byTags.putIfAbsent(tags, total);
+            if (existing != null) {
+                total = existing;
+            }
+        }
+        return total.adder;
+    }
+
+    /**
+     * The total recorded for a metric, and the part of it which was already applied to the registry.
+     */
+    private static final class Total {
+        private final LongAdder adder = new LongAdder();
+        private long flushed;
+
+        /**
+         * Returns the part of the total which was not applied yet and marks it as applied. Only called by the
+         * synchronized {@link MetricsRecorderImpl#flush()}.
+         */
+        long takeDelta() {
+            long sum = adder.sum();
+            long delta = sum - flushed;
+            flushed = sum;
+            return delta;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.motechproject.metrics.web;
+
+import org.motechproject.metrics.exposition.OpenMetricsWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static org.motechproject.metrics.security.Roles.HAS_VIEW_METRICS_ROLE;
+
+/**
+ * Exposes the registered metrics to pull-based monitoring systems, such as Prometheus, in the OpenMetrics text
+ * format. The endpoint falls under the REST API of the module, so scrapers authenticate with basic authentication.
+ */
+@Controller
+public class OpenMetricsController {
+    private OpenMetricsWriter openMetricsWriter;
+
+    /**
+     * Writes the current values of all registered metrics to the response.
+     *
+     * @param response the response to write the metrics to
+     * @throws IOException if writing the response fails
+     */
+    @RequestMapping(value = "/openmetrics", method = RequestMethod.GET)
+    @PreAuthorize(HAS_VIEW_METRICS_ROLE)
+    public void scrape(HttpServletResponse response) throws IOException {
+        response.setContentType(OpenMetricsWriter.CONTENT_TYPE);
+        openMetricsWriter.write(response.getWriter());
+    }
+
+    @Autowired
+    public void setOpenMetricsWriter(OpenMetricsWriter openMetricsWriter) {
+        this.openMetricsWriter = openMetricsWriter;
+    }
+}
@@ -0,0 +1,38 @@
+package org.motechproject.metrics.api;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TagsTest {
+
+    @Test
+    public void shouldSortTagsByKey() {
+        Tags tags = Tags.of("provider", "ona", "config", "odk");
+
+        assertEquals(Tags.of("config", "odk", "provider", "ona"), tags);
+        assertEquals(Tags.of("config", "odk", "provider", "ona").hashCode(), tags.hashCode());
+        assertEquals("requests;config=odk;provider=ona", tags.toRegisteredName("requests"));
+    }
+
+    @Test
+    public void shouldParseRegisteredName() {
+        Tags tags = Tags.of("config", "odk").and("form", "registration");
+        String registeredName = tags.toRegisteredName("requests");
+
+        assertEquals(tags, Tags.fromRegisteredName(registeredName));
+        assertEquals("requests", Tags.baseName(registeredName));
+        assertTrue(Tags.fromRegisteredName("requests").isEmpty());
+    }
+
+    @Test
+    public void shouldReplaceSeparators() {
+        assertEquals("requests;config=a_b_c", Tags.of("config", "a;b=c").toRegisteredName("requests"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectKeyWithoutValue() {
+        Tags.of("config");
+    }
+}
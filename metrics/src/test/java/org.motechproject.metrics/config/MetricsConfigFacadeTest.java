@@ -32,6 +32,8 @@ import static org.motechproject.metrics.config.MetricsConfigFacade.GRAPHITE_REPO
 import static org.motechproject.metrics.config.MetricsConfigFacade.GRAPHITE_REPORTER_REPORTING_FREQUENCY_UNIT;
 import static org.motechproject.metrics.config.MetricsConfigFacade.GRAPHITE_REPORTER_REPORTING_FREQUENCY_VALUE;
 import static org.motechproject.metrics.config.MetricsConfigFacade.METRICS_ENABLED;
+import static org.motechproject.metrics.config.MetricsConfigFacade.RESERVOIR_HDR_SIGNIFICANT_DIGITS;
+import static org.motechproject.metrics.config.MetricsConfigFacade.RESERVOIR_TYPE;
 
 @RunWith(MockitoJUnitRunner.class)
 public class MetricsConfigFacadeTest {
@@ -134,4 +136,22 @@ public class MetricsConfigFacadeTest {
         assertEquals(properties.getProperty(GRAPHITE_REPORTER_CONVERT_DURATIONS_UNIT), "SECONDS");
     }
 
+    @Test
+    public void shouldGetReservoirConfigWithMetricTypes() {
+        Properties properties = new Properties();
+        properties.setProperty(RESERVOIR_TYPE, "UNIFORM");
+        properties.setProperty("reservoir.type.sms.send", "HDR");
+        when(settingsFacade.asProperties()).thenReturn(properties);
+        when(settingsFacade.getProperty(RESERVOIR_TYPE)).thenReturn("UNIFORM");
+        when(settingsFacade.getProperty(RESERVOIR_HDR_SIGNIFICANT_DIGITS)).thenReturn("3");
+
+        ReservoirConfig config = metricsConfigFacade.getReservoirConfig();
+
+        assertEquals(ReservoirType.HDR, config.getType("sms.send"));
+        assertEquals(ReservoirType.UNIFORM, config.getType("odk.forms"));
+        assertEquals(3, config.getSignificantDigits());
+        assertEquals(1028, config.getUniformSize());
+        assertEquals(1, config.getWindow());
+        assertEquals(TimeUnit.MINUTES, config.getWindowUnit());
+    }
 }
@@ -0,0 +1,118 @@
+package org.motechproject.metrics.exposition;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.metrics.api.Tags;
+import org.motechproject.metrics.config.MetricsConfigFacade;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OpenMetricsWriterTest {
+    @Mock
+    private MetricsConfigFacade metricsConfigFacade;
+
+    private MetricRegistry metricRegistry;
+
+    private OpenMetricsWriter writer;
+
+    @Before
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        writer = new OpenMetricsWriter(metricRegistry, metricsConfigFacade);
+        when(metricsConfigFacade.getOpenMetricsSnapshotCacheMillis()).thenReturn(60000L);
+    }
+
+    @Test
+    public void shouldWriteMetricsInOpenMetricsFormat() throws Exception {
+        metricRegistry.counter("org.foo.counter").inc(3);
+        metricRegistry.meter("org.foo.meter").mark(2);
+        metricRegistry.timer("org.foo.timer").update(2, TimeUnit.SECONDS);
+        metricRegistry.histogram("org.foo.histogram").update(7);
+        metricRegistry.register("org.foo.ratio", new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(1, 4);
+            }
+        });
+
+        String output = write();
+
+        assertTrue(output.contains("# TYPE org_foo_counter counter\norg_foo_counter_total 3\n"));
+        assertTrue(output.contains("# TYPE org_foo_meter counter\norg_foo_meter_total 2\n"));
+        assertTrue(output.contains("# TYPE org_foo_meter_rate gauge\n"));
+        assertTrue(output.contains("# TYPE org_foo_timer_seconds summary\n"));
+        assertTrue(output.contains("org_foo_timer_seconds{quantile=\"0.99\"} 2.0\n"));
+        assertTrue(output.contains("org_foo_timer_seconds_count 1\n"));
+        assertTrue(output.contains("org_foo_histogram{quantile=\"0.5\"} 7.0\n"));
+        assertTrue(output.contains("# TYPE org_foo_ratio gauge\norg_foo_ratio 0.25\n"));
+        assertTrue(output.endsWith("# EOF\n"));
+    }
+
+    @Test
+    public void shouldReuseSnapshotsWithinCacheTime() throws Exception {
+        Histogram histogram = mock(Histogram.class);
+        Snapshot snapshot = mock(Snapshot.class);
+        when(histogram.getSnapshot()).thenReturn(snapshot);
+        metricRegistry.register("histogram", histogram);
+
+        write();
+        write();
+
+        verify(histogram, times(1)).getSnapshot();
+    }
+
+    @Test
+    public void shouldRecomputeSnapshotsWhenCachingIsDisabled() throws Exception {
+        when(metricsConfigFacade.getOpenMetricsSnapshotCacheMillis()).thenReturn(0L);
+        Timer timer = mock(Timer.class);
+        Snapshot snapshot = mock(Snapshot.class);
+        when(timer.getSnapshot()).thenReturn(snapshot);
+        metricRegistry.register("timer", timer);
+
+        write();
+        write();
+
+        verify(timer, times(2)).getSnapshot();
+    }
+
+    @Test
+    public void shouldWriteTagsAsLabels() throws Exception {
+        metricRegistry.counter(Tags.of("config", "odk").toRegisteredName("org.foo.requests")).inc();
+        metricRegistry.counter(Tags.of("config", "ona").toRegisteredName("org.foo.requests")).inc(2);
+
+        String output = write();
+
+        assertTrue(output.startsWith("# TYPE org_foo_requests counter\n"
+                + "org_foo_requests_total{config=\"odk\"} 1\n"
+                + "org_foo_requests_total{config=\"ona\"} 2\n"));
+    }
+
+    @Test
+    public void shouldSanitizeNames() {
+        assertEquals("org_foo_bar_baz", OpenMetricsWriter.sanitize("org.foo.bar-baz"));
+        assertEquals("_1st", OpenMetricsWriter.sanitize("1st"));
+    }
+
+    private String write() throws Exception {
+        StringWriter out = new StringWriter();
+        writer.write(out);
+        return out.toString();
+    }
+}
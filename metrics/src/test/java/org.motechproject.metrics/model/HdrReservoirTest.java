@@ -0,0 +1,81 @@
+package org.motechproject.metrics.model;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Snapshot;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HdrReservoirTest {
+    private long tick;
+
+    private HdrReservoir reservoir;
+
+    @Before
+    public void setUp() {
+        Clock clock = new Clock() {
+            @Override
+            public long getTick() {
+                return tick;
+            }
+        };
+        reservoir = new HdrReservoir(2, 1, TimeUnit.MINUTES, clock);
+    }
+
+    @Test
+    public void shouldMapValuesToBucketsOfBoundedWidth() {
+        for (long value : new long[] {0, 1, 255, 256, 257, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = reservoir.indexOf(value);
+            long lowest = reservoir.lowestValueAt(index);
+            long highest = reservoir.highestValueAt(index);
+
+            assertTrue(lowest <= value && value <= highest);
+            assertTrue((highest - lowest) <= lowest / 100);
+        }
+    }
+
+    @Test
+    public void shouldComputeTailPercentiles() {
+        for (int i = 1; i <= 100000; i++) {
+            reservoir.update(TimeUnit.MICROSECONDS.toNanos(i));
+        }
+
+        Snapshot snapshot = reservoir.getSnapshot();
+
+        assertEquals(100000, snapshot.size());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(1), snapshot.getMin());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(100000), snapshot.getMax());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(50000), snapshot.getMedian(), 0.01 * TimeUnit.MICROSECONDS.toNanos(50000));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(99000), snapshot.get99thPercentile(), 0.01 * TimeUnit.MICROSECONDS.toNanos(99000));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(99900), snapshot.get999thPercentile(), 0.01 * TimeUnit.MICROSECONDS.toNanos(99900));
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(50000), snapshot.getMean(), TimeUnit.MICROSECONDS.toNanos(1));
+    }
+
+    @Test
+    public void shouldKeepOnlyTheValuesOfTheWindow() {
+        reservoir.update(1000);
+
+        tick += TimeUnit.SECONDS.toNanos(30);
+        reservoir.update(2000);
+        assertEquals(2, reservoir.getSnapshot().size());
+
+        tick += TimeUnit.SECONDS.toNanos(30);
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(2000, snapshot.getMin());
+
+        tick += TimeUnit.MINUTES.toNanos(5);
+        assertEquals(0, reservoir.getSnapshot().size());
+    }
+
+    @Test
+    public void shouldRecordNegativeValuesAsZero() {
+        reservoir.update(-5);
+
+        assertEquals(0, reservoir.getSnapshot().getMin());
+    }
+}
@@ -0,0 +1,122 @@
+package org.motechproject.metrics.service.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.metrics.api.Counter;
+import org.motechproject.metrics.api.Tags;
+import org.motechproject.metrics.api.Timer;
+import org.motechproject.metrics.config.MetricsConfigFacade;
+import org.motechproject.metrics.config.ReservoirConfig;
+import org.motechproject.metrics.config.ReservoirType;
+import org.motechproject.metrics.exception.MetricAlreadyExistsException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MetricRegistryServiceImplTest {
+    private static final String NAME = "sms.sent";
+    private static final String COUNTER_OVERFLOW = NAME + ";overflow=true;type=counter";
+    private static final String TIMER_OVERFLOW = NAME + ";overflow=true;type=timer";
+
+    @Mock
+    private MetricsConfigFacade metricsConfigFacade;
+
+    private MetricRegistryServiceImpl metricRegistryService;
+
+    @Before
+    public void setUp() {
+        ReservoirConfig reservoirConfig = new ReservoirConfig();
+        reservoirConfig.setType(ReservoirType.EXPONENTIALLY_DECAYING);
+
+        when(metricsConfigFacade.isMetricsEnabled()).thenReturn(true);
+        when(metricsConfigFacade.getDefaultTagCardinalityLimit()).thenReturn(3);
+        when(metricsConfigFacade.getReservoirConfig()).thenReturn(reservoirConfig);
+        metricRegistryService = new MetricRegistryServiceImpl(new MetricRegistry(), metricsConfigFacade);
+    }
+
+    @Test
+    public void shouldReturnTheSameMetricForTheSameTags() {
+        Counter counter = metricRegistryService.counter(NAME, Tags.of("config", "odk"));
+
+        assertSame(counter, metricRegistryService.counter(NAME, Tags.of("config", "odk")));
+        assertNotSame(counter, metricRegistryService.counter(NAME, Tags.of("config", "ona")));
+        assertTrue(metricRegistryService.isRegistered(NAME + ";config=odk"));
+        assertTrue(metricRegistryService.isRegistered(NAME + ";config=ona"));
+    }
+
+    @Test
+    public void shouldRecordTheTagSetsOverTheLimitInTheOverflowMetric() {
+        metricRegistryService.setTagCardinalityLimit(NAME, 2);
+
+        Counter first = metricRegistryService.counter(NAME, Tags.of("config", "first"));
+        Counter second = metricRegistryService.counter(NAME, Tags.of("config", "second"));
+        Counter third = metricRegistryService.counter(NAME, Tags.of("config", "third"));
+        Counter fourth = metricRegistryService.counter(NAME, Tags.of("config", "fourth"));
+
+        assertNotSame(first, second);
+        assertSame(third, fourth);
+        assertSame(first, metricRegistryService.counter(NAME, Tags.of("config", "first")));
+        assertTrue(metricRegistryService.isRegistered(COUNTER_OVERFLOW));
+        assertFalse(metricRegistryService.isRegistered(NAME + ";config=third"));
+        assertFalse(metricRegistryService.isRegistered(NAME + ";config=fourth"));
+
+        third.increment();
+        fourth.increment();
+        assertEquals(2, metricRegistryService.counter(COUNTER_OVERFLOW).getCount());
+    }
+
+    @Test
+    public void shouldUseTheDefaultLimitWithoutLimitOfTheName() {
+        for (int i = 0; i < 5; i++) {
+            metricRegistryService.counter(NAME, Tags.of("config", "config" + i));
+        }
+
+        assertTrue(metricRegistryService.isRegistered(NAME + ";config=config2"));
+        assertFalse(metricRegistryService.isRegistered(NAME + ";config=config3"));
+        assertTrue(metricRegistryService.isRegistered(COUNTER_OVERFLOW));
+    }
+
+    @Test
+    public void shouldKeepNewTagSetsOnceTheLimitIsRaised() {
+        metricRegistryService.setTagCardinalityLimit(NAME, 1);
+        metricRegistryService.counter(NAME, Tags.of("config", "first"));
+        Counter overflow = metricRegistryService.counter(NAME, Tags.of("config", "second"));
+
+        metricRegistryService.setTagCardinalityLimit(NAME, 2);
+
+        assertNotSame(overflow, metricRegistryService.counter(NAME, Tags.of("config", "third")));
+        assertTrue(metricRegistryService.isRegistered(NAME + ";config=third"));
+        assertSame(overflow, metricRegistryService.counter(NAME, Tags.of("config", "fourth")));
+    }
+
+    @Test
+    public void shouldLimitTheTagSetsOfEveryTypeApart() {
+        metricRegistryService.setTagCardinalityLimit(NAME, 1);
+        metricRegistryService.counter(NAME, Tags.of("config", "first"));
+        metricRegistryService.counter(NAME, Tags.of("config", "second"));
+
+        Timer timer = metricRegistryService.timer(NAME, Tags.of("form", "first"));
+        Timer timerOverflow = metricRegistryService.timer(NAME, Tags.of("form", "second"));
+
+        assertNotSame(timer, timerOverflow);
+        assertTrue(metricRegistryService.isRegistered(NAME + ";form=first"));
+        assertTrue(metricRegistryService.isRegistered(COUNTER_OVERFLOW));
+        assertTrue(metricRegistryService.isRegistered(TIMER_OVERFLOW));
+        assertSame(timerOverflow, metricRegistryService.timer(NAME, Tags.of("form", "third")));
+    }
+
+    @Test(expected = MetricAlreadyExistsException.class)
+    public void shouldNotRegisterTwoTypesOfMetricsWithTheSameNameAndTags() {
+        metricRegistryService.counter(NAME, Tags.of("config", "odk"));
+        metricRegistryService.timer(NAME, Tags.of("config", "odk"));
+    }
+}
@@ -0,0 +1,129 @@
+package org.motechproject.metrics.service.impl;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.metrics.api.Tags;
+import org.motechproject.metrics.config.MetricsConfigFacade;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MetricsRecorderImplTest {
+    @Mock
+    private MetricsConfigFacade metricsConfigFacade;
+
+    private MetricRegistryServiceImpl metricRegistryService;
+
+    private MetricsRecorderImpl recorder;
+
+    @Before
+    public void setUp() {
+        when(metricsConfigFacade.isMetricsEnabled()).thenReturn(true);
+        when(metricsConfigFacade.getDefaultTagCardinalityLimit()).thenReturn(100);
+        metricRegistryService = new MetricRegistryServiceImpl(new MetricRegistry(), metricsConfigFacade);
+        recorder = new MetricsRecorderImpl(metricRegistryService);
+    }
+
+    @Test
+    public void shouldApplyRecordedValuesOnFlush() {
+        recorder.increment("sms.sent", 3);
+        recorder.decrement("sms.sent", 1);
+        recorder.mark("forms.received", 5);
+
+        assertFalse(metricRegistryService.isRegistered("sms.sent"));
+
+        recorder.flush();
+
+        assertEquals(2, metricRegistryService.counter("sms.sent").getCount());
+        assertEquals(5, metricRegistryService.meter("forms.received").getCount());
+    }
+
+    @Test
+    public void shouldApplyOnlyDeltasSinceLastFlush() {
+        recorder.increment("sms.sent", 3);
+        recorder.flush();
+        recorder.increment("sms.sent", 4);
+        recorder.flush();
+        recorder.flush();
+
+        assertEquals(7, metricRegistryService.counter("sms.sent").getCount());
+    }
+
+    @Test
+    public void shouldKeepTaggedValuesApart() {
+        Tags odk = Tags.of("config", "odk");
+        Tags ona = Tags.of("config", "ona");
+
+        recorder.mark("forms.received", odk, 2);
+        recorder.mark("forms.received", ona, 1);
+        recorder.mark("forms.received", Tags.of("config", "odk"), 1);
+        recorder.flush();
+
+        assertEquals(3, metricRegistryService.meter("forms.received", odk).getCount());
+        assertEquals(1, metricRegistryService.meter("forms.received", ona).getCount());
+    }
+
+    @Test
+    public void shouldRecordConcurrently() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10000; j++) {
+                    recorder.increment("sms.sent", 1);
+                    if (j % 1000 == 0) {
+                        recorder.flush();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        recorder.flush();
+
+        assertEquals(40000, metricRegistryService.counter("sms.sent").getCount());
+    }
+
+    @Test
+    public void shouldNotLoseValuesRecordedWhileFlushing() throws InterruptedException {
+        final Tags odk = Tags.of("config", "odk");
+        final AtomicBoolean recording = new AtomicBoolean(true);
+
+        Thread flusher = new Thread(() -> {
+            while (recording.get()) {
+                recorder.flush();
+            }
+        });
+        flusher.start();
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 100000; j++) {
+                    recorder.increment("sms.sent", odk, 2);
+                    recorder.decrement("sms.sent", odk, 1);
+                    recorder.mark("forms.received", 1);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        recording.set(false);
+        flusher.join();
+        recorder.flush();
+
+        assertEquals(400000, metricRegistryService.counter("sms.sent", odk).getCount());
+        assertEquals(400000, metricRegistryService.meter("forms.received").getCount());
+    }
+}
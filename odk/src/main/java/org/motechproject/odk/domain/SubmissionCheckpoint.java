@@ -0,0 +1,64 @@
+package org.motechproject.odk.domain;
+
+import org.motechproject.mds.annotations.Entity;
+import org.motechproject.mds.annotations.Field;
+
+/**
+ * Records how far the submissions of a form were imported from the external application, so that an interrupted
+ * import resumes where it stopped.
+ */
+@Entity
+public class SubmissionCheckpoint {
+
+    @Field
+    private String configName;
+
+    @Field
+    private String formTitle;
+
+    @Field
+    private String lastSubmissionTime;
+
+    @Field(type = "TEXT")
+    private String cursor;
+
+    public SubmissionCheckpoint(String configName, String formTitle) {
+        this.configName = configName;
+        this.formTitle = formTitle;
+    }
+
+    public SubmissionCheckpoint() {
+    }
+
+    public String getConfigName() {
+        return configName;
+    }
+
+    public void setConfigName(String configName) {
+        this.configName = configName;
+    }
+
+    public String getFormTitle() {
+        return formTitle;
+    }
+
+    public void setFormTitle(String formTitle) {
+        this.formTitle = formTitle;
+    }
+
+    public String getLastSubmissionTime() {
+        return lastSubmissionTime;
+    }
+
+    public void setLastSubmissionTime(String lastSubmissionTime) {
+        this.lastSubmissionTime = lastSubmissionTime;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+}
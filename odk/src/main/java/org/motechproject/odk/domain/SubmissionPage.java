@@ -0,0 +1,39 @@
+package org.motechproject.odk.domain;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A page of submissions fetched from an external application, together with the cursor from which the next page
+ * is fetched.
+ */
+public class SubmissionPage {
+
+    private List<Map<String, Object>> submissions;
+    private String cursor;
+    private String lastSubmissionTime;
+    private boolean last;
+
+    public SubmissionPage(List<Map<String, Object>> submissions, String cursor, String lastSubmissionTime, boolean last) {
+        this.submissions = submissions;
+        this.cursor = cursor;
+        this.lastSubmissionTime = lastSubmissionTime;
+        this.last = last;
+    }
+
+    public List<Map<String, Object>> getSubmissions() {
+        return submissions;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public String getLastSubmissionTime() {
+        return lastSubmissionTime;
+    }
+
+    public boolean isLast() {
+        return last;
+    }
+}
@@ -12,7 +12,7 @@ import org.motechproject.odk.domain.builder.FormInstanceBuilder;
 import org.motechproject.odk.exception.FormInstanceBuilderException;
 import org.motechproject.odk.service.FormDefinitionService;
 import org.motechproject.odk.service.FormFailureService;
-import org.motechproject.odk.service.FormInstanceService;
+import org.motechproject.odk.service.FormInstanceBatchService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,14 +34,14 @@ public class EventHandler {
     private FormDefinitionService formDefinitionService;
 
     @Autowired
-    private FormInstanceService formInstanceService;
+    private FormInstanceBatchService formInstanceBatchService;
 
     @Autowired
     private FormFailureService formFailureService;
 
 
     /**
-     * Creates {@link FormInstance} from the event payload and saves it.
+     * Creates {@link FormInstance} from the event payload and queues it to be saved with the next batch.
      *
      * @param event {@link MotechEvent}
      */
@@ -53,16 +53,12 @@ public class EventHandler {
         String instanceId = (String) params.get(EventParameters.INSTANCE_ID);
 
         if (title != null && configName != null && instanceId != null) {
-            if (formInstanceService.getByInstanceId(instanceId) != null) {
-                LOGGER.error("Form Instance with ID: " + instanceId + " already exists. Discarding form instance data");
-            } else {
-                FormDefinition formDefinition = formDefinitionService.findByConfigurationNameAndTitle(configName, title);
+            FormDefinition formDefinition = formDefinitionService.findByConfigurationNameAndTitle(configName, title);
 
-                if (formDefinition != null) {
-                   persistFormInstance(formDefinition, params, instanceId);
-                } else {
-                    LOGGER.error("Unable to save form. Form definition does not exist. Configuration name: " + configName + " Title: " + title);
-                }
+            if (formDefinition != null) {
+                persistFormInstance(formDefinition, params, instanceId);
+            } else {
+                LOGGER.error("Unable to save form. Form definition does not exist. Configuration name: " + configName + " Title: " + title);
             }
         } else {
             LOGGER.error("Unable to save form. Event is missing required parameters", event);
@@ -93,9 +89,11 @@ public class EventHandler {
         try {
             FormInstanceBuilder builder = new FormInstanceBuilder(formDefinition, params, instanceId);
             FormInstance instance = builder.build();
-            LOGGER.debug("Saving form instance.Title: " + formDefinition.getTitle() + " ConfigName: " +
+            LOGGER.debug("Queueing form instance.Title: " + formDefinition.getTitle() + " ConfigName: " +
                     formDefinition.getConfigurationName() + " Instance ID: " + instanceId);
-            formInstanceService.create(instance);
+            if (!formInstanceBatchService.queue(instance)) {
+                LOGGER.error("Form Instance with ID: " + instanceId + " already exists. Discarding form instance data");
+            }
         } catch (FormInstanceBuilderException e) {
             LOGGER.error("Unable to save form. Configuration name: " + formDefinition.getConfigurationName() + " Title: " + formDefinition.getTitle(), e);
         }
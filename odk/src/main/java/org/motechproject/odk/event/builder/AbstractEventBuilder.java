@@ -9,15 +9,24 @@ import org.motechproject.odk.domain.FormElement;
 import org.motechproject.odk.exception.EventBuilderException;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
- * Parent class for all {@link org.motechproject.odk.event.builder.EventBuilder} implementations.
+ * Parent class for all {@link org.motechproject.odk.event.builder.EventBuilder} implementations. Builders are
+ * stateless and can be shared. Every form definition is compiled once into a {@link FormPlan}, which keeps the
+ * {@link ValueFormatter} of every field, the fields of the root scope and the tree of repeat groups, for as long as
+ * the form definition is in use. A submission is then walked once: the root scope is formatted once and shared,
+ * read-only, by the form event and by the events of all repeat groups.
  */
 public abstract class AbstractEventBuilder implements EventBuilder {
 
+    private final Map<FormDefinition, FormPlan> plans =
+            Collections.synchronizedMap(new WeakHashMap<FormDefinition, FormPlan>());
+
     /**
      * Builds a list of {@link MotechEvent} from the JSON payload. It will create
      * one persist form instance event and one event for each repeat group, including nested repeat
@@ -30,19 +39,36 @@ public abstract class AbstractEventBuilder implements EventBuilder {
      */
     @Override
     public List<MotechEvent> createEvents(String json, FormDefinition formDefinition, Configuration configuration) throws EventBuilderException {
-        Map<String, Object> data = getData(json);
-        List<MotechEvent> events = createRepeatGroupEvents(data, formDefinition, configuration);
-        events.add(createFormEvent(data, formDefinition, configuration));
+        return createEvents(getData(json), formDefinition, configuration);
+    }
+
+    @Override
+    public List<MotechEvent> createEvents(Map<String, Object> data, FormDefinition formDefinition, Configuration configuration) throws EventBuilderException {
+        FormPlan plan = getPlan(formDefinition);
+        Map<String, Object> rootScope = Collections.unmodifiableMap(formatRootScope(plan.rootScopeFields, data));
+        List<MotechEvent> events = new ArrayList<>();
+
+        String subjectPrefix = EventSubjects.REPEAT_GROUP + "." + configuration.getName() + "." + formDefinition.getTitle() + ".";
+        for (RepeatGroupPlan repeatGroup : plan.repeatGroups) {
+            createRepeatGroupEvents(repeatGroup, data, data, rootScope, subjectPrefix, events);
+        }
+
+        events.add(createFormEvent(plan, data, rootScope, formDefinition, configuration));
         return events;
     }
 
-    private MotechEvent createFormEvent(Map<String, Object> data, FormDefinition formDefinition, Configuration configuration) throws EventBuilderException {
-        Map<String, Object> params = new HashMap<>();
-        for (FormElement formElement : formDefinition.getFormElements()) {
-            Object value = data.get(formElement.getName());
-            Object formattedValue = formatValue(formElement.getType(), value);
+    private MotechEvent createFormEvent(FormPlan plan, Map<String, Object> data, Map<String, Object> rootScope,
+                                        FormDefinition formDefinition, Configuration configuration) throws EventBuilderException {
+        Map<String, Object> params = new HashMap<>(capacity(rootScope.size() + plan.otherFields.size() + 2));
+        for (Map.Entry<String, Object> entry : rootScope.entrySet()) {
+            if (entry.getValue() != null) {
+                params.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (FieldPlan field : plan.otherFields) {
+            Object formattedValue = field.format(data, data);
             if (formattedValue != null) {
-                params.put(formElement.getName(), formattedValue);
+                params.put(field.name, formattedValue);
             }
         }
 
@@ -52,79 +78,129 @@ public abstract class AbstractEventBuilder implements EventBuilder {
         return new MotechEvent(subject, params);
     }
 
+    /**
+     * Creates the events of all instances of the repeat group and of their nested repeat groups. The parameters of
+     * every event are copied from the enclosing scope, since events are sent to the broker as plain maps.
+     */
+    private void createRepeatGroupEvents(RepeatGroupPlan repeatGroup, Map<String, Object> submission, Map<String, Object> parent,
+                                         Map<String, Object> scope, String subjectPrefix, List<MotechEvent> events) throws EventBuilderException {
+        List<Map<String, Object>> instances = (List<Map<String, Object>>) parent.get(repeatGroup.name);
+        if (instances == null) {
+            return;
+        }
 
-    private List<MotechEvent> createRepeatGroupEvents(Map<String, Object> data, FormDefinition formDefinition, Configuration configuration) throws EventBuilderException {
-        List<MotechEvent> events = new ArrayList<>();
-        Map<String, Object> rootScopeValues = getRootScope(data, formDefinition);
-        List<FormElement> repeatGroups = getNonNestedRepeatGroups(formDefinition);
+        for (Map<String, Object> instance : instances) {
+            Map<String, Object> localScope = new HashMap<>(capacity(scope.size() + repeatGroup.fields.size()));
+            localScope.putAll(scope);
+            for (FieldPlan field : repeatGroup.fields) {
+                localScope.put(field.name, field.format(instance, submission));
+            }
+            events.add(new MotechEvent(subjectPrefix + repeatGroup.name, localScope));
 
-        for (FormElement repeatGroup : repeatGroups) {
-            List<Map<String, Object>> repeatGroupInstances = (List<Map<String, Object>>) data.get(repeatGroup.getName());
-            for (Map<String, Object> repeatGroupInstance : repeatGroupInstances) {
-                createRepeatGroupEvent(repeatGroup, events, formDefinition, repeatGroupInstance, rootScopeValues, configuration.getName());
+            if (!repeatGroup.children.isEmpty()) {
+                Map<String, Object> childScope = Collections.unmodifiableMap(localScope);
+                for (RepeatGroupPlan child : repeatGroup.children) {
+                    createRepeatGroupEvents(child, submission, instance, childScope, subjectPrefix, events);
+                }
             }
         }
-        return events;
     }
 
-    private Map<String, Object> getRootScope(Map<String, Object> data, FormDefinition formDefinition) throws EventBuilderException {
-        Map<String, Object> values = new HashMap<>();
+    private Map<String, Object> formatRootScope(List<FieldPlan> fields, Map<String, Object> data) throws EventBuilderException {
+        Map<String, Object> values = new HashMap<>(capacity(fields.size()));
+        for (FieldPlan field : fields) {
+            values.put(field.name, data.get(field.name) == null ? null : field.format(data, data));
+        }
+        return values;
+    }
+
+    private FormPlan getPlan(FormDefinition formDefinition) {
+        FormPlan plan = plans.get(formDefinition);
+
+        if (plan == null) {
+            plan = new FormPlan(formDefinition, this);
+            plans.put(formDefinition, plan);
+        }
+        return plan;
+    }
+
+    private static int capacity(int size) {
+        return size * 4 / 3 + 1;
+    }
+
+    /**
+     * The compiled form definition: the fields of the root scope, the other top level fields and the tree of
+     * repeat groups which are not nested in another repeat group.
+     */
+    private static final class FormPlan {
+
+        private final List<FieldPlan> rootScopeFields = new ArrayList<>();
+        private final List<FieldPlan> otherFields = new ArrayList<>();
+        private final List<RepeatGroupPlan> repeatGroups = new ArrayList<>();
 
-        for (FormElement formElement : formDefinition.getFormElements()) {
-            if (!formElement.isRepeatGroup() && !formElement.isPartOfRepeatGroup()) {
+        FormPlan(FormDefinition formDefinition, AbstractEventBuilder builder) {
+            for (FormElement formElement : formDefinition.getFormElements()) {
+                FieldPlan field = new FieldPlan(formElement, builder.getFormatter(formElement.getType()));
 
-                Object value = data.get(formElement.getName());
-                if (value != null) {
-                    values.put(formElement.getName(), formatValue(formElement.getType(), value));
+                if (!formElement.isRepeatGroup() && !formElement.isPartOfRepeatGroup()) {
+                    rootScopeFields.add(field);
                 } else {
-                    values.put(formElement.getName(), null);
+                    otherFields.add(field);
+                    if (formElement.isRepeatGroup() && !formElement.isPartOfRepeatGroup()) {
+                        repeatGroups.add(new RepeatGroupPlan(formElement, builder));
+                    }
                 }
             }
         }
-        return values;
     }
 
-    private List<FormElement> getNonNestedRepeatGroups(FormDefinition formDefinition) {
-        List<FormElement> formElements = new ArrayList<>();
+    /**
+     * A repeat group, its fields and its nested repeat groups.
+     */
+    private static final class RepeatGroupPlan {
+
+        private final String name;
+        private final List<FieldPlan> fields = new ArrayList<>();
+        private final List<RepeatGroupPlan> children = new ArrayList<>();
+
+        RepeatGroupPlan(FormElement repeatGroup, AbstractEventBuilder builder) {
+            name = repeatGroup.getName();
 
-        for (FormElement formElement : formDefinition.getFormElements()) {
-            if (!formElement.isPartOfRepeatGroup() && formElement.isRepeatGroup()) {
-                formElements.add(formElement);
+            for (FormElement child : repeatGroup.getChildren()) {
+                if (child.isRepeatGroup()) {
+                    children.add(new RepeatGroupPlan(child, builder));
+                } else {
+                    fields.add(new FieldPlan(child, builder.getFormatter(child.getType())));
+                }
             }
         }
-        return formElements;
     }
 
-    private void createRepeatGroupEvent(FormElement repeatGroup, List<MotechEvent> events, FormDefinition formDefinition, Map<String, Object> data,
-                                        Map<String, Object> scope, String configName) throws EventBuilderException {
-        List<FormElement> childRepeatGroups = new ArrayList<>();
-        Map<String, Object> localScope = new HashMap<>();
-        localScope.putAll(scope);
-
-        for (FormElement child : repeatGroup.getChildren()) {
-            if (child.isRepeatGroup()) {
-                childRepeatGroups.add(child);
-            } else {
-                Object value = data.get(child.getName());
-                localScope.put(child.getName(), formatValue(child.getType(), value));
-            }
-        }
+    /**
+     * A field and the formatter of its values.
+     */
+    private static final class FieldPlan {
 
-        String subject = EventSubjects.REPEAT_GROUP + "." + configName + "." + formDefinition.getTitle() + "." + repeatGroup.getName();
-        events.add(new MotechEvent(subject, localScope));
+        private final String name;
+        private final ValueFormatter formatter;
 
-        for (FormElement childRepeatGroup : childRepeatGroups) {
-            List<Map<String, Object>> childRepeatGroupInstances = (List<Map<String, Object>>) data.get(childRepeatGroup.getName());
+        FieldPlan(FormElement formElement, ValueFormatter formatter) {
+            this.name = formElement.getName();
+            this.formatter = formatter;
+        }
 
-            for (Map<String, Object> childInstance : childRepeatGroupInstances) {
-                createRepeatGroupEvent(childRepeatGroup, events, formDefinition, childInstance, localScope, configName);
-            }
+        Object format(Map<String, Object> data, Map<String, Object> submission) throws EventBuilderException {
+            return formatter.format(data.get(name), submission);
         }
     }
 
-    protected abstract Object formatValue(String type, Object value) throws EventBuilderException;
+    /**
+     * Returns the formatter of the values of the given field type.
+     * @param type The type of the field
+     * @return {@link ValueFormatter}
+     */
+    protected abstract ValueFormatter getFormatter(String type);
 
     protected abstract Map<String, Object> getData(String json) throws EventBuilderException;
 
-
 }
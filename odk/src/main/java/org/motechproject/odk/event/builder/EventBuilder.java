@@ -6,6 +6,7 @@ import org.motechproject.odk.domain.FormDefinition;
 import org.motechproject.odk.exception.EventBuilderException;
 
 import java.util.List;
+import java.util.Map;
 
 
 /**
@@ -30,4 +31,23 @@ public interface EventBuilder {
      */
     List<MotechEvent> createEvents(String json, FormDefinition formDefinition, Configuration configuration) throws EventBuilderException;
 
+    /**
+     * Creates the list of events for a single, already parsed, form instance. See
+     * {@link #createEvents(String, FormDefinition, Configuration)}.
+     * @param data The form instance data
+     * @param formDefinition The internal representation of the XML form.
+     * @param configuration {@link Configuration}
+     * @return A list of {@link MotechEvent}
+     * @throws EventBuilderException If an error is encountered while building the list of events.
+     */
+    List<MotechEvent> createEvents(Map<String, Object> data, FormDefinition formDefinition, Configuration configuration) throws EventBuilderException;
+
+    /**
+     * Parses the JSON representation of multiple form instances, as sent in bulk by aggregate servers.
+     * @param json JSON representation of the form instances
+     * @return The data of each form instance
+     * @throws EventBuilderException If the JSON cannot be parsed.
+     */
+    List<Map<String, Object>> getSubmissions(String json) throws EventBuilderException;
+
 }
@@ -0,0 +1,21 @@
+package org.motechproject.odk.event.builder;
+
+import org.motechproject.odk.exception.EventBuilderException;
+
+import java.util.Map;
+
+/**
+ * Formats the raw value of a form field into the value published in the events. A formatter is resolved once for
+ * every field of a form definition, see {@link AbstractEventBuilder}.
+ */
+public interface ValueFormatter {
+
+    /**
+     * Formats the value.
+     * @param value The raw value of the field, may be null.
+     * @param submission The whole form instance data the value comes from.
+     * @return The formatted value
+     * @throws EventBuilderException If the value cannot be formatted.
+     */
+    Object format(Object value, Map<String, Object> submission) throws EventBuilderException;
+}
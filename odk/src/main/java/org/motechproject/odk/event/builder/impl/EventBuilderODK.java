@@ -6,9 +6,12 @@ import org.motechproject.odk.domain.OdkJsonFormPublication;
 import org.motechproject.odk.exception.EventBuilderException;
 import org.motechproject.odk.event.builder.AbstractEventBuilder;
 import org.motechproject.odk.event.builder.EventBuilder;
+import org.motechproject.odk.event.builder.ValueFormatter;
 import org.motechproject.odk.util.EventBuilderUtils;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 public class EventBuilderODK extends AbstractEventBuilder implements EventBuilder {
@@ -16,31 +19,62 @@ public class EventBuilderODK extends AbstractEventBuilder implements EventBuilde
     private static final String URL = "url";
     private static final int TIME_STRING_SIZE = 5;
 
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
-    protected Object formatValue(String type, Object value) throws EventBuilderException {
+    private static final ValueFormatter URL_FORMATTER = new ValueFormatter() {
+        @Override
+        public Object format(Object value, Map<String, Object> submission) {
+            return formatUrl((Map<String, String>) value);
+        }
+    };
+
+    private static final ValueFormatter JSON_FORMATTER = new ValueFormatter() {
+        @Override
+        public Object format(Object value, Map<String, Object> submission) throws EventBuilderException {
+            return EventBuilderUtils.formatAsJson(value);
+        }
+    };
+
+    private static final ValueFormatter TIME_FORMATTER = new ValueFormatter() {
+        @Override
+        public Object format(Object value, Map<String, Object> submission) {
+            return formatDate((String) value);
+        }
+    };
+
+    private static final ValueFormatter IDENTITY_FORMATTER = new ValueFormatter() {
+        @Override
+        public Object format(Object value, Map<String, Object> submission) {
+            return value;
+        }
+    };
+
+
+    @Override
+    protected ValueFormatter getFormatter(String type) {
 
         switch (type) {
 
             case FieldTypeConstants.BINARY:
-                return formatUrl((Map<String, String>) value);
+                return URL_FORMATTER;
 
             case FieldTypeConstants.REPEAT_GROUP:
-                return EventBuilderUtils.formatAsJson(value);
+                return JSON_FORMATTER;
 
             case FieldTypeConstants.TIME:
-                return formatDate((String) value);
+                return TIME_FORMATTER;
 
             default:
-                return value;
+                return IDENTITY_FORMATTER;
         }
     }
 
-    private String formatDate(String value) {
+    private static String formatDate(String value) {
         return value.substring(0, TIME_STRING_SIZE);
     }
 
 
-    private String formatUrl(Map<String, String> value) {
+    private static String formatUrl(Map<String, String> value) {
         if (value == null) {
             return null;
         }
@@ -49,13 +83,23 @@ public class EventBuilderODK extends AbstractEventBuilder implements EventBuilde
 
     @Override
     protected Map<String, Object> getData(String json) throws EventBuilderException {
+        return readPublication(json).getData()[0];
+    }
+
+    /**
+     * ODK Aggregate publishes multiple submissions in the data of a single publication, so the bulk body is a
+     * publication.
+     */
+    @Override
+    public List<Map<String, Object>> getSubmissions(String json) throws EventBuilderException {
+        return Arrays.asList(readPublication(json).getData());
+    }
+
+    private OdkJsonFormPublication readPublication(String json) throws EventBuilderException {
         try {
-            OdkJsonFormPublication publication = new ObjectMapper().readValue(json, OdkJsonFormPublication.class);
-            return publication.getData()[0];
+            return MAPPER.readValue(json, OdkJsonFormPublication.class);
         } catch (IOException e) {
             throw new EventBuilderException(e);
         }
-
     }
 }
-
@@ -7,10 +7,14 @@ import org.motechproject.odk.event.builder.impl.EventBuilderOna;
 import org.motechproject.odk.exception.ConfigurationTypeException;
 
 /**
- * Factory class for {@link org.motechproject.odk.event.builder.EventBuilder}
+ * Factory class for {@link org.motechproject.odk.event.builder.EventBuilder}. The builders are stateless, so the
+ * factory keeps a single instance of each.
  */
 public class FormEventBuilderFactory {
 
+    private final EventBuilder odkBuilder = new EventBuilderODK();
+    private final EventBuilder onaBuilder = new EventBuilderOna();
+
     /**
      * Returns the appropriate event builder based on the configuration type.
      * @param type
@@ -19,11 +23,11 @@ public class FormEventBuilderFactory {
     public EventBuilder getBuilder(ConfigurationType type) throws ConfigurationTypeException {
         switch (type) {
             case ODK:
-                return new EventBuilderODK();
+                return odkBuilder;
             case ONA:
-                return new EventBuilderOna();
+                return onaBuilder;
             case KOBO:
-                return new EventBuilderOna();
+                return onaBuilder;
             default:
                 throw new ConfigurationTypeException("Event builder does not exist for configuration type: " + type);
         }
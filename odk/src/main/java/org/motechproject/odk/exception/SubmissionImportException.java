@@ -0,0 +1,20 @@
+package org.motechproject.odk.exception;
+
+/**
+ * This exception is thrown when an error is encountered while importing submissions from one of the external
+ * services.
+ */
+public class SubmissionImportException extends Exception {
+
+    public SubmissionImportException(String message) {
+        super(message);
+    }
+
+    public SubmissionImportException(Throwable cause) {
+        super(cause);
+    }
+
+    public SubmissionImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -5,6 +5,9 @@ import org.motechproject.mds.annotations.LookupField;
 import org.motechproject.mds.service.MotechDataService;
 import org.motechproject.odk.domain.FormInstance;
 
+import java.util.List;
+import java.util.Set;
+
 /**
  * Data service for {@link FormInstance}
  */
@@ -13,6 +16,9 @@ public interface FormInstanceDataService extends MotechDataService<FormInstance>
     @Lookup
     FormInstance byInstanceId(@LookupField(name = "instanceId") String instanceId);
 
+    @Lookup
+    List<FormInstance> byInstanceIds(@LookupField(name = "instanceId") Set<String> instanceIds);
+
     @Lookup
     FormInstance byConfigNameAndTitle(@LookupField(name = "configName") String configName, @LookupField(name = "title") String title);
 }
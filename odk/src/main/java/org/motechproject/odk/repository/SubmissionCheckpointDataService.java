@@ -0,0 +1,21 @@
+package org.motechproject.odk.repository;
+
+import org.motechproject.mds.annotations.Lookup;
+import org.motechproject.mds.annotations.LookupField;
+import org.motechproject.mds.service.MotechDataService;
+import org.motechproject.odk.domain.SubmissionCheckpoint;
+
+/**
+ * Data service for {@link SubmissionCheckpoint}
+ */
+public interface SubmissionCheckpointDataService extends MotechDataService<SubmissionCheckpoint> {
+
+    /**
+     * Finds the checkpoint of the submission import of a form.
+     * @param configName The name of the configuration.
+     * @param formTitle The title of the form.
+     * @return {@link SubmissionCheckpoint}
+     */
+    @Lookup
+    SubmissionCheckpoint byConfigNameAndFormTitle(@LookupField(name = "configName") String configName, @LookupField(name = "formTitle") String formTitle);
+}
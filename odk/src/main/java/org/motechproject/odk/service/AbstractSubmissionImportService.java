@@ -0,0 +1,240 @@
+package org.motechproject.odk.service;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.osgi.services.HttpClientBuilderFactory;
+import org.apache.http.util.EntityUtils;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.odk.domain.Configuration;
+import org.motechproject.odk.domain.FormDefinition;
+import org.motechproject.odk.domain.ImportStatus;
+import org.motechproject.odk.domain.SubmissionCheckpoint;
+import org.motechproject.odk.domain.SubmissionPage;
+import org.motechproject.odk.event.builder.EventBuilder;
+import org.motechproject.odk.event.builder.impl.FailureEventBuilder;
+import org.motechproject.odk.event.factory.FormEventBuilderFactory;
+import org.motechproject.odk.exception.BasicAuthException;
+import org.motechproject.odk.exception.ConfigurationTypeException;
+import org.motechproject.odk.exception.SubmissionImportException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Abstract class for importing the submissions stored by an external application. The forms of a configuration are
+ * imported concurrently, by at most {@link #MAX_CONCURRENT_FORMS} forms at a time. The submissions of a single form
+ * are fetched page by page, oldest first, and the events of every page are published before the checkpoint of the
+ * form is moved past the page, so an interrupted import resumes with the first page which was not published.
+ * Implementing subclasses fetch the pages from the API of their application.
+ */
+@Component
+public abstract class AbstractSubmissionImportService implements SubmissionImportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractSubmissionImportService.class);
+    private static final String ERROR_SUBMISSION = "Error processing imported form instance";
+
+    protected static final int PAGE_SIZE = 100;
+    protected static final int MAX_CONCURRENT_FORMS = 4;
+    protected static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final HttpClient client;
+    private final FormDefinitionService formDefinitionService;
+    private final SubmissionCheckpointService submissionCheckpointService;
+    private final EventRelay eventRelay;
+    private final FormEventBuilderFactory eventBuilderFactory = new FormEventBuilderFactory();
+    private final ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_FORMS);
+    private final Set<String> importsInProgress = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Autowired
+    public AbstractSubmissionImportService(HttpClientBuilderFactory httpClientBuilderFactory, FormDefinitionService formDefinitionService,
+                                           SubmissionCheckpointService submissionCheckpointService, EventRelay eventRelay) {
+        this.client = httpClientBuilderFactory.newBuilder().build();
+        this.formDefinitionService = formDefinitionService;
+        this.submissionCheckpointService = submissionCheckpointService;
+        this.eventRelay = eventRelay;
+    }
+
+    /**
+     * Template method for importing submissions. Only one import of a configuration runs at a time.
+     * @param configuration {@link Configuration}
+     * @return {@link ImportStatus}
+     */
+    @Override
+    public ImportStatus importSubmissions(final Configuration configuration) {
+        if (!importsInProgress.add(configuration.getName())) {
+            LOGGER.warn("The submissions of configuration {} are already being imported", configuration.getName());
+            return new ImportStatus(false);
+        }
+
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (final FormDefinition formDefinition : formDefinitionService.findAllByConfigName(configuration.getName())) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        return importSubmissions(configuration, formDefinition);
+                    }
+                }));
+            }
+            return new ImportStatus(allImported(results));
+        } finally {
+            importsInProgress.remove(configuration.getName());
+        }
+    }
+
+    private boolean allImported(List<Future<Boolean>> results) {
+        boolean imported = true;
+
+        for (Future<Boolean> result : results) {
+            try {
+                imported &= result.get();
+            } catch (ExecutionException e) {
+                LOGGER.error("Unable to import submissions.", e);
+                imported = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return imported;
+    }
+
+    private boolean importSubmissions(Configuration configuration, FormDefinition formDefinition) {
+        SubmissionCheckpoint checkpoint = submissionCheckpointService.getCheckpoint(configuration.getName(), formDefinition.getTitle());
+        int imported = 0;
+
+        try {
+            EventBuilder builder = eventBuilderFactory.getBuilder(configuration.getType());
+            SubmissionPage page;
+
+            do {
+                page = fetchPage(configuration, formDefinition, checkpoint.getCursor());
+                publishEvents(page.getSubmissions(), builder, configuration, formDefinition);
+                imported += page.getSubmissions().size();
+
+                if (!page.getSubmissions().isEmpty()) {
+                    checkpoint.setCursor(page.getCursor());
+                    checkpoint.setLastSubmissionTime(page.getLastSubmissionTime());
+                    checkpoint = submissionCheckpointService.save(checkpoint);
+                }
+            } while (!page.isLast() && !Thread.currentThread().isInterrupted());
+
+            LOGGER.info("Imported {} submissions of form {} of configuration {}, last submission time: {}", imported,
+                    formDefinition.getTitle(), configuration.getName(), checkpoint.getLastSubmissionTime());
+            return true;
+
+        } catch (IOException|SubmissionImportException|ConfigurationTypeException|BasicAuthException e) {
+            LOGGER.error("Unable to import submissions of form " + formDefinition.getTitle() + " after " + imported
+                    + " submissions.", e);
+            return false;
+        }
+    }
+
+    private void publishEvents(List<Map<String, Object>> submissions, EventBuilder builder, Configuration configuration,
+                               FormDefinition formDefinition) {
+        for (Map<String, Object> submission : submissions) {
+            List<MotechEvent> events;
+            try {
+                events = builder.createEvents(submission, formDefinition, configuration);
+            } catch (Exception e) {
+                LOGGER.error(ERROR_SUBMISSION + ": " + e.toString());
+                publishFailureEvent(e, configuration, formDefinition, submission);
+                continue;
+            }
+
+            for (MotechEvent event : events) {
+                eventRelay.sendEventMessage(event);
+            }
+        }
+    }
+
+    private void publishFailureEvent(Exception e, Configuration configuration, FormDefinition formDefinition,
+                                     Map<String, Object> submission) {
+        String body;
+        try {
+            body = MAPPER.writeValueAsString(submission);
+        } catch (IOException ioe) {
+            body = String.valueOf(submission);
+        }
+
+        FailureEventBuilder builder = new FailureEventBuilder();
+        builder.setMessage(ERROR_SUBMISSION)
+                .setError(e.toString())
+                .setConfigName(configuration.getName())
+                .setFormTitle(formDefinition.getTitle())
+                .setBody(body);
+        eventRelay.sendEventMessage(builder.createFailureEvent());
+    }
+
+    /**
+     * Executes an authenticated GET request and returns the body of the response.
+     * @param url The URL of the request.
+     * @param configuration {@link Configuration}
+     * @return The body of the response.
+     * @throws IOException If the request fails.
+     * @throws SubmissionImportException If the application does not respond with 200 OK.
+     */
+    protected String get(String url, Configuration configuration) throws IOException, SubmissionImportException {
+        HttpGet request = new HttpGet(url);
+        request.addHeader(generateBasicAuthHeader(request, configuration));
+        HttpResponse response = client.execute(request);
+        String responseBody = EntityUtils.toString(response.getEntity());
+
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+            throw new SubmissionImportException("Request " + url + " failed with status " + response.getStatusLine());
+        }
+        return responseBody;
+    }
+
+    private Header generateBasicAuthHeader(HttpGet request, Configuration configuration) {
+        try {
+            return new BasicScheme().authenticate(
+                    new UsernamePasswordCredentials(configuration.getUsername(), configuration.getPassword()),
+                    request,
+                    HttpClientContext.create());
+        } catch (Exception e) {
+            throw new BasicAuthException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Hook method that must be overridden by an implementing subclass. Fetches the page of submissions of the form
+     * which follows the cursor, oldest first.
+     * @param configuration {@link Configuration}
+     * @param formDefinition The form whose submissions are imported.
+     * @param cursor The cursor returned with the previous page, null to start from the first submission.
+     * @return {@link SubmissionPage}
+     * @throws IOException If an HTTP request fails.
+     * @throws SubmissionImportException If the response of the application is malformed.
+     */
+    protected abstract SubmissionPage fetchPage(Configuration configuration, FormDefinition formDefinition, String cursor)
+            throws IOException, SubmissionImportException;
+}
@@ -0,0 +1,22 @@
+package org.motechproject.odk.service;
+
+import org.motechproject.odk.domain.FormInstance;
+
+/**
+ * Buffers {@link FormInstance}s and saves them in batches, skipping the ones whose instance ID already exists.
+ */
+public interface FormInstanceBatchService {
+
+    /**
+     * Queues the form instance to be saved with the next batch.
+     * @param formInstance {@link FormInstance}
+     * @return false if a form instance with the same instance ID was recently queued or saved, in which case the form
+     * instance is discarded, true otherwise
+     */
+    boolean queue(FormInstance formInstance);
+
+    /**
+     * Saves all the queued form instances.
+     */
+    void flush();
+}
@@ -2,6 +2,9 @@ package org.motechproject.odk.service;
 
 import org.motechproject.odk.domain.FormInstance;
 
+import java.util.List;
+import java.util.Set;
+
 /**
  * Service for CRUD operations on {@link FormInstance}
  */
@@ -19,4 +22,17 @@ public interface FormInstanceService {
      * @return {@link FormInstance} if it exists.
      */
     FormInstance getByInstanceId(String instanceId);
+
+    /**
+     * Saves the form instances in a single transaction.
+     * @param formInstances The list of {@link FormInstance}
+     */
+    void createAll(List<FormInstance> formInstances);
+
+    /**
+     * Finds which of the given instance IDs belong to existing form instances, with a single query.
+     * @param instanceIds The unique IDs of the form instances.
+     * @return The instance IDs of the existing form instances.
+     */
+    Set<String> getExistingInstanceIds(Set<String> instanceIds);
 }
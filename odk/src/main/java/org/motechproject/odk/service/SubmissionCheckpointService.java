@@ -0,0 +1,25 @@
+package org.motechproject.odk.service;
+
+import org.motechproject.odk.domain.SubmissionCheckpoint;
+
+/**
+ * Service for CRUD operations on {@link SubmissionCheckpoint}
+ */
+public interface SubmissionCheckpointService {
+
+    /**
+     * Returns the checkpoint of the submission import of a form, or a new checkpoint if the submissions of the
+     * form were never imported.
+     * @param configName The name of the configuration.
+     * @param formTitle The title of the form.
+     * @return {@link SubmissionCheckpoint}
+     */
+    SubmissionCheckpoint getCheckpoint(String configName, String formTitle);
+
+    /**
+     * Saves the checkpoint, creating it if it does not exist yet.
+     * @param checkpoint {@link SubmissionCheckpoint}
+     * @return The saved checkpoint, which has to be used for further updates.
+     */
+    SubmissionCheckpoint save(SubmissionCheckpoint checkpoint);
+}
@@ -0,0 +1,19 @@
+package org.motechproject.odk.service;
+
+import org.motechproject.odk.domain.Configuration;
+import org.motechproject.odk.domain.ImportStatus;
+
+/**
+ * Service for importing the submissions stored by an external application, for instance to recover the submissions
+ * which were not received while the module was down.
+ */
+public interface SubmissionImportService {
+
+    /**
+     * Imports the submissions of all forms of the configuration, which were submitted after the last import, and
+     * publishes their events.
+     * @param configuration {@link Configuration}
+     * @return {@link ImportStatus} True if the submissions of all forms were imported; false otherwise.
+     */
+    ImportStatus importSubmissions(Configuration configuration);
+}
@@ -0,0 +1,50 @@
+package org.motechproject.odk.service.factory;
+
+import org.motechproject.odk.domain.ConfigurationType;
+import org.motechproject.odk.exception.ConfigurationTypeException;
+import org.motechproject.odk.service.SubmissionImportService;
+import org.motechproject.odk.service.impl.SubmissionImportServiceKobo;
+import org.motechproject.odk.service.impl.SubmissionImportServiceODK;
+import org.motechproject.odk.service.impl.SubmissionImportServiceOna;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Factory class for {@link SubmissionImportService}
+ */
+@Component
+public class SubmissionImportServiceFactory {
+
+    private static final String NO_SERVICE = "No submission import service for configuration type: ";
+
+    @Autowired
+    private SubmissionImportServiceODK submissionImportServiceODK;
+
+    @Autowired
+    private SubmissionImportServiceOna submissionImportServiceOna;
+
+    @Autowired
+    private SubmissionImportServiceKobo submissionImportServiceKobo;
+
+    /**
+     * Returns the appropriate {@link SubmissionImportService} bean for the configuration type.
+     * @param type The {@link ConfigurationType} of the configuration.
+     * @return {@link SubmissionImportService}
+     */
+    public SubmissionImportService getService(ConfigurationType type) throws ConfigurationTypeException {
+
+        switch (type) {
+            case ODK:
+                return submissionImportServiceODK;
+
+            case ONA:
+                return submissionImportServiceOna;
+
+            case KOBO:
+                return submissionImportServiceKobo;
+
+            default:
+                throw new ConfigurationTypeException(NO_SERVICE + type);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.motechproject.odk.service.impl;
+
+import org.apache.http.osgi.services.HttpClientBuilderFactory;
+import org.codehaus.jackson.type.TypeReference;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.odk.constant.OnaConstants;
+import org.motechproject.odk.domain.Configuration;
+import org.motechproject.odk.domain.FormDefinition;
+import org.motechproject.odk.domain.SubmissionPage;
+import org.motechproject.odk.exception.SubmissionImportException;
+import org.motechproject.odk.service.AbstractSubmissionImportService;
+import org.motechproject.odk.service.FormDefinitionService;
+import org.motechproject.odk.service.SubmissionCheckpointService;
+import org.motechproject.odk.util.FormUtils;
+
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Imports submissions through the data API shared by Ona.io and KoboToolbox. The submissions are fetched in the
+ * order of their IDs, which never decrease, and the ID of the last imported submission is the cursor of the next
+ * page, so submissions received within the same second are neither skipped nor imported twice.
+ */
+abstract class AbstractOnaSubmissionImportService extends AbstractSubmissionImportService {
+
+    protected static final String API_PATH = "/api/v1";
+    private static final String DATA_PATH = "/data/";
+    private static final String FORMS_PATH = "/forms";
+    private static final String ID_STRING_QUERY = "?id_string=";
+    private static final String FORM_ID = "formid";
+    private static final String UTF_8 = "UTF-8";
+
+    private static final TypeReference<List<Map<String, Object>>> LIST_TYPE = new TypeReference<List<Map<String, Object>>>() { };
+
+    private final ConcurrentMap<String, String> formIds = new ConcurrentHashMap<>();
+
+    AbstractOnaSubmissionImportService(HttpClientBuilderFactory httpClientBuilderFactory, FormDefinitionService formDefinitionService,
+                                       SubmissionCheckpointService submissionCheckpointService, EventRelay eventRelay) {
+        super(httpClientBuilderFactory, formDefinitionService, submissionCheckpointService, eventRelay);
+    }
+
+    @Override
+    protected SubmissionPage fetchPage(Configuration configuration, FormDefinition formDefinition, String cursor)
+            throws IOException, SubmissionImportException {
+        String idString = getIdString(formDefinition);
+        String formId = getFormId(configuration, idString);
+        List<Map<String, Object>> submissions;
+
+        try {
+            submissions = MAPPER.readValue(get(buildDataQuery(configuration, formId, cursor), configuration), LIST_TYPE);
+        } catch (IOException|SubmissionImportException e) {
+            // the form may have been replaced since its ID was looked up
+            formIds.remove(configuration.getUrl() + idString);
+            throw e;
+        }
+
+        if (submissions.isEmpty()) {
+            return new SubmissionPage(submissions, cursor, null, true);
+        }
+
+        Map<String, Object> last = submissions.get(submissions.size() - 1);
+        return new SubmissionPage(submissions, String.valueOf(last.get(OnaConstants.ID)),
+                (String) last.get(OnaConstants.SUBMISSION_TIME), submissions.size() < PAGE_SIZE);
+    }
+
+    /**
+     * Returns the query for the forms with the given ID string.
+     * @param configuration {@link Configuration}
+     * @param idString The ID string of the form.
+     * @return The URL of the query.
+     * @throws IOException If the ID string cannot be encoded.
+     */
+    protected String buildFormsQuery(Configuration configuration, String idString) throws IOException {
+        return configuration.getUrl() + API_PATH + FORMS_PATH + ID_STRING_QUERY + URLEncoder.encode(idString, UTF_8);
+    }
+
+    private String buildDataQuery(Configuration configuration, String formId, String cursor) throws IOException {
+        StringBuilder url = new StringBuilder(configuration.getUrl()).append(API_PATH).append(DATA_PATH).append(formId)
+                .append("?sort=").append(URLEncoder.encode("{\"" + OnaConstants.ID + "\":1}", UTF_8))
+                .append("&page=1&page_size=").append(PAGE_SIZE);
+
+        if (cursor != null) {
+            url.append("&query=").append(URLEncoder.encode("{\"" + OnaConstants.ID + "\":{\"$gt\":" + Long.parseLong(cursor) + "}}", UTF_8));
+        }
+        return url.toString();
+    }
+
+    private String getFormId(Configuration configuration, String idString) throws IOException, SubmissionImportException {
+        String key = configuration.getUrl() + idString;
+        String formId = formIds.get(key);
+
+        if (formId == null) {
+            List<Map<String, Object>> forms = MAPPER.readValue(get(buildFormsQuery(configuration, idString), configuration), LIST_TYPE);
+            if (forms.isEmpty()) {
+                throw new SubmissionImportException("Form " + idString + " does not exist");
+            }
+            formId = String.valueOf(forms.get(0).get(FORM_ID));
+            formIds.put(key, formId);
+        }
+        return formId;
+    }
+
+    private String getIdString(FormDefinition formDefinition) throws SubmissionImportException {
+        try {
+            return FormUtils.getFormId(formDefinition.getXform());
+        } catch (XPathExpressionException e) {
+            throw new SubmissionImportException("Unable to read the ID of form " + formDefinition.getTitle(), e);
+        }
+    }
+}
@@ -13,18 +13,24 @@ import org.springframework.core.io.ByteArrayResource;
 import org.springframework.stereotype.Service;
 
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of {@link ConfigurationService}. Provides CRUD operations
- * on user configurations.
+ * on user configurations. The configurations are indexed by name when the settings are loaded, the index is rebuilt
+ * whenever the settings are saved.
  */
 @Service("odkConfigurationService")
 public class ConfigurationServiceImpl implements ConfigurationService {
 
     private static final String CONFIG_FILE_NAME = "settings.json";
+    private static final Gson GSON = new Gson();
     private SettingsFacade settingsFacade;
-    private Settings settings;
+    private volatile Settings settings;
+    private volatile Map<String, Configuration> configsByName = Collections.emptyMap();
 
     @Autowired
     public ConfigurationServiceImpl(SettingsFacade settingsFacade) {
@@ -34,17 +40,11 @@ public class ConfigurationServiceImpl implements ConfigurationService {
 
     @Override
     public Configuration getConfigByName(String name) {
-
-        for (Configuration configuration : settings.getConfigurations()) {
-            if (configuration.getName().equals(name)) {
-                return configuration;
-            }
-        }
-        return null;
+        return configsByName.get(name);
     }
 
     @Override
-    public void addOrUpdateConfiguration(Configuration configuration) {
+    public synchronized void addOrUpdateConfiguration(Configuration configuration) {
         Configuration exists = getConfigByName(configuration.getName());
         if (exists == null) {
             settings.getConfigurations().add(configuration);
@@ -56,7 +56,7 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     }
 
     @Override
-    public void removeConfiguration(String configName) {
+    public synchronized void removeConfiguration(String configName) {
         Configuration configuration = getConfigByName(configName);
         if (configuration != null) {
             settings.getConfigurations().remove(configuration);
@@ -72,19 +72,26 @@ public class ConfigurationServiceImpl implements ConfigurationService {
     private synchronized void loadSettings() {
         try (InputStream is = settingsFacade.getRawConfig(CONFIG_FILE_NAME)) {
             String jsonText = IOUtils.toString(is);
-            Gson gson = new Gson();
-            settings = gson.fromJson(jsonText, Settings.class);
-            if (settings == null) {
-                settings = new Settings();
+            Settings loaded = GSON.fromJson(jsonText, Settings.class);
+            if (loaded == null) {
+                loaded = new Settings();
+            }
+
+            Map<String, Configuration> byName = new HashMap<>();
+            for (Configuration configuration : loaded.getConfigurations()) {
+                if (!byName.containsKey(configuration.getName())) {
+                    byName.put(configuration.getName(), configuration);
+                }
             }
+            settings = loaded;
+            configsByName = byName;
         } catch (Exception e) {
             throw new JsonIOException("Malformed " + CONFIG_FILE_NAME + " file.\n " + e.toString(), e);
         }
     }
 
     private void updateSettings() {
-        Gson gson = new Gson();
-        String jsonText = gson.toJson(settings, Settings.class);
+        String jsonText = GSON.toJson(settings, Settings.class);
         ByteArrayResource resource = new ByteArrayResource(jsonText.getBytes());
         settingsFacade.saveRawConfig(CONFIG_FILE_NAME, resource);
         loadSettings();
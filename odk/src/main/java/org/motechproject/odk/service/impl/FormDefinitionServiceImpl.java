@@ -7,9 +7,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
- * Implementation of {@link FormDefinitionService}.
+ * Implementation of {@link FormDefinitionService}. The form definitions looked up by configuration name and title,
+ * once for every received form, are cached until they are replaced or deleted through this service.
  */
 @Service("odkFormDefinitionService")
 public class FormDefinitionServiceImpl implements FormDefinitionService {
@@ -17,15 +20,19 @@ public class FormDefinitionServiceImpl implements FormDefinitionService {
     @Autowired
     private FormDefinitionDataService formDefinitionDataService;
 
+    private final ConcurrentMap<String, FormDefinition> formDefinitionsByKey = new ConcurrentHashMap<>();
+
 
     @Override
     public void create(FormDefinition formDefinition) {
         formDefinitionDataService.create(formDefinition);
+        formDefinitionsByKey.remove(cacheKey(formDefinition.getConfigurationName(), formDefinition.getTitle()));
     }
 
     @Override
     public void deleteAll() {
         formDefinitionDataService.deleteAll();
+        formDefinitionsByKey.clear();
     }
 
     @Override
@@ -33,6 +40,7 @@ public class FormDefinitionServiceImpl implements FormDefinitionService {
         List<FormDefinition> formDefinitions = formDefinitionDataService.byConfigurationName(configName);
         for (FormDefinition formDefinition : formDefinitions) {
             formDefinitionDataService.delete(formDefinition);
+            formDefinitionsByKey.remove(cacheKey(configName, formDefinition.getTitle()));
         }
     }
 
@@ -43,7 +51,16 @@ public class FormDefinitionServiceImpl implements FormDefinitionService {
 
     @Override
     public FormDefinition findByConfigurationNameAndTitle(String configurationName, String title) {
-        return formDefinitionDataService.byConfigurationNameAndTitle(configurationName, title);
+        String key = cacheKey(configurationName, title);
+        FormDefinition formDefinition = formDefinitionsByKey.get(key);
+
+        if (formDefinition == null) {
+            formDefinition = formDefinitionDataService.byConfigurationNameAndTitle(configurationName, title);
+            if (formDefinition != null) {
+                formDefinitionsByKey.put(key, formDefinition);
+            }
+        }
+        return formDefinition;
     }
 
     @Override
@@ -55,4 +72,8 @@ public class FormDefinitionServiceImpl implements FormDefinitionService {
     public FormDefinition findById(long id) {
         return formDefinitionDataService.findById(id);
     }
+
+    private static String cacheKey(String configurationName, String title) {
+        return configurationName + '/' + title;
+    }
 }
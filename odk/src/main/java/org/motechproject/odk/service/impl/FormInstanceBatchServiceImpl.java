@@ -0,0 +1,171 @@
+package org.motechproject.odk.service.impl;
+
+import org.motechproject.odk.domain.FormInstance;
+import org.motechproject.odk.service.FormInstanceBatchService;
+import org.motechproject.odk.service.FormInstanceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Implementation of {@link FormInstanceBatchService}. Form instances received from ODK, Ona or Kobo are stored with a
+ * single {@code createAll} per batch. A resubmitted form is usually recognised by its instance ID among the recently
+ * queued ones, kept in a bounded set, and otherwise by the single existence query made for each batch. If the batch
+ * cannot be stored, its form instances are stored one by one. Form instances that do not fill a batch are stored on
+ * the next flush.
+ */
+@Service("odkFormInstanceBatchService")
+public class FormInstanceBatchServiceImpl implements FormInstanceBatchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FormInstanceBatchServiceImpl.class);
+
+    static final int DEFAULT_BATCH_SIZE = 100;
+    static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 2000;
+    static final int DEFAULT_RECENT_IDS = 10000;
+
+    private final FormInstanceService formInstanceService;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+
+    private final Map<String, FormInstance> queued = new LinkedHashMap<>();
+    private final Map<String, Boolean> recentIds;
+
+    private ScheduledExecutorService flushExecutor;
+
+    @Autowired
+    public FormInstanceBatchServiceImpl(FormInstanceService formInstanceService) {
+        this(formInstanceService, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_RECENT_IDS);
+    }
+
+    public FormInstanceBatchServiceImpl(FormInstanceService formInstanceService, int batchSize,
+                                        long flushIntervalMillis, final int maxRecentIds) {
+        this.formInstanceService = formInstanceService;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.recentIds = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxRecentIds;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void start() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor();
+        flushExecutor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                // an exception would cancel the following flushes
+                try {
+                    flush();
+                } catch (RuntimeException e) {
+                    LOGGER.error("Unable to save the queued form instances", e);
+                }
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+        }
+        flush();
+    }
+
+    @Override
+    public boolean queue(FormInstance formInstance) {
+        List<FormInstance> fullBatch = null;
+
+        synchronized (this) {
+            if (recentIds.containsKey(formInstance.getInstanceId())) {
+                return false;
+            }
+
+            recentIds.put(formInstance.getInstanceId(), Boolean.TRUE);
+            queued.put(formInstance.getInstanceId(), formInstance);
+
+            if (queued.size() >= batchSize) {
+                fullBatch = drain();
+            }
+        }
+
+        if (fullBatch != null) {
+            save(fullBatch);
+        }
+        return true;
+    }
+
+    @Override
+    public void flush() {
+        List<FormInstance> batch;
+
+        synchronized (this) {
+            batch = drain();
+        }
+
+        if (!batch.isEmpty()) {
+            save(batch);
+        }
+    }
+
+    private List<FormInstance> drain() {
+        List<FormInstance> batch = new ArrayList<>(queued.values());
+        queued.clear();
+        return batch;
+    }
+
+    private void save(List<FormInstance> batch) {
+        try {
+            Map<String, FormInstance> byInstanceId = new LinkedHashMap<>();
+            for (FormInstance formInstance : batch) {
+                byInstanceId.put(formInstance.getInstanceId(), formInstance);
+            }
+
+            Set<String> existing = formInstanceService.getExistingInstanceIds(byInstanceId.keySet());
+            for (String instanceId : existing) {
+                LOGGER.error("Form Instance with ID: " + instanceId + " already exists. Discarding form instance data");
+                byInstanceId.remove(instanceId);
+            }
+
+            if (!byInstanceId.isEmpty()) {
+                LOGGER.debug("Saving {} form instances", byInstanceId.size());
+                formInstanceService.createAll(new ArrayList<>(byInstanceId.values()));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to save a batch of {} form instances, saving them one by one", batch.size(), e);
+            saveOneByOne(batch);
+        }
+    }
+
+    private void saveOneByOne(List<FormInstance> batch) {
+        for (FormInstance formInstance : batch) {
+            try {
+                if (formInstanceService.getByInstanceId(formInstance.getInstanceId()) == null) {
+                    formInstanceService.create(formInstance);
+                }
+            } catch (RuntimeException e) {
+                LOGGER.error("Unable to save form instance. Configuration name: " + formInstance.getConfigName() +
+                        " Title: " + formInstance.getTitle() + " Instance ID: " + formInstance.getInstanceId(), e);
+                forget(formInstance.getInstanceId());
+            }
+        }
+    }
+
+    private synchronized void forget(String instanceId) {
+        recentIds.remove(instanceId);
+    }
+}
@@ -6,6 +6,12 @@ import org.motechproject.odk.repository.FormInstanceDataService;
 import org.motechproject.odk.service.FormInstanceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Implementation of {@link FormInstanceService}.
@@ -25,4 +31,27 @@ public class FormInstanceServiceImpl implements FormInstanceService {
     public FormInstance getByInstanceId(String instanceId) {
         return formInstanceDataService.byInstanceId(instanceId);
     }
+
+    @Override
+    public void createAll(final List<FormInstance> formInstances) {
+        formInstanceDataService.doInTransaction(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                for (FormInstance formInstance : formInstances) {
+                    formInstanceDataService.create(formInstance);
+                }
+            }
+        });
+    }
+
+    @Override
+    public Set<String> getExistingInstanceIds(Set<String> instanceIds) {
+        Set<String> existing = new HashSet<>();
+        if (!instanceIds.isEmpty()) {
+            for (FormInstance formInstance : formInstanceDataService.byInstanceIds(instanceIds)) {
+                existing.add(formInstance.getInstanceId());
+            }
+        }
+        return existing;
+    }
 }
@@ -0,0 +1,28 @@
+package org.motechproject.odk.service.impl;
+
+import org.motechproject.odk.domain.SubmissionCheckpoint;
+import org.motechproject.odk.repository.SubmissionCheckpointDataService;
+import org.motechproject.odk.service.SubmissionCheckpointService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Implementation of {@link SubmissionCheckpointService}.
+ */
+@Service("odkSubmissionCheckpointService")
+public class SubmissionCheckpointServiceImpl implements SubmissionCheckpointService {
+
+    @Autowired
+    private SubmissionCheckpointDataService submissionCheckpointDataService;
+
+    @Override
+    public SubmissionCheckpoint getCheckpoint(String configName, String formTitle) {
+        SubmissionCheckpoint checkpoint = submissionCheckpointDataService.byConfigNameAndFormTitle(configName, formTitle);
+        return checkpoint == null ? new SubmissionCheckpoint(configName, formTitle) : checkpoint;
+    }
+
+    @Override
+    public SubmissionCheckpoint save(SubmissionCheckpoint checkpoint) {
+        return submissionCheckpointDataService.createOrUpdate(checkpoint);
+    }
+}
@@ -0,0 +1,34 @@
+package org.motechproject.odk.service.impl;
+
+import org.apache.http.osgi.services.HttpClientBuilderFactory;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.odk.domain.Configuration;
+import org.motechproject.odk.service.FormDefinitionService;
+import org.motechproject.odk.service.SubmissionCheckpointService;
+import org.motechproject.odk.service.SubmissionImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+
+/**
+ * Implementation of {@link SubmissionImportService} for KoboToolbox connections. Only the forms owned by the user
+ * of the configuration are looked up, as when the form definitions are imported.
+ */
+@Service("odkSubmissionImportServiceKobo")
+public class SubmissionImportServiceKobo extends AbstractOnaSubmissionImportService implements SubmissionImportService {
+
+    private static final String OWNER_QUERY = "&owner=";
+
+    @Autowired
+    public SubmissionImportServiceKobo(HttpClientBuilderFactory httpClientBuilderFactory, FormDefinitionService formDefinitionService,
+                                       SubmissionCheckpointService submissionCheckpointService, EventRelay eventRelay) {
+        super(httpClientBuilderFactory, formDefinitionService, submissionCheckpointService, eventRelay);
+    }
+
+    @Override
+    protected String buildFormsQuery(Configuration configuration, String idString) throws IOException {
+        return super.buildFormsQuery(configuration, idString) + OWNER_QUERY + URLEncoder.encode(configuration.getUsername(), "UTF-8");
+    }
+}
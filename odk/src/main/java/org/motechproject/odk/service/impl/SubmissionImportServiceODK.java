@@ -0,0 +1,266 @@
+package org.motechproject.odk.service.impl;
+
+import org.apache.http.osgi.services.HttpClientBuilderFactory;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.odk.constant.FieldTypeConstants;
+import org.motechproject.odk.constant.ODKConstants;
+import org.motechproject.odk.domain.Configuration;
+import org.motechproject.odk.domain.FormDefinition;
+import org.motechproject.odk.domain.FormElement;
+import org.motechproject.odk.domain.SubmissionPage;
+import org.motechproject.odk.exception.SubmissionImportException;
+import org.motechproject.odk.service.AbstractSubmissionImportService;
+import org.motechproject.odk.service.FormDefinitionService;
+import org.motechproject.odk.service.SubmissionCheckpointService;
+import org.motechproject.odk.service.SubmissionImportService;
+import org.motechproject.odk.util.FormUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPathExpressionException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementation of {@link SubmissionImportService} for ODK Aggregate connections. The submissions are pulled through
+ * the Briefcase API: the IDs of a page of submissions are listed with the resumption cursor of the previous page and
+ * each submission is then downloaded as XML, which is converted to the form instance data that ODK Aggregate
+ * publishes as JSON.
+ */
+@Service("odkSubmissionImportServiceODK")
+public class SubmissionImportServiceODK extends AbstractSubmissionImportService implements SubmissionImportService {
+
+    private static final String SUBMISSION_LIST_PATH = "/view/submissionList?formId=";
+    private static final String DOWNLOAD_SUBMISSION_PATH = "/view/downloadSubmission?formId=";
+    private static final String NUM_ENTRIES_QUERY = "&numEntries=";
+    private static final String CURSOR_QUERY = "&cursor=";
+    private static final String UTF_8 = "UTF-8";
+
+    private static final String ID = "id";
+    private static final String RESUMPTION_CURSOR = "resumptionCursor";
+    private static final String DATA = "data";
+    private static final String MEDIA_FILE = "mediaFile";
+    private static final String FILENAME = "filename";
+    private static final String DOWNLOAD_URL = "downloadUrl";
+    private static final String URL = "url";
+
+    private static final String INSTANCE_ID = "instanceID";
+    private static final String VERSION = "version";
+    private static final String UI_VERSION = "uiVersion";
+    private static final String SUBMISSION_DATE = "submissionDate";
+    private static final String IS_COMPLETE = "isComplete";
+    private static final String MARKED_AS_COMPLETE_DATE = "markedAsCompleteDate";
+
+    private static final String LATITUDE = ":Latitude";
+    private static final String[] GEOPOINT_FIELDS = {LATITUDE, ":Longitude", ":Altitude", ":Accuracy"};
+
+    @Autowired
+    public SubmissionImportServiceODK(HttpClientBuilderFactory httpClientBuilderFactory, FormDefinitionService formDefinitionService,
+                                      SubmissionCheckpointService submissionCheckpointService, EventRelay eventRelay) {
+        super(httpClientBuilderFactory, formDefinitionService, submissionCheckpointService, eventRelay);
+    }
+
+    @Override
+    protected SubmissionPage fetchPage(Configuration configuration, FormDefinition formDefinition, String cursor)
+            throws IOException, SubmissionImportException {
+        String formId;
+        String rootName;
+        try {
+            formId = FormUtils.getFormId(formDefinition.getXform());
+            rootName = FormUtils.getInstanceRootName(formDefinition.getXform());
+        } catch (XPathExpressionException e) {
+            throw new SubmissionImportException("Unable to read the ID of form " + formDefinition.getTitle(), e);
+        }
+
+        StringBuilder url = new StringBuilder(configuration.getUrl()).append(SUBMISSION_LIST_PATH)
+                .append(URLEncoder.encode(formId, UTF_8)).append(NUM_ENTRIES_QUERY).append(PAGE_SIZE);
+        if (cursor != null) {
+            url.append(CURSOR_QUERY).append(URLEncoder.encode(cursor, UTF_8));
+        }
+
+        Document idChunk = parse(get(url.toString(), configuration));
+        List<String> instanceIds = getTexts(idChunk.getElementsByTagNameNS("*", ID));
+        List<String> cursors = getTexts(idChunk.getElementsByTagNameNS("*", RESUMPTION_CURSOR));
+        String nextCursor = cursors.isEmpty() ? cursor : cursors.get(0);
+
+        Map<String, FormElement> formElements = new HashMap<>();
+        addFormElements(formDefinition.getFormElements(), formElements);
+
+        List<Map<String, Object>> submissions = new ArrayList<>();
+        String lastSubmissionTime = null;
+        for (String instanceId : instanceIds) {
+            String submissionKey = formId + "[@version=null and @uiVersion=null]/" + rootName + "[@key=" + instanceId + "]";
+            Document submission = parse(get(configuration.getUrl() + DOWNLOAD_SUBMISSION_PATH
+                    + URLEncoder.encode(submissionKey, UTF_8), configuration));
+
+            Map<String, Object> data = toData(submission, formElements);
+            lastSubmissionTime = (String) data.get(ODKConstants.META_SUBMISSION_DATE);
+            submissions.add(data);
+        }
+
+        return new SubmissionPage(submissions, nextCursor, lastSubmissionTime, instanceIds.size() < PAGE_SIZE);
+    }
+
+    private Map<String, Object> toData(Document submission, Map<String, FormElement> formElements) throws SubmissionImportException {
+        Map<String, String> mediaUrls = new HashMap<>();
+        NodeList mediaFiles = submission.getElementsByTagNameNS("*", MEDIA_FILE);
+        for (int i = 0; i < mediaFiles.getLength(); i++) {
+            Element mediaFile = (Element) mediaFiles.item(i);
+            mediaUrls.put(getChildText(mediaFile, FILENAME), getChildText(mediaFile, DOWNLOAD_URL));
+        }
+
+        NodeList data = submission.getElementsByTagNameNS("*", DATA);
+        Element instance = data.getLength() == 0 ? null : getFirstChildElement((Element) data.item(0));
+        if (instance == null) {
+            throw new SubmissionImportException("The submission does not contain form instance data");
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        values.put(ODKConstants.META_INSTANCE_ID, getAttribute(instance, INSTANCE_ID));
+        values.put(ODKConstants.META_MODEL_VERSION, getAttribute(instance, VERSION));
+        values.put(ODKConstants.META_UI_VERSION, getAttribute(instance, UI_VERSION));
+        values.put(ODKConstants.META_SUBMISSION_DATE, getAttribute(instance, SUBMISSION_DATE));
+        values.put(ODKConstants.META_IS_COMPLETE, Boolean.valueOf(getAttribute(instance, IS_COMPLETE)));
+        values.put(ODKConstants.META_DATE_MARKED_AS_COMPLETE, getAttribute(instance, MARKED_AS_COMPLETE_DATE));
+
+        addValues(instance, values, formElements, mediaUrls);
+        return values;
+    }
+
+    /**
+     * Adds the values of the child elements to the given map. Groups are flattened, the instances of repeat groups
+     * are added as a list of maps.
+     */
+    private void addValues(Element parent, Map<String, Object> values, Map<String, FormElement> formElements,
+                           Map<String, String> mediaUrls) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() != Node.ELEMENT_NODE) {
+                continue;
+            }
+            Element element = (Element) node;
+            String name = element.getLocalName();
+            FormElement formElement = formElements.get(name);
+
+            if (formElement != null && formElement.isRepeatGroup()) {
+                List<Map<String, Object>> instances = (List<Map<String, Object>>) values.get(name);
+                if (instances == null) {
+                    instances = new ArrayList<>();
+                    values.put(name, instances);
+                }
+                Map<String, Object> instanceValues = new HashMap<>();
+                addValues(element, instanceValues, formElements, mediaUrls);
+                instances.add(instanceValues);
+
+            } else if (getFirstChildElement(element) != null) {
+                addValues(element, values, formElements, mediaUrls);
+
+            } else if (formElement == null && formElements.containsKey(name + LATITUDE)) {
+                addGeopointValues(name, element.getTextContent(), values);
+
+            } else {
+                values.put(name, toValue(element.getTextContent(), formElement, mediaUrls));
+            }
+        }
+    }
+
+    private void addGeopointValues(String name, String text, Map<String, Object> values) {
+        String[] coordinates = text.trim().isEmpty() ? new String[0] : text.trim().split("\\s+");
+
+        for (int i = 0; i < GEOPOINT_FIELDS.length; i++) {
+            values.put(name + GEOPOINT_FIELDS[i], i < coordinates.length ? Double.valueOf(coordinates[i]) : null);
+        }
+    }
+
+    private Object toValue(String content, FormElement formElement, Map<String, String> mediaUrls) {
+        String text = content.trim();
+        if (text.isEmpty()) {
+            return null;
+        } else if (formElement == null) {
+            return text;
+        }
+
+        switch (formElement.getType()) {
+            case FieldTypeConstants.INT:
+                return Integer.valueOf(text);
+
+            case FieldTypeConstants.DECIMAL:
+                return Double.valueOf(text);
+
+            case FieldTypeConstants.BOOLEAN:
+                return Boolean.valueOf(text);
+
+            case FieldTypeConstants.SELECT:
+                return Arrays.asList(text.split("\\s+"));
+
+            case FieldTypeConstants.BINARY:
+                Map<String, String> binary = new HashMap<>();
+                binary.put(URL, mediaUrls.get(text));
+                return binary;
+
+            default:
+                return text;
+        }
+    }
+
+    private void addFormElements(List<FormElement> elements, Map<String, FormElement> formElements) {
+        if (elements != null) {
+            for (FormElement formElement : elements) {
+                formElements.put(formElement.getName(), formElement);
+                addFormElements(formElement.getChildren(), formElements);
+            }
+        }
+    }
+
+    private Document parse(String xml) throws IOException, SubmissionImportException {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setNamespaceAware(true);
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        } catch (ParserConfigurationException|SAXException e) {
+            throw new SubmissionImportException("Malformed response from ODK Aggregate", e);
+        }
+    }
+
+    private List<String> getTexts(NodeList nodes) {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            texts.add(nodes.item(i).getTextContent().trim());
+        }
+        return texts;
+    }
+
+    private String getChildText(Element parent, String name) {
+        NodeList children = parent.getElementsByTagNameNS("*", name);
+        return children.getLength() == 0 ? null : children.item(0).getTextContent().trim();
+    }
+
+    private String getAttribute(Element element, String name) {
+        return element.hasAttribute(name) ? element.getAttribute(name) : null;
+    }
+
+    private Element getFirstChildElement(Element parent) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                return (Element) node;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package org.motechproject.odk.service.impl;
+
+import org.apache.http.osgi.services.HttpClientBuilderFactory;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.odk.service.FormDefinitionService;
+import org.motechproject.odk.service.SubmissionCheckpointService;
+import org.motechproject.odk.service.SubmissionImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Implementation of {@link SubmissionImportService} for Ona.io connections.
+ */
+@Service("odkSubmissionImportServiceOna")
+public class SubmissionImportServiceOna extends AbstractOnaSubmissionImportService implements SubmissionImportService {
+
+    @Autowired
+    public SubmissionImportServiceOna(HttpClientBuilderFactory httpClientBuilderFactory, FormDefinitionService formDefinitionService,
+                                      SubmissionCheckpointService submissionCheckpointService, EventRelay eventRelay) {
+        super(httpClientBuilderFactory, formDefinitionService, submissionCheckpointService, eventRelay);
+    }
+}
@@ -1,12 +1,23 @@
 package org.motechproject.odk.util;
 
 import org.motechproject.odk.exception.MalformedUriException;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.StringReader;
 
 /**
  * Utility class for form parsers.
  */
 public final class FormUtils {
 
+    private static final String INSTANCE_ROOT_PATH = "/*[local-name()='html']/*[local-name()='head']"
+            + "/*[local-name()='model']/*[local-name()='instance']/*[@id]";
+    private static final String ID = "id";
+
     private FormUtils() {
 
     }
@@ -69,4 +80,34 @@ public final class FormUtils {
         }
     }
 
+    /**
+     * Returns the ID of the form, the id attribute of the root element of the form instance.
+     * @param xform The XForm definition of the form.
+     * @return The ID of the form.
+     * @throws XPathExpressionException if the XForm does not define an instance root
+     */
+    public static String getFormId(String xform) throws XPathExpressionException {
+        return getInstanceRoot(xform).getAttribute(ID);
+    }
+
+    /**
+     * Returns the name of the root element of the form instance.
+     * @param xform The XForm definition of the form.
+     * @return The name of the instance root element.
+     * @throws XPathExpressionException if the XForm does not define an instance root
+     */
+    public static String getInstanceRootName(String xform) throws XPathExpressionException {
+        String name = getInstanceRoot(xform).getNodeName();
+        return name.substring(name.indexOf(':') + 1);
+    }
+
+    private static Element getInstanceRoot(String xform) throws XPathExpressionException {
+        Element root = (Element) XPathFactory.newInstance().newXPath()
+                .evaluate(INSTANCE_ROOT_PATH, new InputSource(new StringReader(xform)), XPathConstants.NODE);
+        if (root == null) {
+            throw new XPathExpressionException("The XForm does not define an instance root element");
+        }
+        return root;
+    }
+
 }
@@ -1,6 +1,6 @@
 package org.motechproject.odk.web;
 
-
+import org.codehaus.jackson.map.ObjectMapper;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
 import org.motechproject.odk.domain.Configuration;
@@ -21,7 +21,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller that maps to /forms. Receives forms from external applications and publishes the appropriate events
@@ -39,6 +42,11 @@ public class FormController {
     private static final String PUBLISHING_EVENT = "Publishing event with subject: ";
     private static final String PUBLISHING_FAILURE = "Publishing form receipt failure event:\n";
     private static final String ERROR_JSON = "Error parsing JSON form data";
+    private static final String RECEIVED_BULK = "Received bulk submission of form: ";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final FormEventBuilderFactory eventBuilderFactory = new FormEventBuilderFactory();
 
     @Autowired
     private ConfigurationService configurationService;
@@ -77,9 +85,39 @@ public class FormController {
         }
     }
 
+    /**
+     * Recieves multiple form instances from an aggregate server and publishes the events of all of them at once, after
+     * all of them were processed. A form instance which cannot be processed results in a failure event for that form
+     * instance only. The body is the publication of the form instances for ODK configurations and a JSON array of the
+     * form instances for Ona and Kobo configurations.
+     * @param config The name of the {@link Configuration}
+     * @param form The title of the form.
+     * @param body The JSON representation of the form instances.
+     */
+    @RequestMapping(value = "/{config}/{form}/bulk", method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.OK)
+    public void receiveForms(@PathVariable("config") String config, @PathVariable("form") String form, @RequestBody String body) {
+        LOGGER.debug(RECEIVED_BULK + form + " " + CONFIGURATION + config);
+
+        Configuration configuration = configurationService.getConfigByName(config);
+        FormDefinition formDefinition = formDefinitionService.findByConfigurationNameAndTitle(config, form);
+
+        if (configuration == null) {
+            LOGGER.error(CONFIGURATION + config + DOES_NOT_EXIST);
+            publishFailureEvent(CONFIGURATION + " " + config + DOES_NOT_EXIST, null, config, form, body);
+
+        } else if (formDefinition == null) {
+            LOGGER.error(FORM + form + FORM);
+            publishFailureEvent(FORM + form + FORM, null, config, form, body);
+
+        } else {
+            publishBulkEvents(body, configuration, formDefinition);
+        }
+    }
+
     private void publishEvents(String body, Configuration configuration, FormDefinition formDefinition) {
         try {
-            EventBuilder builder = new FormEventBuilderFactory().getBuilder(configuration.getType());
+            EventBuilder builder = eventBuilderFactory.getBuilder(configuration.getType());
             List<MotechEvent> events = builder.createEvents(body, formDefinition, configuration);
 
             for (MotechEvent event : events) {
@@ -93,6 +131,44 @@ public class FormController {
         }
     }
 
+    private void publishBulkEvents(String body, Configuration configuration, FormDefinition formDefinition) {
+        List<Map<String, Object>> submissions;
+        EventBuilder builder;
+
+        try {
+            builder = eventBuilderFactory.getBuilder(configuration.getType());
+            submissions = builder.getSubmissions(body);
+        } catch (Exception e) {
+            LOGGER.error(PUBLISHING_FAILURE + e.toString());
+            publishFailureEvent(ERROR_JSON, e.toString(), configuration.getName(), formDefinition.getTitle(), body);
+            return;
+        }
+
+        List<MotechEvent> events = new ArrayList<>();
+        for (Map<String, Object> submission : submissions) {
+            try {
+                events.addAll(builder.createEvents(submission, formDefinition, configuration));
+            } catch (Exception e) {
+                LOGGER.error(PUBLISHING_FAILURE + e.toString());
+                publishFailureEvent(ERROR_JSON, e.toString(), configuration.getName(), formDefinition.getTitle(),
+                        toJson(submission));
+            }
+        }
+
+        LOGGER.debug("Publishing {} events for {} form instances", events.size(), submissions.size());
+        for (MotechEvent event : events) {
+            eventRelay.sendEventMessage(event);
+        }
+    }
+
+    private String toJson(Map<String, Object> submission) {
+        try {
+            return MAPPER.writeValueAsString(submission);
+        } catch (IOException e) {
+            return String.valueOf(submission);
+        }
+    }
+
     private void publishFailureEvent(String message, String error, String configName, String formTitle, String body) {
         FailureEventBuilder builder = new FailureEventBuilder();
         builder.setMessage(message)
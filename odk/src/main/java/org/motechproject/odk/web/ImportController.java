@@ -6,6 +6,7 @@ import org.motechproject.odk.domain.ImportStatus;
 import org.motechproject.odk.exception.ConfigurationTypeException;
 import org.motechproject.odk.service.ConfigurationService;
 import org.motechproject.odk.service.factory.FormDefinitionImportServiceFactory;
+import org.motechproject.odk.service.factory.SubmissionImportServiceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,7 +20,7 @@ import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
 /**
- * Controller mapped to /import. This controller initiates the form definition import process.
+ * Controller mapped to /import. This controller initiates the form definition and the submission import processes.
  *
  */
 @Controller
@@ -30,6 +31,9 @@ public class ImportController {
     @Autowired
     private FormDefinitionImportServiceFactory formDefinitionImportServiceFactory;
 
+    @Autowired
+    private SubmissionImportServiceFactory submissionImportServiceFactory;
+
     @Autowired
     private ConfigurationService configurationService;
 
@@ -51,4 +55,28 @@ public class ImportController {
             return new ImportStatus(false);
         }
     }
+
+    /**
+     * Imports the submissions received by the external application since the last submission import, for a
+     * configuration identified by the name in the path. The request returns once the import is finished.
+     * @param config The name of the configuration.
+     * @return {@link ImportStatus} True if successful; false otherwise.
+     */
+    @RequestMapping(value = "/import/{config}/submissions", method = RequestMethod.GET)
+    @ResponseStatus(HttpStatus.OK)
+    @ResponseBody
+    @PreAuthorize("hasRole('importFormsODK')")
+    public ImportStatus importSubmissions(@PathVariable("config") String config) {
+        try {
+            Configuration configuration = configurationService.getConfigByName(config);
+            if (configuration == null) {
+                LOGGER.error("Configuration: " + config + " does not exist");
+                return new ImportStatus(false);
+            }
+            return submissionImportServiceFactory.getService(configuration.getType()).importSubmissions(configuration);
+        } catch (ConfigurationTypeException e) {
+            LOGGER.error(e.toString());
+            return new ImportStatus(false);
+        }
+    }
 }
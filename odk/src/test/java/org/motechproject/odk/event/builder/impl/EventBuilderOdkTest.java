@@ -12,8 +12,10 @@ import org.motechproject.odk.event.builder.EventBuilder;
 import org.motechproject.odk.parser.impl.XformParserODK;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -113,6 +115,43 @@ public class EventBuilderOdkTest {
 
     }
 
+    @Test
+    public void testOnaBulkSubmissions() throws Exception {
+
+        EventBuilder builder = new EventBuilderOna();
+        List<Map<String, Object>> submissions = builder.getSubmissions("[" + json + "," + json + "]");
+        assertEquals(2, submissions.size());
+
+        for (Map<String, Object> submission : submissions) {
+            List<MotechEvent> eventList = builder.createEvents(submission, formDefinition, configuration);
+            assertEquals(7, eventList.size());
+            assertEquals("org.motechproject.odk.recieved_form.configName.ona_nested_repeats",
+                    eventList.get(eventList.size() - 1).getSubject());
+        }
+    }
+
+
+    @Test
+    public void testOnaLargeRepeatGroups() throws Exception {
+
+        EventBuilder builder = new EventBuilderOna();
+        Map<String, Object> submission = builder.getSubmissions("[" + json + "]").get(0);
+        List<Object> outerGroups = (List<Object>) submission.get("outer_group");
+        List<Object> manyOuterGroups = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            manyOuterGroups.add(outerGroups.get(i % outerGroups.size()));
+        }
+        submission.put("outer_group", manyOuterGroups);
+
+        List<MotechEvent> eventList = builder.createEvents(submission, formDefinition, configuration);
+        assertEquals(500 * 3 + 1, eventList.size());
+
+        MotechEvent first = eventList.get(0);
+        MotechEvent last = eventList.get(eventList.size() - 2);
+        first.getParameters().put("root_scope_field", "changed");
+        assertEquals("root scope", last.getParameters().get("root_scope_field"));
+        assertEquals("outer group 2 inner group field 2", last.getParameters().get("outer_group/inner_group/inner_group_field"));
+    }
 
     private void alterFormDef(FormDefinition formDefinition) {
         List<FormElement> formElements = formDefinition.getFormElements();
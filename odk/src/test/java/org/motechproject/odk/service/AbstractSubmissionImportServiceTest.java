@@ -0,0 +1,230 @@
+package org.motechproject.odk.service;
+
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.osgi.services.HttpClientBuilderFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.odk.constant.EventParameters;
+import org.motechproject.odk.constant.EventSubjects;
+import org.motechproject.odk.constant.FieldTypeConstants;
+import org.motechproject.odk.domain.Configuration;
+import org.motechproject.odk.domain.ConfigurationType;
+import org.motechproject.odk.domain.FormDefinition;
+import org.motechproject.odk.domain.FormElement;
+import org.motechproject.odk.domain.SubmissionCheckpoint;
+import org.motechproject.odk.domain.SubmissionPage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class AbstractSubmissionImportServiceTest {
+
+    private static final String CONFIG_NAME = "config";
+    private static final String FORM_TITLE = "form";
+
+    @Mock
+    private HttpClientBuilderFactory httpClientBuilderFactory;
+
+    @Mock
+    private FormDefinitionService formDefinitionService;
+
+    @Mock
+    private SubmissionCheckpointService submissionCheckpointService;
+
+    @Mock
+    private EventRelay eventRelay;
+
+    private PagedSubmissionImportService importService;
+    private Configuration configuration;
+    private SubmissionCheckpoint checkpoint;
+    private List<String> savedCursors = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        configuration = new Configuration("http://localhost", "user", "password", CONFIG_NAME, ConfigurationType.ONA, true);
+        checkpoint = new SubmissionCheckpoint(CONFIG_NAME, FORM_TITLE);
+
+        FormDefinition formDefinition = new FormDefinition(CONFIG_NAME);
+        formDefinition.setTitle(FORM_TITLE);
+        formDefinition.setFormElements(Arrays.asList(
+                new FormElement("name", "name", FieldTypeConstants.STRING, null, false),
+                new FormElement("photo", "photo", FieldTypeConstants.BINARY, null, false)));
+
+        when(httpClientBuilderFactory.newBuilder()).thenReturn(HttpClientBuilder.create());
+        when(formDefinitionService.findAllByConfigName(CONFIG_NAME)).thenReturn(Collections.singletonList(formDefinition));
+        when(submissionCheckpointService.getCheckpoint(CONFIG_NAME, FORM_TITLE)).thenReturn(checkpoint);
+        when(submissionCheckpointService.save(any(SubmissionCheckpoint.class))).thenAnswer(new Answer<SubmissionCheckpoint>() {
+            @Override
+            public SubmissionCheckpoint answer(InvocationOnMock invocation) {
+                SubmissionCheckpoint saved = (SubmissionCheckpoint) invocation.getArguments()[0];
+                savedCursors.add(saved.getCursor());
+                return saved;
+            }
+        });
+
+        importService = new PagedSubmissionImportService(httpClientBuilderFactory, formDefinitionService,
+                submissionCheckpointService, eventRelay);
+    }
+
+    @After
+    public void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    public void shouldResumeFromTheCheckpointAndSaveItAfterEveryPage() {
+        checkpoint.setCursor("1");
+        importService.addPage("1", page("3", "2016-01-02", false, submission("second"), submission("third")));
+        importService.addPage("3", page("4", "2016-01-03", true, submission("fourth")));
+
+        assertTrue(importService.importSubmissions(configuration).isImported());
+
+        assertEquals(Arrays.asList("1", "3"), importService.getRequestedCursors());
+        assertEquals(Arrays.asList("3", "4"), savedCursors);
+        assertEquals("4", checkpoint.getCursor());
+        assertEquals("2016-01-03", checkpoint.getLastSubmissionTime());
+        assertEquals(Arrays.asList("second", "third", "fourth"), publishedNames(EventSubjects.RECEIVED_FORM));
+    }
+
+    @Test
+    public void shouldStartFromTheFirstSubmissionWithoutCheckpoint() {
+        importService.addPage(null, page("1", "2016-01-01", true, submission("first")));
+
+        assertTrue(importService.importSubmissions(configuration).isImported());
+
+        assertEquals(Collections.singletonList((String) null), importService.getRequestedCursors());
+        assertEquals(Collections.singletonList("1"), savedCursors);
+    }
+
+    @Test
+    public void shouldNotMoveTheCheckpointWithoutNewSubmissions() {
+        checkpoint.setCursor("4");
+        importService.addPage("4", page("4", null, true));
+
+        assertTrue(importService.importSubmissions(configuration).isImported());
+
+        verify(submissionCheckpointService, never()).save(any(SubmissionCheckpoint.class));
+        verify(eventRelay, never()).sendEventMessage(any(MotechEvent.class));
+    }
+
+    @Test
+    public void shouldKeepTheCheckpointOfTheLastPublishedPageWhenFetchingFails() {
+        importService.addPage(null, page("2", "2016-01-01", false, submission("first"), submission("second")));
+        importService.failAt("2");
+
+        assertFalse(importService.importSubmissions(configuration).isImported());
+
+        assertEquals(Arrays.asList(null, "2"), importService.getRequestedCursors());
+        assertEquals(Collections.singletonList("2"), savedCursors);
+        assertEquals(Arrays.asList("first", "second"), publishedNames(EventSubjects.RECEIVED_FORM));
+    }
+
+    @Test
+    public void shouldPublishFailureEventAndGoOnWhenSubmissionCannotBeConverted() {
+        Map<String, Object> broken = submission("broken");
+        // there is no attachment for the photo, so its URL cannot be built
+        broken.put("photo", "photo.jpg");
+        importService.addPage(null, page("2", "2016-01-01", true, broken, submission("second")));
+
+        assertTrue(importService.importSubmissions(configuration).isImported());
+
+        assertEquals(Collections.singletonList("second"), publishedNames(EventSubjects.RECEIVED_FORM));
+        List<MotechEvent> failures = publishedEvents(EventSubjects.FORM_FAIL);
+        assertEquals(1, failures.size());
+        assertEquals(CONFIG_NAME, failures.get(0).getParameters().get(EventParameters.CONFIGURATION_NAME));
+        assertEquals(FORM_TITLE, failures.get(0).getParameters().get(EventParameters.FORM_TITLE));
+        assertEquals(Collections.singletonList("2"), savedCursors);
+    }
+
+    private List<String> publishedNames(String subjectPrefix) {
+        List<String> names = new ArrayList<>();
+        for (MotechEvent event : publishedEvents(subjectPrefix)) {
+            names.add((String) event.getParameters().get("name"));
+        }
+        return names;
+    }
+
+    private List<MotechEvent> publishedEvents(String subjectPrefix) {
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay, atLeastOnce()).sendEventMessage(captor.capture());
+
+        List<MotechEvent> events = new ArrayList<>();
+        for (MotechEvent event : captor.getAllValues()) {
+            if (event.getSubject().startsWith(subjectPrefix)) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private SubmissionPage page(String cursor, String lastSubmissionTime, boolean last, Map<String, Object>... submissions) {
+        return new SubmissionPage(Arrays.asList(submissions), cursor, lastSubmissionTime, last);
+    }
+
+    private Map<String, Object> submission(String name) {
+        Map<String, Object> submission = new HashMap<>();
+        submission.put("name", name);
+        return submission;
+    }
+
+    /**
+     * Serves pages prepared by the test, by the cursor they follow.
+     */
+    private static class PagedSubmissionImportService extends AbstractSubmissionImportService {
+
+        private final Map<String, SubmissionPage> pages = new HashMap<>();
+        private final List<String> requestedCursors = Collections.synchronizedList(new ArrayList<String>());
+        private String failingCursor;
+
+        PagedSubmissionImportService(HttpClientBuilderFactory httpClientBuilderFactory, FormDefinitionService formDefinitionService,
+                                     SubmissionCheckpointService submissionCheckpointService, EventRelay eventRelay) {
+            super(httpClientBuilderFactory, formDefinitionService, submissionCheckpointService, eventRelay);
+        }
+
+        void addPage(String cursor, SubmissionPage page) {
+            pages.put(cursor, page);
+        }
+
+        void failAt(String cursor) {
+            failingCursor = cursor;
+        }
+
+        List<String> getRequestedCursors() {
+            return requestedCursors;
+        }
+
+        @Override
+        protected SubmissionPage fetchPage(Configuration configuration, FormDefinition formDefinition, String cursor)
+                throws IOException {
+            requestedCursors.add(cursor);
+            if (cursor != null && cursor.equals(failingCursor)) {
+                throw new IOException("Connection reset");
+            }
+            return pages.get(cursor);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package org.motechproject.odk.service.impl;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.osgi.services.HttpClientBuilderFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.odk.domain.Configuration;
+import org.motechproject.odk.domain.ConfigurationType;
+import org.motechproject.odk.domain.FormDefinition;
+import org.motechproject.odk.domain.SubmissionPage;
+import org.motechproject.odk.exception.SubmissionImportException;
+import org.motechproject.odk.service.FormDefinitionService;
+import org.motechproject.odk.service.SubmissionCheckpointService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class AbstractOnaSubmissionImportServiceTest {
+
+    private static final String SERVER_URL = "https://ona.io";
+    private static final String FORMS_URL = SERVER_URL + "/api/v1/forms?id_string=household_form";
+    private static final String DATA_URL = SERVER_URL + "/api/v1/data/42?sort={\"_id\":1}&page=1&page_size=100";
+
+    private static final String XFORM = "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:h=\"http://www.w3.org/1999/xhtml\">"
+            + "<h:head><h:title>Household</h:title><model><instance>"
+            + "<household id=\"household_form\"><name/></household>"
+            + "</instance></model></h:head><h:body/></h:html>";
+
+    @Mock
+    private HttpClientBuilderFactory httpClientBuilderFactory;
+
+    @Mock
+    private FormDefinitionService formDefinitionService;
+
+    @Mock
+    private SubmissionCheckpointService submissionCheckpointService;
+
+    @Mock
+    private EventRelay eventRelay;
+
+    @Mock
+    private HttpClient httpClient;
+
+    private AbstractOnaSubmissionImportService importService;
+    private Configuration configuration;
+    private FormDefinition formDefinition;
+
+    private List<String> requestedUris = new ArrayList<>();
+    private String forms = "[{\"formid\":42,\"id_string\":\"household_form\"}]";
+    private String data = "[]";
+    private int dataStatus = 200;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+
+        configuration = new Configuration(SERVER_URL, "user", "password", "config", ConfigurationType.ONA, true);
+
+        formDefinition = new FormDefinition("config");
+        formDefinition.setTitle("Household");
+        formDefinition.setXform(XFORM);
+
+        when(httpClientBuilderFactory.newBuilder()).thenReturn(HttpClientBuilder.create());
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(new Answer<HttpResponse>() {
+            @Override
+            public HttpResponse answer(InvocationOnMock invocation) throws Exception {
+                return respond((HttpUriRequest) invocation.getArguments()[0]);
+            }
+        });
+
+        importService = createImportService(new SubmissionImportServiceOna(httpClientBuilderFactory, formDefinitionService,
+                submissionCheckpointService, eventRelay));
+    }
+
+    @After
+    public void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    public void shouldFetchTheFirstPageSortedById() throws Exception {
+        data = "[{\"_id\":7,\"_submission_time\":\"2016-01-01T10:00:00\",\"name\":\"first\"},"
+                + "{\"_id\":9,\"_submission_time\":\"2016-01-01T10:00:00\",\"name\":\"second\"}]";
+
+        SubmissionPage page = importService.fetchPage(configuration, formDefinition, null);
+
+        assertEquals(FORMS_URL, requestedUris.get(0));
+        assertEquals(DATA_URL, requestedUris.get(1));
+        assertEquals(2, page.getSubmissions().size());
+        assertEquals("second", page.getSubmissions().get(1).get("name"));
+        assertEquals("9", page.getCursor());
+        assertEquals("2016-01-01T10:00:00", page.getLastSubmissionTime());
+        assertTrue(page.isLast());
+    }
+
+    @Test
+    public void shouldFetchTheSubmissionsFollowingTheCursor() throws Exception {
+        importService.fetchPage(configuration, formDefinition, "9");
+
+        assertEquals(DATA_URL + "&query={\"_id\":{\"$gt\":9}}", requestedUris.get(1));
+    }
+
+    @Test
+    public void shouldKeepTheCursorWhenThereAreNoNewSubmissions() throws Exception {
+        SubmissionPage page = importService.fetchPage(configuration, formDefinition, "9");
+
+        assertTrue(page.getSubmissions().isEmpty());
+        assertEquals("9", page.getCursor());
+        assertNull(page.getLastSubmissionTime());
+        assertTrue(page.isLast());
+    }
+
+    @Test
+    public void shouldNotBeLastPageWhenPageIsFull() throws Exception {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 1; i <= 100; i++) {
+            json.append(i > 1 ? "," : "").append("{\"_id\":").append(i).append('}');
+        }
+        data = json.append(']').toString();
+
+        SubmissionPage page = importService.fetchPage(configuration, formDefinition, null);
+
+        assertEquals(100, page.getSubmissions().size());
+        assertEquals("100", page.getCursor());
+        assertFalse(page.isLast());
+    }
+
+    @Test
+    public void shouldLookUpTheFormIdOnce() throws Exception {
+        importService.fetchPage(configuration, formDefinition, null);
+        importService.fetchPage(configuration, formDefinition, "9");
+
+        assertEquals(3, requestedUris.size());
+        assertEquals(FORMS_URL, requestedUris.get(0));
+    }
+
+    @Test
+    public void shouldLookUpTheFormIdAgainAfterFetchingDataFailed() throws Exception {
+        dataStatus = 404;
+        try {
+            importService.fetchPage(configuration, formDefinition, null);
+            fail("Expected the failed request to be reported");
+        } catch (SubmissionImportException e) {
+            // expected
+        }
+
+        dataStatus = 200;
+        importService.fetchPage(configuration, formDefinition, null);
+
+        assertEquals(4, requestedUris.size());
+        assertEquals(FORMS_URL, requestedUris.get(2));
+    }
+
+    @Test(expected = SubmissionImportException.class)
+    public void shouldFailWhenTheFormDoesNotExist() throws Exception {
+        forms = "[]";
+
+        importService.fetchPage(configuration, formDefinition, null);
+    }
+
+    @Test
+    public void shouldOnlyLookUpTheFormsOfTheUserOnKobo() throws Exception {
+        importService.shutdown();
+        importService = createImportService(new SubmissionImportServiceKobo(httpClientBuilderFactory, formDefinitionService,
+                submissionCheckpointService, eventRelay));
+
+        importService.fetchPage(configuration, formDefinition, null);
+
+        assertEquals(FORMS_URL + "&owner=user", requestedUris.get(0));
+    }
+
+    private AbstractOnaSubmissionImportService createImportService(AbstractOnaSubmissionImportService service) {
+        ReflectionTestUtils.setField(service, "client", httpClient);
+        return service;
+    }
+
+    private HttpResponse respond(HttpUriRequest request) throws Exception {
+        String uri = URLDecoder.decode(request.getURI().toString(), "UTF-8");
+        requestedUris.add(uri);
+
+        boolean formsRequest = uri.contains("/forms");
+        int status = formsRequest ? 200 : dataStatus;
+
+        HttpResponse response = new BasicHttpResponse(new BasicStatusLine(HttpVersion.HTTP_1_1, status, "status"));
+        response.setEntity(new StringEntity(formsRequest ? forms : data, "UTF-8"));
+        return response;
+    }
+}
@@ -0,0 +1,96 @@
+package org.motechproject.odk.service.impl;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.odk.domain.Configuration;
+import org.motechproject.odk.domain.ConfigurationType;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class ConfigurationServiceImplTest {
+
+    private static final String CONFIG_FILE_NAME = "settings.json";
+    private static final String CONFIG_NAME = "config";
+
+    @Mock
+    private SettingsFacade settingsFacade;
+
+    private ConfigurationServiceImpl configurationService;
+
+    private String settingsJson = "{\"configurations\":[]}";
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+
+        when(settingsFacade.getRawConfig(CONFIG_FILE_NAME)).thenAnswer(new Answer<InputStream>() {
+            @Override
+            public InputStream answer(InvocationOnMock invocation) {
+                return new ByteArrayInputStream(settingsJson.getBytes());
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Exception {
+                try (InputStream is = ((Resource) invocation.getArguments()[1]).getInputStream()) {
+                    settingsJson = IOUtils.toString(is);
+                }
+                return null;
+            }
+        }).when(settingsFacade).saveRawConfig(eq(CONFIG_FILE_NAME), any(Resource.class));
+
+        configurationService = new ConfigurationServiceImpl(settingsFacade);
+    }
+
+    @Test
+    public void shouldFindTheConfigurationOnceItIsAdded() {
+        assertNull(configurationService.getConfigByName(CONFIG_NAME));
+
+        configurationService.addOrUpdateConfiguration(configuration("http://ona.io"));
+
+        assertNotNull(configurationService.getConfigByName(CONFIG_NAME));
+        assertEquals("http://ona.io", configurationService.getConfigByName(CONFIG_NAME).getUrl());
+    }
+
+    @Test
+    public void shouldFindTheUpdatedConfiguration() {
+        configurationService.addOrUpdateConfiguration(configuration("http://ona.io"));
+        configurationService.getConfigByName(CONFIG_NAME);
+
+        configurationService.addOrUpdateConfiguration(configuration("http://kc.kobotoolbox.org"));
+
+        assertEquals("http://kc.kobotoolbox.org", configurationService.getConfigByName(CONFIG_NAME).getUrl());
+        assertEquals(1, configurationService.getAllConfigs().size());
+    }
+
+    @Test
+    public void shouldNotFindTheConfigurationOnceItIsRemoved() {
+        configurationService.addOrUpdateConfiguration(configuration("http://ona.io"));
+        configurationService.getConfigByName(CONFIG_NAME);
+
+        configurationService.removeConfiguration(CONFIG_NAME);
+
+        assertNull(configurationService.getConfigByName(CONFIG_NAME));
+        assertEquals(0, configurationService.getAllConfigs().size());
+    }
+
+    private Configuration configuration(String url) {
+        return new Configuration(url, "user", "password", CONFIG_NAME, ConfigurationType.ONA, true);
+    }
+}
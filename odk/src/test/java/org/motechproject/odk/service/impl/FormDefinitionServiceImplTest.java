@@ -0,0 +1,78 @@
+package org.motechproject.odk.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.motechproject.odk.domain.FormDefinition;
+import org.motechproject.odk.repository.FormDefinitionDataService;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class FormDefinitionServiceImplTest {
+
+    private static final String CONFIG_NAME = "config";
+    private static final String FORM_TITLE = "household";
+
+    @Mock
+    private FormDefinitionDataService formDefinitionDataService;
+
+    @InjectMocks
+    private FormDefinitionServiceImpl formDefinitionService = new FormDefinitionServiceImpl();
+
+    private FormDefinition formDefinition;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        formDefinition = formDefinition();
+        when(formDefinitionDataService.byConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE)).thenReturn(formDefinition);
+    }
+
+    @Test
+    public void shouldLookUpTheFormDefinitionOnce() {
+        assertSame(formDefinition, formDefinitionService.findByConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE));
+        assertSame(formDefinition, formDefinitionService.findByConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE));
+
+        verify(formDefinitionDataService).byConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE);
+    }
+
+    @Test
+    public void shouldLookUpTheFormDefinitionAgainOnceItIsReplaced() {
+        formDefinitionService.findByConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE);
+
+        FormDefinition replacement = formDefinition();
+        formDefinitionService.create(replacement);
+        when(formDefinitionDataService.byConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE)).thenReturn(replacement);
+
+        assertSame(replacement, formDefinitionService.findByConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE));
+        verify(formDefinitionDataService).create(replacement);
+        verify(formDefinitionDataService, times(2)).byConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE);
+    }
+
+    @Test
+    public void shouldNotFindTheFormDefinitionOnceItsConfigurationIsDeleted() {
+        formDefinitionService.findByConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE);
+
+        when(formDefinitionDataService.byConfigurationName(CONFIG_NAME)).thenReturn(Collections.singletonList(formDefinition));
+        formDefinitionService.deleteFormDefinitionsByConfigurationName(CONFIG_NAME);
+        when(formDefinitionDataService.byConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE)).thenReturn(null);
+
+        assertNull(formDefinitionService.findByConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE));
+        verify(formDefinitionDataService).delete(formDefinition);
+    }
+
+    private FormDefinition formDefinition() {
+        FormDefinition definition = new FormDefinition(CONFIG_NAME);
+        definition.setTitle(FORM_TITLE);
+        return definition;
+    }
+}
@@ -0,0 +1,72 @@
+package org.motechproject.odk.service.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.motechproject.odk.domain.FormInstance;
+import org.motechproject.odk.service.FormInstanceService;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class FormInstanceBatchServiceImplTest {
+
+    @Mock
+    private FormInstanceService formInstanceService;
+
+    private FormInstanceBatchServiceImpl batchService;
+
+    @Before
+    public void setup() {
+        initMocks(this);
+        batchService = new FormInstanceBatchServiceImpl(formInstanceService, 3, 60000, 100);
+        when(formInstanceService.getExistingInstanceIds(anySetOf(String.class))).thenReturn(Collections.<String>emptySet());
+    }
+
+    @Test
+    public void shouldSaveFullBatchAtOnce() {
+        assertTrue(batchService.queue(new FormInstance("title", "config", "id1")));
+        assertTrue(batchService.queue(new FormInstance("title", "config", "id2")));
+        verify(formInstanceService, never()).createAll(anyListOf(FormInstance.class));
+
+        assertTrue(batchService.queue(new FormInstance("title", "config", "id3")));
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(formInstanceService).createAll(captor.capture());
+        assertEquals(3, captor.getValue().size());
+        verify(formInstanceService, times(1)).getExistingInstanceIds(anySetOf(String.class));
+    }
+
+    @Test
+    public void shouldDiscardDuplicatesAndExistingInstances() {
+        when(formInstanceService.getExistingInstanceIds(anySetOf(String.class)))
+                .thenReturn(Collections.singleton("id2"));
+
+        assertTrue(batchService.queue(new FormInstance("title", "config", "id1")));
+        assertFalse(batchService.queue(new FormInstance("title", "config", "id1")));
+        assertTrue(batchService.queue(new FormInstance("title", "config", "id2")));
+        batchService.flush();
+
+        ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(formInstanceService).createAll(captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertEquals("id1", ((FormInstance) captor.getValue().get(0)).getInstanceId());
+
+        ArgumentCaptor<Set> idsCaptor = ArgumentCaptor.forClass(Set.class);
+        verify(formInstanceService).getExistingInstanceIds(idsCaptor.capture());
+        assertEquals(2, idsCaptor.getValue().size());
+    }
+}
@@ -0,0 +1,291 @@
+package org.motechproject.odk.service.impl;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.osgi.services.HttpClientBuilderFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.odk.constant.FieldTypeConstants;
+import org.motechproject.odk.constant.ODKConstants;
+import org.motechproject.odk.domain.Configuration;
+import org.motechproject.odk.domain.ConfigurationType;
+import org.motechproject.odk.domain.FormDefinition;
+import org.motechproject.odk.domain.FormElement;
+import org.motechproject.odk.domain.SubmissionPage;
+import org.motechproject.odk.exception.SubmissionImportException;
+import org.motechproject.odk.service.FormDefinitionService;
+import org.motechproject.odk.service.SubmissionCheckpointService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class SubmissionImportServiceODKTest {
+
+    private static final String SERVER_URL = "http://localhost:8080/ODKAggregate";
+    private static final String SUBMISSIONS_NAMESPACE = "http://opendatakit.org/submissions";
+
+    private static final String XFORM = "<h:html xmlns=\"http://www.w3.org/2002/xforms\" xmlns:h=\"http://www.w3.org/1999/xhtml\">"
+            + "<h:head><h:title>Household</h:title><model><instance>"
+            + "<household id=\"household_form\"><name/><location/><details><size/></details>"
+            + "<children><child_name/></children><assets/><photo/><income/></household>"
+            + "</instance></model></h:head><h:body/></h:html>";
+
+    @Mock
+    private HttpClientBuilderFactory httpClientBuilderFactory;
+
+    @Mock
+    private FormDefinitionService formDefinitionService;
+
+    @Mock
+    private SubmissionCheckpointService submissionCheckpointService;
+
+    @Mock
+    private EventRelay eventRelay;
+
+    @Mock
+    private HttpClient httpClient;
+
+    private SubmissionImportServiceODK importService;
+    private Configuration configuration;
+    private FormDefinition formDefinition;
+
+    private List<String> requestedUris = new ArrayList<>();
+    private List<String> instanceIds = new ArrayList<>();
+    private String resumptionCursor;
+    private int status = 200;
+
+    @Before
+    public void setUp() throws Exception {
+        initMocks(this);
+
+        configuration = new Configuration(SERVER_URL, "user", "password", "config", ConfigurationType.ODK, true);
+
+        formDefinition = new FormDefinition("config");
+        formDefinition.setTitle("Household");
+        formDefinition.setXform(XFORM);
+        formDefinition.setFormElements(new ArrayList<>(Arrays.asList(
+                new FormElement("name", "name", FieldTypeConstants.STRING, null, false),
+                new FormElement("location:Latitude", "location:Latitude", FieldTypeConstants.GEOPOINT, null, false),
+                new FormElement("location:Longitude", "location:Longitude", FieldTypeConstants.GEOPOINT, null, false),
+                new FormElement("location:Altitude", "location:Altitude", FieldTypeConstants.GEOPOINT, null, false),
+                new FormElement("location:Accuracy", "location:Accuracy", FieldTypeConstants.GEOPOINT, null, false),
+                new FormElement("size", "size", FieldTypeConstants.INT, null, false),
+                new FormElement("children", "children", FieldTypeConstants.REPEAT_GROUP, Collections.singletonList(
+                        new FormElement("child_name", "child_name", FieldTypeConstants.STRING, null, true)), false),
+                new FormElement("assets", "assets", FieldTypeConstants.SELECT, null, false),
+                new FormElement("photo", "photo", FieldTypeConstants.BINARY, null, false),
+                new FormElement("income", "income", FieldTypeConstants.DECIMAL, null, false))));
+
+        when(httpClientBuilderFactory.newBuilder()).thenReturn(HttpClientBuilder.create());
+        when(httpClient.execute(any(HttpUriRequest.class))).thenAnswer(new Answer<HttpResponse>() {
+            @Override
+            public HttpResponse answer(InvocationOnMock invocation) throws Exception {
+                return respond((HttpUriRequest) invocation.getArguments()[0]);
+            }
+        });
+
+        importService = new SubmissionImportServiceODK(httpClientBuilderFactory, formDefinitionService,
+                submissionCheckpointService, eventRelay);
+        ReflectionTestUtils.setField(importService, "client", httpClient);
+    }
+
+    @After
+    public void tearDown() {
+        importService.shutdown();
+    }
+
+    @Test
+    public void shouldListSubmissionsFromTheCursorAndDownloadEachOfThem() throws Exception {
+        instanceIds.addAll(Arrays.asList("uuid:1", "uuid:2"));
+        resumptionCursor = "cursor-2";
+
+        SubmissionPage page = importService.fetchPage(configuration, formDefinition, "cursor-1");
+
+        assertEquals(3, requestedUris.size());
+        assertEquals(SERVER_URL + "/view/submissionList?formId=household_form&numEntries=100&cursor=cursor-1",
+                requestedUris.get(0));
+        assertEquals(SERVER_URL + "/view/downloadSubmission?formId="
+                + "household_form[@version=null and @uiVersion=null]/household[@key=uuid:1]", decode(requestedUris.get(1)));
+        assertEquals(SERVER_URL + "/view/downloadSubmission?formId="
+                + "household_form[@version=null and @uiVersion=null]/household[@key=uuid:2]", decode(requestedUris.get(2)));
+
+        assertEquals(2, page.getSubmissions().size());
+        assertEquals("uuid:2", page.getSubmissions().get(1).get(ODKConstants.META_INSTANCE_ID));
+        assertEquals("cursor-2", page.getCursor());
+        assertEquals("2016-01-01T10:00:00.000Z", page.getLastSubmissionTime());
+        assertTrue(page.isLast());
+    }
+
+    @Test
+    public void shouldStartFromTheFirstSubmissionWithoutCursor() throws Exception {
+        resumptionCursor = "cursor-1";
+
+        SubmissionPage page = importService.fetchPage(configuration, formDefinition, null);
+
+        assertEquals(Collections.singletonList(SERVER_URL + "/view/submissionList?formId=household_form&numEntries=100"),
+                requestedUris);
+        assertTrue(page.getSubmissions().isEmpty());
+        assertEquals("cursor-1", page.getCursor());
+        assertTrue(page.isLast());
+    }
+
+    @Test
+    public void shouldKeepTheCursorWhenNoneIsReturned() throws Exception {
+        SubmissionPage page = importService.fetchPage(configuration, formDefinition, "cursor-1");
+
+        assertEquals("cursor-1", page.getCursor());
+        assertNull(page.getLastSubmissionTime());
+    }
+
+    @Test
+    public void shouldNotBeLastPageWhenPageIsFull() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            instanceIds.add("uuid:" + i);
+        }
+        resumptionCursor = "cursor-2";
+
+        SubmissionPage page = importService.fetchPage(configuration, formDefinition, "cursor-1");
+
+        assertEquals(100, page.getSubmissions().size());
+        assertFalse(page.isLast());
+    }
+
+    @Test
+    public void shouldConvertSubmissionToFormInstanceData() throws Exception {
+        instanceIds.add("uuid:1");
+
+        Map<String, Object> data = importService.fetchPage(configuration, formDefinition, null).getSubmissions().get(0);
+
+        assertEquals("uuid:1", data.get(ODKConstants.META_INSTANCE_ID));
+        assertEquals("2016-01-01T10:00:00.000Z", data.get(ODKConstants.META_SUBMISSION_DATE));
+        assertEquals(Boolean.TRUE, data.get(ODKConstants.META_IS_COMPLETE));
+        assertEquals("2016-01-01T09:59:00.000Z", data.get(ODKConstants.META_DATE_MARKED_AS_COMPLETE));
+        assertEquals("3", data.get(ODKConstants.META_MODEL_VERSION));
+        assertNull(data.get(ODKConstants.META_UI_VERSION));
+
+        assertEquals("John Smith", data.get("name"));
+        assertEquals(4, data.get("size"));
+        assertEquals(1234.5, data.get("income"));
+        assertEquals(Arrays.asList("car", "radio"), data.get("assets"));
+        assertEquals(Collections.singletonMap("url", SERVER_URL + "/view/binaryData?blobKey=photo"), data.get("photo"));
+        assertNull(data.get("details"));
+
+        List<Map<String, Object>> children = (List<Map<String, Object>>) data.get("children");
+        assertEquals(2, children.size());
+        assertEquals("Anna", children.get(0).get("child_name"));
+        assertEquals("Ben", children.get(1).get("child_name"));
+    }
+
+    @Test
+    public void shouldSplitGeopointIntoItsCoordinates() throws Exception {
+        instanceIds.add("uuid:1");
+
+        Map<String, Object> data = importService.fetchPage(configuration, formDefinition, null).getSubmissions().get(0);
+
+        assertEquals(-1.28, data.get("location:Latitude"));
+        assertEquals(36.82, data.get("location:Longitude"));
+        assertEquals(1700.0, data.get("location:Altitude"));
+        assertEquals(5.0, data.get("location:Accuracy"));
+        assertFalse(data.containsKey("location"));
+    }
+
+    @Test
+    public void shouldLeaveEmptyValuesOut() throws Exception {
+        instanceIds.add("uuid:empty");
+
+        Map<String, Object> data = importService.fetchPage(configuration, formDefinition, null).getSubmissions().get(0);
+
+        assertNull(data.get("name"));
+        assertNull(data.get("assets"));
+        assertNull(data.get("location:Latitude"));
+        assertNull(data.get("location:Accuracy"));
+    }
+
+    @Test(expected = SubmissionImportException.class)
+    public void shouldFailWhenAggregateDoesNotRespondWithOk() throws Exception {
+        status = 500;
+
+        importService.fetchPage(configuration, formDefinition, null);
+    }
+
+    @Test(expected = SubmissionImportException.class)
+    public void shouldFailWhenSubmissionHasNoInstanceData() throws Exception {
+        instanceIds.add("uuid:nodata");
+
+        importService.fetchPage(configuration, formDefinition, null);
+    }
+
+    private HttpResponse respond(HttpUriRequest request) throws Exception {
+        String uri = request.getURI().toString();
+        requestedUris.add(uri);
+
+        String body;
+        if (uri.contains("/view/submissionList")) {
+            body = idChunk();
+        } else if (decode(uri).contains("[@key=uuid:nodata]")) {
+            body = "<submission xmlns=\"" + SUBMISSIONS_NAMESPACE + "\"/>";
+        } else if (decode(uri).contains("[@key=uuid:empty]")) {
+            body = submission("uuid:empty", "<name/><location/><assets> </assets>");
+        } else {
+            String instanceId = decode(uri).replaceAll(".*\\[@key=(.*)\\]$", "$1");
+            body = submission(instanceId, "<name>John Smith</name><location>-1.28 36.82 1700 5</location>"
+                    + "<details><size>4</size></details><children><child_name>Anna</child_name></children>"
+                    + "<children><child_name>Ben</child_name></children><assets>car radio</assets>"
+                    + "<photo>photo.jpg</photo><income>1234.5</income>");
+        }
+
+        HttpResponse response = new BasicHttpResponse(new BasicStatusLine(HttpVersion.HTTP_1_1, status, "status"));
+        response.setEntity(new StringEntity(body, "UTF-8"));
+        return response;
+    }
+
+    private String idChunk() {
+        StringBuilder xml = new StringBuilder("<idChunk xmlns=\"" + SUBMISSIONS_NAMESPACE + "\"><idList>");
+        for (String instanceId : instanceIds) {
+            xml.append("<id>").append(instanceId).append("</id>");
+        }
+        xml.append("</idList>");
+        if (resumptionCursor != null) {
+            xml.append("<resumptionCursor>").append(resumptionCursor).append("</resumptionCursor>");
+        }
+        return xml.append("</idChunk>").toString();
+    }
+
+    private String submission(String instanceId, String values) {
+        return "<submission xmlns=\"" + SUBMISSIONS_NAMESPACE + "\"><data>"
+                + "<household xmlns=\"http://opendatakit.org/submissions\" id=\"household_form\" instanceID=\"" + instanceId
+                + "\" version=\"3\" submissionDate=\"2016-01-01T10:00:00.000Z\" isComplete=\"true\""
+                + " markedAsCompleteDate=\"2016-01-01T09:59:00.000Z\">" + values + "</household></data>"
+                + "<mediaFile><filename>photo.jpg</filename><hash>md5:0</hash>"
+                + "<downloadUrl>" + SERVER_URL + "/view/binaryData?blobKey=photo</downloadUrl></mediaFile>"
+                + "</submission>";
+    }
+
+    private String decode(String uri) throws Exception {
+        return URLDecoder.decode(uri, "UTF-8");
+    }
+}
@@ -0,0 +1,104 @@
+package org.motechproject.odk.web;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.odk.constant.EventParameters;
+import org.motechproject.odk.constant.EventSubjects;
+import org.motechproject.odk.constant.FieldTypeConstants;
+import org.motechproject.odk.domain.Configuration;
+import org.motechproject.odk.domain.ConfigurationType;
+import org.motechproject.odk.domain.FormDefinition;
+import org.motechproject.odk.domain.FormElement;
+import org.motechproject.odk.service.ConfigurationService;
+import org.motechproject.odk.service.FormDefinitionService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class FormControllerTest {
+
+    private static final String CONFIG_NAME = "config";
+    private static final String FORM_TITLE = "household";
+    private static final String RECEIVED_FORM_SUBJECT = EventSubjects.RECEIVED_FORM + "." + CONFIG_NAME + "." + FORM_TITLE;
+
+    // the photo of the second submission is not among its attachments, so no events can be built for it
+    private static final String BULK_BODY = "[{\"name\":\"first\"},"
+            + "{\"name\":\"second\",\"photo\":\"missing.jpg\"},"
+            + "{\"name\":\"third\"}]";
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private FormDefinitionService formDefinitionService;
+
+    @Mock
+    private EventRelay eventRelay;
+
+    @InjectMocks
+    private FormController formController = new FormController();
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        FormDefinition formDefinition = new FormDefinition(CONFIG_NAME);
+        formDefinition.setTitle(FORM_TITLE);
+        formDefinition.setFormElements(Arrays.asList(
+                new FormElement("name", "Name", FieldTypeConstants.STRING, new ArrayList<FormElement>(), false),
+                new FormElement("photo", "Photo", FieldTypeConstants.BINARY, new ArrayList<FormElement>(), false)));
+
+        when(configurationService.getConfigByName(CONFIG_NAME))
+                .thenReturn(new Configuration("http://ona.io", "user", "password", CONFIG_NAME, ConfigurationType.ONA, true));
+        when(formDefinitionService.findByConfigurationNameAndTitle(CONFIG_NAME, FORM_TITLE)).thenReturn(formDefinition);
+    }
+
+    @Test
+    public void shouldPublishFailureEventOnlyForTheSubmissionWhichCannotBeProcessed() {
+        formController.receiveForms(CONFIG_NAME, FORM_TITLE, BULK_BODY);
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay, times(3)).sendEventMessage(captor.capture());
+
+        List<MotechEvent> failures = new ArrayList<>();
+        List<Object> receivedNames = new ArrayList<>();
+        for (MotechEvent event : captor.getAllValues()) {
+            if (EventSubjects.FORM_FAIL.equals(event.getSubject())) {
+                failures.add(event);
+            } else {
+                assertEquals(RECEIVED_FORM_SUBJECT, event.getSubject());
+                receivedNames.add(event.getParameters().get("name"));
+            }
+        }
+
+        assertEquals(1, failures.size());
+        assertEquals(CONFIG_NAME, failures.get(0).getParameters().get(EventParameters.CONFIGURATION_NAME));
+        assertEquals(FORM_TITLE, failures.get(0).getParameters().get(EventParameters.FORM_TITLE));
+        assertTrue(((String) failures.get(0).getParameters().get(EventParameters.JSON_CONTENT)).contains("missing.jpg"));
+        assertEquals(Arrays.<Object>asList("first", "third"), receivedNames);
+    }
+
+    @Test
+    public void shouldPublishSingleFailureEventWhenTheBulkBodyCannotBeParsed() {
+        formController.receiveForms(CONFIG_NAME, FORM_TITLE, "not json");
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay).sendEventMessage(captor.capture());
+
+        assertEquals(EventSubjects.FORM_FAIL, captor.getValue().getSubject());
+        assertEquals("not json", captor.getValue().getParameters().get(EventParameters.JSON_CONTENT));
+    }
+}
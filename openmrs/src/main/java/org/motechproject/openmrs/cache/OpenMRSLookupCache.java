@@ -0,0 +1,145 @@
+package org.motechproject.openmrs.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A short-lived cache of the objects retrieved by the
+ * {@link org.motechproject.openmrs.tasks.OpenMRSTaskDataProvider}. Tasks triggered by a burst of events tend to look
+ * up the same patients, encounters and providers over and over again, so the results are kept for a few seconds, long
+ * enough to serve the other steps and the other tasks handling the same events. The cache is bounded and evicts the
+ * least recently used lookups first.
+ * <p>
+ * The OpenMRS services evict the cached objects of a type whenever they write objects of that type or the objects
+ * embedded in them, so callers never read stale objects right after their own writes. Objects that were not found
+ * are not cached, so creating objects only requires eviction for lookups returning the latest or all objects of a
+ * patient, like encounters and program enrollments.
+ */
+@Component
+public class OpenMRSLookupCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final long DEFAULT_TTL_SECONDS = 30;
+
+    private final Map<String, Entry> entries;
+    private final long ttlMillis;
+
+    public OpenMRSLookupCache() {
+        this(DEFAULT_MAX_ENTRIES, TimeUnit.SECONDS.toMillis(DEFAULT_TTL_SECONDS));
+    }
+
+    public OpenMRSLookupCache(final int maxEntries, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the object cached under the given key.
+     *
+     * @param key  the key of the lookup, see {@link #buildKey(String, String, Map)}
+     * @return the cached object, null if not present or expired
+     */
+    public synchronized Object get(String key) {
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            return null;
+        } else if (System.currentTimeMillis() > entry.expiresAt) {
+            entries.remove(key);
+            return null;
+        }
+
+        return entry.value;
+    }
+
+    /**
+     * Caches the given object, unless it is null.
+     *
+     * @param key  the key of the lookup, see {@link #buildKey(String, String, Map)}
+     * @param value  the retrieved object
+     */
+    public synchronized void put(String key, Object value) {
+        if (value != null) {
+            entries.put(key, new Entry(value, System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    /**
+     * Removes the cached objects of the given types retrieved for the given configuration.
+     *
+     * @param configName  the name of the configuration
+     * @param types  the types of the objects
+     */
+    public synchronized void evict(String configName, Class<?>... types) {
+        String[] prefixes = new String[types.length];
+        for (int i = 0; i < types.length; i++) {
+            prefixes[i] = appendPart(new StringBuilder(), types[i].getSimpleName() + '-' + configName).toString();
+        }
+
+        Iterator<String> it = entries.keySet().iterator();
+        while (it.hasNext()) {
+            String key = it.next();
+            for (String prefix : prefixes) {
+                if (key.startsWith(prefix)) {
+                    it.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Builds the key of a lookup. The type of the object already contains the name of the configuration, and the
+     * lookup fields are sorted, so that the key does not depend on the order of the fields. Every part of the key is
+     * prefixed with its length, so that different lookups never share a key, whatever characters their parts contain.
+     *
+     * @param type  the type of the object, including the name of the configuration
+     * @param lookupName  the name of the lookup
+     * @param lookupFields  the fields of the lookup, may be null
+     * @return the key of the lookup
+     */
+    public static String buildKey(String type, String lookupName, Map<String, String> lookupFields) {
+        StringBuilder key = new StringBuilder();
+        appendPart(key, type);
+        appendPart(key, lookupName);
+
+        if (lookupFields != null) {
+            for (Map.Entry<String, String> field : new TreeMap<>(lookupFields).entrySet()) {
+                appendPart(key, field.getKey());
+                appendPart(key, field.getValue());
+            }
+        }
+
+        return key.toString();
+    }
+
+    private static StringBuilder appendPart(StringBuilder key, String part) {
+        // null parts are told apart from empty ones by their negative length
+        return part == null ? key.append("-1:") : key.append(part.length()).append(':').append(part);
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package org.motechproject.openmrs.cache;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.annotations.MotechListener;
+import org.motechproject.openmrs.tasks.constants.EventSubjects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache of the OpenMRS metadata (concepts, identifier types, locations, providers and encounter types)
+ * that is needed to resolve uuids while creating patients and encounters. The metadata is cached separately for every
+ * configuration and every {@link Region}. Each region of a configuration holds a bounded number of entries, evicted in
+ * least recently used order, and entries expire after a fixed time to live. All cached metadata is dropped whenever
+ * the OpenMRS configurations change.
+ */
+@Component
+public class OpenMRSMetadataCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OpenMRSMetadataCache.class);
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final long DEFAULT_TTL_MINUTES = 30;
+
+    /**
+     * The kinds of metadata held by the cache. Keys and values of every region are described by its name.
+     */
+    public enum Region {
+        CONCEPT_UUID_BY_NAME,
+        IDENTIFIER_TYPE_UUID_BY_NAME,
+        IDENTIFIER_TYPE_NAME_BY_UUID,
+        MOTECH_IDENTIFIER_TYPE_UUID,
+        LOCATION_BY_NAME,
+        PROVIDER_BY_UUID,
+        ENCOUNTER_TYPE_BY_UUID
+    }
+
+    /**
+     * Loads the value missing from the cache, usually by calling the OpenMRS server.
+     *
+     * @param <T>  the type of the loaded value
+     */
+    public interface Loader<T> {
+
+        /**
+         * Loads the value.
+         *
+         * @return the loaded value, null if it does not exist
+         */
+        T load();
+    }
+
+    private final ConcurrentMap<String, Map<Region, RegionCache>> configCaches = new ConcurrentHashMap<>();
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    public OpenMRSMetadataCache() {
+        this(DEFAULT_MAX_ENTRIES, TimeUnit.MINUTES.toMillis(DEFAULT_TTL_MINUTES));
+    }
+
+    public OpenMRSMetadataCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the value cached under the given key, or loads it with the given {@code loader} if it is not cached or
+     * has expired. Loaded values are cached, unless they are null.
+     *
+     * @param configName  the name of the configuration
+     * @param region  the region of the cache
+     * @param key  the key of the value
+     * @param loader  the loader used on a cache miss
+     * @param <T>  the type of the value
+     * @return the cached or loaded value
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String configName, Region region, String key, Loader<T> loader) {
+        RegionCache cache = getRegion(configName, region);
+
+        Object value = cache.get(key);
+
+        if (value == null) {
+            value = loader.load();
+
+            if (value != null) {
+                cache.put(key, value);
+            }
+        }
+
+        return (T) value;
+    }
+
+    /**
+     * Returns the value cached under the given key, without loading it on a miss.
+     *
+     * @param configName  the name of the configuration
+     * @param region  the region of the cache
+     * @param key  the key of the value
+     * @param <T>  the type of the value
+     * @return the cached value, null if not present
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getIfPresent(String configName, Region region, String key) {
+        return (T) getRegion(configName, region).get(key);
+    }
+
+    /**
+     * Caches the given value.
+     *
+     * @param configName  the name of the configuration
+     * @param region  the region of the cache
+     * @param key  the key of the value
+     * @param value  the value
+     */
+    public void put(String configName, Region region, String key, Object value) {
+        if (key != null && value != null) {
+            getRegion(configName, region).put(key, value);
+        }
+    }
+
+    /**
+     * Removes the value cached under the given key.
+     *
+     * @param configName  the name of the configuration
+     * @param region  the region of the cache
+     * @param key  the key of the value
+     */
+    public void evict(String configName, Region region, String key) {
+        getRegion(configName, region).remove(key);
+    }
+
+    /**
+     * Removes all metadata cached for the given configuration.
+     *
+     * @param configName  the name of the configuration
+     */
+    public void invalidate(String configName) {
+        configCaches.remove(StringUtils.defaultString(configName));
+    }
+
+    /**
+     * Removes all cached metadata.
+     */
+    public void invalidateAll() {
+        configCaches.clear();
+    }
+
+    /**
+     * Drops the whole cache after a change of the OpenMRS configurations, since the server, the credentials or the
+     * identifier types supported by any of them could have changed.
+     *
+     * @param event  the configuration change event
+     */
+    @MotechListener(subjects = EventSubjects.CONFIG_CHANGE_EVENT)
+    public void handleConfigChange(MotechEvent event) {
+        LOGGER.debug("OpenMRS configurations changed, invalidating the metadata cache");
+        invalidateAll();
+    }
+
+    private RegionCache getRegion(String configName, Region region) {
+        // the default configuration can be referred to with a null name
+        String key = StringUtils.defaultString(configName);
+        Map<Region, RegionCache> regions = configCaches.get(key);
+
+        if (regions == null) {
+            Map<Region, RegionCache> newRegions = new EnumMap<>(Region.class);
+            for (Region r : Region.values()) {
+                newRegions.put(r, new RegionCache(maxEntries, ttlMillis));
+            }
+
+            regions = configCaches.putIfAbsent(key, newRegions);
+            if (regions == null) {
+                regions = newRegions;
+            }
+        }
+
+        return regions.get(region);
+    }
+
+    /**
+     * A single, bounded region of the cache. Entries are kept in access order, so that the least recently used entry
+     * is evicted once the region is full.
+     */
+    private static final class RegionCache {
+
+        private final Map<String, Entry> entries;
+        private final long ttlMillis;
+
+        RegionCache(final int maxEntries, long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        synchronized Object get(String key) {
+            Entry entry = entries.get(key);
+
+            if (entry == null) {
+                return null;
+            } else if (System.currentTimeMillis() > entry.expiresAt) {
+                entries.remove(key);
+                return null;
+            }
+
+            return entry.value;
+        }
+
+        synchronized void put(String key, Object value) {
+            entries.put(key, new Entry(value, System.currentTimeMillis() + ttlMillis));
+        }
+
+        synchronized void remove(String key) {
+            entries.remove(key);
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long expiresAt;
+
+        Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
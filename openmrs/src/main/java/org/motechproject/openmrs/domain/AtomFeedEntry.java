@@ -0,0 +1,56 @@
+package org.motechproject.openmrs.domain;
+
+import java.util.Objects;
+
+/**
+ * Represents a single entry of an OpenMRS atom feed. The content of the entry is the REST path of the patient or the
+ * encounter that changed.
+ */
+public class AtomFeedEntry {
+
+    private String id;
+    private String content;
+
+    public AtomFeedEntry() {
+    }
+
+    public AtomFeedEntry(String id, String content) {
+        this.id = id;
+        this.content = content;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, content);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AtomFeedEntry)) {
+            return false;
+        }
+
+        AtomFeedEntry other = (AtomFeedEntry) o;
+
+        return Objects.equals(id, other.id) && Objects.equals(content, other.content);
+    }
+}
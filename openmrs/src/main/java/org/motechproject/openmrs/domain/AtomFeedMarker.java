@@ -0,0 +1,75 @@
+package org.motechproject.openmrs.domain;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Marks the position up to which an OpenMRS atom feed has been consumed: the page holding the last processed entry
+ * and the id of that entry, along with the UUIDs of the resources of the processed entries that could not be
+ * retrieved yet, which are retried by the next poll.
+ */
+public class AtomFeedMarker {
+
+    private String pageUrl;
+    private String entryId;
+    private Set<String> pendingUuids;
+
+    public AtomFeedMarker() {
+    }
+
+    public AtomFeedMarker(String pageUrl, String entryId) {
+        this(pageUrl, entryId, Collections.<String>emptySet());
+    }
+
+    public AtomFeedMarker(String pageUrl, String entryId, Set<String> pendingUuids) {
+        this.pageUrl = pageUrl;
+        this.entryId = entryId;
+        setPendingUuids(pendingUuids);
+    }
+
+    public String getPageUrl() {
+        return pageUrl;
+    }
+
+    public void setPageUrl(String pageUrl) {
+        this.pageUrl = pageUrl;
+    }
+
+    public String getEntryId() {
+        return entryId;
+    }
+
+    public void setEntryId(String entryId) {
+        this.entryId = entryId;
+    }
+
+    public Set<String> getPendingUuids() {
+        return pendingUuids == null ? Collections.<String>emptySet() : pendingUuids;
+    }
+
+    public void setPendingUuids(Set<String> pendingUuids) {
+        this.pendingUuids = pendingUuids == null || pendingUuids.isEmpty() ? null : new LinkedHashSet<>(pendingUuids);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(pageUrl, entryId, getPendingUuids());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AtomFeedMarker)) {
+            return false;
+        }
+
+        AtomFeedMarker other = (AtomFeedMarker) o;
+
+        return Objects.equals(pageUrl, other.pageUrl) && Objects.equals(entryId, other.entryId)
+                && Objects.equals(getPendingUuids(), other.getPendingUuids());
+    }
+}
@@ -0,0 +1,61 @@
+package org.motechproject.openmrs.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a single page of an OpenMRS atom feed, along with the links used to walk the feed. The entries of the
+ * page are listed oldest first.
+ */
+public class AtomFeedPage {
+
+    private String selfUrl;
+    private String viaUrl;
+    private String nextArchiveUrl;
+    private List<AtomFeedEntry> entries;
+
+    public String getSelfUrl() {
+        return selfUrl;
+    }
+
+    public void setSelfUrl(String selfUrl) {
+        this.selfUrl = selfUrl;
+    }
+
+    public String getViaUrl() {
+        return viaUrl;
+    }
+
+    public void setViaUrl(String viaUrl) {
+        this.viaUrl = viaUrl;
+    }
+
+    public String getNextArchiveUrl() {
+        return nextArchiveUrl;
+    }
+
+    public void setNextArchiveUrl(String nextArchiveUrl) {
+        this.nextArchiveUrl = nextArchiveUrl;
+    }
+
+    public List<AtomFeedEntry> getEntries() {
+        if (entries == null) {
+            entries = new ArrayList<>();
+        }
+        return entries;
+    }
+
+    public void setEntries(List<AtomFeedEntry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Returns the URL under which this page stays available once it is archived. The recent page of a feed points to
+     * it with its via link, a numbered page is available under its own URL.
+     *
+     * @return the URL of the page
+     */
+    public String getPageUrl() {
+        return viaUrl != null ? viaUrl : selfUrl;
+    }
+}
@@ -0,0 +1,113 @@
+package org.motechproject.openmrs.domain;
+
+import java.util.Objects;
+
+/**
+ * Represents the outcome of a single record of a bulk operation, such as a bulk import of patients or encounters.
+ *
+ * @param <T>  the type of the record
+ */
+public class BulkOperationResult<T> {
+
+    private final T record;
+    private final T result;
+    private final boolean success;
+    private final String errorMessage;
+    private final boolean interrupted;
+
+    public BulkOperationResult(T record, T result, boolean success, String errorMessage) {
+        this(record, result, success, errorMessage, false);
+    }
+
+    public BulkOperationResult(T record, T result, boolean success, String errorMessage, boolean interrupted) {
+        this.record = record;
+        this.result = result;
+        this.success = success;
+        this.errorMessage = errorMessage;
+        this.interrupted = interrupted;
+    }
+
+    /**
+     * Creates the result of a record that has been processed successfully.
+     *
+     * @param record  the processed record
+     * @param result  the record returned by the OpenMRS server
+     * @param <T>  the type of the record
+     * @return the result
+     */
+    public static <T> BulkOperationResult<T> success(T record, T result) {
+        return new BulkOperationResult<>(record, result, true, null);
+    }
+
+    /**
+     * Creates the result of a record that could not be processed.
+     *
+     * @param record  the record
+     * @param errorMessage  the reason of the failure
+     * @param <T>  the type of the record
+     * @return the result
+     */
+    public static <T> BulkOperationResult<T> failure(T record, String errorMessage) {
+        return new BulkOperationResult<>(record, null, false, errorMessage);
+    }
+
+    /**
+     * Creates the result of a record whose processing was interrupted. The record might have reached the OpenMRS
+     * server before the interruption, so its outcome is unknown and it should not be sent again blindly.
+     *
+     * @param record  the record
+     * @param <T>  the type of the record
+     * @return the result
+     */
+    public static <T> BulkOperationResult<T> interrupted(T record) {
+        return new BulkOperationResult<>(record, null, false,
+                "The operation was interrupted, the OpenMRS server might have processed the record", true);
+    }
+
+    public T getRecord() {
+        return record;
+    }
+
+    public T getResult() {
+        return result;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public boolean isInterrupted() {
+        return interrupted;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BulkOperationResult)) {
+            return false;
+        }
+
+        BulkOperationResult<?> other = (BulkOperationResult<?>) o;
+
+        return Objects.equals(record, other.record) && Objects.equals(result, other.result)
+                && success == other.success && Objects.equals(errorMessage, other.errorMessage)
+                && interrupted == other.interrupted;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(record, result, success, errorMessage, interrupted);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BulkOperationResult{record=%s, success=%s, interrupted=%s, errorMessage=%s}", record,
+                success, interrupted, errorMessage);
+    }
+}
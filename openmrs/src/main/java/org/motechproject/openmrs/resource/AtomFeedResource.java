@@ -0,0 +1,30 @@
+package org.motechproject.openmrs.resource;
+
+import org.motechproject.openmrs.config.Config;
+import org.motechproject.openmrs.domain.AtomFeedPage;
+
+/**
+ * Interface for reading the atom feeds published by the OpenMRS atom feed module.
+ */
+public interface AtomFeedResource {
+
+    /**
+     * Returns the recent page of the feed with the given name. The given {@code config} will be used while performing
+     * this action.
+     *
+     * @param config  the configuration to be used while performing this action
+     * @param feedName  the name of the feed, for example patient or encounter
+     * @return the recent page of the feed
+     */
+    AtomFeedPage getRecentPage(Config config, String feedName);
+
+    /**
+     * Returns the feed page available under the given URL, as linked from another page of the feed. The given
+     * {@code config} will be used while performing this action.
+     *
+     * @param config  the configuration to be used while performing this action
+     * @param pageUrl  the URL of the page
+     * @return the page of the feed
+     */
+    AtomFeedPage getPage(Config config, String pageUrl);
+}
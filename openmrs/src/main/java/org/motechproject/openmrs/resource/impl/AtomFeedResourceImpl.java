@@ -0,0 +1,102 @@
+package org.motechproject.openmrs.resource.impl;
+
+import org.motechproject.openmrs.config.Config;
+import org.motechproject.openmrs.domain.AtomFeedEntry;
+import org.motechproject.openmrs.domain.AtomFeedPage;
+import org.motechproject.openmrs.exception.OpenMRSException;
+import org.motechproject.openmrs.resource.AtomFeedResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestOperations;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+@Component
+public class AtomFeedResourceImpl extends BaseResource implements AtomFeedResource {
+
+    private static final String FEED_PATH = "/ws/atomfeed/";
+    private static final String RECENT_PAGE = "/recent";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    @Autowired
+    public AtomFeedResourceImpl(RestOperations restOperations) {
+        super(restOperations);
+    }
+
+    @Override
+    public AtomFeedPage getRecentPage(Config config, String feedName) {
+        return getPage(config, config.getOpenMrsUrl() + FEED_PATH + feedName + RECENT_PAGE);
+    }
+
+    @Override
+    public AtomFeedPage getPage(Config config, String pageUrl) {
+        try {
+            return parsePage(getForString(config, new URI(pageUrl)));
+        } catch (URISyntaxException e) {
+            throw new OpenMRSException("Invalid atom feed page URL " + pageUrl, e);
+        }
+    }
+
+    private AtomFeedPage parsePage(String xml) {
+        AtomFeedPage page = new AtomFeedPage();
+
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(xml));
+            try {
+                AtomFeedEntry entry = null;
+
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT && "entry".equals(reader.getLocalName())) {
+                        entry = null;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+
+                    String name = reader.getLocalName();
+                    if ("entry".equals(name)) {
+                        entry = new AtomFeedEntry();
+                        page.getEntries().add(entry);
+                    } else if (entry != null && "id".equals(name)) {
+                        entry.setId(reader.getElementText().trim());
+                    } else if (entry != null && "content".equals(name)) {
+                        entry.setContent(reader.getElementText().trim());
+                    } else if (entry == null && "link".equals(name)) {
+                        setLink(page, reader.getAttributeValue(null, "rel"), reader.getAttributeValue(null, "href"));
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new OpenMRSException("Malformed atom feed page", e);
+        }
+
+        return page;
+    }
+
+    private void setLink(AtomFeedPage page, String rel, String href) {
+        if ("self".equals(rel)) {
+            page.setSelfUrl(href);
+        } else if ("via".equals(rel)) {
+            page.setViaUrl(href);
+        } else if ("next-archive".equals(rel)) {
+            page.setNextArchiveUrl(href);
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
@@ -36,6 +36,18 @@ public abstract class BaseResource {
         return exchange(config, buildUrl(config, path, params), HttpMethod.GET).getBody();
     }
 
+    /**
+     * Sends a get request for the given absolute URL, which does not have to point to the REST API of the OpenMRS
+     * server, using the credentials of the given {@code config}.
+     *
+     * @param config  the configuration to be used
+     * @param url  the URL of the resource
+     * @return the response body
+     */
+    protected String getForString(Config config, URI url) {
+        return exchange(config, url, HttpMethod.GET).getBody();
+    }
+
     /**
      * Sends a post request to the OpenMRS server using the given {@code config}.
      *
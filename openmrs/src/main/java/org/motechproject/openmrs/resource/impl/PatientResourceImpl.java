@@ -1,10 +1,8 @@
 package org.motechproject.openmrs.resource.impl;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import org.apache.commons.lang.StringUtils;
+import org.motechproject.openmrs.cache.OpenMRSMetadataCache;
 import org.motechproject.openmrs.config.Config;
 import org.motechproject.openmrs.domain.Identifier;
 import org.motechproject.openmrs.domain.IdentifierListResult;
@@ -22,15 +20,19 @@ import org.springframework.web.client.RestOperations;
 
 import java.util.List;
 
+import static org.motechproject.openmrs.cache.OpenMRSMetadataCache.Region.IDENTIFIER_TYPE_NAME_BY_UUID;
+import static org.motechproject.openmrs.cache.OpenMRSMetadataCache.Region.IDENTIFIER_TYPE_UUID_BY_NAME;
+import static org.motechproject.openmrs.cache.OpenMRSMetadataCache.Region.MOTECH_IDENTIFIER_TYPE_UUID;
+
 @Component
 public class PatientResourceImpl extends BaseResource implements PatientResource {
 
-    private String motechIdTypeUuid;
-    private BiMap<String, String> identifierTypeUuidByName = HashBiMap.create();
+    private final OpenMRSMetadataCache metadataCache;
 
     @Autowired
-    public PatientResourceImpl(RestOperations restOperations) {
+    public PatientResourceImpl(RestOperations restOperations, OpenMRSMetadataCache metadataCache) {
         super(restOperations);
+        this.metadataCache = metadataCache;
     }
 
     @Override
@@ -53,67 +55,42 @@ public class PatientResourceImpl extends BaseResource implements PatientResource
     }
 
     @Override
-    public String getMotechPatientIdentifierUuid(Config config) {
-        if (StringUtils.isNotEmpty(motechIdTypeUuid)) {
-            return motechIdTypeUuid;
-        }
-
-        PatientIdentifierListResult result = getAllPatientIdentifierTypes(config);
-        String motechPatientIdentifierTypeName = config.getMotechPatientIdentifierTypeName();
-        for (IdentifierType type : result.getResults()) {
-            if (motechPatientIdentifierTypeName.equals(type.getName())) {
-                motechIdTypeUuid = type.getUuid();
-                break;
-            }
-        }
-
-        return motechIdTypeUuid;
+    public String getMotechPatientIdentifierUuid(final Config config) {
+        return metadataCache.get(config.getName(), MOTECH_IDENTIFIER_TYPE_UUID,
+                config.getMotechPatientIdentifierTypeName(), new OpenMRSMetadataCache.Loader<String>() {
+                    @Override
+                    public String load() {
+                        loadIdentifierTypes(config);
+                        return metadataCache.getIfPresent(config.getName(), MOTECH_IDENTIFIER_TYPE_UUID,
+                                config.getMotechPatientIdentifierTypeName());
+                    }
+                });
     }
 
     @Override
-    public String getPatientIdentifierTypeNameByUuid(Config config, String identifierTypeUuid) {
-        // Firstly, we try to retrieve a name from the cache
-        String identifierTypeName = identifierTypeUuidByName.get(identifierTypeUuid);
-
-        if (identifierTypeName == null) {
-            PatientIdentifierListResult result = getAllPatientIdentifierTypes(config);
-            for (IdentifierType type : result.getResults()) {
-                if (StringUtils.equals(identifierTypeUuid, type.getUuid())) {
-                    if (isIdentifierTypeSupportedInMotech(config, type.getName())) {
-                        identifierTypeName = type.getName();
-                        // After retrieving an identifierType from an OpenMRS server, the uuid and name are stored in cache
-                        identifierTypeUuidByName.put(identifierTypeUuid, identifierTypeName);
+    public String getPatientIdentifierTypeNameByUuid(final Config config, final String identifierTypeUuid) {
+        return metadataCache.get(config.getName(), IDENTIFIER_TYPE_NAME_BY_UUID, identifierTypeUuid,
+                new OpenMRSMetadataCache.Loader<String>() {
+                    @Override
+                    public String load() {
+                        loadIdentifierTypes(config);
+                        return metadataCache.getIfPresent(config.getName(), IDENTIFIER_TYPE_NAME_BY_UUID,
+                                identifierTypeUuid);
                     }
-
-                    break;
-                }
-            }
-        }
-
-        return identifierTypeName;
+                });
     }
 
     @Override
-    public String getPatientIdentifierTypeUuidByName(Config config, String identifierTypeName) {
-        // Firstly, we try to retrieve a uuid from the cache
-        String identifierTypeUuid = identifierTypeUuidByName.inverse().get(identifierTypeName);
-
-        if (identifierTypeUuid == null) {
-            PatientIdentifierListResult result = getAllPatientIdentifierTypes(config);
-            for (IdentifierType type : result.getResults()) {
-                if (StringUtils.equals(identifierTypeName, type.getName())) {
-                    if (isIdentifierTypeSupportedInMotech(config, type.getName())) {
-                        identifierTypeUuid = type.getUuid();
-                        // After retrieving an identifierType from an OpenMRS server, the uuid and name are stored in cache
-                        identifierTypeUuidByName.put(identifierTypeUuid, identifierTypeName);
+    public String getPatientIdentifierTypeUuidByName(final Config config, final String identifierTypeName) {
+        return metadataCache.get(config.getName(), IDENTIFIER_TYPE_UUID_BY_NAME, identifierTypeName,
+                new OpenMRSMetadataCache.Loader<String>() {
+                    @Override
+                    public String load() {
+                        loadIdentifierTypes(config);
+                        return metadataCache.getIfPresent(config.getName(), IDENTIFIER_TYPE_UUID_BY_NAME,
+                                identifierTypeName);
                     }
-
-                    break;
-                }
-            }
-        }
-
-        return identifierTypeUuid;
+                });
     }
 
     @Override
@@ -158,6 +135,24 @@ public class PatientResourceImpl extends BaseResource implements PatientResource
         return (PatientIdentifierListResult) JsonUtils.readJson(responseJson, PatientIdentifierListResult.class);
     }
 
+    /**
+     * Fetches all identifier types from the OpenMRS server with a single request and caches the uuids and names of
+     * the types supported by the given configuration, in both directions, along with the uuid of the MOTECH Id type.
+     */
+    private void loadIdentifierTypes(Config config) {
+        PatientIdentifierListResult result = getAllPatientIdentifierTypes(config);
+
+        for (IdentifierType type : result.getResults()) {
+            if (config.getMotechPatientIdentifierTypeName().equals(type.getName())) {
+                metadataCache.put(config.getName(), MOTECH_IDENTIFIER_TYPE_UUID, type.getName(), type.getUuid());
+            }
+            if (isIdentifierTypeSupportedInMotech(config, type.getName())) {
+                metadataCache.put(config.getName(), IDENTIFIER_TYPE_UUID_BY_NAME, type.getName(), type.getUuid());
+                metadataCache.put(config.getName(), IDENTIFIER_TYPE_NAME_BY_UUID, type.getUuid(), type.getName());
+            }
+        }
+    }
+
     private boolean isIdentifierTypeSupportedInMotech(Config config, String identifierTypeName) {
         return config.getPatientIdentifierTypeNames().contains(identifierTypeName);
     }
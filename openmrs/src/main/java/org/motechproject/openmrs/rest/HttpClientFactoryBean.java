@@ -2,15 +2,23 @@ package org.motechproject.openmrs.rest;
 
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
 import org.springframework.beans.factory.FactoryBean;
 
 /**
- * Factory bean for creating a HTTP client with BASIC authentication.
+ * Factory bean for creating a HTTP client with BASIC authentication. The client pools its connections, allowing
+ * up to {@code maxConnectionsPerHost} concurrent requests to a single OpenMRS server.
  */
 public class HttpClientFactoryBean implements FactoryBean<HttpClient> {
 
+    private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 20;
+    private static final int DEFAULT_MAX_TOTAL_CONNECTIONS = 100;
+
     private HttpClient httpClient;
 
+    private int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+    private int maxTotalConnections = DEFAULT_MAX_TOTAL_CONNECTIONS;
+
     @Override
     public HttpClient getObject() {
         if (httpClient == null) {
@@ -21,7 +29,13 @@ public class HttpClientFactoryBean implements FactoryBean<HttpClient> {
     }
 
     private void initializeHttpClient() {
-        httpClient = new HttpClient(new MultiThreadedHttpConnectionManager());
+        MultiThreadedHttpConnectionManager connectionManager = new MultiThreadedHttpConnectionManager();
+
+        HttpConnectionManagerParams params = connectionManager.getParams();
+        params.setDefaultMaxConnectionsPerHost(maxConnectionsPerHost);
+        params.setMaxTotalConnections(maxTotalConnections);
+
+        httpClient = new HttpClient(connectionManager);
     }
 
     @Override
@@ -33,4 +47,12 @@ public class HttpClientFactoryBean implements FactoryBean<HttpClient> {
     public boolean isSingleton() {
         return true;
     }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public void setMaxTotalConnections(int maxTotalConnections) {
+        this.maxTotalConnections = maxTotalConnections;
+    }
 }
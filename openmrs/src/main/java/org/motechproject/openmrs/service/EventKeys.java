@@ -41,6 +41,7 @@ public final class EventKeys {
     public static final String USER_ID = "UserId";
     public static final String PROGRAM_ID = "ProgramId";
     public static final String PROGRAM_ENROLLMENT_ID = "ProgramEnrollmentId";
+    public static final String CONFIG_NAME = "ConfigName";
 
     public static final String BASE_SUBJECT = "org.motechproject.mrs.api.";
 
@@ -69,6 +70,9 @@ public final class EventKeys {
     public static final String DELETED_CONCEPT_SUBJECT = BASE_SUBJECT + "Concept.Deleted";
     public static final String VOIDED_OBSERVATION_SUBJECT = "Observation.Voided";
     public static final String CREATED_PROGRAM_ENROLLMENT = BASE_SUBJECT + "ProgramEnrollment.Created";
+    public static final String CHANGED_PATIENT_SUBJECT = BASE_SUBJECT + "Patient.Changed";
+    public static final String CHANGED_ENCOUNTER_SUBJECT = BASE_SUBJECT + "Encounter.Changed";
+    public static final String CHANGED_OBSERVATION_SUBJECT = BASE_SUBJECT + "Observation.Changed";
 
     /**
      * Utility class, should not be instantiated.
@@ -0,0 +1,23 @@
+package org.motechproject.openmrs.service;
+
+/**
+ * Interface for consuming the patient and encounter atom feeds published by the OpenMRS atom feed module. The entries
+ * added to the feeds since the last poll are resolved to the patients and encounters they refer to, which are then
+ * published as {@code Patient.Changed}, {@code Encounter.Changed} and {@code Observation.Changed} MOTECH events. The
+ * position up to which each feed has been consumed is persisted, so that polling resumes where it left off.
+ */
+public interface OpenMRSAtomFeedService {
+
+    /**
+     * Polls the atom feeds of the OpenMRS server. Configuration with the given {@code configName} will be used while
+     * performing this action.
+     *
+     * @param configName  the name of the configuration
+     */
+    void pollFeeds(String configName);
+
+    /**
+     * Polls the atom feeds of the OpenMRS servers of all configurations.
+     */
+    void pollAllFeeds();
+}
@@ -1,5 +1,6 @@
 package org.motechproject.openmrs.service;
 
+import org.motechproject.openmrs.domain.BulkOperationResult;
 import org.motechproject.openmrs.domain.Encounter;
 import org.motechproject.openmrs.domain.EncounterType;
 
@@ -20,6 +21,19 @@ public interface OpenMRSEncounterService {
      */
     Encounter createEncounter(String configName, Encounter encounter);
 
+    /**
+     * Creates the given {@code encounters} on the OpenMRS server. The concepts referenced by the observations of the
+     * encounters are resolved once for the whole batch and the encounters are created concurrently, with a bounded
+     * number of requests in flight for the configuration. A failure to create a single encounter does not stop the
+     * others from being created. Configuration with the given {@code configName} will be used while performing this
+     * action.
+     *
+     * @param configName  the name of the configuration
+     * @param encounters  the encounters to be created
+     * @return the results for every encounter, in the same order as the given encounters
+     */
+    List<BulkOperationResult<Encounter>> createEncounters(String configName, List<Encounter> encounters);
+
     /**
      * Returns the latest encounter of type {@code encounterType} for a patient with the given {@code motechId}.
      * Configuration with the given {@code configName} will be used while performing this action.
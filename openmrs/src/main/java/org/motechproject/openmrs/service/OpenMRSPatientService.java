@@ -1,5 +1,6 @@
 package org.motechproject.openmrs.service;
 
+import org.motechproject.openmrs.domain.BulkOperationResult;
 import org.motechproject.openmrs.domain.Concept;
 import org.motechproject.openmrs.domain.Patient;
 import org.motechproject.openmrs.exception.PatientNotFoundException;
@@ -22,6 +23,18 @@ public interface OpenMRSPatientService {
      */
     Patient createPatient(String configName, Patient patient);
 
+    /**
+     * Creates the given {@code patients} on the OpenMRS server. The identifier types used by the patients are resolved
+     * once for the whole batch and the patients are created concurrently, with a bounded number of requests in flight
+     * for the configuration. A failure to create a single patient does not stop the others from being created.
+     * Configuration with the given {@code configName} will be used while performing this action.
+     *
+     * @param configName  the name of the configuration
+     * @param patients  the patients to be created
+     * @return the results for every patient, in the same order as the given patients
+     */
+    List<BulkOperationResult<Patient>> createPatients(String configName, List<Patient> patients);
+
     /**
      * Updates the patient with the  given {@code currentMotechId} with the information stored in the given
      * {@code patient} (including the new MOTECH ID passed in the given {@code patient}). Configuration with the given
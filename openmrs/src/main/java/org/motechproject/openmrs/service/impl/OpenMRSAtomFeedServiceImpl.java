@@ -0,0 +1,328 @@
+package org.motechproject.openmrs.service.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.event.listener.annotations.MotechListener;
+import org.motechproject.openmrs.config.Config;
+import org.motechproject.openmrs.domain.AtomFeedEntry;
+import org.motechproject.openmrs.domain.AtomFeedMarker;
+import org.motechproject.openmrs.domain.AtomFeedPage;
+import org.motechproject.openmrs.domain.BulkOperationResult;
+import org.motechproject.openmrs.domain.Encounter;
+import org.motechproject.openmrs.domain.Observation;
+import org.motechproject.openmrs.domain.Patient;
+import org.motechproject.openmrs.helper.EventHelper;
+import org.motechproject.openmrs.resource.AtomFeedResource;
+import org.motechproject.openmrs.service.EventKeys;
+import org.motechproject.openmrs.service.OpenMRSAtomFeedService;
+import org.motechproject.openmrs.service.OpenMRSConfigService;
+import org.motechproject.openmrs.service.OpenMRSEncounterService;
+import org.motechproject.openmrs.service.OpenMRSPatientService;
+import org.motechproject.openmrs.tasks.constants.EventSubjects;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Service("atomFeedService")
+public class OpenMRSAtomFeedServiceImpl implements OpenMRSAtomFeedService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OpenMRSAtomFeedServiceImpl.class);
+
+    static final String MARKERS_FILE_NAME = "openmrs-atomfeed-markers.json";
+    static final String PATIENT_FEED = "patient";
+    static final String ENCOUNTER_FEED = "encounter";
+
+    private static final int MAX_PAGES_PER_POLL = 20;
+    private static final Pattern RESOURCE_PATH = Pattern.compile("/(patient|encounter)/([0-9a-fA-F-]+)");
+    private static final Type MARKERS_TYPE = new TypeToken<Map<String, AtomFeedMarker>>() { }.getType();
+
+    private final OpenMRSConfigService configService;
+    private final OpenMRSPatientService patientService;
+    private final OpenMRSEncounterService encounterService;
+    private final AtomFeedResource atomFeedResource;
+    private final OpenMRSBulkExecutor bulkExecutor;
+    private final EventRelay eventRelay;
+    private final SettingsFacade settingsFacade;
+
+    private Map<String, AtomFeedMarker> markers;
+
+    @Autowired
+    public OpenMRSAtomFeedServiceImpl(OpenMRSConfigService configService, OpenMRSPatientService patientService,
+                                      OpenMRSEncounterService encounterService, AtomFeedResource atomFeedResource,
+                                      OpenMRSBulkExecutor bulkExecutor, EventRelay eventRelay,
+                                      SettingsFacade settingsFacade) {
+        this.configService = configService;
+        this.patientService = patientService;
+        this.encounterService = encounterService;
+        this.atomFeedResource = atomFeedResource;
+        this.bulkExecutor = bulkExecutor;
+        this.eventRelay = eventRelay;
+        this.settingsFacade = settingsFacade;
+    }
+
+    /**
+     * Polls the feeds of the configuration named in the event, or of all configurations if the event does not name
+     * one. The event can be scheduled, for example with the MOTECH scheduler, to consume the feeds periodically.
+     *
+     * @param event  the poll event
+     */
+    @MotechListener(subjects = EventSubjects.ATOM_FEED_POLL_EVENT)
+    public void handlePoll(MotechEvent event) {
+        String configName = (String) event.getParameters().get(EventKeys.CONFIG_NAME);
+
+        if (StringUtils.isEmpty(configName)) {
+            pollAllFeeds();
+        } else {
+            pollFeeds(configName);
+        }
+    }
+
+    @Override
+    public void pollAllFeeds() {
+        for (Config config : configService.getConfigs().getConfigs()) {
+            try {
+                pollFeeds(config.getName());
+            } catch (RuntimeException e) {
+                LOGGER.error("Failed to poll the atom feeds of the OpenMRS configuration " + config.getName(), e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void pollFeeds(String configName) {
+        Config config = configService.getConfigByName(configName);
+
+        pollFeed(config, PATIENT_FEED);
+        pollFeed(config, ENCOUNTER_FEED);
+    }
+
+    private void pollFeed(Config config, String feedName) {
+        String key = config.getName() + '/' + feedName;
+        AtomFeedMarker marker = getMarkers().get(key);
+        List<AtomFeedEntry> entries = new ArrayList<>();
+        AtomFeedPage page;
+
+        if (marker == null) {
+            page = atomFeedResource.getRecentPage(config, feedName);
+            entries.addAll(page.getEntries());
+        } else {
+            // the page of the marker may have been archived since, in which case the pages that follow it are read
+            page = atomFeedResource.getPage(config, marker.getPageUrl());
+            entries.addAll(entriesAfter(page, marker.getEntryId()));
+
+            int pages = 1;
+            while (page.getNextArchiveUrl() != null && pages < MAX_PAGES_PER_POLL) {
+                page = atomFeedResource.getPage(config, page.getNextArchiveUrl());
+                entries.addAll(page.getEntries());
+                pages++;
+            }
+        }
+
+        LOGGER.debug("Read {} new entries from the {} feed of the OpenMRS configuration {}", entries.size(), feedName,
+                config.getName());
+
+        // the resources that could not be retrieved by the previous polls are retried first
+        Set<String> uuids = new LinkedHashSet<>();
+        if (marker != null) {
+            uuids.addAll(marker.getPendingUuids());
+        }
+        uuids.addAll(resourceUuids(entries, feedName));
+
+        Set<String> failedUuids = PATIENT_FEED.equals(feedName)
+                ? publishPatientChanges(config.getName(), uuids)
+                : publishEncounterChanges(config.getName(), uuids);
+
+        String lastEntryId = entries.isEmpty()
+                ? (marker == null ? null : marker.getEntryId())
+                : entries.get(entries.size() - 1).getId();
+        AtomFeedMarker newMarker = new AtomFeedMarker(page.getPageUrl(), lastEntryId, failedUuids);
+
+        if (!newMarker.equals(marker)) {
+            getMarkers().put(key, newMarker);
+            saveMarkers();
+        }
+    }
+
+    private List<AtomFeedEntry> entriesAfter(AtomFeedPage page, String entryId) {
+        List<AtomFeedEntry> entries = page.getEntries();
+
+        for (int i = 0; i < entries.size(); i++) {
+            if (StringUtils.equals(entries.get(i).getId(), entryId)) {
+                return entries.subList(i + 1, entries.size());
+            }
+        }
+
+        // the entry is not on the page, which only happens if the page was still empty when it was last read
+        return entries;
+    }
+
+    /**
+     * Extracts the UUIDs of the resources referred to by the entries. An entry is added to the feed every time its
+     * resource changes, so a resource referred to by several entries is only resolved once.
+     */
+    private Set<String> resourceUuids(List<AtomFeedEntry> entries, String resourceName) {
+        Set<String> uuids = new LinkedHashSet<>();
+
+        for (AtomFeedEntry entry : entries) {
+            Matcher matcher = RESOURCE_PATH.matcher(StringUtils.defaultString(entry.getContent()));
+
+            if (matcher.find() && resourceName.equals(matcher.group(1))) {
+                uuids.add(matcher.group(2));
+            } else {
+                LOGGER.warn("Ignoring the atom feed entry {} with the unexpected content {}", entry.getId(),
+                        entry.getContent());
+            }
+        }
+
+        return uuids;
+    }
+
+    /**
+     * Publishes the changes of the given patients and returns the UUIDs of those that could not be retrieved. The
+     * patients that no longer exist are skipped, as there is no point in retrying them.
+     */
+    private Set<String> publishPatientChanges(final String configName, Set<String> uuids) {
+        List<Patient> patients = new ArrayList<>();
+        for (String uuid : uuids) {
+            Patient patient = new Patient();
+            patient.setUuid(uuid);
+            patients.add(patient);
+        }
+
+        List<BulkOperationResult<Patient>> results = bulkExecutor.execute(configName, patients,
+                new OpenMRSBulkExecutor.Operation<Patient>() {
+                    @Override
+                    public Patient execute(Patient patient) {
+                        return patientService.getPatientByUuid(configName, patient.getUuid());
+                    }
+                });
+
+        Set<String> failedUuids = new LinkedHashSet<>();
+
+        for (BulkOperationResult<Patient> result : results) {
+            if (!result.isSuccess()) {
+                LOGGER.warn("Unable to retrieve the changed patient {}, it will be retried: {}",
+                        result.getRecord().getUuid(), result.getErrorMessage());
+                failedUuids.add(result.getRecord().getUuid());
+            } else if (result.getResult() == null) {
+                LOGGER.warn("The changed patient {} no longer exists", result.getRecord().getUuid());
+            } else {
+                Map<String, Object> parameters = EventHelper.patientParameters(result.getResult());
+                parameters.put(EventKeys.CONFIG_NAME, configName);
+                eventRelay.sendEventMessage(new MotechEvent(EventKeys.CHANGED_PATIENT_SUBJECT, parameters));
+            }
+        }
+
+        return failedUuids;
+    }
+
+    /**
+     * Publishes the changes of the given encounters and returns the UUIDs of those that could not be retrieved. The
+     * encounters that no longer exist are skipped, as there is no point in retrying them.
+     */
+    private Set<String> publishEncounterChanges(final String configName, Set<String> uuids) {
+        List<Encounter> encounters = new ArrayList<>();
+        for (String uuid : uuids) {
+            Encounter encounter = new Encounter();
+            encounter.setUuid(uuid);
+            encounters.add(encounter);
+        }
+
+        List<BulkOperationResult<Encounter>> results = bulkExecutor.execute(configName, encounters,
+                new OpenMRSBulkExecutor.Operation<Encounter>() {
+                    @Override
+                    public Encounter execute(Encounter encounter) {
+                        return encounterService.getEncounterByUuid(configName, encounter.getUuid());
+                    }
+                });
+
+        Set<String> failedUuids = new LinkedHashSet<>();
+
+        for (BulkOperationResult<Encounter> result : results) {
+            if (!result.isSuccess()) {
+                LOGGER.warn("Unable to retrieve the changed encounter {}, it will be retried: {}",
+                        result.getRecord().getUuid(), result.getErrorMessage());
+                failedUuids.add(result.getRecord().getUuid());
+            } else if (result.getResult() == null) {
+                LOGGER.warn("The changed encounter {} no longer exists", result.getRecord().getUuid());
+            } else {
+                publishEncounterChange(configName, result.getResult());
+            }
+        }
+
+        return failedUuids;
+    }
+
+    private void publishEncounterChange(String configName, Encounter encounter) {
+        Map<String, Object> parameters = hasDetails(encounter)
+                ? EventHelper.encounterParameters(encounter)
+                : EventHelper.encounterParameters(encounter.getUuid());
+        parameters.put(EventKeys.CONFIG_NAME, configName);
+        eventRelay.sendEventMessage(new MotechEvent(EventKeys.CHANGED_ENCOUNTER_SUBJECT, parameters));
+
+        if (encounter.getObs() == null) {
+            return;
+        }
+
+        for (Observation obs : encounter.getObs()) {
+            if (obs.getConcept() != null && obs.getPerson() != null && obs.getValue() != null) {
+                Map<String, Object> obsParameters = EventHelper.observationParameters(obs);
+                obsParameters.put(EventKeys.ENCOUNTER_ID, encounter.getUuid());
+                obsParameters.put(EventKeys.CONFIG_NAME, configName);
+                eventRelay.sendEventMessage(new MotechEvent(EventKeys.CHANGED_OBSERVATION_SUBJECT, obsParameters));
+            }
+        }
+    }
+
+    private boolean hasDetails(Encounter encounter) {
+        return encounter.getEncounterProviders() != null && !encounter.getEncounterProviders().isEmpty()
+                && encounter.getEncounterType() != null;
+    }
+
+    private Map<String, AtomFeedMarker> getMarkers() {
+        if (markers == null) {
+            markers = loadMarkers();
+        }
+        return markers;
+    }
+
+    private Map<String, AtomFeedMarker> loadMarkers() {
+        Map<String, AtomFeedMarker> loaded = null;
+
+        try (InputStream is = settingsFacade.getRawConfig(MARKERS_FILE_NAME)) {
+            if (is != null) {
+                loaded = new Gson().fromJson(IOUtils.toString(is, "UTF-8"), MARKERS_TYPE);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Unable to read " + MARKERS_FILE_NAME + ", the atom feeds will be read from their recent pages",
+                    e);
+        }
+
+        return loaded == null ? new HashMap<String, AtomFeedMarker>() : loaded;
+    }
+
+    private void saveMarkers() {
+        String json = new Gson().toJson(markers, MARKERS_TYPE);
+        settingsFacade.saveRawConfig(MARKERS_FILE_NAME, new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
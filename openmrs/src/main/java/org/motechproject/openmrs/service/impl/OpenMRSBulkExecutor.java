@@ -0,0 +1,220 @@
+package org.motechproject.openmrs.service.impl;
+
+import org.apache.commons.lang.StringUtils;
+import org.motechproject.openmrs.domain.BulkOperationResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Runs the records of a bulk operation against the OpenMRS server concurrently. The number of records in flight is
+ * bounded per configuration, so that a large import neither exhausts the pooled connections nor overloads a single
+ * OpenMRS server, and the caller is blocked once the limit is reached. The outcome of every record is reported
+ * separately, in the order of the records. If the caller is interrupted, the records in flight are cancelled and
+ * reported as interrupted, since the OpenMRS server might have processed them already.
+ */
+@Component
+public class OpenMRSBulkExecutor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OpenMRSBulkExecutor.class);
+
+    private static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 8;
+    private static final String NOT_PROCESSED = "The record was not processed";
+
+    /**
+     * A single operation performed for every record of the bulk operation.
+     *
+     * @param <T>  the type of the record
+     */
+    public interface Operation<T> {
+
+        /**
+         * Performs the operation for the given record.
+         *
+         * @param record  the record
+         * @return the record returned by the OpenMRS server, null if the operation failed
+         */
+        T execute(T record);
+    }
+
+    private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final int maxConcurrentRequests;
+
+    public OpenMRSBulkExecutor() {
+        this(DEFAULT_MAX_CONCURRENT_REQUESTS);
+    }
+
+    public OpenMRSBulkExecutor(int maxConcurrentRequests) {
+        this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+    }
+
+    /**
+     * Performs the given operation for all records, with a bounded number of records processed concurrently for the
+     * configuration. The method blocks until all records are processed. If the calling thread is interrupted, the
+     * remaining records are cancelled and the interrupted status of the thread is restored. The records in flight at
+     * that time are reported as {@link BulkOperationResult#isInterrupted() interrupted}, whereas the records that were
+     * never sent are reported as failed.
+     *
+     * @param configName  the name of the configuration
+     * @param records  the records to process
+     * @param operation  the operation to perform
+     * @param <T>  the type of the records
+     * @return the results of the operation, in the same order as the given records
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<BulkOperationResult<T>> execute(String configName, List<T> records, Operation<T> operation) {
+        AtomicReferenceArray<BulkOperationResult<T>> results = new AtomicReferenceArray<>(records.size());
+        List<RecordTask<T>> tasks = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+
+        Semaphore configPermits = getPermits(configName);
+
+        try {
+            for (int i = 0; i < records.size(); i++) {
+                RecordTask<T> task = new RecordTask<>(configPermits, i, records.get(i), operation, results);
+                futures.add(submit(configPermits, task));
+                tasks.add(task);
+            }
+
+            for (Future<?> future : futures) {
+                await(future);
+            }
+        } catch (InterruptedException e) {
+            LOGGER.warn("A bulk operation for the {} configuration was interrupted, cancelling the remaining records",
+                    configName);
+            for (int i = 0; i < futures.size(); i++) {
+                tasks.get(i).cancel();
+                futures.get(i).cancel(true);
+            }
+            Thread.currentThread().interrupt();
+        }
+
+        BulkOperationResult<T>[] outcomes = new BulkOperationResult[records.size()];
+
+        for (int i = 0; i < outcomes.length; i++) {
+            results.compareAndSet(i, null, BulkOperationResult.failure(records.get(i), NOT_PROCESSED));
+            outcomes[i] = results.get(i);
+        }
+
+        return Arrays.asList(outcomes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Future<?> submit(Semaphore configPermits, Runnable task) throws InterruptedException {
+        // blocks the caller once the configuration has the maximum number of records in flight
+        configPermits.acquire();
+
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            configPermits.release();
+            throw e;
+        }
+    }
+
+    private static <T> BulkOperationResult<T> process(T record, Operation<T> operation) {
+        try {
+            T result = operation.execute(record);
+
+            return result == null
+                    ? BulkOperationResult.<T>failure(record, "The OpenMRS server did not accept the record")
+                    : BulkOperationResult.success(record, result);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to process a record of a bulk operation: {}", e.getMessage());
+            return BulkOperationResult.failure(record, e.getMessage());
+        }
+    }
+
+    private void await(Future<?> future) throws InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            LOGGER.error("A record of a bulk operation failed unexpectedly", e.getCause());
+        }
+    }
+
+    /**
+     * Processes a single record and returns the permit of the configuration once done. A task cancelled before it
+     * started is reported as not processed and returns the permit right away, as it will never run. A task cancelled
+     * while running is reported as interrupted, whatever it completes with afterwards.
+     */
+    private static final class RecordTask<T> implements Runnable {
+
+        private final Semaphore configPermits;
+        private final int index;
+        private final T record;
+        private final Operation<T> operation;
+        private final AtomicReferenceArray<BulkOperationResult<T>> results;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private RecordTask(Semaphore configPermits, int index, T record, Operation<T> operation,
+                           AtomicReferenceArray<BulkOperationResult<T>> results) {
+            this.configPermits = configPermits;
+            this.index = index;
+            this.record = record;
+            this.operation = operation;
+            this.results = results;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                // the first result wins, so a record completing after its cancellation cannot change the outcome
+                results.compareAndSet(index, null, process(record, operation));
+            } finally {
+                configPermits.release();
+            }
+        }
+
+        private void cancel() {
+            if (started.compareAndSet(false, true)) {
+                results.compareAndSet(index, null, BulkOperationResult.failure(record, NOT_PROCESSED));
+                configPermits.release();
+            } else {
+                results.compareAndSet(index, null, BulkOperationResult.interrupted(record));
+            }
+        }
+    }
+
+    private Semaphore getPermits(String configName) {
+        // the default configuration can be referred to with a null name
+        String key = StringUtils.defaultString(configName);
+        Semaphore semaphore = permits.get(key);
+
+        if (semaphore == null) {
+            Semaphore newSemaphore = new Semaphore(maxConcurrentRequests);
+            semaphore = permits.putIfAbsent(key, newSemaphore);
+
+            if (semaphore == null) {
+                semaphore = newSemaphore;
+            }
+        }
+
+        return semaphore;
+    }
+}
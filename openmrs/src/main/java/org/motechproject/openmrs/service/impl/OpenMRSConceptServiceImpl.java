@@ -3,6 +3,7 @@ package org.motechproject.openmrs.service.impl;
 import org.apache.commons.lang.Validate;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
+import org.motechproject.openmrs.cache.OpenMRSMetadataCache;
 import org.motechproject.openmrs.config.Config;
 import org.motechproject.openmrs.domain.Concept;
 import org.motechproject.openmrs.domain.ConceptListResult;
@@ -20,9 +21,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+
+import static org.motechproject.openmrs.cache.OpenMRSMetadataCache.Region.CONCEPT_UUID_BY_NAME;
 
 @Service("conceptService")
 public class OpenMRSConceptServiceImpl implements OpenMRSConceptService {
@@ -35,42 +36,27 @@ public class OpenMRSConceptServiceImpl implements OpenMRSConceptService {
 
     private final EventRelay eventRelay;
 
-    private final Map<String, String> conceptCache = new HashMap<>();
+    private final OpenMRSMetadataCache metadataCache;
 
     @Autowired
     public OpenMRSConceptServiceImpl(ConceptResource conceptResource, EventRelay eventRelay,
-                                     OpenMRSConfigService configService) {
+                                     OpenMRSConfigService configService, OpenMRSMetadataCache metadataCache) {
         this.conceptResource = conceptResource;
         this.configService = configService;
         this.eventRelay = eventRelay;
+        this.metadataCache = metadataCache;
     }
 
     @Override
-    public String resolveConceptUuidFromConceptName(String configName, String name) {
-        if (conceptCache.containsKey(name)) {
-            return conceptCache.get(name);
-        }
-
-        ConceptListResult results;
-        try {
-            Config config = configService.getConfigByName(configName);
-            results = conceptResource.queryForConceptsByName(config, name);
-        } catch (HttpClientErrorException e) {
-            throw new OpenMRSException("There was an error retrieving the uuid of the concept with concept name: " + name, e);
-        }
+    public String resolveConceptUuidFromConceptName(String configName, final String name) {
+        final Config config = configService.getConfigByName(configName);
 
-        if (results.getResults().isEmpty()) {
-            throw new OpenMRSException("Can't create an encounter because no concept was found with name: " + name);
-        }
-
-        for (Concept concept : results.getResults()) {
-            if (concept.getDisplay().equals(name)) {
-                conceptCache.put(name, concept.getUuid());
-                return concept.getUuid();
+        return metadataCache.get(config.getName(), CONCEPT_UUID_BY_NAME, name, new OpenMRSMetadataCache.Loader<String>() {
+            @Override
+            public String load() {
+                return fetchConceptUuid(config, name);
             }
-        }
-
-        return null;
+        });
     }
 
     @Override
@@ -83,7 +69,7 @@ public class OpenMRSConceptServiceImpl implements OpenMRSConceptService {
         Concept created;
         try {
             created = conceptResource.createConcept(config, concept);
-            conceptCache.put(created.getName().getName(), created.getUuid());
+            metadataCache.put(config.getName(), CONCEPT_UUID_BY_NAME, created.getName().getName(), created.getUuid());
             eventRelay.sendEventMessage(new MotechEvent(EventKeys.CREATED_NEW_CONCEPT_SUBJECT, EventHelper.conceptParameters(created)));
 
         } catch (HttpClientErrorException e) {
@@ -152,7 +138,7 @@ public class OpenMRSConceptServiceImpl implements OpenMRSConceptService {
             Config config = configService.getConfigByName(configName);
             Concept concept = conceptResource.getConceptById(config, uuid);
             conceptResource.deleteConcept(config, uuid);
-            conceptCache.remove(concept.getName().getName());
+            metadataCache.evict(config.getName(), CONCEPT_UUID_BY_NAME, concept.getName().getName());
             eventRelay.sendEventMessage(new MotechEvent(EventKeys.DELETED_CONCEPT_SUBJECT, EventHelper.conceptParameters(concept)));
         } catch (HttpClientErrorException e) {
             LOGGER.error("Failed to remove concept with ID " + uuid);
@@ -176,6 +162,27 @@ public class OpenMRSConceptServiceImpl implements OpenMRSConceptService {
         return updatedConcept;
     }
 
+    private String fetchConceptUuid(Config config, String name) {
+        ConceptListResult results;
+        try {
+            results = conceptResource.queryForConceptsByName(config, name);
+        } catch (HttpClientErrorException e) {
+            throw new OpenMRSException("There was an error retrieving the uuid of the concept with concept name: " + name, e);
+        }
+
+        if (results.getResults().isEmpty()) {
+            throw new OpenMRSException("Can't create an encounter because no concept was found with name: " + name);
+        }
+
+        for (Concept concept : results.getResults()) {
+            if (concept.getDisplay().equals(name)) {
+                return concept.getUuid();
+            }
+        }
+
+        return null;
+    }
+
     private List<Concept> search(Config config, String phrase) {
         Validate.notEmpty(phrase, "Name cannot be empty");
 
@@ -5,11 +5,15 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
+import org.motechproject.openmrs.cache.OpenMRSLookupCache;
+import org.motechproject.openmrs.cache.OpenMRSMetadataCache;
 import org.motechproject.openmrs.config.Config;
+import org.motechproject.openmrs.domain.BulkOperationResult;
 import org.motechproject.openmrs.domain.Encounter;
 import org.motechproject.openmrs.domain.EncounterType;
 import org.motechproject.openmrs.domain.Observation;
 import org.motechproject.openmrs.domain.Patient;
+import org.motechproject.openmrs.exception.OpenMRSException;
 import org.motechproject.openmrs.helper.EventHelper;
 import org.motechproject.openmrs.resource.EncounterResource;
 import org.motechproject.openmrs.service.EventKeys;
@@ -25,7 +29,13 @@ import org.springframework.web.client.HttpClientErrorException;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.motechproject.openmrs.cache.OpenMRSMetadataCache.Region.ENCOUNTER_TYPE_BY_UUID;
 
 @Service("encounterService")
 public class OpenMRSEncounterServiceImpl implements OpenMRSEncounterService {
@@ -39,17 +49,27 @@ public class OpenMRSEncounterServiceImpl implements OpenMRSEncounterService {
 
     private final EncounterResource encounterResource;
 
+    private final OpenMRSBulkExecutor bulkExecutor;
+
     private final EventRelay eventRelay;
 
+    private final OpenMRSMetadataCache metadataCache;
+
+    private final OpenMRSLookupCache lookupCache;
+
     @Autowired
     public OpenMRSEncounterServiceImpl(EncounterResource encounterResource, OpenMRSPatientService patientAdapter,
                                        OpenMRSConceptService conceptAdapter, EventRelay eventRelay,
-                                       OpenMRSConfigService configService) {
+                                       OpenMRSConfigService configService, OpenMRSBulkExecutor bulkExecutor,
+                                       OpenMRSMetadataCache metadataCache, OpenMRSLookupCache lookupCache) {
         this.encounterResource = encounterResource;
         this.patientService = patientAdapter;
         this.conceptService = conceptAdapter;
         this.configService = configService;
         this.eventRelay = eventRelay;
+        this.bulkExecutor = bulkExecutor;
+        this.metadataCache = metadataCache;
+        this.lookupCache = lookupCache;
     }
 
     @Override
@@ -67,6 +87,8 @@ public class OpenMRSEncounterServiceImpl implements OpenMRSEncounterService {
         try {
             encounter.setObs(updatedObs);
             createdEncounter = encounterResource.createEncounter(config, encounter);
+            // the latest encounter of a patient may be cached, and is no longer the latest one
+            lookupCache.evict(config.getName(), Encounter.class);
 
             eventRelay.sendEventMessage(new MotechEvent(EventKeys.CREATED_NEW_ENCOUNTER_SUBJECT, EventHelper.encounterParameters(createdEncounter)));
         } catch (HttpClientErrorException e) {
@@ -77,6 +99,32 @@ public class OpenMRSEncounterServiceImpl implements OpenMRSEncounterService {
         return createdEncounter;
     }
 
+    @Override
+    public List<BulkOperationResult<Encounter>> createEncounters(String configName, List<Encounter> encounters) {
+        final Config config = configService.getConfigByName(configName);
+
+        // concepts are resolved once for the whole batch, rather than once for every observation
+        final Map<String, String> conceptUuids = resolveConceptUuids(config, encounters);
+
+        return bulkExecutor.execute(config.getName(), encounters, new OpenMRSBulkExecutor.Operation<Encounter>() {
+            @Override
+            public Encounter execute(Encounter encounter) {
+                validateEncounter(encounter);
+                setConceptUuids(encounter.getObs(), conceptUuids);
+
+                try {
+                    Encounter createdEncounter = encounterResource.createEncounter(config, encounter);
+                    lookupCache.evict(config.getName(), Encounter.class);
+                    eventRelay.sendEventMessage(new MotechEvent(EventKeys.CREATED_NEW_ENCOUNTER_SUBJECT, EventHelper.encounterParameters(createdEncounter)));
+
+                    return createdEncounter;
+                } catch (HttpClientErrorException e) {
+                    throw new OpenMRSException("Could not create encounter: " + e.getMessage(), e);
+                }
+            }
+        });
+    }
+
     @Override
     public Encounter getLatestEncounterByPatientMotechId(String configName, String motechId, String encounterType) {
         Config config = configService.getConfigByName(configName);
@@ -114,6 +162,7 @@ public class OpenMRSEncounterServiceImpl implements OpenMRSEncounterService {
         try {
             Config config = configService.getConfigByName(configName);
             encounterResource.deleteEncounter(config, uuid);
+            lookupCache.evict(config.getName(), Encounter.class);
             eventRelay.sendEventMessage(new MotechEvent(EventKeys.DELETED_ENCOUNTER_SUBJECT, EventHelper.encounterParameters(uuid)));
         } catch (HttpClientErrorException e) {
             LOGGER.error("Error deleting encounter with UUID: " + uuid);
@@ -124,7 +173,11 @@ public class OpenMRSEncounterServiceImpl implements OpenMRSEncounterService {
     public EncounterType createEncounterType(String configName, EncounterType encounterType) {
         try {
             Config config = configService.getConfigByName(configName);
-            return encounterResource.createEncounterType(config, encounterType);
+            EncounterType created = encounterResource.createEncounterType(config, encounterType);
+            if (created != null) {
+                metadataCache.put(config.getName(), ENCOUNTER_TYPE_BY_UUID, created.getUuid(), created);
+            }
+            return created;
         } catch (HttpClientErrorException e) {
             LOGGER.error("Error while creating encounter type with name: " + encounterType.getName());
             return null;
@@ -132,20 +185,28 @@ public class OpenMRSEncounterServiceImpl implements OpenMRSEncounterService {
     }
 
     @Override
-    public EncounterType getEncounterTypeByUuid(String configName, String uuid) {
-        try {
-            Config config = configService.getConfigByName(configName);
-            return encounterResource.getEncounterTypeByUuid(config, uuid);
-        } catch (HttpClientErrorException e) {
-            LOGGER.error("Error while fetching encounter type with UUID: " + uuid);
-            return null;
-        }
+    public EncounterType getEncounterTypeByUuid(String configName, final String uuid) {
+        final Config config = configService.getConfigByName(configName);
+
+        return metadataCache.get(config.getName(), ENCOUNTER_TYPE_BY_UUID, uuid,
+                new OpenMRSMetadataCache.Loader<EncounterType>() {
+                    @Override
+                    public EncounterType load() {
+                        try {
+                            return encounterResource.getEncounterTypeByUuid(config, uuid);
+                        } catch (HttpClientErrorException e) {
+                            LOGGER.error("Error while fetching encounter type with UUID: " + uuid);
+                            return null;
+                        }
+                    }
+                });
     }
 
     @Override
     public void deleteEncounterType(String configName, String uuid) {
         try {
             Config config = configService.getConfigByName(configName);
+            metadataCache.evict(config.getName(), ENCOUNTER_TYPE_BY_UUID, uuid);
             encounterResource.deleteEncounterType(config, uuid);
         } catch (HttpClientErrorException e) {
             LOGGER.error("Error deleting encounter type with UUID: " + uuid);
@@ -192,6 +253,54 @@ public class OpenMRSEncounterServiceImpl implements OpenMRSEncounterService {
         return updatedObs;
     }
 
+    private Map<String, String> resolveConceptUuids(Config config, List<Encounter> encounters) {
+        Set<String> conceptNames = new LinkedHashSet<>();
+        for (Encounter encounter : encounters) {
+            if (encounter != null) {
+                collectConceptNames(encounter.getObs(), conceptNames);
+            }
+        }
+
+        Map<String, String> conceptUuids = new HashMap<>();
+        for (String conceptName : conceptNames) {
+            try {
+                String conceptUuid = conceptService.resolveConceptUuidFromConceptName(config.getName(), conceptName);
+                if (conceptUuid != null) {
+                    conceptUuids.put(conceptName, conceptUuid);
+                }
+            } catch (OpenMRSException e) {
+                LOGGER.error("Unable to resolve the concept with name {}: {}", conceptName, e.getMessage());
+            }
+        }
+
+        return conceptUuids;
+    }
+
+    private void collectConceptNames(List<Observation> observations, Set<String> conceptNames) {
+        if (observations != null) {
+            for (Observation observation : observations) {
+                conceptNames.add(observation.getConcept().getName().getName());
+                collectConceptNames(observation.getGroupsMembers(), conceptNames);
+            }
+        }
+    }
+
+    private void setConceptUuids(List<Observation> observations, Map<String, String> conceptUuids) {
+        if (observations != null) {
+            for (Observation observation : observations) {
+                String conceptName = observation.getConcept().getName().getName();
+                String conceptUuid = conceptUuids.get(conceptName);
+
+                if (conceptUuid == null) {
+                    throw new OpenMRSException("Can't create an encounter because no concept was found with name: " + conceptName);
+                }
+
+                observation.getConcept().setUuid(conceptUuid);
+                setConceptUuids(observation.getGroupsMembers(), conceptUuids);
+            }
+        }
+    }
+
     private List<Encounter> getAllEncountersByPatientMotechId(Config config, String motechId) {
         Validate.notEmpty(motechId, "MOTECH Id cannot be empty");
 
@@ -1,17 +1,23 @@
 package org.motechproject.openmrs.service.impl;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ListMultimap;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.Validate;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
+import org.motechproject.openmrs.cache.OpenMRSLookupCache;
 import org.motechproject.openmrs.config.Config;
 import org.motechproject.openmrs.domain.Attribute;
+import org.motechproject.openmrs.domain.BulkOperationResult;
 import org.motechproject.openmrs.domain.Concept;
+import org.motechproject.openmrs.domain.Encounter;
 import org.motechproject.openmrs.domain.Identifier;
 import org.motechproject.openmrs.domain.IdentifierType;
 import org.motechproject.openmrs.domain.Patient;
 import org.motechproject.openmrs.domain.PatientListResult;
 import org.motechproject.openmrs.domain.Person;
+import org.motechproject.openmrs.domain.ProgramEnrollment;
 import org.motechproject.openmrs.exception.OpenMRSException;
 import org.motechproject.openmrs.exception.PatientNotFoundException;
 import org.motechproject.openmrs.helper.EventHelper;
@@ -31,8 +37,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 
 @Service("patientService")
 public class OpenMRSPatientServiceImpl implements OpenMRSPatientService {
@@ -43,18 +53,24 @@ public class OpenMRSPatientServiceImpl implements OpenMRSPatientService {
     private final OpenMRSConfigService configService;
     private final PatientResource patientResource;
     private final PersonResource personResource;
+    private final OpenMRSBulkExecutor bulkExecutor;
 
     private final EventRelay eventRelay;
 
+    private final OpenMRSLookupCache lookupCache;
+
     @Autowired
     public OpenMRSPatientServiceImpl(PatientResource patientResource, PersonResource personResource,
                                      OpenMRSPersonService personService, EventRelay eventRelay,
-                                     OpenMRSConfigService configService) {
+                                     OpenMRSConfigService configService, OpenMRSBulkExecutor bulkExecutor,
+                                     OpenMRSLookupCache lookupCache) {
         this.patientResource = patientResource;
         this.personResource = personResource;
         this.configService = configService;
         this.personService = personService;
         this.eventRelay = eventRelay;
+        this.bulkExecutor = bulkExecutor;
+        this.lookupCache = lookupCache;
     }
 
     @Override
@@ -63,31 +79,55 @@ public class OpenMRSPatientServiceImpl implements OpenMRSPatientService {
 
         Config config = configService.getConfigByName(configName);
 
-        if (patient.getPerson().getUuid() == null) {
-            patient.setPerson(personResource.createPerson(config, patient.getPerson()));
-        }
+        createPersonIfNeeded(config, patient);
 
-        IdentifierType identifierType = new IdentifierType();
-        identifierType.setUuid(getMotechPatientIdentifierTypeUuid(config));
-
-        Identifier motechIdentifier = new Identifier(patient.getMotechId(), identifierType, patient.getLocationForMotechId());
+        Identifier motechIdentifier = buildMotechIdentifier(patient, getMotechPatientIdentifierTypeUuid(config));
 
-        List<Identifier> parsedPatientIdentifiers = parsePatientIdentifiers(config, patient.getIdentifiers());
+        List<Identifier> parsedPatientIdentifiers = parsePatientIdentifiers(patient.getIdentifiers(),
+                resolveIdentifierTypeUuids(config, Collections.singletonList(patient)));
         parsedPatientIdentifiers.add(motechIdentifier);
 
         patient.setIdentifiers(parsedPatientIdentifiers);
 
         try {
-            Patient savedPatient = patientResource.createPatient(config, patient);
-            eventRelay.sendEventMessage(new MotechEvent(EventKeys.CREATED_NEW_PATIENT_SUBJECT, EventHelper.patientParameters(savedPatient)));
-
-            return savedPatient;
+            return savePatient(config, patient);
         } catch (HttpClientErrorException e) {
             LOGGER.error("Failed to create a patient in OpenMRS with MOTECH Id: " + patient.getMotechId());
             return null;
         }
     }
 
+    @Override
+    public List<BulkOperationResult<Patient>> createPatients(String configName, List<Patient> patients) {
+        final Config config = configService.getConfigByName(configName);
+
+        // identifier types are resolved once for the whole batch, rather than once for every patient
+        final String motechIdentifierTypeUuid = getMotechPatientIdentifierTypeUuid(config);
+        final Map<String, String> identifierTypeUuids = resolveIdentifierTypeUuids(config, patients);
+
+        return bulkExecutor.execute(config.getName(), patients, new OpenMRSBulkExecutor.Operation<Patient>() {
+            @Override
+            public Patient execute(Patient patient) {
+                validatePatientBeforeSave(patient);
+
+                createPersonIfNeeded(config, patient);
+
+                List<Identifier> parsedPatientIdentifiers = parsePatientIdentifiers(patient.getIdentifiers(),
+                        identifierTypeUuids);
+                parsedPatientIdentifiers.add(buildMotechIdentifier(patient, motechIdentifierTypeUuid));
+
+                patient.setIdentifiers(parsedPatientIdentifiers);
+
+                try {
+                    return savePatient(config, patient);
+                } catch (HttpClientErrorException e) {
+                    throw new OpenMRSException("Failed to create a patient in OpenMRS with MOTECH Id: "
+                            + patient.getMotechId(), e);
+                }
+            }
+        });
+    }
+
     @Override
     public Patient updatePatient(String configName, Patient patient, String currentMotechId) {
         Config config = configService.getConfigByName(configName);
@@ -163,6 +203,7 @@ public class OpenMRSPatientServiceImpl implements OpenMRSPatientService {
         }
 
         savePersonCauseOfDeath(config, patient.getUuid(), dateOfDeath, causeOfDeath);
+        evictPatientLookups(config);
         eventRelay.sendEventMessage(new MotechEvent(EventKeys.PATIENT_DECEASED_SUBJECT, EventHelper.patientParameters(patient)));
     }
 
@@ -171,6 +212,7 @@ public class OpenMRSPatientServiceImpl implements OpenMRSPatientService {
         try {
             Config config = configService.getConfigByName(configName);
             patientResource.deletePatient(config, uuid);
+            evictPatientLookups(config);
 
             Patient patient = new Patient();
             patient.setUuid(uuid);
@@ -181,6 +223,26 @@ public class OpenMRSPatientServiceImpl implements OpenMRSPatientService {
         }
     }
 
+    private void createPersonIfNeeded(Config config, Patient patient) {
+        if (patient.getPerson().getUuid() == null) {
+            patient.setPerson(personResource.createPerson(config, patient.getPerson()));
+        }
+    }
+
+    private Identifier buildMotechIdentifier(Patient patient, String motechIdentifierTypeUuid) {
+        IdentifierType identifierType = new IdentifierType();
+        identifierType.setUuid(motechIdentifierTypeUuid);
+
+        return new Identifier(patient.getMotechId(), identifierType, patient.getLocationForMotechId());
+    }
+
+    private Patient savePatient(Config config, Patient patient) {
+        Patient savedPatient = patientResource.createPatient(config, patient);
+        eventRelay.sendEventMessage(new MotechEvent(EventKeys.CREATED_NEW_PATIENT_SUBJECT, EventHelper.patientParameters(savedPatient)));
+
+        return savedPatient;
+    }
+
     private Patient getPatientByUuid(Config config, String uuid) {
         Validate.notEmpty(uuid, "Patient Id cannot be empty");
 
@@ -240,6 +302,7 @@ public class OpenMRSPatientServiceImpl implements OpenMRSPatientService {
         Patient updatedPatient;
         try {
             patientResource.updatePatientMotechId(config, patient.getUuid(), patient.getMotechId());
+            evictPatientLookups(config);
             updatedPatient = getPatientByUuid(config, patient.getUuid());
             eventRelay.sendEventMessage(new MotechEvent(EventKeys.UPDATED_PATIENT_SUBJECT, EventHelper.patientParameters(updatedPatient)));
         } catch (HttpClientErrorException e) {
@@ -258,6 +321,7 @@ public class OpenMRSPatientServiceImpl implements OpenMRSPatientService {
         try {
             //Patient Identifiers have to be update separately.
             updatePatientIdentifiers(config, patient, identifiersList);
+            evictPatientLookups(config);
             updatedPatient = getPatientByUuid(config, patient.getUuid());
             eventRelay.sendEventMessage(new MotechEvent(EventKeys.UPDATED_PATIENT_IDENTIFIERS_SUBJECT, EventHelper.patientParameters(updatedPatient)));
         } catch (HttpClientErrorException e) {
@@ -267,23 +331,20 @@ public class OpenMRSPatientServiceImpl implements OpenMRSPatientService {
     }
 
     private void updatePatientIdentifiers(Config config, Patient patient, List<Identifier> fetchedIdentifierList) {
-        String fetchedIdentifierName;
-        String newIdentifierName;
+        // index the fetched identifiers by their type name, instead of scanning all of them for every new identifier
+        ListMultimap<String, Identifier> fetchedIdentifiersByTypeName = ArrayListMultimap.create();
+        for (Identifier fetchedIdentifier : fetchedIdentifierList) {
+            fetchedIdentifiersByTypeName.put(fetchedIdentifier.getIdentifierType().getName(), fetchedIdentifier);
+        }
 
         for (Identifier newIdentifier : patient.getIdentifiers()) {
-            boolean isUpdated = false;
-
-            for (Identifier fetchedIdentifier : fetchedIdentifierList) {
-                fetchedIdentifierName = fetchedIdentifier.getIdentifierType().getName();
-                newIdentifierName = newIdentifier.getIdentifierType().getName();
+            List<Identifier> fetchedIdentifiers = fetchedIdentifiersByTypeName.get(newIdentifier.getIdentifierType().getName());
 
-                if (newIdentifierName.equals(fetchedIdentifierName)) {
-                    fetchedIdentifier.setIdentifier(newIdentifier.getIdentifier());
-                    patientResource.updatePatientIdentifier(config, patient.getUuid(), fetchedIdentifier);
-                    isUpdated = true;
-                }
+            for (Identifier fetchedIdentifier : fetchedIdentifiers) {
+                fetchedIdentifier.setIdentifier(newIdentifier.getIdentifier());
+                patientResource.updatePatientIdentifier(config, patient.getUuid(), fetchedIdentifier);
             }
-            if (!isUpdated) {
+            if (fetchedIdentifiers.isEmpty()) {
                 addNewPatientIdentifier(config, patient, newIdentifier);
             }
         }
@@ -377,28 +438,58 @@ public class OpenMRSPatientServiceImpl implements OpenMRSPatientService {
      * and swaps identifier type name for identifier type uuid.
      *
      * @param identifiers the identifiers of patient, key - identifier type name, value - identifier number
+     * @param identifierTypeUuids the uuids of the supported identifier types, see {@link #resolveIdentifierTypeUuids}
      * @return parsed patient identifiers, key - identifier type uuid, value - identifier number
      */
-    private List<Identifier> parsePatientIdentifiers(Config config, List<Identifier> identifiers) {
+    private List<Identifier> parsePatientIdentifiers(List<Identifier> identifiers, Map<String, String> identifierTypeUuids) {
         List<Identifier> parsedIdentifiers = new ArrayList<>();
 
         for (Identifier identifier : identifiers) {
             String identifierTypeName = identifier.getIdentifierType().getName();
+            String identifierTypeUuid = identifierTypeUuids.get(identifierTypeName);
+
+            if (identifierTypeUuid == null) {
+                LOGGER.warn("The identifier type with name {} is not supported", identifierTypeName);
+            } else {
+                identifier.getIdentifierType().setUuid(identifierTypeUuid);
+                parsedIdentifiers.add(identifier);
+            }
+        }
+
+        return parsedIdentifiers;
+    }
 
+    /**
+     * Resolves the uuids of all identifier types used by the given patients. Identifier types that are not supported
+     * by MOTECH are left out of the returned map.
+     *
+     * @param patients the patients
+     * @return the uuids of the identifier types, key - identifier type name, value - identifier type uuid
+     */
+    private Map<String, String> resolveIdentifierTypeUuids(Config config, List<Patient> patients) {
+        Set<String> identifierTypeNames = new LinkedHashSet<>();
+        for (Patient patient : patients) {
+            // invalid patients are rejected when they are saved
+            if (patient != null) {
+                for (Identifier identifier : patient.getIdentifiers()) {
+                    identifierTypeNames.add(identifier.getIdentifierType().getName());
+                }
+            }
+        }
+
+        Map<String, String> identifierTypeUuids = new HashMap<>();
+        for (String identifierTypeName : identifierTypeNames) {
             try {
                 String identifierTypeUuid = patientResource.getPatientIdentifierTypeUuidByName(config, identifierTypeName);
-                if (identifierTypeUuid == null) {
-                    LOGGER.warn("The identifier type with name {} is not supported", identifierTypeName);
-                } else {
-                    identifier.getIdentifierType().setUuid(identifierTypeUuid);
-                    parsedIdentifiers.add(identifier);
+                if (identifierTypeUuid != null) {
+                    identifierTypeUuids.put(identifierTypeName, identifierTypeUuid);
                 }
             } catch (HttpClientErrorException e) {
                 LOGGER.error("There was an exception retrieving the identifier type with name {}", identifierTypeName);
             }
         }
 
-        return parsedIdentifiers;
+        return identifierTypeUuids;
     }
 
     private void deleteAllAttributes(Config config, Person person) {
@@ -441,4 +532,9 @@ public class OpenMRSPatientServiceImpl implements OpenMRSPatientService {
             }
         }
     }
+
+    private void evictPatientLookups(Config config) {
+        // encounters and program enrollments looked up by the tasks embed their patient
+        lookupCache.evict(config.getName(), Patient.class, Encounter.class, ProgramEnrollment.class);
+    }
 }
@@ -4,9 +4,15 @@ import org.apache.commons.lang.Validate;
 import org.joda.time.DateTime;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
+import org.motechproject.openmrs.cache.OpenMRSLookupCache;
 import org.motechproject.openmrs.config.Config;
 import org.motechproject.openmrs.domain.Attribute;
+import org.motechproject.openmrs.domain.Encounter;
+import org.motechproject.openmrs.domain.Patient;
 import org.motechproject.openmrs.domain.Person;
+import org.motechproject.openmrs.domain.ProgramEnrollment;
+import org.motechproject.openmrs.domain.Provider;
+import org.motechproject.openmrs.domain.Relationship;
 import org.motechproject.openmrs.exception.OpenMRSException;
 import org.motechproject.openmrs.helper.EventHelper;
 import org.motechproject.openmrs.resource.PersonResource;
@@ -33,12 +39,15 @@ public class OpenMRSPersonServiceImpl implements OpenMRSPersonService {
 
     private final EventRelay eventRelay;
 
+    private final OpenMRSLookupCache lookupCache;
+
     @Autowired
     public OpenMRSPersonServiceImpl(PersonResource personResource, EventRelay eventRelay,
-                                    OpenMRSConfigService configService) {
+                                    OpenMRSConfigService configService, OpenMRSLookupCache lookupCache) {
         this.personResource = personResource;
         this.eventRelay = eventRelay;
         this.configService = configService;
+        this.lookupCache = lookupCache;
     }
 
     @Override
@@ -109,6 +118,7 @@ public class OpenMRSPersonServiceImpl implements OpenMRSPersonService {
             personResource.updatePersonName(config, person.getUuid(), person.getPreferredName());
 
             Person updated = personResource.updatePerson(config, person);
+            evictPersonLookups(config);
             eventRelay.sendEventMessage(new MotechEvent(EventKeys.UPDATED_PERSON_SUBJECT, EventHelper.personParameters(updated)));
 
             return updated;
@@ -122,6 +132,7 @@ public class OpenMRSPersonServiceImpl implements OpenMRSPersonService {
         try {
             Config config = configService.getConfigByName(configName);
             personResource.deletePerson(config, uuid);
+            evictPersonLookups(config);
             eventRelay.sendEventMessage(new MotechEvent(EventKeys.DELETED_PERSON_SUBJECT, EventHelper.personParameters(new Person(uuid))));
         } catch (HttpClientErrorException e) {
             throw new OpenMRSException("Failed to remove person with UUID: " + uuid, e);
@@ -137,4 +148,10 @@ public class OpenMRSPersonServiceImpl implements OpenMRSPersonService {
             }
         }
     }
+
+    private void evictPersonLookups(Config config) {
+        // every object looked up by the tasks embeds a person
+        lookupCache.evict(config.getName(), Patient.class, Encounter.class, Provider.class, Relationship.class,
+                ProgramEnrollment.class);
+    }
 }
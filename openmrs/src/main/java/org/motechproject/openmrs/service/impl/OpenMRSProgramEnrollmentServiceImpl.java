@@ -3,6 +3,7 @@ package org.motechproject.openmrs.service.impl;
 import org.apache.commons.lang.Validate;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.EventRelay;
+import org.motechproject.openmrs.cache.OpenMRSLookupCache;
 import org.motechproject.openmrs.config.Config;
 import org.motechproject.openmrs.domain.Patient;
 import org.motechproject.openmrs.domain.ProgramEnrollment;
@@ -32,13 +33,17 @@ public class OpenMRSProgramEnrollmentServiceImpl implements OpenMRSProgramEnroll
 
     private final EventRelay eventRelay;
 
+    private final OpenMRSLookupCache lookupCache;
+
     @Autowired
     public OpenMRSProgramEnrollmentServiceImpl(OpenMRSConfigService configService, OpenMRSPatientService patientService,
-                                               ProgramEnrollmentResource programEnrollmentResource, EventRelay eventRelay) {
+                                               ProgramEnrollmentResource programEnrollmentResource, EventRelay eventRelay,
+                                               OpenMRSLookupCache lookupCache) {
         this.configService = configService;
         this.patientService = patientService;
         this.programEnrollmentResource = programEnrollmentResource;
         this.eventRelay = eventRelay;
+        this.lookupCache = lookupCache;
     }
 
     @Override
@@ -48,6 +53,8 @@ public class OpenMRSProgramEnrollmentServiceImpl implements OpenMRSProgramEnroll
         try {
             Config config = configService.getConfigByName(configName);
             ProgramEnrollment created = programEnrollmentResource.createProgramEnrollment(config, programEnrollment);
+            // the enrollments of a patient are looked up together, so a new one makes the cached ones stale
+            lookupCache.evict(config.getName(), ProgramEnrollment.class);
             eventRelay.sendEventMessage(new MotechEvent(EventKeys.CREATED_PROGRAM_ENROLLMENT, EventHelper.programEnrollmentParameters(created)));
             return created;
         } catch (HttpClientErrorException e) {
@@ -62,7 +69,9 @@ public class OpenMRSProgramEnrollmentServiceImpl implements OpenMRSProgramEnroll
 
         try {
             Config config = configService.getConfigByName(configName);
-            return programEnrollmentResource.updateProgramEnrollment(config, programEnrollment);
+            ProgramEnrollment updated = programEnrollmentResource.updateProgramEnrollment(config, programEnrollment);
+            lookupCache.evict(config.getName(), ProgramEnrollment.class);
+            return updated;
         } catch (HttpClientErrorException e) {
             throw new OpenMRSException("Could not update program enrollment with uuid: " + programEnrollment.getUuid(), e);
         }
@@ -85,6 +94,7 @@ public class OpenMRSProgramEnrollmentServiceImpl implements OpenMRSProgramEnroll
         try {
             Config config = configService.getConfigByName(configName);
             programEnrollmentResource.deleteProgramEnrollment(config, uuid);
+            lookupCache.evict(config.getName(), ProgramEnrollment.class);
         } catch (HttpClientErrorException e) {
             throw new OpenMRSException("Could not delete program enrollment with uuid: " + uuid, e);
         }
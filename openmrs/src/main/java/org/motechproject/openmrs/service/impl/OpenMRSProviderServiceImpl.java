@@ -1,5 +1,6 @@
 package org.motechproject.openmrs.service.impl;
 
+import org.motechproject.openmrs.cache.OpenMRSLookupCache;
 import org.motechproject.openmrs.config.Config;
 import org.motechproject.openmrs.domain.Provider;
 import org.motechproject.openmrs.resource.ProviderResource;
@@ -20,10 +21,14 @@ public class OpenMRSProviderServiceImpl implements OpenMRSProviderService {
 
     private final ProviderResource providerResource;
 
+    private final OpenMRSLookupCache lookupCache;
+
     @Autowired
-    OpenMRSProviderServiceImpl(ProviderResource providerResource, OpenMRSConfigService configService) {
+    OpenMRSProviderServiceImpl(ProviderResource providerResource, OpenMRSConfigService configService,
+                               OpenMRSLookupCache lookupCache) {
         this.providerResource = providerResource;
         this.configService = configService;
+        this.lookupCache = lookupCache;
     }
 
     @Override
@@ -53,6 +58,7 @@ public class OpenMRSProviderServiceImpl implements OpenMRSProviderService {
         try {
             Config config = configService.getConfigByName(configName);
             providerResource.deleteProvider(config, uuid);
+            lookupCache.evict(config.getName(), Provider.class);
         } catch (HttpClientErrorException e) {
             LOGGER.error("Error while deleting provider with UUID: " + uuid);
         }
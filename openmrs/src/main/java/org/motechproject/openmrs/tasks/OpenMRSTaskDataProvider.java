@@ -6,6 +6,8 @@ import org.motechproject.commons.api.AbstractDataProvider;
 import org.motechproject.commons.api.DataProvider;
 import org.motechproject.event.MotechEvent;
 import org.motechproject.event.listener.annotations.MotechListener;
+import org.motechproject.openmrs.cache.OpenMRSLookupCache;
+import org.motechproject.openmrs.domain.BulkOperationResult;
 import org.motechproject.openmrs.domain.Encounter;
 import org.motechproject.openmrs.domain.Patient;
 import org.motechproject.openmrs.domain.ProgramEnrollment;
@@ -16,6 +18,7 @@ import org.motechproject.openmrs.service.OpenMRSPatientService;
 import org.motechproject.openmrs.service.OpenMRSProgramEnrollmentService;
 import org.motechproject.openmrs.service.OpenMRSProviderService;
 import org.motechproject.openmrs.service.OpenMRSRelationshipService;
+import org.motechproject.openmrs.service.impl.OpenMRSBulkExecutor;
 import org.motechproject.openmrs.tasks.builder.OpenMRSTaskDataProviderBuilder;
 import org.motechproject.openmrs.tasks.constants.EventSubjects;
 import org.osgi.framework.BundleContext;
@@ -25,7 +28,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -67,11 +73,15 @@ public class OpenMRSTaskDataProvider extends AbstractDataProvider {
     private BundleContext bundleContext;
     private ServiceRegistration serviceRegistration;
 
+    private final OpenMRSLookupCache lookupCache;
+    private final OpenMRSBulkExecutor bulkExecutor;
+
     @Autowired
     public OpenMRSTaskDataProvider(OpenMRSTaskDataProviderBuilder taskDataProviderBuilder,
                                    OpenMRSEncounterService encounterService, OpenMRSPatientService patientService,
                                    OpenMRSProviderService providerService, OpenMRSRelationshipService relationshipService,
-                                   OpenMRSProgramEnrollmentService programEnrollmentService, BundleContext bundleContext) {
+                                   OpenMRSProgramEnrollmentService programEnrollmentService, BundleContext bundleContext,
+                                   OpenMRSLookupCache lookupCache, OpenMRSBulkExecutor bulkExecutor) {
         this.encounterService = encounterService;
         this.patientService = patientService;
         this.providerService = providerService;
@@ -79,12 +89,17 @@ public class OpenMRSTaskDataProvider extends AbstractDataProvider {
         this.relationshipService = relationshipService;
         this.programEnrollmentService = programEnrollmentService;
         this.bundleContext = bundleContext;
+        this.lookupCache = lookupCache;
+        this.bulkExecutor = bulkExecutor;
 
         generateProvider(null);
     }
 
     @MotechListener(subjects = { EventSubjects.CONFIG_CHANGE_EVENT })
     public synchronized void generateProvider(MotechEvent event) {
+        // objects cached for a configuration could have come from another server
+        lookupCache.clear();
+
         String body = dataProviderBuilder.generateDataProvider();
         setBody(body);
 
@@ -119,6 +134,76 @@ public class OpenMRSTaskDataProvider extends AbstractDataProvider {
 
     @Override
     public Object lookup(String type, String lookupName, Map<String, String> lookupFields) {
+        String key = OpenMRSLookupCache.buildKey(type, lookupName, lookupFields);
+        Object obj = lookupCache.get(key);
+
+        if (obj == null) {
+            obj = lookupInOpenMRS(type, lookupName, lookupFields);
+            lookupCache.put(key, obj);
+        }
+
+        return obj;
+    }
+
+    /**
+     * Performs the same lookup for many sets of lookup fields, for example to resolve the patients of a batch of
+     * events handled by a task. Every distinct set of lookup fields is resolved only once in the batch, objects
+     * retrieved recently by other lookups are reused, and the remaining ones are retrieved concurrently, with as many
+     * requests in flight as the bulk operations of the configuration allow. The retrieved objects are cached for the
+     * following lookups.
+     *
+     * @param type  the type of the object, including the name of the configuration
+     * @param lookupName  the name of the lookup
+     * @param lookupFieldsList  the lookup fields, one entry per object to retrieve
+     * @return the retrieved objects, in the same order as the given lookup fields, null for objects not found
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> lookupAll(final String type, final String lookupName, List<Map<String, String>> lookupFieldsList) {
+        // the objects of this batch, unlike the shared cache this one also remembers the objects that were not found
+        Map<String, Object> resolved = new HashMap<>();
+        Map<String, Object> missing = new LinkedHashMap<>();
+
+        for (Map<String, String> lookupFields : lookupFieldsList) {
+            String key = OpenMRSLookupCache.buildKey(type, lookupName, lookupFields);
+
+            if (!resolved.containsKey(key) && !missing.containsKey(key)) {
+                Object obj = lookupCache.get(key);
+                if (obj == null) {
+                    missing.put(key, lookupFields);
+                } else {
+                    resolved.put(key, obj);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            String configName = type.substring(type.lastIndexOf('-') + 1);
+            List<BulkOperationResult<Object>> results = bulkExecutor.execute(configName, new ArrayList<>(missing.values()),
+                    new OpenMRSBulkExecutor.Operation<Object>() {
+                        @Override
+                        public Object execute(Object lookupFields) {
+                            return lookupInOpenMRS(type, lookupName, (Map<String, String>) lookupFields);
+                        }
+                    });
+
+            int i = 0;
+            for (String key : missing.keySet()) {
+                BulkOperationResult<Object> result = results.get(i++);
+                Object obj = result.isSuccess() ? result.getResult() : null;
+                lookupCache.put(key, obj);
+                resolved.put(key, obj);
+            }
+        }
+
+        List<Object> objects = new ArrayList<>(lookupFieldsList.size());
+        for (Map<String, String> lookupFields : lookupFieldsList) {
+            objects.add(resolved.get(OpenMRSLookupCache.buildKey(type, lookupName, lookupFields)));
+        }
+
+        return objects;
+    }
+
+    private Object lookupInOpenMRS(String type, String lookupName, Map<String, String> lookupFields) {
         Object obj = null;
 
         String objectType = type.substring(0, type.lastIndexOf('-'));
@@ -6,6 +6,7 @@ package org.motechproject.openmrs.tasks.constants;
 public final class EventSubjects {
 
     public static final String CONFIG_CHANGE_EVENT = "org.motechproject.openmrs.configChange";
+    public static final String ATOM_FEED_POLL_EVENT = "org.motechproject.openmrs.atomFeedPoll";
 
     /**
      * Utility class, should not be initiated.
@@ -3,6 +3,7 @@ package org.motechproject.openmrs.tasks.impl;
 import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.StringUtils;
 import org.joda.time.DateTime;
+import org.motechproject.openmrs.cache.OpenMRSMetadataCache;
 import org.motechproject.openmrs.domain.Concept;
 import org.motechproject.openmrs.domain.ConceptName;
 import org.motechproject.openmrs.domain.Encounter;
@@ -17,6 +18,7 @@ import org.motechproject.openmrs.domain.Program;
 import org.motechproject.openmrs.domain.ProgramEnrollment;
 import org.motechproject.openmrs.domain.Provider;
 import org.motechproject.openmrs.service.OpenMRSConceptService;
+import org.motechproject.openmrs.service.OpenMRSConfigService;
 import org.motechproject.openmrs.service.OpenMRSEncounterService;
 import org.motechproject.openmrs.service.OpenMRSLocationService;
 import org.motechproject.openmrs.service.OpenMRSPatientService;
@@ -35,6 +37,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
+import static org.motechproject.openmrs.cache.OpenMRSMetadataCache.Region.LOCATION_BY_NAME;
+import static org.motechproject.openmrs.cache.OpenMRSMetadataCache.Region.PROVIDER_BY_UUID;
+
 /**
  * Implementation of the {@link org.motechproject.openmrs.tasks.OpenMRSActionProxyService} interface.
  */
@@ -50,14 +55,22 @@ public class OpenMRSActionProxyServiceImpl implements OpenMRSActionProxyService
     private OpenMRSProviderService providerService;
     private OpenMRSProgramEnrollmentService programEnrollmentService;
     private OpenMRSPersonService personService;
+    private OpenMRSMetadataCache metadataCache;
+    private OpenMRSConfigService configService;
 
     @Override
-    public void createEncounter(String configName, DateTime encounterDatetime, String encounterType,
-                                String locationName, String patientUuid, String providerUuid,
+    public void createEncounter(final String configName, DateTime encounterDatetime, String encounterType,
+                                String locationName, String patientUuid, final String providerUuid,
                                 Map<String, String> observations) {
         Location location = getLocationByName(configName, locationName);
         Patient patient = patientService.getPatientByUuid(configName, patientUuid);
-        Provider provider = providerService.getProviderByUuid(configName, providerUuid);
+        Provider provider = metadataCache.get(resolveConfigName(configName), PROVIDER_BY_UUID, providerUuid,
+                new OpenMRSMetadataCache.Loader<Provider>() {
+                    @Override
+                    public Provider load() {
+                        return providerService.getProviderByUuid(configName, providerUuid);
+                    }
+                });
 
         //While creating observations, the encounterDateTime is used as a obsDateTime.
         List<Observation> observationList = MapUtils.isNotEmpty(observations) ? convertObservationMapToList(observations, encounterDatetime) : null;
@@ -171,7 +184,31 @@ public class OpenMRSActionProxyServiceImpl implements OpenMRSActionProxyService
         return getLocationByName(configName, DEFAULT_LOCATION_NAME);
     }
 
-    private Location getLocationByName(String configName, String locationName) {
+    private Location getLocationByName(final String configName, final String locationName) {
+        Location location = null;
+
+        if (StringUtils.isNotEmpty(locationName)) {
+            location = metadataCache.get(resolveConfigName(configName), LOCATION_BY_NAME, locationName,
+                    new OpenMRSMetadataCache.Loader<Location>() {
+                        @Override
+                        public Location load() {
+                            return fetchLocationByName(configName, locationName);
+                        }
+                    });
+        }
+
+        return location;
+    }
+
+    /**
+     * Returns the name of the configuration, so that the metadata of the default configuration is cached under its
+     * name, whether it was referred to with a null, an empty or its actual name.
+     */
+    private String resolveConfigName(String configName) {
+        return configService.getConfigByName(configName).getName();
+    }
+
+    private Location fetchLocationByName(String configName, String locationName) {
         Location location = null;
 
         if (StringUtils.isNotEmpty(locationName)) {
@@ -286,4 +323,14 @@ public class OpenMRSActionProxyServiceImpl implements OpenMRSActionProxyService
     public void setProgramEnrollmentService(OpenMRSProgramEnrollmentService programEnrollmentService) {
         this.programEnrollmentService = programEnrollmentService;
     }
+
+    @Autowired
+    public void setMetadataCache(OpenMRSMetadataCache metadataCache) {
+        this.metadataCache = metadataCache;
+    }
+
+    @Autowired
+    public void setConfigService(OpenMRSConfigService configService) {
+        this.configService = configService;
+    }
 }
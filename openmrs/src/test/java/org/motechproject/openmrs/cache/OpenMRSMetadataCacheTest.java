@@ -0,0 +1,101 @@
+package org.motechproject.openmrs.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.openmrs.tasks.constants.EventSubjects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.motechproject.openmrs.cache.OpenMRSMetadataCache.Region.CONCEPT_UUID_BY_NAME;
+import static org.motechproject.openmrs.cache.OpenMRSMetadataCache.Region.LOCATION_BY_NAME;
+
+public class OpenMRSMetadataCacheTest {
+
+    private OpenMRSMetadataCache cache;
+
+    private CountingLoader loader;
+
+    @Before
+    public void setUp() {
+        cache = new OpenMRSMetadataCache(2, 60000);
+        loader = new CountingLoader("uuid");
+    }
+
+    @Test
+    public void shouldLoadValueOnlyOnce() {
+        assertEquals("uuid", cache.get("one", CONCEPT_UUID_BY_NAME, "name", loader));
+        assertEquals("uuid", cache.get("one", CONCEPT_UUID_BY_NAME, "name", loader));
+
+        assertEquals(1, loader.calls);
+    }
+
+    @Test
+    public void shouldKeepConfigurationsAndRegionsSeparate() {
+        cache.get("one", CONCEPT_UUID_BY_NAME, "name", loader);
+        cache.get("two", CONCEPT_UUID_BY_NAME, "name", loader);
+        cache.get("one", LOCATION_BY_NAME, "name", loader);
+        cache.get(null, CONCEPT_UUID_BY_NAME, "name", loader);
+
+        assertEquals(4, loader.calls);
+    }
+
+    @Test
+    public void shouldNotCacheNullValues() {
+        CountingLoader nullLoader = new CountingLoader(null);
+
+        assertNull(cache.get("one", CONCEPT_UUID_BY_NAME, "name", nullLoader));
+        assertNull(cache.get("one", CONCEPT_UUID_BY_NAME, "name", nullLoader));
+
+        assertEquals(2, nullLoader.calls);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntry() {
+        cache.put("one", CONCEPT_UUID_BY_NAME, "a", "1");
+        cache.put("one", CONCEPT_UUID_BY_NAME, "b", "2");
+        cache.getIfPresent("one", CONCEPT_UUID_BY_NAME, "a");
+        cache.put("one", CONCEPT_UUID_BY_NAME, "c", "3");
+
+        assertEquals("1", cache.getIfPresent("one", CONCEPT_UUID_BY_NAME, "a"));
+        assertNull(cache.getIfPresent("one", CONCEPT_UUID_BY_NAME, "b"));
+        assertEquals("3", cache.getIfPresent("one", CONCEPT_UUID_BY_NAME, "c"));
+    }
+
+    @Test
+    public void shouldExpireEntries() throws InterruptedException {
+        cache = new OpenMRSMetadataCache(2, 1);
+        cache.put("one", CONCEPT_UUID_BY_NAME, "a", "1");
+
+        Thread.sleep(10);
+
+        assertNull(cache.getIfPresent("one", CONCEPT_UUID_BY_NAME, "a"));
+    }
+
+    @Test
+    public void shouldInvalidateCacheOnConfigChange() {
+        cache.put("one", CONCEPT_UUID_BY_NAME, "a", "1");
+        cache.put("two", CONCEPT_UUID_BY_NAME, "a", "1");
+
+        cache.handleConfigChange(new MotechEvent(EventSubjects.CONFIG_CHANGE_EVENT));
+
+        assertNull(cache.getIfPresent("one", CONCEPT_UUID_BY_NAME, "a"));
+        assertNull(cache.getIfPresent("two", CONCEPT_UUID_BY_NAME, "a"));
+    }
+
+    private static class CountingLoader implements OpenMRSMetadataCache.Loader<String> {
+
+        private final String value;
+        private int calls;
+
+        CountingLoader(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public String load() {
+            calls++;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.motechproject.openmrs.resource.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.motechproject.openmrs.config.Config;
+import org.motechproject.openmrs.config.ConfigDummyData;
+import org.motechproject.openmrs.domain.AtomFeedPage;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.RestOperations;
+
+import java.net.URI;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class AtomFeedResourceImplTest extends AbstractResourceImplTest {
+
+    private static final String PATIENT_RECENT_XML = "atomfeed/patient-recent.xml";
+
+    @Mock
+    private RestOperations restOperations;
+
+    private AtomFeedResourceImpl atomFeedResource;
+
+    private Config config;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+        atomFeedResource = new AtomFeedResourceImpl(restOperations);
+        config = ConfigDummyData.prepareConfig("one");
+    }
+
+    @Test
+    public void shouldReadRecentPage() throws Exception {
+        URI url = new URI(config.getOpenMrsUrl() + "/ws/atomfeed/patient/recent");
+
+        when(restOperations.exchange(eq(url), eq(HttpMethod.GET), any(HttpEntity.class), eq(String.class)))
+                .thenReturn(getResponse(PATIENT_RECENT_XML));
+
+        AtomFeedPage page = atomFeedResource.getRecentPage(config, "patient");
+
+        assertThat(page.getSelfUrl(), equalTo("http://localhost:8080/openmrs/ws/atomfeed/patient/recent"));
+        assertThat(page.getPageUrl(), equalTo("http://localhost:8080/openmrs/ws/atomfeed/patient/35"));
+        assertThat(page.getNextArchiveUrl(), nullValue());
+        assertThat(page.getEntries().size(), equalTo(2));
+        assertThat(page.getEntries().get(0).getId(),
+                equalTo("tag:atomfeed.ict4h.org:9cc95d86-1b8e-4582-a774-83cf4b73c23e"));
+        assertThat(page.getEntries().get(1).getContent(),
+                equalTo("/openmrs/ws/rest/v1/patient/0b8e8f56-2f4c-4a9e-8d6e-1f5d2c3b4a59?v=full"));
+    }
+}
@@ -4,6 +4,7 @@ import com.google.gson.JsonObject;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
+import org.motechproject.openmrs.cache.OpenMRSMetadataCache;
 import org.motechproject.openmrs.domain.Identifier;
 import org.motechproject.openmrs.domain.Patient;
 import org.motechproject.openmrs.domain.PatientListResult;
@@ -50,7 +51,7 @@ public class PatientResourceImplTest extends AbstractResourceImplTest {
     @Before
     public void setUp() {
         initMocks(this);
-        patientResource = new PatientResourceImpl(restOperations);
+        patientResource = new PatientResourceImpl(restOperations, new OpenMRSMetadataCache());
         config = ConfigDummyData.prepareConfig("one");
     }
 
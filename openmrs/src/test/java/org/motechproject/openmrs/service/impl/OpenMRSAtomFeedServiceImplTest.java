@@ -0,0 +1,218 @@
+package org.motechproject.openmrs.service.impl;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.motechproject.config.SettingsFacade;
+import org.motechproject.event.MotechEvent;
+import org.motechproject.event.listener.EventRelay;
+import org.motechproject.openmrs.config.Config;
+import org.motechproject.openmrs.domain.AtomFeedEntry;
+import org.motechproject.openmrs.domain.AtomFeedPage;
+import org.motechproject.openmrs.domain.Encounter;
+import org.motechproject.openmrs.domain.Patient;
+import org.motechproject.openmrs.resource.AtomFeedResource;
+import org.motechproject.openmrs.service.EventKeys;
+import org.motechproject.openmrs.service.OpenMRSConfigService;
+import org.motechproject.openmrs.service.OpenMRSEncounterService;
+import org.motechproject.openmrs.service.OpenMRSPatientService;
+import org.springframework.core.io.Resource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.initMocks;
+
+public class OpenMRSAtomFeedServiceImplTest {
+
+    private static final String CONFIG_NAME = "foo";
+    private static final String FEED_URL = "http://localhost:8080/openmrs/ws/atomfeed/";
+
+    @Mock
+    private OpenMRSConfigService configService;
+
+    @Mock
+    private OpenMRSPatientService patientService;
+
+    @Mock
+    private OpenMRSEncounterService encounterService;
+
+    @Mock
+    private AtomFeedResource atomFeedResource;
+
+    @Mock
+    private EventRelay eventRelay;
+
+    @Mock
+    private SettingsFacade settingsFacade;
+
+    private Config config;
+
+    private OpenMRSAtomFeedServiceImpl atomFeedService;
+
+    @Before
+    public void setUp() {
+        initMocks(this);
+
+        config = new Config();
+        config.setName(CONFIG_NAME);
+        when(configService.getConfigByName(CONFIG_NAME)).thenReturn(config);
+
+        atomFeedService = new OpenMRSAtomFeedServiceImpl(configService, patientService, encounterService,
+                atomFeedResource, new OpenMRSBulkExecutor(2), eventRelay, settingsFacade);
+    }
+
+    @Test
+    public void shouldPublishEachChangedPatientOnceAndStoreTheMarker() throws Exception {
+        AtomFeedPage patients = page(FEED_URL + "patient/recent", FEED_URL + "patient/3", null,
+                entry("1", "/openmrs/ws/rest/v1/patient/aaa-1?v=full"),
+                entry("2", "/openmrs/ws/rest/v1/patient/bbb-2?v=full"),
+                entry("3", "/openmrs/ws/rest/v1/patient/aaa-1?v=full"));
+        when(atomFeedResource.getRecentPage(config, OpenMRSAtomFeedServiceImpl.PATIENT_FEED)).thenReturn(patients);
+        when(atomFeedResource.getRecentPage(config, OpenMRSAtomFeedServiceImpl.ENCOUNTER_FEED))
+                .thenReturn(page(FEED_URL + "encounter/recent", FEED_URL + "encounter/1", null));
+        when(patientService.getPatientByUuid(CONFIG_NAME, "aaa-1")).thenReturn(patient("aaa-1"));
+        when(patientService.getPatientByUuid(CONFIG_NAME, "bbb-2")).thenReturn(patient("bbb-2"));
+
+        atomFeedService.pollFeeds(CONFIG_NAME);
+
+        verify(patientService, times(1)).getPatientByUuid(CONFIG_NAME, "aaa-1");
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay, times(2)).sendEventMessage(captor.capture());
+        List<MotechEvent> events = captor.getAllValues();
+        assertEquals(EventKeys.CHANGED_PATIENT_SUBJECT, events.get(0).getSubject());
+        assertEquals("aaa-1", events.get(0).getParameters().get(EventKeys.PATIENT_ID));
+        assertEquals(CONFIG_NAME, events.get(0).getParameters().get(EventKeys.CONFIG_NAME));
+        assertEquals("bbb-2", events.get(1).getParameters().get(EventKeys.PATIENT_ID));
+
+        ArgumentCaptor<Resource> markers = ArgumentCaptor.forClass(Resource.class);
+        verify(settingsFacade, times(2)).saveRawConfig(eq(OpenMRSAtomFeedServiceImpl.MARKERS_FILE_NAME),
+                markers.capture());
+        String json = IOUtils.toString(markers.getValue().getInputStream());
+        assertTrue(json.contains(FEED_URL + "patient/3"));
+    }
+
+    @Test
+    public void shouldResumeFromTheMarkerAndFollowArchivedPages() {
+        when(atomFeedResource.getRecentPage(config, OpenMRSAtomFeedServiceImpl.PATIENT_FEED))
+                .thenReturn(page(FEED_URL + "patient/recent", FEED_URL + "patient/1", null));
+        when(atomFeedResource.getRecentPage(config, OpenMRSAtomFeedServiceImpl.ENCOUNTER_FEED))
+                .thenReturn(page(FEED_URL + "encounter/recent", FEED_URL + "encounter/1", null,
+                        entry("1", "/openmrs/ws/rest/v1/encounter/ccc-1?v=full")));
+        when(encounterService.getEncounterByUuid(CONFIG_NAME, "ccc-1")).thenReturn(encounter("ccc-1"));
+
+        atomFeedService.pollFeeds(CONFIG_NAME);
+        verify(eventRelay, times(1)).sendEventMessage(any(MotechEvent.class));
+
+        // the first page got archived, and a new entry was added to it and to the new working page
+        when(atomFeedResource.getPage(config, FEED_URL + "patient/1"))
+                .thenReturn(page(FEED_URL + "patient/1", null, null));
+        when(atomFeedResource.getPage(config, FEED_URL + "encounter/1"))
+                .thenReturn(page(FEED_URL + "encounter/1", null, FEED_URL + "encounter/2",
+                        entry("1", "/openmrs/ws/rest/v1/encounter/ccc-1?v=full"),
+                        entry("2", "/openmrs/ws/rest/v1/encounter/ddd-2?v=full")));
+        when(atomFeedResource.getPage(config, FEED_URL + "encounter/2"))
+                .thenReturn(page(FEED_URL + "encounter/2", null, null,
+                        entry("3", "/openmrs/ws/rest/v1/encounter/eee-3?v=full")));
+        when(encounterService.getEncounterByUuid(CONFIG_NAME, "ddd-2")).thenReturn(encounter("ddd-2"));
+        when(encounterService.getEncounterByUuid(CONFIG_NAME, "eee-3")).thenReturn(encounter("eee-3"));
+
+        atomFeedService.pollFeeds(CONFIG_NAME);
+
+        verify(encounterService, times(1)).getEncounterByUuid(CONFIG_NAME, "ccc-1");
+        verify(encounterService).getEncounterByUuid(CONFIG_NAME, "ddd-2");
+        verify(encounterService).getEncounterByUuid(CONFIG_NAME, "eee-3");
+        verify(atomFeedResource, times(1)).getRecentPage(config, OpenMRSAtomFeedServiceImpl.ENCOUNTER_FEED);
+        verify(patientService, never()).getPatientByUuid(anyString(), anyString());
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay, times(3)).sendEventMessage(captor.capture());
+        assertEquals(EventKeys.CHANGED_ENCOUNTER_SUBJECT, captor.getAllValues().get(2).getSubject());
+        assertEquals("eee-3", captor.getAllValues().get(2).getParameters().get(EventKeys.ENCOUNTER_ID));
+    }
+
+    @Test
+    public void shouldRetryThePatientsThatCouldNotBeRetrieved() throws Exception {
+        when(atomFeedResource.getRecentPage(config, OpenMRSAtomFeedServiceImpl.PATIENT_FEED))
+                .thenReturn(page(FEED_URL + "patient/recent", FEED_URL + "patient/1", null,
+                        entry("1", "/openmrs/ws/rest/v1/patient/aaa-1?v=full"),
+                        entry("2", "/openmrs/ws/rest/v1/patient/bbb-2?v=full")));
+        when(atomFeedResource.getRecentPage(config, OpenMRSAtomFeedServiceImpl.ENCOUNTER_FEED))
+                .thenReturn(page(FEED_URL + "encounter/recent", FEED_URL + "encounter/1", null));
+        when(patientService.getPatientByUuid(CONFIG_NAME, "aaa-1"))
+                .thenThrow(new IllegalStateException("OpenMRS is unavailable"))
+                .thenReturn(patient("aaa-1"));
+        when(patientService.getPatientByUuid(CONFIG_NAME, "bbb-2")).thenReturn(patient("bbb-2"));
+
+        atomFeedService.pollFeeds(CONFIG_NAME);
+
+        ArgumentCaptor<MotechEvent> captor = ArgumentCaptor.forClass(MotechEvent.class);
+        verify(eventRelay, times(1)).sendEventMessage(captor.capture());
+        assertEquals("bbb-2", captor.getValue().getParameters().get(EventKeys.PATIENT_ID));
+
+        ArgumentCaptor<Resource> markers = ArgumentCaptor.forClass(Resource.class);
+        verify(settingsFacade, times(2)).saveRawConfig(eq(OpenMRSAtomFeedServiceImpl.MARKERS_FILE_NAME),
+                markers.capture());
+        String json = IOUtils.toString(markers.getAllValues().get(0).getInputStream());
+        assertTrue(json.contains("aaa-1"));
+        assertFalse(json.contains("bbb-2"));
+
+        // no new entries, but the patient that failed is retrieved again
+        when(atomFeedResource.getPage(config, FEED_URL + "patient/1"))
+                .thenReturn(page(FEED_URL + "patient/1", null, null,
+                        entry("1", "/openmrs/ws/rest/v1/patient/aaa-1?v=full"),
+                        entry("2", "/openmrs/ws/rest/v1/patient/bbb-2?v=full")));
+        when(atomFeedResource.getPage(config, FEED_URL + "encounter/1"))
+                .thenReturn(page(FEED_URL + "encounter/1", null, null));
+
+        atomFeedService.pollFeeds(CONFIG_NAME);
+
+        verify(patientService, times(2)).getPatientByUuid(CONFIG_NAME, "aaa-1");
+        verify(patientService, times(1)).getPatientByUuid(CONFIG_NAME, "bbb-2");
+        verify(eventRelay, times(2)).sendEventMessage(captor.capture());
+        assertEquals("aaa-1", captor.getValue().getParameters().get(EventKeys.PATIENT_ID));
+
+        verify(settingsFacade, times(3)).saveRawConfig(eq(OpenMRSAtomFeedServiceImpl.MARKERS_FILE_NAME),
+                markers.capture());
+        json = IOUtils.toString(markers.getValue().getInputStream());
+        assertFalse(json.contains("aaa-1"));
+    }
+
+    private AtomFeedPage page(String selfUrl, String viaUrl, String nextArchiveUrl, AtomFeedEntry... entries) {
+        AtomFeedPage page = new AtomFeedPage();
+        page.setSelfUrl(selfUrl);
+        page.setViaUrl(viaUrl);
+        page.setNextArchiveUrl(nextArchiveUrl);
+        page.setEntries(Arrays.asList(entries));
+        return page;
+    }
+
+    private AtomFeedEntry entry(String id, String content) {
+        return new AtomFeedEntry("tag:atomfeed.ict4h.org:" + id, content);
+    }
+
+    private Patient patient(String uuid) {
+        Patient patient = new Patient();
+        patient.setUuid(uuid);
+        return patient;
+    }
+
+    private Encounter encounter(String uuid) {
+        Encounter encounter = new Encounter();
+        encounter.setUuid(uuid);
+        return encounter;
+    }
+}
@@ -0,0 +1,136 @@
+package org.motechproject.openmrs.service.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.motechproject.openmrs.domain.BulkOperationResult;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class OpenMRSBulkExecutorTest {
+
+    private static final int MAX_CONCURRENT_REQUESTS = 2;
+
+    private OpenMRSBulkExecutor bulkExecutor;
+
+    @Before
+    public void setUp() {
+        bulkExecutor = new OpenMRSBulkExecutor(MAX_CONCURRENT_REQUESTS);
+    }
+
+    @After
+    public void tearDown() {
+        bulkExecutor.shutdown();
+    }
+
+    @Test
+    public void shouldReportResultsInOrderOfRecords() {
+        List<BulkOperationResult<String>> results = bulkExecutor.execute("one", Arrays.asList("a", "fail", "c", "null"),
+                new OpenMRSBulkExecutor.Operation<String>() {
+                    @Override
+                    public String execute(String record) {
+                        if ("fail".equals(record)) {
+                            throw new IllegalStateException("failed");
+                        }
+                        return "null".equals(record) ? null : record.toUpperCase();
+                    }
+                });
+
+        assertEquals(4, results.size());
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("A", results.get(0).getResult());
+
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("fail", results.get(1).getRecord());
+        assertEquals("failed", results.get(1).getErrorMessage());
+
+        assertTrue(results.get(2).isSuccess());
+        assertEquals("C", results.get(2).getResult());
+
+        assertFalse(results.get(3).isSuccess());
+        assertNull(results.get(3).getResult());
+    }
+
+    @Test
+    public void shouldBoundConcurrentRequestsPerConfiguration() {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+
+        bulkExecutor.execute(null, Arrays.asList("a", "b", "c", "d", "e", "f"), new OpenMRSBulkExecutor.Operation<String>() {
+            @Override
+            public String execute(String record) {
+                int current = inFlight.incrementAndGet();
+                maxInFlight.set(Math.max(maxInFlight.get(), current));
+
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                inFlight.decrementAndGet();
+                return record;
+            }
+        });
+
+        assertTrue(maxInFlight.get() <= MAX_CONCURRENT_REQUESTS);
+    }
+
+    @Test
+    public void shouldReportRecordsInFlightAsInterruptedWhenTheCallerIsInterrupted() throws Exception {
+        final CountDownLatch inFlight = new CountDownLatch(MAX_CONCURRENT_REQUESTS);
+        final AtomicReference<List<BulkOperationResult<String>>> results = new AtomicReference<>();
+
+        Thread caller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                results.set(bulkExecutor.execute("one", Arrays.asList("a", "b", "c"),
+                        new OpenMRSBulkExecutor.Operation<String>() {
+                            @Override
+                            public String execute(String record) {
+                                inFlight.countDown();
+                                try {
+                                    Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                                return record;
+                            }
+                        }));
+            }
+        });
+
+        caller.start();
+        assertTrue(inFlight.await(10, TimeUnit.SECONDS));
+        caller.interrupt();
+        caller.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertFalse(caller.isAlive());
+        assertTrue(results.get().get(0).isInterrupted());
+        assertTrue(results.get().get(1).isInterrupted());
+        assertFalse(results.get().get(2).isInterrupted());
+        assertFalse(results.get().get(2).isSuccess());
+
+        // the permits of the cancelled records are returned
+        List<BulkOperationResult<String>> next = bulkExecutor.execute("one", Arrays.asList("d", "e"),
+                new OpenMRSBulkExecutor.Operation<String>() {
+                    @Override
+                    public String execute(String record) {
+                        return record;
+                    }
+                });
+        assertTrue(next.get(0).isSuccess());
+        assertTrue(next.get(1).isSuccess());
+    }
+}
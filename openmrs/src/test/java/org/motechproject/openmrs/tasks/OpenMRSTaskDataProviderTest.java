@@ -1,12 +1,14 @@
 package org.motechproject.openmrs.tasks;
 
 import org.joda.time.DateTime;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.openmrs.cache.OpenMRSLookupCache;
 import org.motechproject.openmrs.config.Configs;
 import org.motechproject.openmrs.domain.Encounter;
 import org.motechproject.openmrs.domain.EncounterType;
@@ -23,6 +25,7 @@ import org.motechproject.openmrs.service.OpenMRSPatientService;
 import org.motechproject.openmrs.service.OpenMRSProgramEnrollmentService;
 import org.motechproject.openmrs.service.OpenMRSProviderService;
 import org.motechproject.openmrs.service.OpenMRSRelationshipService;
+import org.motechproject.openmrs.service.impl.OpenMRSBulkExecutor;
 import org.motechproject.openmrs.tasks.builder.OpenMRSTaskDataProviderBuilder;
 import org.osgi.framework.BundleContext;
 import org.springframework.core.io.ResourceLoader;
@@ -38,6 +41,8 @@ import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertNull;
 import static junit.framework.Assert.assertTrue;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -90,13 +95,24 @@ public class OpenMRSTaskDataProviderTest {
     @InjectMocks
     private OpenMRSTaskDataProviderBuilder taskDataProviderBuilder = new OpenMRSTaskDataProviderBuilder();
 
+    private OpenMRSLookupCache lookupCache;
+
+    private OpenMRSBulkExecutor bulkExecutor;
+
     private OpenMRSTaskDataProvider taskDataProvider;
 
     @Before
     public void setUp() {
         when(configService.getConfigs()).thenReturn(new Configs());
+        lookupCache = new OpenMRSLookupCache();
+        bulkExecutor = new OpenMRSBulkExecutor(2);
         taskDataProvider = new OpenMRSTaskDataProvider(taskDataProviderBuilder, encounterService, patientService,
-                providerService, relationshipService, programEnrollmentService, bundleContext);
+                providerService, relationshipService, programEnrollmentService, bundleContext, lookupCache, bulkExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        bulkExecutor.shutdown();
     }
 
     @Test
@@ -469,6 +485,64 @@ public class OpenMRSTaskDataProviderTest {
         assertNull(actual.getCurrentState());
     }
 
+    @Test
+    public void shouldReuseRecentlyRetrievedPatient() {
+        String className = Patient.class.getSimpleName();
+
+        Map<String, String> lookupFields = new HashMap<>();
+        lookupFields.put(MOTECH_ID, DEFAULT_MOTECH_ID);
+
+        Patient patient = new Patient();
+        patient.setMotechId(DEFAULT_MOTECH_ID);
+
+        when(patientService.getPatientByMotechId(CONFIG_NAME, DEFAULT_MOTECH_ID)).thenReturn(patient);
+
+        assertEquals(patient, taskDataProvider.lookup(className + '-' + CONFIG_NAME, BY_MOTECH_ID, lookupFields));
+        assertEquals(patient, taskDataProvider.lookup(className + '-' + CONFIG_NAME, BY_MOTECH_ID, lookupFields));
+
+        verify(patientService, times(1)).getPatientByMotechId(CONFIG_NAME, DEFAULT_MOTECH_ID);
+    }
+
+    @Test
+    public void shouldRetrievePatientAgainAfterEviction() {
+        String className = Patient.class.getSimpleName();
+
+        Map<String, String> lookupFields = new HashMap<>();
+        lookupFields.put(MOTECH_ID, DEFAULT_MOTECH_ID);
+
+        Patient patient = new Patient();
+        patient.setMotechId(DEFAULT_MOTECH_ID);
+
+        when(patientService.getPatientByMotechId(CONFIG_NAME, DEFAULT_MOTECH_ID)).thenReturn(patient);
+
+        taskDataProvider.lookup(className + '-' + CONFIG_NAME, BY_MOTECH_ID, lookupFields);
+        lookupCache.evict("anotherConfig", Patient.class);
+        lookupCache.evict(CONFIG_NAME, Encounter.class);
+        taskDataProvider.lookup(className + '-' + CONFIG_NAME, BY_MOTECH_ID, lookupFields);
+
+        verify(patientService, times(1)).getPatientByMotechId(CONFIG_NAME, DEFAULT_MOTECH_ID);
+
+        lookupCache.evict(CONFIG_NAME, Patient.class);
+        taskDataProvider.lookup(className + '-' + CONFIG_NAME, BY_MOTECH_ID, lookupFields);
+
+        verify(patientService, times(2)).getPatientByMotechId(CONFIG_NAME, DEFAULT_MOTECH_ID);
+    }
+
+    @Test
+    public void shouldBuildDistinctKeysForDistinctLookups() {
+        Map<String, String> firstLookupFields = new HashMap<>();
+        firstLookupFields.put("a", "b,c=d");
+
+        Map<String, String> secondLookupFields = new HashMap<>();
+        secondLookupFields.put("a", "b");
+        secondLookupFields.put("c", "d");
+
+        assertFalse(OpenMRSLookupCache.buildKey("Patient-" + CONFIG_NAME, BY_MOTECH_ID, firstLookupFields)
+                .equals(OpenMRSLookupCache.buildKey("Patient-" + CONFIG_NAME, BY_MOTECH_ID, secondLookupFields)));
+        assertFalse(OpenMRSLookupCache.buildKey("Patient-" + CONFIG_NAME, null, null)
+                .equals(OpenMRSLookupCache.buildKey("Patient-" + CONFIG_NAME, "", null)));
+    }
+
     private List<Relationship> prepareRelationship() {
         Relationship relationship = new Relationship();
         relationship.setUuid("relationShipUuid");
@@ -511,4 +585,39 @@ public class OpenMRSTaskDataProviderTest {
 
         return Collections.singletonList(programEnrollment);
     }
+
+    @Test
+    public void shouldResolveEveryDistinctPatientOnceInBatchLookup() {
+        String className = Patient.class.getSimpleName();
+
+        Map<String, String> firstLookupFields = new HashMap<>();
+        firstLookupFields.put(MOTECH_ID, DEFAULT_MOTECH_ID);
+
+        Map<String, String> secondLookupFields = new HashMap<>();
+        secondLookupFields.put(MOTECH_ID, "4");
+
+        Map<String, String> thirdLookupFields = new HashMap<>();
+        thirdLookupFields.put(MOTECH_ID, "5");
+
+        Patient patient = new Patient();
+        patient.setMotechId(DEFAULT_MOTECH_ID);
+        Patient cachedPatient = new Patient();
+        cachedPatient.setMotechId("5");
+
+        when(patientService.getPatientByMotechId(CONFIG_NAME, DEFAULT_MOTECH_ID)).thenReturn(patient);
+        when(patientService.getPatientByMotechId(CONFIG_NAME, "4")).thenReturn(null);
+        lookupCache.put(OpenMRSLookupCache.buildKey(className + '-' + CONFIG_NAME, BY_MOTECH_ID, thirdLookupFields), cachedPatient);
+
+        List<Object> results = taskDataProvider.lookupAll(className + '-' + CONFIG_NAME, BY_MOTECH_ID,
+                Arrays.asList(firstLookupFields, secondLookupFields, thirdLookupFields, firstLookupFields, secondLookupFields));
+
+        assertEquals(Arrays.<Object>asList(patient, null, cachedPatient, patient, null), results);
+        verify(patientService, times(1)).getPatientByMotechId(CONFIG_NAME, DEFAULT_MOTECH_ID);
+        verify(patientService, times(1)).getPatientByMotechId(CONFIG_NAME, "4");
+        verify(patientService, never()).getPatientByMotechId(CONFIG_NAME, "5");
+
+        // the patients found by the batch are cached for the following lookups
+        assertEquals(patient, taskDataProvider.lookup(className + '-' + CONFIG_NAME, BY_MOTECH_ID, firstLookupFields));
+        verify(patientService, times(1)).getPatientByMotechId(CONFIG_NAME, DEFAULT_MOTECH_ID);
+    }
 }
@@ -1,13 +1,17 @@
 package org.motechproject.openmrs.tasks.impl;
 
 import org.joda.time.DateTime;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.motechproject.openmrs.cache.OpenMRSMetadataCache;
+import org.motechproject.openmrs.config.Config;
 import org.motechproject.openmrs.domain.Concept;
 import org.motechproject.openmrs.domain.ConceptName;
 import org.motechproject.openmrs.domain.Encounter;
@@ -22,6 +26,7 @@ import org.motechproject.openmrs.domain.Program;
 import org.motechproject.openmrs.domain.ProgramEnrollment;
 import org.motechproject.openmrs.domain.Provider;
 import org.motechproject.openmrs.service.OpenMRSConceptService;
+import org.motechproject.openmrs.service.OpenMRSConfigService;
 import org.motechproject.openmrs.service.OpenMRSEncounterService;
 import org.motechproject.openmrs.service.OpenMRSLocationService;
 import org.motechproject.openmrs.service.OpenMRSPatientService;
@@ -36,8 +41,10 @@ import java.util.List;
 import java.util.Map;
 
 import static junit.framework.Assert.assertEquals;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -66,6 +73,12 @@ public class OpenMRSActionProxyServiceTest {
     @Mock
     private OpenMRSProgramEnrollmentService programEnrollmentService;
 
+    @Mock
+    private OpenMRSConfigService configService;
+
+    @Spy
+    private OpenMRSMetadataCache metadataCache = new OpenMRSMetadataCache();
+
     @Captor
     private ArgumentCaptor<Encounter> encounterCaptor;
 
@@ -81,6 +94,13 @@ public class OpenMRSActionProxyServiceTest {
     @InjectMocks
     private OpenMRSActionProxyService openMRSActionProxyService = new OpenMRSActionProxyServiceImpl();
 
+    @Before
+    public void setUp() {
+        Config config = new Config();
+        config.setName(CONFIG_NAME);
+        doReturn(config).when(configService).getConfigByName(any(String.class));
+    }
+
     @Test
     public void shouldCreateEncounterWithGivenParameters() {
         Location location = new Location();
@@ -118,6 +138,29 @@ public class OpenMRSActionProxyServiceTest {
         assertEquals(encounter, encounterCaptor.getValue());
     }
 
+    @Test
+    public void shouldCacheMetadataOfDefaultConfigUnderItsName() {
+        Location location = new Location();
+        location.setName("testLocation");
+
+        Provider provider = new Provider();
+        provider.setUuid("20");
+        provider.setPerson(new Person());
+
+        doReturn(provider).when(providerService).getProviderByUuid(any(String.class), eq(provider.getUuid()));
+        doReturn(Collections.singletonList(location))
+                .when(locationService).getLocations(any(String.class), eq(location.getName()));
+
+        DateTime encounterDatetime = new DateTime("2000-08-16T07:22:05Z");
+        openMRSActionProxyService.createEncounter(CONFIG_NAME, encounterDatetime, "testEncounterType",
+                location.getName(), "10", provider.getUuid(), null);
+        openMRSActionProxyService.createEncounter(null, encounterDatetime, "testEncounterType",
+                location.getName(), "10", provider.getUuid(), null);
+
+        verify(providerService, times(1)).getProviderByUuid(any(String.class), eq(provider.getUuid()));
+        verify(locationService, times(1)).getLocations(any(String.class), eq(location.getName()));
+    }
+
     @Test
     public void shouldCreatePatientWithGivenParameters() {
         Person person = createTestPerson();